@@ -25,20 +25,18 @@ import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.influxdb.InfluxDB;
-import cn.edu.tsinghua.iot.benchmark.influxdb.InfluxDataModel;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.GroupByQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.VerificationQuery;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.OkHttpClient.Builder;
 import okhttp3.Response;
-import org.influxdb.dto.BatchPoints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,7 +48,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 public class CnosDB extends InfluxDB implements IDatabase {
 
@@ -59,8 +56,8 @@ public class CnosDB extends InfluxDB implements IDatabase {
 
   private final String cnosUrl;
   private final String cnosDbName;
+  private final String writeUrl;
 
-  private org.influxdb.InfluxDB influxDbInstance;
   private CnosConnection cnosConnection;
   private static final long TIMESTAMP_TO_NANO = getToNanoConst(config.getTIMESTAMP_PRECISION());
 
@@ -69,19 +66,14 @@ public class CnosDB extends InfluxDB implements IDatabase {
     super(dbConfig);
     cnosUrl = "http://" + dbConfig.getHOST().get(0) + ":" + dbConfig.getPORT().get(0);
     cnosDbName = dbConfig.getDB_NAME();
+    writeUrl = cnosUrl + "/write?db=" + cnosDbName + "&precision=n&consistency=one";
   }
 
   @Override
   public void init() throws TsdbException {
     try {
-      Builder client =
-          new Builder()
-              .connectTimeout(5, TimeUnit.MINUTES)
-              .readTimeout(5, TimeUnit.MINUTES)
-              .writeTimeout(5, TimeUnit.MINUTES)
-              .retryOnConnectionFailure(true);
-      influxDbInstance = org.influxdb.InfluxDBFactory.connect(cnosUrl, client);
       cnosConnection = new CnosConnection(cnosUrl, cnosDbName);
+      transport = HttpTransport.open();
     } catch (Exception e) {
       LOGGER.error("Initialize CnosDB failed because ", e);
       throw new TsdbException(e);
@@ -121,23 +113,7 @@ public class CnosDB extends InfluxDB implements IDatabase {
 
   @Override
   public Status insertOneBatch(IBatch batch) {
-    BatchPoints batchPoints = BatchPoints.database(cnosDbName).build();
-    try {
-      InfluxDataModel model;
-      for (Record record : batch.getRecords()) {
-        model =
-            createDataModel(
-                batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue());
-        batchPoints.point(model.toInfluxPoint());
-      }
-
-      influxDbInstance.write(batchPoints);
-
-      return new Status(true);
-    } catch (Exception e) {
-      LOGGER.warn(e.getMessage());
-      return new Status(false, 0, e, e.toString());
-    }
+    return writeLineProtocol(writeUrl, batch);
   }
 
   @Override
@@ -23,7 +23,9 @@ import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.csv.CSVShutdownHook;
 import cn.edu.tsinghua.iot.benchmark.mode.BaseMode;
+import cn.edu.tsinghua.iot.benchmark.mode.CoordinatorMode;
 import cn.edu.tsinghua.iot.benchmark.mode.GenerateDataMode;
+import cn.edu.tsinghua.iot.benchmark.mode.GeneratorCeilingMode;
 import cn.edu.tsinghua.iot.benchmark.mode.TestWithDefaultPathMode;
 import cn.edu.tsinghua.iot.benchmark.mode.VerificationQueryMode;
 import cn.edu.tsinghua.iot.benchmark.mode.VerificationWriteMode;
@@ -64,6 +66,12 @@ public class App {
       case VERIFICATION_QUERY:
         baseMode = new VerificationQueryMode();
         break;
+      case COORDINATOR:
+        baseMode = new CoordinatorMode();
+        break;
+      case GENERATOR_CEILING:
+        baseMode = new GeneratorCeilingMode();
+        break;
       default:
         throw new SQLException("Unsupported mode:" + config.getBENCHMARK_WORK_MODE());
     }
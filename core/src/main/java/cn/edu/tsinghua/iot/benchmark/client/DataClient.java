@@ -22,12 +22,16 @@ package cn.edu.tsinghua.iot.benchmark.client;
 import cn.edu.tsinghua.iot.benchmark.client.generate.GenerateDataDeviceClient;
 import cn.edu.tsinghua.iot.benchmark.client.generate.GenerateDataMixClient;
 import cn.edu.tsinghua.iot.benchmark.client.generate.GenerateDataWriteClient;
+import cn.edu.tsinghua.iot.benchmark.client.progress.PhaseProgress;
 import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
 import cn.edu.tsinghua.iot.benchmark.client.real.RealDataSetQueryClient;
 import cn.edu.tsinghua.iot.benchmark.client.real.RealDataSetWriteClient;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
 import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.ThreadUsage;
+import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
@@ -44,6 +48,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 public abstract class DataClient implements Runnable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataClient.class);
@@ -63,11 +68,20 @@ public abstract class DataClient implements Runnable {
   /** Tested DataBase */
   protected DBWrapper dbWrapper = null;
 
+  /** Send writes of this client if MAX_IN_FLIGHT_PER_CLIENT > 1, otherwise null */
+  protected IngestionPipeline ingestionPipeline = null;
+
   /** Related Schema */
   protected final List<DeviceSchema> clientDeviceSchemas;
 
   protected TaskProgress taskProgress;
 
+  /** Phase of WORKLOAD_PHASE_FILE followed by this client, null if there is no workload phase */
+  protected PhaseProgress phaseProgress = null;
+
+  /** CPU and allocation of this client, null unless in generatorCeilingMode */
+  protected ThreadUsage threadUsage = null;
+
   /** Control the status */
   protected AtomicBoolean isStop = new AtomicBoolean(false);
 
@@ -86,6 +100,9 @@ public abstract class DataClient implements Runnable {
     this.clientDeviceSchemas =
         MetaDataSchema.getInstance().getDeviceSchemaByDataClientId(clientThreadId);
     this.taskProgress = taskProgress;
+    if (config.getBENCHMARK_WORK_MODE() == BenchmarkMode.GENERATOR_CEILING) {
+      this.threadUsage = new ThreadUsage(ThreadName.DATA_CLIENT_THREAD.getName() + "-" + id);
+    }
     initDBWrappers();
   }
 
@@ -93,6 +110,7 @@ public abstract class DataClient implements Runnable {
       int id, CountDownLatch countDownLatch, CyclicBarrier barrier, TaskProgress taskProgress) {
     switch (config.getBENCHMARK_WORK_MODE()) {
       case TEST_WITH_DEFAULT_PATH:
+      case GENERATOR_CEILING:
         if (config.isIS_POINT_COMPARISON()) {
           return new GenerateDataDeviceClient(id, countDownLatch, barrier, taskProgress);
         } else {
@@ -122,15 +140,28 @@ public abstract class DataClient implements Runnable {
         if (dbWrapper != null) {
           dbWrapper.init();
         }
+        if (ingestionPipeline != null) {
+          ingestionPipeline.init();
+        }
         taskProgress.setThreadName(Thread.currentThread().getName());
         // wait for that all dataClients start test simultaneously
         barrier.await();
 
-        doTest();
+        if (threadUsage != null) {
+          threadUsage.run(this::doTest);
+        } else {
+          doTest();
+        }
       } catch (Exception e) {
         LOGGER.error("Unexpected error: ", e);
       } finally {
+        // the batches prepared but not got when the client stops are left to other clients
+        dataWorkLoad.releaseBatches();
         try {
+          if (ingestionPipeline != null) {
+            // wait for the writes in flight before the test result is counted
+            ingestionPipeline.close();
+          }
           if (dbWrapper != null) {
             dbWrapper.close();
           }
@@ -147,17 +178,62 @@ public abstract class DataClient implements Runnable {
     return dbWrapper.getMeasurement();
   }
 
+  /** Get measurements of this client, including those of the connections of ingestion pipeline */
+  public Stream<Measurement> getMeasurements() {
+    if (ingestionPipeline == null) {
+      return Stream.of(getMeasurement());
+    }
+    return Stream.concat(Stream.of(getMeasurement()), ingestionPipeline.getMeasurements().stream());
+  }
+
+  /** Get CPU and allocation of this client and its writes in flight, empty if not measured */
+  public Stream<ThreadUsage> getThreadUsages() {
+    Stream<ThreadUsage> usages = threadUsage == null ? Stream.empty() : Stream.of(threadUsage);
+    if (ingestionPipeline != null && ingestionPipeline.getThreadUsage() != null) {
+      usages = Stream.concat(usages, Stream.of(ingestionPipeline.getThreadUsage()));
+    }
+    return usages;
+  }
+
   /** Do test, Notice please use `isStop` parameters to control */
   protected abstract void doTest();
 
   /** Init DBWrapper */
   protected void initDBWrappers() {
+    dbWrapper = new DBWrapper(getDBConfigs());
+  }
+
+  protected List<DBConfig> getDBConfigs() {
     List<DBConfig> dbConfigs = new ArrayList<>();
     dbConfigs.add(config.getDbConfig());
     if (config.isIS_DOUBLE_WRITE()) {
       dbConfigs.add(config.getANOTHER_DBConfig());
     }
-    dbWrapper = new DBWrapper(dbConfigs);
+    return dbConfigs;
+  }
+
+  /**
+   * Send writes by an ingestion pipeline if MAX_IN_FLIGHT_PER_CLIENT > 1, which has one more
+   * connection per write in flight besides that of this client
+   */
+  protected void initIngestionPipeline() {
+    if (config.getMAX_IN_FLIGHT_PER_CLIENT() <= 1) {
+      return;
+    }
+    List<DBWrapper> dbWrappers = new ArrayList<>();
+    dbWrappers.add(dbWrapper);
+    for (int i = 1; i < config.getMAX_IN_FLIGHT_PER_CLIENT(); i++) {
+      dbWrappers.add(new DBWrapper(getDBConfigs()));
+    }
+    ingestionPipeline = new IngestionPipeline(dbWrappers);
+    if (threadUsage != null) {
+      ingestionPipeline.setThreadUsage(
+          new ThreadUsage(threadUsage.getName() + "-" + ThreadName.INGESTION_PIPELINE.getName()));
+    }
+  }
+
+  public void setPhaseProgress(PhaseProgress phaseProgress) {
+    this.phaseProgress = phaseProgress;
   }
 
   /** Stop client */
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client;
+
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.ThreadUsage;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBWrapper;
+import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keep up to MAX_IN_FLIGHT_PER_CLIENT writes of one client on the wire at once. The client owns a
+ * small pool of connections, i.e. DBWrappers, the first of which is its own. Each submitted batch
+ * is sent by an idle connection while the client goes on generating the next batch, and the client
+ * waits when all connections are busy. The adapters block until the server responds, so each write
+ * in flight takes a thread of the pipeline, which is a virtual thread with ENABLE_VIRTUAL_THREAD.
+ *
+ * <p>Every connection measures the latency of its own requests in its own {@link Measurement},
+ * which has to be merged with that of the client, see {@link #getMeasurements()}. The connection of
+ * the client is used by the pipeline while writes are in flight, so the client has to call {@link
+ * #awaitInFlight()} before it uses it itself, e.g. for a query.
+ */
+public class IngestionPipeline {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IngestionPipeline.class);
+
+  private static final long NO_INTENDED_START_TIME = Long.MIN_VALUE;
+
+  /** Connections of the pipeline, the first one is that of the client */
+  private final List<DBWrapper> dbWrappers;
+
+  /** Connections without a write in flight, taken by submit and put back when the write ends */
+  private final BlockingQueue<DBWrapper> idleDBWrappers;
+
+  private final ExecutorService executorService;
+
+  /** CPU and allocation of the writes in flight, null if not measured */
+  private ThreadUsage threadUsage = null;
+
+  /** Set when a write lost the connection, the rest is dropped and the client should stop then */
+  private volatile boolean failed = false;
+
+  /**
+   * @param dbWrappers one connection per write in flight, the first one is that of the client. The
+   *     others are initialized and closed by the pipeline.
+   */
+  public IngestionPipeline(List<DBWrapper> dbWrappers) {
+    this.dbWrappers = new ArrayList<>(dbWrappers);
+    this.idleDBWrappers = new ArrayBlockingQueue<>(dbWrappers.size(), false, dbWrappers);
+    this.executorService =
+        ExecutorUtils.newJobExecutor(ThreadName.INGESTION_PIPELINE, dbWrappers.size());
+  }
+
+  /** Open the connections of the pipeline, that of the client must be initialized by the client */
+  public void init() throws TsdbException {
+    for (int i = 1; i < dbWrappers.size(); i++) {
+      dbWrappers.get(i).init();
+    }
+  }
+
+  /**
+   * Send one batch by an idle connection, wait if there are already MAX_IN_FLIGHT_PER_CLIENT writes
+   * in flight. The batch must not be changed until the write is finished.
+   *
+   * @return false if a previous write lost the connection
+   */
+  public boolean submit(IBatch batch) throws InterruptedException {
+    return submit(batch, NO_INTENDED_START_TIME);
+  }
+
+  /**
+   * Send one batch by an idle connection in open loop mode, its latency is measured from the
+   * intended start time.
+   *
+   * @param intendedStartTime unit: ns, as returned by System.nanoTime()
+   * @see #submit(IBatch)
+   */
+  public boolean submit(IBatch batch, long intendedStartTime) throws InterruptedException {
+    if (failed) {
+      return false;
+    }
+    DBWrapper dbWrapper = idleDBWrappers.take();
+    if (failed) {
+      idleDBWrappers.put(dbWrapper);
+      return false;
+    }
+    if (threadUsage == null) {
+      executorService.execute(() -> write(dbWrapper, batch, intendedStartTime));
+    } else {
+      executorService.execute(
+          () -> threadUsage.run(() -> write(dbWrapper, batch, intendedStartTime)));
+    }
+    return true;
+  }
+
+  private void write(DBWrapper dbWrapper, IBatch batch, long intendedStartTime) {
+    try {
+      if (intendedStartTime != NO_INTENDED_START_TIME) {
+        dbWrapper.setIntendedStartTime(intendedStartTime);
+      }
+      dbWrapper.insertOneBatchWithCheck(batch);
+    } catch (DBConnectException e) {
+      LOGGER.error("Failed to insert one batch data because ", e);
+      failed = true;
+    } catch (Exception e) {
+      LOGGER.error("Failed to insert one batch data because ", e);
+    } finally {
+      idleDBWrappers.add(dbWrapper);
+    }
+  }
+
+  /** Wait for all writes in flight to finish, the DBWrapper can be used by the client then */
+  public void awaitInFlight() throws InterruptedException {
+    List<DBWrapper> idle = new ArrayList<>(dbWrappers.size());
+    try {
+      while (idle.size() < dbWrappers.size()) {
+        idle.add(idleDBWrappers.take());
+      }
+    } finally {
+      idleDBWrappers.addAll(idle);
+    }
+  }
+
+  /**
+   * Wait for writes in flight, then close the connections of the pipeline. That of the client is
+   * closed by the client.
+   */
+  public void close() throws TsdbException {
+    try {
+      awaitInFlight();
+    } catch (InterruptedException e) {
+      LOGGER.error("Interrupted when waiting for writes in flight", e);
+      Thread.currentThread().interrupt();
+    }
+    executorService.shutdown();
+    try {
+      // CPU and allocation of the writes are counted when they return
+      if (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOGGER.error("Writes of ingestion pipeline do not stop in time");
+      }
+    } catch (InterruptedException e) {
+      LOGGER.error("Interrupted when waiting for the writes to stop", e);
+      Thread.currentThread().interrupt();
+    }
+    for (int i = 1; i < dbWrappers.size(); i++) {
+      dbWrappers.get(i).close();
+    }
+  }
+
+  /** Measurements of the connections of the pipeline, except that of the client */
+  public List<Measurement> getMeasurements() {
+    return dbWrappers.stream().skip(1).map(DBWrapper::getMeasurement).collect(Collectors.toList());
+  }
+
+  /** Measure CPU and allocation of the writes, must be set before the first submit */
+  public void setThreadUsage(ThreadUsage threadUsage) {
+    this.threadUsage = threadUsage;
+  }
+
+  public ThreadUsage getThreadUsage() {
+    return threadUsage;
+  }
+}
@@ -21,7 +21,9 @@ package cn.edu.tsinghua.iot.benchmark.client.generate;
 
 import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
 import cn.edu.tsinghua.iot.benchmark.client.operation.OperationController;
+import cn.edu.tsinghua.iot.benchmark.client.operation.OperationScheduler;
 import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
+import cn.edu.tsinghua.iot.benchmark.conf.WorkloadPhase;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 
 import java.util.Random;
@@ -33,6 +35,12 @@ public class GenerateDataMixClient extends GenerateBaseClient {
   /** Control operation according to OPERATION_PROPORTION */
   private final OperationController operationController;
 
+  /** Issue operations at a target rate in open loop mode, null in closed loop mode */
+  private OperationScheduler operationScheduler;
+
+  /** Index of the workload phase applied to this client, -1 before the first phase */
+  private int phaseIndex = -1;
+
   private final Random random = new Random(config.getDATA_SEED() + clientThreadId);
 
   public GenerateDataMixClient(
@@ -40,6 +48,8 @@ public class GenerateDataMixClient extends GenerateBaseClient {
     super(id, countDownLatch, barrier, taskProgress);
     // TODO exclude control model
     this.operationController = new OperationController(id);
+    this.operationScheduler = OperationScheduler.getInstance(dbWrapper.getMeasurement());
+    initIngestionPipeline();
   }
 
   /** Do Operations */
@@ -48,6 +58,9 @@ public class GenerateDataMixClient extends GenerateBaseClient {
     long start = 0;
     taskProgress.resetLoopIndex();
     for (; taskProgress.getLoopIndex() < config.getLOOP(); taskProgress.incrementLoopIndex()) {
+      if (phaseProgress != null && !applyWorkloadPhase()) {
+        break;
+      }
       Operation operation = operationController.getNextOperationType();
       if (config.getOP_MIN_INTERVAL() > 0) {
         start = System.currentTimeMillis();
@@ -66,7 +79,14 @@ public class GenerateDataMixClient extends GenerateBaseClient {
           }
           queryWorkLoad.updateTime(timestamp);
         }
+        if (operationScheduler != null) {
+          dbWrapper.setIntendedStartTime(operationScheduler.acquireQuery());
+        }
         try {
+          if (ingestionPipeline != null) {
+            // queries share the connection and the measurement with the writes in flight
+            ingestionPipeline.awaitInFlight();
+          }
           switch (operation) {
             case PRECISE_QUERY:
               dbWrapper.preciseQuery(queryWorkLoad.getPreciseQuery());
@@ -111,7 +131,7 @@ public class GenerateDataMixClient extends GenerateBaseClient {
       if (isStop.get()) {
         break;
       }
-      if (config.getOP_MIN_INTERVAL() > 0) {
+      if (config.getOP_MIN_INTERVAL() > 0 && operationScheduler == null) {
         long opMinInterval;
         if (config.isOP_MIN_INTERVAL_RANDOM()) {
           opMinInterval = (long) (random.nextDouble() * config.getOP_MIN_INTERVAL());
@@ -133,27 +153,79 @@ public class GenerateDataMixClient extends GenerateBaseClient {
     }
   }
 
+  /**
+   * Follow the current workload phase, wait if this client is not active in it
+   *
+   * @return false if all phases are finished
+   */
+  private boolean applyWorkloadPhase() {
+    int current = phaseProgress.getPhaseIndex();
+    if (current == phaseIndex) {
+      return true;
+    }
+    try {
+      current = phaseProgress.awaitActive(clientThreadId);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    if (current < 0) {
+      return false;
+    }
+    phaseIndex = current;
+    WorkloadPhase phase = phaseProgress.getPhase(current);
+    operationController.setOperationProportion(phase.getOperationProportion());
+    operationScheduler = OperationScheduler.getInstance(phase, dbWrapper.getMeasurement());
+    dataWorkLoad.setBatchSize(phase.getBatchSizePerWrite());
+    if (!config.isIS_QUIET_MODE()) {
+      LOGGER.info("[Client-{}] enters workload phase {}", clientThreadId, phase.getName());
+    }
+    return true;
+  }
+
+  /** Insert one batch, in pipeline way it returns once the batch is handed over to the sender */
+  private boolean insertOneBatch(IBatch batch) throws Exception {
+    if (ingestionPipeline != null) {
+      if (operationScheduler != null) {
+        return ingestionPipeline.submit(batch, operationScheduler.acquireWrite(batch.pointNum()));
+      }
+      return ingestionPipeline.submit(batch);
+    }
+    if (operationScheduler != null) {
+      dbWrapper.setIntendedStartTime(operationScheduler.acquireWrite(batch.pointNum()));
+    }
+    dbWrapper.insertOneBatchWithCheck(batch);
+    return true;
+  }
+
+  /** Get the number of batches written for the i-th device schema of this client */
+  private int getInnerLoop(int i) {
+    if (config.isIS_SENSOR_TS_ALIGNMENT()) {
+      return 1;
+    }
+    if (config.isIS_CLIENT_BIND()) {
+      return clientDeviceSchemas.get(i).getSensors().size();
+    }
+    return clientDeviceSchemas.get(i).getSensors().size() * config.getDEVICE_NUMBER();
+  }
+
   /** Do Ingestion Operation @Return when connect failed return false */
   private boolean ingestionOperation() {
     try {
+      long batchNum = 0;
       for (int i = 0; i < clientDeviceSchemas.size(); i += config.getDEVICE_NUM_PER_WRITE()) {
-        int innerLoop = 0;
-        if (config.isIS_SENSOR_TS_ALIGNMENT()) {
-          innerLoop = 1;
-        } else {
-          if (config.isIS_CLIENT_BIND()) {
-            innerLoop = clientDeviceSchemas.get(i).getSensors().size();
-          } else {
-            innerLoop = clientDeviceSchemas.get(i).getSensors().size() * config.getDEVICE_NUMBER();
-          }
-        }
+        batchNum += getInnerLoop(i);
+      }
+      dataWorkLoad.prepareBatches(batchNum);
+      for (int i = 0; i < clientDeviceSchemas.size(); i += config.getDEVICE_NUM_PER_WRITE()) {
+        int innerLoop = getInnerLoop(i);
         for (int j = 0; j < innerLoop; j++) {
           if (isStop.get()) {
             return true;
           }
           IBatch batch = dataWorkLoad.getOneBatch();
-          if (checkBatch(batch)) {
-            dbWrapper.insertOneBatchWithCheck(batch);
+          if (checkBatch(batch) && !insertOneBatch(batch)) {
+            return false;
           }
         }
       }
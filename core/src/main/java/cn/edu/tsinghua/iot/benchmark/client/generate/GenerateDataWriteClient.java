@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.extern.DataWriter;
 
+import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 
@@ -47,12 +48,21 @@ public class GenerateDataWriteClient extends GenerateBaseClient {
         break;
       }
     }
+    try {
+      dataWriter.close();
+    } catch (IOException e) {
+      LOGGER.error("Failed to close data files because ", e);
+    }
   }
 
   /** Do Ingestion Operation @Return when connect failed return false */
   private boolean doGenerate() {
     try {
       final int innerLoop = config.isIS_SENSOR_TS_ALIGNMENT() ? 1 : config.getSENSOR_NUMBER();
+      final int deviceLoop =
+          (clientDeviceSchemas.size() + config.getDEVICE_NUM_PER_WRITE() - 1)
+              / config.getDEVICE_NUM_PER_WRITE();
+      dataWorkLoad.prepareBatches((long) deviceLoop * innerLoop);
       for (int i = 0; i < clientDeviceSchemas.size(); i += config.getDEVICE_NUM_PER_WRITE()) {
         for (int j = 0; j < innerLoop; j++) {
           IBatch batch = dataWorkLoad.getOneBatch();
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client.operation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Alias table of Vose to sample operations by a proportion such as OPERATION_PROPORTION in constant
+ * time. The proportions are cut into columns of the same height, each column holds at most two
+ * operations, so a sample only picks a column and one of its two operations with one random number.
+ * The table is immutable and can be shared by clients.
+ */
+public class OperationAliasTable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OperationAliasTable.class);
+
+  private final Operation[] operations;
+
+  /** Probability of each column to return its own operation instead of its alias */
+  private final double[] threshold;
+
+  private final int[] alias;
+
+  /** The operation when only one operation has positive proportion, otherwise null */
+  private final Operation single;
+
+  /**
+   * @param proportion proportions of normal operations separated by ':', missing ones are 0
+   */
+  public OperationAliasTable(String proportion) {
+    List<Operation> normalOperations = Operation.getNormalOperation();
+    String[] split = proportion.split(":");
+    if (split.length != normalOperations.size()) {
+      LOGGER.error("OPERATION_PROPORTION error, please check this parameter.");
+    }
+    int n = normalOperations.size();
+    operations = normalOperations.toArray(new Operation[0]);
+    double[] weights = new double[n];
+    double sum = 0;
+    int positive = 0;
+    for (int i = 0; i < n && i < split.length; i++) {
+      weights[i] = Double.parseDouble(split[i]);
+      sum += weights[i];
+      if (weights[i] > 0) {
+        positive++;
+      }
+    }
+    if (sum <= 0) {
+      LOGGER.error("The sum of operation proportions is zero, use default operation: INGESTION.");
+      weights[0] = 1;
+      sum = 1;
+      positive = 1;
+    }
+    threshold = new double[n];
+    alias = new int[n];
+    Operation only = null;
+    if (positive == 1) {
+      for (int i = 0; i < n; i++) {
+        if (weights[i] > 0) {
+          only = operations[i];
+        }
+      }
+    }
+    single = only;
+    build(weights, sum);
+  }
+
+  private void build(double[] weights, double sum) {
+    int n = weights.length;
+    double[] scaled = new double[n];
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int smallSize = 0;
+    int largeSize = 0;
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / sum;
+      if (scaled[i] < 1) {
+        small[smallSize++] = i;
+      } else {
+        large[largeSize++] = i;
+      }
+    }
+    while (smallSize > 0 && largeSize > 0) {
+      int less = small[--smallSize];
+      int more = large[--largeSize];
+      threshold[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small[smallSize++] = more;
+      } else {
+        large[largeSize++] = more;
+      }
+    }
+    // the rest are full columns, up to rounding errors
+    while (largeSize > 0) {
+      int full = large[--largeSize];
+      threshold[full] = 1;
+      alias[full] = full;
+    }
+    while (smallSize > 0) {
+      int full = small[--smallSize];
+      threshold[full] = 1;
+      alias[full] = full;
+    }
+  }
+
+  /** Sample the next operation, without allocation */
+  public Operation sample(Random random) {
+    if (single != null) {
+      return single;
+    }
+    double u = random.nextDouble() * operations.length;
+    int column = (int) u;
+    return u - column < threshold[column] ? operations[column] : operations[alias[column]];
+  }
+}
@@ -25,42 +25,44 @@ import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 public class OperationController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(OperationController.class);
   private static Config config = ConfigDescriptor.getInstance().getConfig();
-  private List<Double> proportion = new ArrayList<>();
-  private List<Operation> operations = Operation.getNormalOperation();
-  private boolean isAllWrite = false;
-  private Random random;
+
+  /** Operation proportion of each phase, the last phase lasts until the end of test */
+  private final OperationAliasTable[] phaseTables;
+
+  /** Duration of each phase in nanoseconds */
+  private final long[] phaseNanos;
+
+  private int phase = 0;
+
+  /** When the current phase ends, 0 before the first operation */
+  private long phaseEndNanos = 0;
+
+  private OperationAliasTable table;
+  private final Random random;
 
   public OperationController(int seed) {
     random = new Random(seed);
-    String[] split = config.getOPERATION_PROPORTION().split(":");
-    if (split.length != Operation.getNormalOperation().size()) {
-      LOGGER.error("OPERATION_PROPORTION error, please check this parameter.");
-    }
-    double[] proportions = new double[Operation.getNormalOperation().size()];
-    double sum = 0;
-    for (int i = 0; i < split.length; i++) {
-      proportions[i] = Double.parseDouble(split[i]);
-      sum += proportions[i];
-    }
-    for (int i = 0; i < split.length; i++) {
-      if (sum != 0) {
-        proportion.add(proportions[i] / sum);
-      } else {
-        proportion.add(0.0);
-        LOGGER.error("The sum of operation proportions is zero!");
-      }
+    String schedule = config.getOPERATION_PROPORTION_SCHEDULE();
+    String[] phases = schedule.isEmpty() ? new String[0] : schedule.split(";");
+    phaseTables = new OperationAliasTable[Math.max(phases.length, 1)];
+    phaseNanos = new long[phaseTables.length];
+    if (phases.length == 0) {
+      phaseTables[0] = new OperationAliasTable(config.getOPERATION_PROPORTION());
     }
-    if (Math.abs(proportion.get(0) - 1.0) < 1e-7) {
-      isAllWrite = true;
+    for (int i = 0; i < phases.length; i++) {
+      // duration in second=proportion
+      String[] phase = phases[i].split("=");
+      phaseNanos[i] = TimeUnit.SECONDS.toNanos(Long.parseLong(phase[0].trim()));
+      phaseTables[i] = new OperationAliasTable(phase[1].trim());
     }
+    table = phaseTables[0];
   }
 
   /**
@@ -69,51 +71,33 @@ public class OperationController {
    * @return Operation the next operation for client to execute
    */
   public Operation getNextOperationType() {
-    if (isAllWrite) {
-      return Operation.INGESTION;
+    if (phase < phaseTables.length - 1) {
+      nextPhaseIfEnded();
     }
-    // p contains cumulative probability
-    double[] p = new double[operations.size() + 1];
-    p[0] = 0.0;
-    for (int i = 1; i <= operations.size(); i++) {
-      p[i] = p[i - 1] + proportion.get(i - 1);
-    }
-    // use random to getNextOperationType
-    double rand = random.nextDouble();
-    int i;
-    for (i = 1; i <= Operation.getNormalOperation().size(); i++) {
-      if (rand >= p[i - 1] && rand <= p[i]) {
-        break;
-      }
+    return table.sample(random);
+  }
+
+  /**
+   * Sample operations by proportion from now on, used when a workload phase starts. It overrides
+   * OPERATION_PROPORTION_SCHEDULE
+   */
+  public void setOperationProportion(String proportion) {
+    table = new OperationAliasTable(proportion);
+    phase = phaseTables.length - 1;
+  }
+
+  /** The phases start from the first operation of this client */
+  private void nextPhaseIfEnded() {
+    long now = System.nanoTime();
+    if (phaseEndNanos == 0) {
+      phaseEndNanos = now + phaseNanos[0];
     }
-    switch (i) {
-      case 1:
-        return Operation.INGESTION;
-      case 2:
-        return Operation.PRECISE_QUERY;
-      case 3:
-        return Operation.RANGE_QUERY;
-      case 4:
-        return Operation.VALUE_RANGE_QUERY;
-      case 5:
-        return Operation.AGG_RANGE_QUERY;
-      case 6:
-        return Operation.AGG_VALUE_QUERY;
-      case 7:
-        return Operation.AGG_RANGE_VALUE_QUERY;
-      case 8:
-        return Operation.GROUP_BY_QUERY;
-      case 9:
-        return Operation.LATEST_POINT_QUERY;
-      case 10:
-        return Operation.RANGE_QUERY_ORDER_BY_TIME_DESC;
-      case 11:
-        return Operation.VALUE_RANGE_QUERY_ORDER_BY_TIME_DESC;
-      case 12:
-        return Operation.GROUP_BY_QUERY_ORDER_BY_TIME_DESC;
-      default:
-        LOGGER.error("Unsupported operation {}, use default operation: INGESTION.", i);
-        return Operation.INGESTION;
+    while (now >= phaseEndNanos) {
+      phase++;
+      table = phaseTables[phase];
+      phaseEndNanos =
+          phase == phaseTables.length - 1 ? Long.MAX_VALUE : phaseEndNanos + phaseNanos[phase];
+      LOGGER.debug("{} enters operation phase {}", Thread.currentThread().getName(), phase);
     }
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client.operation;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.conf.WorkloadPhase;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedule the operations of one client at a constant rate (open loop). Each operation gets an
+ * intended start time on a fixed schedule which does not depend on how long the previous operations
+ * took. If the database stalls, the delayed operations are sent back-to-back to catch up instead of
+ * being silently skipped, and latency is measured from the intended start time to correct
+ * coordinated omission.
+ */
+public class OperationScheduler {
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+  private static final double NANO_TO_SECOND = 1000000000.0d;
+
+  private final ThroughputUnit unit;
+
+  /** The schedule time of one operation or one point, unit: ns */
+  private final double nanosPerUnit;
+
+  /** The cost of one query if the rate is in points, i.e. the points of one write batch */
+  private final long queryPointNum;
+
+  private final Measurement measurement;
+
+  /** The time when the first operation is scheduled, unit: ns */
+  private long startTime = -1;
+
+  /** Offset of the next intended start from startTime, unit: ns */
+  private double nextOffset = 0;
+
+  /**
+   * @param targetThroughput target rate of this client, in operations or points per second
+   * @param unit unit of targetThroughput
+   * @param measurement measurement of client, which records the missed slots
+   */
+  public OperationScheduler(double targetThroughput, ThroughputUnit unit, Measurement measurement) {
+    this.unit = unit;
+    this.nanosPerUnit = NANO_TO_SECOND / targetThroughput;
+    this.measurement = measurement;
+    long sensorNumPerWrite = config.isIS_SENSOR_TS_ALIGNMENT() ? config.getSENSOR_NUMBER() : 1;
+    this.queryPointNum =
+        config.getBATCH_SIZE_PER_WRITE() * config.getDEVICE_NUM_PER_WRITE() * sensorNumPerWrite;
+  }
+
+  /** Create the scheduler of one client according to TARGET_THROUGHPUT, null if not enabled */
+  public static OperationScheduler getInstance(Measurement measurement) {
+    return getInstance(config.getTARGET_THROUGHPUT(), config.getDATA_CLIENT_NUMBER(), measurement);
+  }
+
+  /** Create the scheduler of one client in a workload phase, null if the phase is closed loop */
+  public static OperationScheduler getInstance(WorkloadPhase phase, Measurement measurement) {
+    return getInstance(phase.getTargetThroughput(), phase.getClientNumber(), measurement);
+  }
+
+  private static OperationScheduler getInstance(
+      double targetThroughput, int clientNumber, Measurement measurement) {
+    if (targetThroughput <= 0) {
+      return null;
+    }
+    if (!config.isIS_TARGET_THROUGHPUT_PER_CLIENT()) {
+      // the global rate is shared evenly by clients, so no client waits for another
+      targetThroughput /= clientNumber;
+    }
+    return new OperationScheduler(
+        targetThroughput, config.getTARGET_THROUGHPUT_UNIT(), measurement);
+  }
+
+  /** Wait for the intended start time of one write batch and return it, unit: ns */
+  public long acquireWrite(long pointNum) {
+    return acquire(unit == ThroughputUnit.POINT ? pointNum : 1);
+  }
+
+  /** Wait for the intended start time of one query and return it, unit: ns */
+  public long acquireQuery() {
+    return acquire(unit == ThroughputUnit.POINT ? queryPointNum : 1);
+  }
+
+  private long acquire(long cost) {
+    long now = System.nanoTime();
+    if (startTime < 0) {
+      startTime = now;
+    }
+    long intendedStartTime = startTime + (long) nextOffset;
+    double slot = cost * nanosPerUnit;
+    nextOffset += slot;
+    if (intendedStartTime > now) {
+      do {
+        LockSupport.parkNanos(intendedStartTime - now);
+        now = System.nanoTime();
+      } while (intendedStartTime > now);
+    } else {
+      long lag = now - intendedStartTime;
+      if (lag >= slot) {
+        // the whole slot of this operation has passed before it could be sent
+        measurement.addMissedSlot((long) (lag / nanosPerUnit));
+      }
+    }
+    return intendedStartTime;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client.operation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Unit of TARGET_THROUGHPUT */
+public enum ThroughputUnit {
+  /** Database operations per second, e.g. one batch insert or one query */
+  OPERATION,
+  /** Points per second */
+  POINT;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThroughputUnit.class);
+
+  public static ThroughputUnit getThroughputUnit(String name) {
+    for (ThroughputUnit throughputUnit : ThroughputUnit.values()) {
+      if (name.equalsIgnoreCase(throughputUnit.name())) {
+        return throughputUnit;
+      }
+    }
+    LOGGER.warn("Unknown throughput unit: " + name + ", use operation.");
+    return ThroughputUnit.OPERATION;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client.progress;
+
+import cn.edu.tsinghua.iot.benchmark.conf.WorkloadPhase;
+
+import java.util.List;
+
+/**
+ * The current phase of WORKLOAD_PHASE_FILE, switched by the mode and followed by all data clients.
+ * A client checks the phase index before each operation and only synchronizes when the phase has
+ * changed or it is not active in the current phase.
+ */
+public class PhaseProgress {
+
+  private final List<WorkloadPhase> phases;
+
+  private volatile int phaseIndex = 0;
+
+  private volatile boolean finished = false;
+
+  public PhaseProgress(List<WorkloadPhase> phases) {
+    this.phases = phases;
+  }
+
+  public int getPhaseIndex() {
+    return phaseIndex;
+  }
+
+  public WorkloadPhase getPhase(int index) {
+    return phases.get(index);
+  }
+
+  public int getPhaseNumber() {
+    return phases.size();
+  }
+
+  /**
+   * Wait until the client is active in the current phase
+   *
+   * @return index of the current phase, or -1 if all phases are finished
+   */
+  public synchronized int awaitActive(int clientId) throws InterruptedException {
+    while (!finished && clientId >= phases.get(phaseIndex).getClientNumber()) {
+      wait();
+    }
+    return finished ? -1 : phaseIndex;
+  }
+
+  /** Switch to the next phase, or finish if it is the last one */
+  public synchronized void nextPhase() {
+    if (phaseIndex == phases.size() - 1) {
+      finished = true;
+    } else {
+      phaseIndex++;
+    }
+    notifyAll();
+  }
+
+  public synchronized void finish() {
+    finished = true;
+    notifyAll();
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+}
@@ -21,6 +21,7 @@ package cn.edu.tsinghua.iot.benchmark.client.real;
 
 import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.VerificationQuery;
 
 import java.util.Random;
@@ -72,6 +73,10 @@ public class RealDataSetQueryClient extends RealBaseClient {
             }
           }
         }
+      } catch (WorkloadException e) {
+        // the data set can not be read any more
+        LOGGER.error("Failed to read one batch data because ", e);
+        break;
       } catch (Exception e) {
         LOGGER.error("Failed to query one batch data because ", e);
       }
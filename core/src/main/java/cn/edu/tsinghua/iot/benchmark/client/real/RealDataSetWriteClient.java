@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iot.benchmark.client.real;
 import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
+import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
 
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
@@ -34,6 +35,7 @@ public class RealDataSetWriteClient extends RealBaseClient {
   public RealDataSetWriteClient(
       int id, CountDownLatch countDownLatch, CyclicBarrier barrier, TaskProgress taskProgress) {
     super(id, countDownLatch, barrier, taskProgress);
+    initIngestionPipeline();
   }
 
   /** Do Operations */
@@ -49,7 +51,12 @@ public class RealDataSetWriteClient extends RealBaseClient {
         if (config.getOP_MIN_INTERVAL() > 0) {
           start = System.currentTimeMillis();
         }
-        dbWrapper.insertOneBatchWithCheck(batch);
+        if (ingestionPipeline == null) {
+          dbWrapper.insertOneBatchWithCheck(batch);
+        } else if (!ingestionPipeline.submit(batch)) {
+          // a write in flight lost the connection
+          break;
+        }
         taskProgress.incrementLoopIndex();
         if (isStop.get()) {
           break;
@@ -73,6 +80,10 @@ public class RealDataSetWriteClient extends RealBaseClient {
         }
       } catch (DBConnectException e) {
         LOGGER.error("Failed to insert one batch data because ", e);
+      } catch (WorkloadException e) {
+        // the data set can not be read any more
+        LOGGER.error("Failed to read one batch data because ", e);
+        break;
       } catch (Exception e) {
         LOGGER.error("Failed to insert one batch data because ", e);
       }
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.cluster;
+
+import cn.edu.tsinghua.iot.benchmark.cluster.enums.ClusterMessage;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coordinator of several benchmark processes. Each worker registers over TCP and gets its
+ * BENCHMARK_INDEX, i.e. its shard of devices. When all workers have registered their schema, they
+ * are started at once, and their counters and latency histograms are merged into one measurement
+ * when they finish, so that percentiles of the whole cluster are exact instead of averaged.
+ */
+public class Coordinator implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Coordinator.class);
+
+  private final ServerSocket serverSocket;
+  private final int workerNumber;
+  private final long timeoutMs;
+  private final List<Worker> workers = new ArrayList<>();
+
+  /**
+   * @param port port to listen on, 0 means any free port
+   * @param workerNumber number of workers to wait for
+   * @param timeoutMs max time to wait for all workers to register, and then to be ready, 0 means no
+   *     limit
+   */
+  public Coordinator(int port, int workerNumber, long timeoutMs) throws IOException {
+    this.serverSocket = new ServerSocket(port);
+    this.workerNumber = workerNumber;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /** Parse the address in the form of host:port */
+  public static InetSocketAddress parseAddress(String address) {
+    int colon = address.lastIndexOf(':');
+    if (colon <= 0 || colon == address.length() - 1) {
+      throw new IllegalArgumentException("Address should be host:port, but get " + address);
+    }
+    return InetSocketAddress.createUnresolved(
+        address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Wait until all workers have registered, each one gets the shard of its registering order. A
+   * connection which does not register in time is dropped.
+   *
+   * @throws SocketTimeoutException if not all workers have registered in time
+   */
+  public void acceptWorkers() throws IOException {
+    long deadline = getDeadline(timeoutMs);
+    while (workers.size() < workerNumber) {
+      Socket socket;
+      try {
+        serverSocket.setSoTimeout(getSoTimeout(deadline));
+        socket = serverSocket.accept();
+      } catch (SocketTimeoutException e) {
+        throw new SocketTimeoutException(
+            String.format(
+                "Only %d of %d workers registered in %d ms",
+                workers.size(), workerNumber, timeoutMs));
+      }
+      Worker worker = new Worker(socket, workers.size());
+      try {
+        socket.setSoTimeout(getSoTimeout(deadline));
+        ClusterMessage.HELLO.expect(worker.in);
+        ClusterMessage.SHARD.write(worker.out);
+        worker.out.writeInt(worker.index);
+        worker.out.writeInt(workerNumber);
+        worker.out.flush();
+      } catch (IOException e) {
+        LOGGER.warn("Drop connection from {}", socket.getRemoteSocketAddress(), e);
+        socket.close();
+        continue;
+      }
+      workers.add(worker);
+      LOGGER.info(
+          "Worker {} registered from {}, {}/{} workers",
+          worker.index,
+          worker.socket.getRemoteSocketAddress(),
+          workers.size(),
+          workerNumber);
+    }
+  }
+
+  /**
+   * Wait until all workers are ready, then start them at once
+   *
+   * @throws SocketTimeoutException if a worker is not ready in time, then no worker is started
+   */
+  public void startWorkers() throws IOException {
+    long deadline = getDeadline(timeoutMs);
+    for (Worker worker : workers) {
+      try {
+        worker.socket.setSoTimeout(getSoTimeout(deadline));
+        ClusterMessage.READY.expect(worker.in);
+      } catch (SocketTimeoutException e) {
+        throw new SocketTimeoutException(
+            String.format("Worker %d is not ready in %d ms", worker.index, timeoutMs));
+      }
+    }
+    for (Worker worker : workers) {
+      ClusterMessage.START.write(worker.out);
+      worker.out.flush();
+    }
+    LOGGER.info("All {} workers started", workerNumber);
+  }
+
+  /**
+   * Wait until all workers finish, and merge their results. A worker which fails or does not finish
+   * in time is dropped, so that the results of the others are still output.
+   *
+   * @param timeoutMs max time to wait for all workers to finish, 0 means no limit
+   * @throws IOException if no worker sends its result
+   */
+  public Measurement collectResults(long timeoutMs) throws IOException {
+    long deadline = getDeadline(timeoutMs);
+    Measurement measurement = new Measurement();
+    int finished = 0;
+    for (Worker worker : workers) {
+      byte[] result;
+      try {
+        worker.socket.setSoTimeout(getSoTimeout(deadline));
+        ClusterMessage.RESULT.expect(worker.in);
+        // the whole result is read before merging, so that a broken one leaves nothing behind
+        result = new byte[worker.in.readInt()];
+        worker.in.readFully(result);
+      } catch (IOException e) {
+        LOGGER.error("Drop worker {} because its result is not received", worker.index, e);
+        continue;
+      }
+      measurement.mergeMeasurement(new DataInputStream(new ByteArrayInputStream(result)));
+      finished++;
+      LOGGER.info("Worker {} finished", worker.index);
+    }
+    if (finished == 0) {
+      throw new IOException("No result is received from any worker");
+    }
+    if (finished < workers.size()) {
+      LOGGER.error("The merged result only covers {} of {} workers", finished, workers.size());
+    }
+    return measurement;
+  }
+
+  private static long getDeadline(long timeoutMs) {
+    return timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+  }
+
+  /** Socket timeout until the deadline, 0 means no limit */
+  private static int getSoTimeout(long deadline) throws SocketTimeoutException {
+    if (deadline == Long.MAX_VALUE) {
+      return 0;
+    }
+    long remaining = deadline - System.currentTimeMillis();
+    if (remaining <= 0) {
+      throw new SocketTimeoutException("Deadline exceeded");
+    }
+    return (int) Math.min(remaining, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Worker worker : workers) {
+      worker.socket.close();
+    }
+    serverSocket.close();
+  }
+
+  private static class Worker {
+    private final Socket socket;
+    private final int index;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private Worker(Socket socket, int index) throws IOException {
+      this.socket = socket;
+      this.index = index;
+      socket.setTcpNoDelay(true);
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+  }
+}
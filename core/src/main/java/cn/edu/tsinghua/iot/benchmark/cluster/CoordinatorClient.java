@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.cluster;
+
+import cn.edu.tsinghua.iot.benchmark.cluster.enums.ClusterMessage;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/** Connection of a worker to the {@link Coordinator} */
+public class CoordinatorClient implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CoordinatorClient.class);
+
+  /** How long a worker waits for the coordinator to listen */
+  private static final long CONNECT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
+  private static final long CONNECT_RETRY_MS = 500;
+
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+  private final int benchmarkIndex;
+  private final int workerNumber;
+
+  private CoordinatorClient(Socket socket, long timeoutMs) throws IOException {
+    this.socket = socket;
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout((int) Math.min(timeoutMs, Integer.MAX_VALUE));
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    ClusterMessage.HELLO.write(out);
+    out.flush();
+    ClusterMessage.SHARD.expect(in);
+    this.benchmarkIndex = in.readInt();
+    this.workerNumber = in.readInt();
+  }
+
+  /**
+   * Register to the coordinator and get the shard of this worker, retry until the coordinator
+   * listens
+   *
+   * @param address address of coordinator in the form of host:port
+   * @param timeoutMs max time to wait for each reply of coordinator, including the start after all
+   *     workers are ready, 0 means no limit
+   */
+  public static CoordinatorClient connect(String address, long timeoutMs) throws IOException {
+    InetSocketAddress coordinator = Coordinator.parseAddress(address);
+    long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+    while (true) {
+      try {
+        return new CoordinatorClient(
+            new Socket(coordinator.getHostString(), coordinator.getPort()), timeoutMs);
+      } catch (ConnectException e) {
+        if (System.currentTimeMillis() > deadline) {
+          throw e;
+        }
+        LOGGER.info("Coordinator {} is not ready, retry later", address);
+        try {
+          Thread.sleep(CONNECT_RETRY_MS);
+        } catch (InterruptedException interruptedException) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  public int getBenchmarkIndex() {
+    return benchmarkIndex;
+  }
+
+  public int getWorkerNumber() {
+    return workerNumber;
+  }
+
+  /** Tell the coordinator that this worker is ready, and wait until all workers are started */
+  public void awaitStart() throws IOException {
+    ClusterMessage.READY.write(out);
+    out.flush();
+    ClusterMessage.START.expect(in);
+  }
+
+  /** Send the final measurement of this worker, prefixed by its length */
+  public void sendResult(Measurement measurement) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    measurement.writeTo(new DataOutputStream(result));
+    ClusterMessage.RESULT.write(out);
+    out.writeInt(result.size());
+    result.writeTo(out);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+}
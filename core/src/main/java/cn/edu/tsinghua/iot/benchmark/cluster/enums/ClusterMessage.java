@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.cluster.enums;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/** Messages between coordinator and workers, each one is followed by its own payload */
+public enum ClusterMessage {
+  /** Worker to coordinator: register */
+  HELLO,
+  /** Coordinator to worker: BENCHMARK_INDEX of the worker and the number of workers */
+  SHARD,
+  /** Worker to coordinator: schema is ready and data clients can start */
+  READY,
+  /** Coordinator to worker: start data clients */
+  START,
+  /** Worker to coordinator: the measurement of the worker */
+  RESULT;
+
+  public void write(DataOutputStream out) throws IOException {
+    out.writeByte(ordinal());
+  }
+
+  /** Read the next message and check that it is this one */
+  public void expect(DataInputStream in) throws IOException {
+    int ordinal = in.readByte();
+    if (ordinal != ordinal()) {
+      String actual =
+          ordinal >= 0 && ordinal < values().length ? values()[ordinal].name() : "" + ordinal;
+      throw new IOException("Expect message " + name() + " but get " + actual);
+    }
+  }
+}
@@ -19,14 +19,22 @@
 
 package cn.edu.tsinghua.iot.benchmark.conf;
 
+import cn.edu.tsinghua.iot.benchmark.client.operation.ThroughputUnit;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SQLDialect;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileCompression;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileFormat;
 import cn.edu.tsinghua.iot.benchmark.function.FunctionParam;
 import cn.edu.tsinghua.iot.benchmark.function.FunctionXml;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.PersistenceFullPolicy;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.WarmUpMode;
 import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBSwitch;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBType;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TDengineInsertMode;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TimescaleDBInsertMode;
 import cn.edu.tsinghua.iot.benchmark.workload.enums.OutOfOrderMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,9 +91,34 @@ public class Config {
   /** Whether to use measurement */
   private boolean USE_MEASUREMENT = true;
 
-  /** Precision of result, unit: % */
+  /** Precision of result, unit: %. Latency histograms keep the matching significant digits */
   private double RESULT_PRECISION = 0.1;
 
+  /**
+   * Whether to split the latency of each operation into prepare, send, server wait and decode
+   * spans, each with its own histogram. Only supported by some databases, see IDatabase
+   */
+  private boolean ENABLE_LATENCY_BREAKDOWN = false;
+
+  /**
+   * How warm-up ends, the operations during warm-up are excluded from the final result. NONE: no
+   * warm-up, TIME: after WARM_UP_TIME, OPERATION: after WARM_UP_OPERATION_NUMBER operations, AUTO:
+   * once the median latency is stable within WARM_UP_STABLE_THRESHOLD, at most WARM_UP_TIME
+   */
+  private WarmUpMode WARM_UP_MODE = WarmUpMode.NONE;
+
+  /** Warm-up time of TIME mode, or max warm-up time of AUTO mode (0 means no limit), unit: s */
+  private int WARM_UP_TIME = 60;
+
+  /** The number of operations of all clients during warm-up in OPERATION mode */
+  private long WARM_UP_OPERATION_NUMBER = 10000;
+
+  /** Max change of median latency between consecutive windows in AUTO mode, unit: % */
+  private double WARM_UP_STABLE_THRESHOLD = 5;
+
+  /** Window of checking median latency in AUTO mode, unit: s */
+  private int WARM_UP_WINDOW = 5;
+
   /** Whether to use benchmark in cluster * */
   private boolean BENCHMARK_CLUSTER = false;
 
@@ -95,6 +128,24 @@ public class Config {
   /** Calculated in this way: FIRST_DEVICE_INDEX = BENCHMARK_INDEX * DEVICE_NUMBER */
   private int FIRST_DEVICE_INDEX = 0;
 
+  /**
+   * Address of coordinator in the form of host:port. The coordinator listens on the port, and a
+   * benchmark with this address registers as a worker, gets its BENCHMARK_INDEX from the
+   * coordinator and sends its results to it. Empty means not to use a coordinator
+   */
+  private String BENCHMARK_COORDINATOR = "";
+
+  /** Number of workers the coordinator waits for before starting them */
+  private int BENCHMARK_WORKER_NUMBER = 1;
+
+  /**
+   * The max time in ms the coordinator waits for all workers to register, and then to be ready,
+   * which is also the max time a worker waits for the coordinator to start it. The coordinator
+   * waits for the results TEST_MAX_TIME longer, or without limit if TEST_MAX_TIME is 0. 0 means no
+   * limit
+   */
+  private int BENCHMARK_COORDINATOR_TIMEOUT_MS = 1800000;
+
   // 初始化：被测数据库配置
   private DBConfig dbConfig = new DBConfig();
 
@@ -191,6 +242,25 @@ public class Config {
   /** The size of Big Batch */
   private int BIG_BATCH_SIZE = 100;
 
+  /**
+   * The format of data files written in GENERATE_DATA mode. Binary files are detected by their
+   * suffix when they are read
+   */
+  private DataFileFormat DATA_FILE_FORMAT = DataFileFormat.CSV;
+
+  /**
+   * The compression of csv data files written in GENERATE_DATA mode. Compressed files are detected
+   * by their suffix when they are read
+   */
+  private DataFileCompression DATA_FILE_COMPRESSION = DataFileCompression.NONE;
+
+  /**
+   * The max number of csv data files kept open by each client in GENERATE_DATA mode. When more
+   * devices are written, the least recently written file is closed, and reopened in append mode
+   * when its device is written again
+   */
+  private int DATA_FILE_MAX_OPEN_NUM = 100;
+
   // 设备、传感器、客户端相关参数
   /** The number of devices of database */
   private int DEVICE_NUMBER = 6000;
@@ -303,6 +373,9 @@ public class Config {
   /** The size of http client pool */
   private int HTTP_CLIENT_POOL_SIZE = 1000;
 
+  /** whether to compress the body of each write with gzip */
+  private boolean HTTP_ENABLE_GZIP = false;
+
   // 被测系统是MS SQL Server时的参数
   private String COMPRESSION = "NONE";
 
@@ -310,6 +383,10 @@ public class Config {
   /** the replication factor of timescaledb cluster */
   private int TIMESCALEDB_REPLICATION_FACTOR = 1;
 
+  // 被测系统是TimescaleDB或TimescaleDB Cluster时的参数
+  /** How to write a batch, see TimescaleDBInsertMode */
+  private TimescaleDBInsertMode TIMESCALEDB_INSERT_MODE = TimescaleDBInsertMode.STATEMENT;
+
   // 被测系统是TDengine 3时的参数
   /** the wal level of tdegine */
   private int TDENGINE_WAL_LEVEL = 2;
@@ -317,6 +394,9 @@ public class Config {
   /** the replica number of tdegine */
   private int TDENGINE_REPLICA = 3;
 
+  /** How to write a batch, see TDengineInsertMode */
+  private TDengineInsertMode TDENGINE_INSERT_MODE = TDengineInsertMode.SQL;
+
   // 被测试系统是Influxdb2.x时的参数
   /** the org name of influxdb */
   private String INFLUXDB_ORG = "company1";
@@ -335,6 +415,32 @@ public class Config {
   /** Whether to randomly select the minimum execution interval of the operation */
   private boolean OP_MIN_INTERVAL_RANDOM = false;
 
+  /**
+   * Target throughput of open loop mode, 0 means closed loop. Operations are issued at their
+   * intended start time and latency is measured from it, OP_MIN_INTERVAL is ignored
+   */
+  private double TARGET_THROUGHPUT = 0;
+
+  /** Unit of TARGET_THROUGHPUT, operations or points per second */
+  private ThroughputUnit TARGET_THROUGHPUT_UNIT = ThroughputUnit.OPERATION;
+
+  /** Whether TARGET_THROUGHPUT is the rate of each client, otherwise it is shared by all clients */
+  private boolean IS_TARGET_THROUGHPUT_PER_CLIENT = false;
+
+  /**
+   * Whether to run clients on virtual threads (Java 21+), so that a large number of clients do not
+   * need the same number of OS threads
+   */
+  private boolean ENABLE_VIRTUAL_THREAD = false;
+
+  /**
+   * The max number of write batches each client keeps in flight, 1 means the client waits for each
+   * write to return before generating the next one. If it is larger than 1, the client opens as
+   * many connections and sends each batch by an idle one, so that up to this number of writes are
+   * on the wire at once while the next batches are generated
+   */
+  private int MAX_IN_FLIGHT_PER_CLIENT = 1;
+
   /** The max time for writing in ms */
   private int WRITE_OPERATION_TIMEOUT_MS = 120000;
 
@@ -413,6 +519,24 @@ public class Config {
    */
   private String OPERATION_PROPORTION = "1:0:0:0:0:0:0:0:0:0:0:0";
 
+  /**
+   * Change operation proportion over time, e.g.
+   * 60=1:0:0:0:0:0:0:0:0:0:0:0;300=1:1:0:0:0:0:0:0:0:0:0:0 means only writing in the first 60
+   * seconds of each client and then writing and querying for 300 seconds. The last phase lasts
+   * until the end of test. Empty means always OPERATION_PROPORTION
+   */
+  private String OPERATION_PROPORTION_SCHEDULE = "";
+
+  /**
+   * Properties file of workload phases, such as ramp-up, steady state, spike and drain, see {@link
+   * WorkloadPhase}. The test lasts until the last phase ends. Empty means a single phase as
+   * configured by this file
+   */
+  private String WORKLOAD_PHASE_FILE = "";
+
+  /** Phases loaded from WORKLOAD_PHASE_FILE */
+  private List<WorkloadPhase> WORKLOAD_PHASES = Collections.emptyList();
+
   private boolean ENABLE_FIXED_QUERY = true;
 
   private final int OPERATION_PROPORTION_LEN = 12;
@@ -448,6 +572,24 @@ public class Config {
   /** The size of workload buffer size */
   private int WORKLOAD_BUFFER_SIZE = 100;
 
+  /**
+   * Whether to generate the workload buffer of a sensor when it is first written instead of
+   * generating all sensors in parallel at startup
+   */
+  private boolean ENABLE_LAZY_WORKLOAD_BUFFER = false;
+
+  /**
+   * Whether generate single device batches in columnar layout, adapters which support it read the
+   * primitive columns directly instead of boxed records
+   */
+  private boolean ENABLE_COLUMNAR_BATCH = false;
+
+  /**
+   * The number of reusable columnar batches kept by each client, 0 means a new batch is created
+   * each time. It must be larger than the number of batches one client has in flight
+   */
+  private int WORKLOAD_RING_SIZE = 0;
+
   // 输出
   /** Use what to store test data, currently support None, IoTDB, MySQL, CSV */
   private String TEST_DATA_PERSISTENCE = "None";
@@ -458,8 +600,11 @@ public class Config {
   /** Max line of record line */
   private long RECORD_SPLIT_MAX_LINE = 10000000;
 
-  // 输出：系统性能 Server mode
-  /** System performance information recording interval is INTERVAL+2 seconds */
+  // 输出：系统性能
+  /**
+   * Interval in second of sampling the resources of benchmark host, 0 means not to sample. It is
+   * shortened to a divisor of RESULT_PRINT_INTERVAL, so that samples line up with result windows
+   */
   private int MONITOR_INTERVAL = 0;
 
   // 输出：日志
@@ -471,6 +616,12 @@ public class Config {
 
   private int RESULT_PRINT_INTERVAL = 3600;
 
+  /**
+   * Width in ms of the time windows, whose throughput, latency and error rate are saved by the
+   * recorder as a time series. 0 means not to keep time windows
+   */
+  private int TIME_WINDOW_INTERVAL = 1000;
+
   // 输出：数据库配置，当前支持IoTDB和MySQL
   /** The Ip of database */
   private String TEST_DATA_STORE_IP = "127.0.0.1";
@@ -490,9 +641,18 @@ public class Config {
   /** The write time out of database */
   private long TEST_DATA_WRITE_TIME_OUT = 300000;
 
-  /** The max connection of database */
+  /** The max connection of database, no longer used since results are saved by one writer */
   private int TEST_DATA_MAX_CONNECTION = 1;
 
+  /** The capacity of each result ring of the recorder, whose number is fixed */
+  private int TEST_DATA_QUEUE_SIZE = 4096;
+
+  /** The max number of operation results which are saved together */
+  private int TEST_DATA_BATCH_SIZE = 1000;
+
+  /** What to do when the result queue of a client thread is full, BLOCK or DROP */
+  private PersistenceFullPolicy TEST_DATA_FULL_POLICY = PersistenceFullPolicy.BLOCK;
+
   /**
    * The remark of experiment which will be stored into mysql as part of table name (Notice that no
    * .) rename to TEST_DATA_STORE_REMARK
@@ -757,6 +917,54 @@ public class Config {
     this.USE_MEASUREMENT = USE_MEASUREMENT;
   }
 
+  public WarmUpMode getWARM_UP_MODE() {
+    return WARM_UP_MODE;
+  }
+
+  public void setWARM_UP_MODE(WarmUpMode WARM_UP_MODE) {
+    this.WARM_UP_MODE = WARM_UP_MODE;
+  }
+
+  public int getWARM_UP_TIME() {
+    return WARM_UP_TIME;
+  }
+
+  public void setWARM_UP_TIME(int WARM_UP_TIME) {
+    this.WARM_UP_TIME = WARM_UP_TIME;
+  }
+
+  public long getWARM_UP_OPERATION_NUMBER() {
+    return WARM_UP_OPERATION_NUMBER;
+  }
+
+  public void setWARM_UP_OPERATION_NUMBER(long WARM_UP_OPERATION_NUMBER) {
+    this.WARM_UP_OPERATION_NUMBER = WARM_UP_OPERATION_NUMBER;
+  }
+
+  public double getWARM_UP_STABLE_THRESHOLD() {
+    return WARM_UP_STABLE_THRESHOLD;
+  }
+
+  public void setWARM_UP_STABLE_THRESHOLD(double WARM_UP_STABLE_THRESHOLD) {
+    this.WARM_UP_STABLE_THRESHOLD = WARM_UP_STABLE_THRESHOLD;
+  }
+
+  public int getWARM_UP_WINDOW() {
+    return WARM_UP_WINDOW;
+  }
+
+  public void setWARM_UP_WINDOW(int WARM_UP_WINDOW) {
+    this.WARM_UP_WINDOW = WARM_UP_WINDOW;
+  }
+
+  public boolean isENABLE_LATENCY_BREAKDOWN() {
+    return ENABLE_LATENCY_BREAKDOWN;
+  }
+
+  public void setENABLE_LATENCY_BREAKDOWN(boolean ENABLE_LATENCY_BREAKDOWN) {
+    this.ENABLE_LATENCY_BREAKDOWN = ENABLE_LATENCY_BREAKDOWN;
+  }
+
   public double getRESULT_PRECISION() {
     return RESULT_PRECISION;
   }
@@ -789,6 +997,30 @@ public class Config {
     this.FIRST_DEVICE_INDEX = FIRST_DEVICE_INDEX;
   }
 
+  public String getBENCHMARK_COORDINATOR() {
+    return BENCHMARK_COORDINATOR;
+  }
+
+  public void setBENCHMARK_COORDINATOR(String BENCHMARK_COORDINATOR) {
+    this.BENCHMARK_COORDINATOR = BENCHMARK_COORDINATOR;
+  }
+
+  public int getBENCHMARK_WORKER_NUMBER() {
+    return BENCHMARK_WORKER_NUMBER;
+  }
+
+  public void setBENCHMARK_WORKER_NUMBER(int BENCHMARK_WORKER_NUMBER) {
+    this.BENCHMARK_WORKER_NUMBER = BENCHMARK_WORKER_NUMBER;
+  }
+
+  public int getBENCHMARK_COORDINATOR_TIMEOUT_MS() {
+    return BENCHMARK_COORDINATOR_TIMEOUT_MS;
+  }
+
+  public void setBENCHMARK_COORDINATOR_TIMEOUT_MS(int BENCHMARK_COORDINATOR_TIMEOUT_MS) {
+    this.BENCHMARK_COORDINATOR_TIMEOUT_MS = BENCHMARK_COORDINATOR_TIMEOUT_MS;
+  }
+
   public String getKAFKA_LOCATION() {
     return KAFKA_LOCATION;
   }
@@ -1221,6 +1453,14 @@ public class Config {
     this.HTTP_CLIENT_POOL_SIZE = HTTP_CLIENT_POOL_SIZE;
   }
 
+  public boolean isHTTP_ENABLE_GZIP() {
+    return HTTP_ENABLE_GZIP;
+  }
+
+  public void setHTTP_ENABLE_GZIP(boolean HTTP_ENABLE_GZIP) {
+    this.HTTP_ENABLE_GZIP = HTTP_ENABLE_GZIP;
+  }
+
   public long getOP_MIN_INTERVAL() {
     return OP_MIN_INTERVAL;
   }
@@ -1237,6 +1477,30 @@ public class Config {
     this.OP_MIN_INTERVAL_RANDOM = OP_MIN_INTERVAL_RANDOM;
   }
 
+  public double getTARGET_THROUGHPUT() {
+    return TARGET_THROUGHPUT;
+  }
+
+  public void setTARGET_THROUGHPUT(double TARGET_THROUGHPUT) {
+    this.TARGET_THROUGHPUT = TARGET_THROUGHPUT;
+  }
+
+  public ThroughputUnit getTARGET_THROUGHPUT_UNIT() {
+    return TARGET_THROUGHPUT_UNIT;
+  }
+
+  public void setTARGET_THROUGHPUT_UNIT(ThroughputUnit TARGET_THROUGHPUT_UNIT) {
+    this.TARGET_THROUGHPUT_UNIT = TARGET_THROUGHPUT_UNIT;
+  }
+
+  public boolean isIS_TARGET_THROUGHPUT_PER_CLIENT() {
+    return IS_TARGET_THROUGHPUT_PER_CLIENT;
+  }
+
+  public void setIS_TARGET_THROUGHPUT_PER_CLIENT(boolean IS_TARGET_THROUGHPUT_PER_CLIENT) {
+    this.IS_TARGET_THROUGHPUT_PER_CLIENT = IS_TARGET_THROUGHPUT_PER_CLIENT;
+  }
+
   public int getWRITE_OPERATION_TIMEOUT_MS() {
     return WRITE_OPERATION_TIMEOUT_MS;
   }
@@ -1389,6 +1653,30 @@ public class Config {
     this.OPERATION_PROPORTION = OPERATION_PROPORTION;
   }
 
+  public String getOPERATION_PROPORTION_SCHEDULE() {
+    return OPERATION_PROPORTION_SCHEDULE;
+  }
+
+  public void setOPERATION_PROPORTION_SCHEDULE(String OPERATION_PROPORTION_SCHEDULE) {
+    this.OPERATION_PROPORTION_SCHEDULE = OPERATION_PROPORTION_SCHEDULE;
+  }
+
+  public String getWORKLOAD_PHASE_FILE() {
+    return WORKLOAD_PHASE_FILE;
+  }
+
+  public void setWORKLOAD_PHASE_FILE(String WORKLOAD_PHASE_FILE) {
+    this.WORKLOAD_PHASE_FILE = WORKLOAD_PHASE_FILE;
+  }
+
+  public List<WorkloadPhase> getWORKLOAD_PHASES() {
+    return WORKLOAD_PHASES;
+  }
+
+  public void setWORKLOAD_PHASES(List<WorkloadPhase> WORKLOAD_PHASES) {
+    this.WORKLOAD_PHASES = WORKLOAD_PHASES;
+  }
+
   public int getOPERATION_PROPORTION_LEN() {
     return this.OPERATION_PROPORTION_LEN;
   }
@@ -1481,6 +1769,46 @@ public class Config {
     this.WORKLOAD_BUFFER_SIZE = WORKLOAD_BUFFER_SIZE;
   }
 
+  public boolean isENABLE_LAZY_WORKLOAD_BUFFER() {
+    return ENABLE_LAZY_WORKLOAD_BUFFER;
+  }
+
+  public void setENABLE_LAZY_WORKLOAD_BUFFER(boolean ENABLE_LAZY_WORKLOAD_BUFFER) {
+    this.ENABLE_LAZY_WORKLOAD_BUFFER = ENABLE_LAZY_WORKLOAD_BUFFER;
+  }
+
+  public boolean isENABLE_COLUMNAR_BATCH() {
+    return ENABLE_COLUMNAR_BATCH;
+  }
+
+  public void setENABLE_COLUMNAR_BATCH(boolean ENABLE_COLUMNAR_BATCH) {
+    this.ENABLE_COLUMNAR_BATCH = ENABLE_COLUMNAR_BATCH;
+  }
+
+  public boolean isENABLE_VIRTUAL_THREAD() {
+    return ENABLE_VIRTUAL_THREAD;
+  }
+
+  public void setENABLE_VIRTUAL_THREAD(boolean ENABLE_VIRTUAL_THREAD) {
+    this.ENABLE_VIRTUAL_THREAD = ENABLE_VIRTUAL_THREAD;
+  }
+
+  public int getMAX_IN_FLIGHT_PER_CLIENT() {
+    return MAX_IN_FLIGHT_PER_CLIENT;
+  }
+
+  public void setMAX_IN_FLIGHT_PER_CLIENT(int MAX_IN_FLIGHT_PER_CLIENT) {
+    this.MAX_IN_FLIGHT_PER_CLIENT = MAX_IN_FLIGHT_PER_CLIENT;
+  }
+
+  public int getWORKLOAD_RING_SIZE() {
+    return WORKLOAD_RING_SIZE;
+  }
+
+  public void setWORKLOAD_RING_SIZE(int WORKLOAD_RING_SIZE) {
+    this.WORKLOAD_RING_SIZE = WORKLOAD_RING_SIZE;
+  }
+
   public String getTEST_DATA_PERSISTENCE() {
     return TEST_DATA_PERSISTENCE;
   }
@@ -1521,6 +1849,14 @@ public class Config {
     this.RESULT_PRINT_INTERVAL = RESULT_PRINT_INTERVAL;
   }
 
+  public int getTIME_WINDOW_INTERVAL() {
+    return TIME_WINDOW_INTERVAL;
+  }
+
+  public void setTIME_WINDOW_INTERVAL(int TIME_WINDOW_INTERVAL) {
+    this.TIME_WINDOW_INTERVAL = TIME_WINDOW_INTERVAL;
+  }
+
   public String getTEST_DATA_STORE_IP() {
     return TEST_DATA_STORE_IP;
   }
@@ -1645,6 +1981,30 @@ public class Config {
     this.TEST_DATA_WRITE_TIME_OUT = TEST_DATA_WRITE_TIME_OUT;
   }
 
+  public int getTEST_DATA_QUEUE_SIZE() {
+    return TEST_DATA_QUEUE_SIZE;
+  }
+
+  public void setTEST_DATA_QUEUE_SIZE(int TEST_DATA_QUEUE_SIZE) {
+    this.TEST_DATA_QUEUE_SIZE = TEST_DATA_QUEUE_SIZE;
+  }
+
+  public int getTEST_DATA_BATCH_SIZE() {
+    return TEST_DATA_BATCH_SIZE;
+  }
+
+  public void setTEST_DATA_BATCH_SIZE(int TEST_DATA_BATCH_SIZE) {
+    this.TEST_DATA_BATCH_SIZE = TEST_DATA_BATCH_SIZE;
+  }
+
+  public PersistenceFullPolicy getTEST_DATA_FULL_POLICY() {
+    return TEST_DATA_FULL_POLICY;
+  }
+
+  public void setTEST_DATA_FULL_POLICY(PersistenceFullPolicy TEST_DATA_FULL_POLICY) {
+    this.TEST_DATA_FULL_POLICY = TEST_DATA_FULL_POLICY;
+  }
+
   public int getTEST_DATA_MAX_CONNECTION() {
     return TEST_DATA_MAX_CONNECTION;
   }
@@ -1669,6 +2029,14 @@ public class Config {
     this.TIMESCALEDB_REPLICATION_FACTOR = TIMESCALEDB_REPLICATION_FACTOR;
   }
 
+  public TimescaleDBInsertMode getTIMESCALEDB_INSERT_MODE() {
+    return TIMESCALEDB_INSERT_MODE;
+  }
+
+  public void setTIMESCALEDB_INSERT_MODE(TimescaleDBInsertMode TIMESCALEDB_INSERT_MODE) {
+    this.TIMESCALEDB_INSERT_MODE = TIMESCALEDB_INSERT_MODE;
+  }
+
   public int getTDENGINE_WAL_LEVEL() {
     return TDENGINE_WAL_LEVEL;
   }
@@ -1685,6 +2053,14 @@ public class Config {
     this.TDENGINE_REPLICA = TDENGINE_REPLICA;
   }
 
+  public TDengineInsertMode getTDENGINE_INSERT_MODE() {
+    return TDENGINE_INSERT_MODE;
+  }
+
+  public void setTDENGINE_INSERT_MODE(TDengineInsertMode TDENGINE_INSERT_MODE) {
+    this.TDENGINE_INSERT_MODE = TDENGINE_INSERT_MODE;
+  }
+
   public String getINFLUXDB_ORG() {
     return INFLUXDB_ORG;
   }
@@ -1790,6 +2166,30 @@ public class Config {
     this.IS_COMPARISON = IS_COMPARISON;
   }
 
+  public DataFileFormat getDATA_FILE_FORMAT() {
+    return DATA_FILE_FORMAT;
+  }
+
+  public void setDATA_FILE_FORMAT(DataFileFormat DATA_FILE_FORMAT) {
+    this.DATA_FILE_FORMAT = DATA_FILE_FORMAT;
+  }
+
+  public DataFileCompression getDATA_FILE_COMPRESSION() {
+    return DATA_FILE_COMPRESSION;
+  }
+
+  public void setDATA_FILE_COMPRESSION(DataFileCompression DATA_FILE_COMPRESSION) {
+    this.DATA_FILE_COMPRESSION = DATA_FILE_COMPRESSION;
+  }
+
+  public int getDATA_FILE_MAX_OPEN_NUM() {
+    return DATA_FILE_MAX_OPEN_NUM;
+  }
+
+  public void setDATA_FILE_MAX_OPEN_NUM(int DATA_FILE_MAX_OPEN_NUM) {
+    this.DATA_FILE_MAX_OPEN_NUM = DATA_FILE_MAX_OPEN_NUM;
+  }
+
   public int getBIG_BATCH_SIZE() {
     return BIG_BATCH_SIZE;
   }
@@ -1927,6 +2327,14 @@ public class Config {
     configProperties.addProperty("Data Mode", "IS_OUT_OF_ORDER", this.IS_OUT_OF_ORDER);
     configProperties.addProperty("Data Mode", "OUT_OF_ORDER_RATIO", this.OUT_OF_ORDER_RATIO);
     configProperties.addProperty("Data Amount", "OPERATION_PROPORTION", this.OPERATION_PROPORTION);
+    if (!this.OPERATION_PROPORTION_SCHEDULE.isEmpty()) {
+      configProperties.addProperty(
+          "Data Amount", "OPERATION_PROPORTION_SCHEDULE", this.OPERATION_PROPORTION_SCHEDULE);
+    }
+    if (!this.WORKLOAD_PHASES.isEmpty()) {
+      configProperties.addProperty("Data Amount", "WORKLOAD_PHASE_FILE", this.WORKLOAD_PHASE_FILE);
+      configProperties.addProperty("Data Amount", "WORKLOAD_PHASES", this.WORKLOAD_PHASES);
+    }
     configProperties.addProperty("Data Amount", "SCHEMA_CLIENT_NUMBER", this.SCHEMA_CLIENT_NUMBER);
     configProperties.addProperty("Data Amount", "DATA_CLIENT_NUMBER", this.DATA_CLIENT_NUMBER);
     configProperties.addProperty("Data Amount", "LOOP", this.LOOP);
@@ -1937,6 +2345,16 @@ public class Config {
     configProperties.addProperty("Data Amount", "OP_MIN_INTERVAL", this.OP_MIN_INTERVAL);
     configProperties.addProperty(
         "Data Amount", "OP_MIN_INTERVAL_RANDOM", this.OP_MIN_INTERVAL_RANDOM);
+    if (this.TARGET_THROUGHPUT > 0) {
+      configProperties.addProperty(
+          "Data Amount",
+          "TARGET_THROUGHPUT",
+          this.TARGET_THROUGHPUT
+              + " "
+              + this.TARGET_THROUGHPUT_UNIT
+              + "/s"
+              + (this.IS_TARGET_THROUGHPUT_PER_CLIENT ? " per client" : ""));
+    }
     configProperties.addProperty(
         "Data Amount", "INSERT_DATATYPE_PROPORTION", this.INSERT_DATATYPE_PROPORTION);
     configProperties.addProperty(
@@ -1984,6 +2402,16 @@ public class Config {
       configProperties.addProperty("Other Param", "BENCHMARK_INDEX", this.BENCHMARK_INDEX);
       configProperties.addProperty("Other Param", "FIRST_DEVICE_INDEX", this.FIRST_DEVICE_INDEX);
     }
+    if (!this.BENCHMARK_COORDINATOR.isEmpty()) {
+      configProperties.addProperty(
+          "Other Param", "BENCHMARK_COORDINATOR", this.BENCHMARK_COORDINATOR);
+      configProperties.addProperty(
+          "Other Param", "BENCHMARK_COORDINATOR_TIMEOUT_MS", this.BENCHMARK_COORDINATOR_TIMEOUT_MS);
+      if (this.BENCHMARK_WORK_MODE == BenchmarkMode.COORDINATOR) {
+        configProperties.addProperty(
+            "Other Param", "BENCHMARK_WORKER_NUMBER", this.BENCHMARK_WORKER_NUMBER);
+      }
+    }
     if (this.TEMPLATE) {
       configProperties.addProperty("Other Param", "TEMPLATE", this.TEMPLATE);
     }
@@ -2034,7 +2462,37 @@ public class Config {
     configProperties.addProperty("Extern Param", "TEST_MAX_TIME", this.TEST_MAX_TIME);
 
     configProperties.addProperty("Extern Param", "RESULT_PRECISION", this.RESULT_PRECISION + "%");
+    if (this.ENABLE_LATENCY_BREAKDOWN) {
+      configProperties.addProperty(
+          "Extern Param", "ENABLE_LATENCY_BREAKDOWN", this.ENABLE_LATENCY_BREAKDOWN);
+    }
+    if (this.WARM_UP_MODE != WarmUpMode.NONE) {
+      configProperties.addProperty("Extern Param", "WARM_UP_MODE", this.WARM_UP_MODE);
+      switch (this.WARM_UP_MODE) {
+        case TIME:
+          configProperties.addProperty("Extern Param", "WARM_UP_TIME", this.WARM_UP_TIME);
+          break;
+        case OPERATION:
+          configProperties.addProperty(
+              "Extern Param", "WARM_UP_OPERATION_NUMBER", this.WARM_UP_OPERATION_NUMBER);
+          break;
+        default:
+          configProperties.addProperty("Extern Param", "WARM_UP_TIME", this.WARM_UP_TIME);
+          configProperties.addProperty(
+              "Extern Param", "WARM_UP_STABLE_THRESHOLD", this.WARM_UP_STABLE_THRESHOLD + "%");
+          configProperties.addProperty("Extern Param", "WARM_UP_WINDOW", this.WARM_UP_WINDOW);
+      }
+    }
     configProperties.addProperty("Extern Param", "WORKLOAD_BUFFER_SIZE", this.WORKLOAD_BUFFER_SIZE);
+    configProperties.addProperty(
+        "Extern Param", "ENABLE_LAZY_WORKLOAD_BUFFER", this.ENABLE_LAZY_WORKLOAD_BUFFER);
+    configProperties.addProperty(
+        "Extern Param", "ENABLE_COLUMNAR_BATCH", this.ENABLE_COLUMNAR_BATCH);
+    configProperties.addProperty("Extern Param", "WORKLOAD_RING_SIZE", this.WORKLOAD_RING_SIZE);
+    configProperties.addProperty(
+        "Extern Param", "MAX_IN_FLIGHT_PER_CLIENT", this.MAX_IN_FLIGHT_PER_CLIENT);
+    configProperties.addProperty(
+        "Extern Param", "ENABLE_VIRTUAL_THREAD", this.ENABLE_VIRTUAL_THREAD);
     configProperties.addProperty("Extern Param", "GROUP_NAME_PREFIX", this.GROUP_NAME_PREFIX);
     configProperties.addProperty("Extern Param", "DEVICE_NAME_PREFIX", this.DEVICE_NAME_PREFIX);
     configProperties.addProperty("Extern Param", "SENSOR_NAME_PREFIX", this.SENSOR_NAME_PREFIX);
@@ -2046,6 +2504,14 @@ public class Config {
 
     configProperties.addProperty(
         "Extern Param", "ENABLE_THRIFT_COMPRESSION", this.ENABLE_THRIFT_COMPRESSION);
+    if (this.dbConfig.getDB_SWITCH().getType() == DBType.TimescaleDB) {
+      configProperties.addProperty(
+          "Extern Param", "TIMESCALEDB_INSERT_MODE", this.TIMESCALEDB_INSERT_MODE);
+    }
+    if (this.dbConfig.getDB_SWITCH() == DBSwitch.DB_TDENGINE_3) {
+      configProperties.addProperty(
+          "Extern Param", "TDENGINE_INSERT_MODE", this.TDENGINE_INSERT_MODE);
+    }
     configProperties.addProperty(
         "Extern Param", "WRITE_OPERATION_TIMEOUT_MS", this.WRITE_OPERATION_TIMEOUT_MS);
     configProperties.addProperty(
@@ -2054,15 +2520,47 @@ public class Config {
   }
 
   public boolean hasWrite() {
-    return Double.parseDouble(this.OPERATION_PROPORTION.split(":")[0]) > 1e-7;
+    for (String operationProportion : getOperationProportions()) {
+      if (Double.parseDouble(operationProportion.split(":")[0]) > 1e-7) {
+        return true;
+      }
+    }
+    return false;
   }
 
   public boolean hasQuery() {
-    Double total = 0.0;
-    String[] proportion = this.OPERATION_PROPORTION.split(":");
-    for (int i = 1; i < proportion.length; i++) {
-      total += Double.parseDouble(proportion[i]);
+    for (String operationProportion : getOperationProportions()) {
+      Double total = 0.0;
+      String[] proportion = operationProportion.split(":");
+      for (int i = 1; i < proportion.length; i++) {
+        total += Double.parseDouble(proportion[i]);
+      }
+      if (total > 1e-7) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Operation proportions used in test, one for each workload phase or each phase of
+   * OPERATION_PROPORTION_SCHEDULE
+   */
+  private List<String> getOperationProportions() {
+    if (!this.WORKLOAD_PHASES.isEmpty()) {
+      List<String> proportions = new ArrayList<>();
+      for (WorkloadPhase phase : this.WORKLOAD_PHASES) {
+        proportions.add(phase.getOperationProportion());
+      }
+      return proportions;
+    }
+    if (this.OPERATION_PROPORTION_SCHEDULE.isEmpty()) {
+      return Collections.singletonList(this.OPERATION_PROPORTION);
+    }
+    List<String> proportions = new ArrayList<>();
+    for (String phase : this.OPERATION_PROPORTION_SCHEDULE.split(";")) {
+      proportions.add(phase.substring(phase.indexOf('=') + 1).trim());
     }
-    return total > 1e-7;
+    return proportions;
   }
 }
@@ -19,23 +19,33 @@
 
 package cn.edu.tsinghua.iot.benchmark.conf;
 
+import cn.edu.tsinghua.iot.benchmark.client.operation.ThroughputUnit;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SQLDialect;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileCompression;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileFormat;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.PersistenceFullPolicy;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.WarmUpMode;
 import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBSwitch;
 import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBType;
 import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBVersion;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TDengineInsertMode;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TimescaleDBInsertMode;
 import cn.edu.tsinghua.iot.benchmark.utils.CommonAlgorithms;
+import cn.edu.tsinghua.iot.benchmark.utils.VirtualThreads;
 import cn.edu.tsinghua.iot.benchmark.workload.enums.OutOfOrderMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.stream.Collectors;
@@ -114,6 +124,27 @@ public class ConfigDescriptor {
         config.setRESULT_PRECISION(
             Double.parseDouble(
                 properties.getProperty("RESULT_PRECISION", config.getRESULT_PRECISION() + "")));
+        config.setENABLE_LATENCY_BREAKDOWN(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "ENABLE_LATENCY_BREAKDOWN", config.isENABLE_LATENCY_BREAKDOWN() + "")));
+        config.setWARM_UP_MODE(
+            WarmUpMode.getWarmUpMode(
+                properties.getProperty("WARM_UP_MODE", config.getWARM_UP_MODE() + "")));
+        config.setWARM_UP_TIME(
+            Integer.parseInt(
+                properties.getProperty("WARM_UP_TIME", config.getWARM_UP_TIME() + "")));
+        config.setWARM_UP_OPERATION_NUMBER(
+            Long.parseLong(
+                properties.getProperty(
+                    "WARM_UP_OPERATION_NUMBER", config.getWARM_UP_OPERATION_NUMBER() + "")));
+        config.setWARM_UP_STABLE_THRESHOLD(
+            Double.parseDouble(
+                properties.getProperty(
+                    "WARM_UP_STABLE_THRESHOLD", config.getWARM_UP_STABLE_THRESHOLD() + "")));
+        config.setWARM_UP_WINDOW(
+            Integer.parseInt(
+                properties.getProperty("WARM_UP_WINDOW", config.getWARM_UP_WINDOW() + "")));
 
         config.setDB_SWITCH(
             DBSwitch.getDBType(
@@ -227,6 +258,18 @@ public class ConfigDescriptor {
         config.setBIG_BATCH_SIZE(
             Integer.parseInt(
                 properties.getProperty("BIG_BATCH_SIZE", config.getBIG_BATCH_SIZE() + "")));
+        config.setDATA_FILE_FORMAT(
+            DataFileFormat.getDataFileFormat(
+                properties.getProperty(
+                    "DATA_FILE_FORMAT", config.getDATA_FILE_FORMAT().toString())));
+        config.setDATA_FILE_COMPRESSION(
+            DataFileCompression.getDataFileCompression(
+                properties.getProperty(
+                    "DATA_FILE_COMPRESSION", config.getDATA_FILE_COMPRESSION().toString())));
+        config.setDATA_FILE_MAX_OPEN_NUM(
+            Integer.parseInt(
+                properties.getProperty(
+                    "DATA_FILE_MAX_OPEN_NUM", config.getDATA_FILE_MAX_OPEN_NUM() + "")));
 
         config.setDEVICE_NUMBER(
             Integer.parseInt(
@@ -310,6 +353,19 @@ public class ConfigDescriptor {
         } else {
           config.setFIRST_DEVICE_INDEX(0);
         }
+        config.setBENCHMARK_COORDINATOR(
+            properties
+                .getProperty("BENCHMARK_COORDINATOR", config.getBENCHMARK_COORDINATOR())
+                .trim());
+        config.setBENCHMARK_WORKER_NUMBER(
+            Integer.parseInt(
+                properties.getProperty(
+                    "BENCHMARK_WORKER_NUMBER", config.getBENCHMARK_WORKER_NUMBER() + "")));
+        config.setBENCHMARK_COORDINATOR_TIMEOUT_MS(
+            Integer.parseInt(
+                properties.getProperty(
+                    "BENCHMARK_COORDINATOR_TIMEOUT_MS",
+                    config.getBENCHMARK_COORDINATOR_TIMEOUT_MS() + "")));
         config.setLINE_RATIO(
             Double.parseDouble(properties.getProperty("LINE_RATIO", config.getLINE_RATIO() + "")));
         config.setSIN_RATIO(
@@ -366,6 +422,9 @@ public class ConfigDescriptor {
             Integer.parseInt(
                 properties.getProperty(
                     "HTTP_CLIENT_POOL_SIZE", String.valueOf(config.getHTTP_CLIENT_POOL_SIZE()))));
+        config.setHTTP_ENABLE_GZIP(
+            Boolean.parseBoolean(
+                properties.getProperty("HTTP_ENABLE_GZIP", config.isHTTP_ENABLE_GZIP() + "")));
 
         config.setCOMPRESSION(properties.getProperty("COMPRESSION", "NONE"));
         config.setTIMESCALEDB_REPLICATION_FACTOR(
@@ -373,12 +432,20 @@ public class ConfigDescriptor {
                 properties.getProperty(
                     "TIMESCALEDB_REPLICATION_FACTOR",
                     config.getTIMESCALEDB_REPLICATION_FACTOR() + "")));
+        config.setTIMESCALEDB_INSERT_MODE(
+            TimescaleDBInsertMode.getTimescaleDBInsertMode(
+                properties.getProperty(
+                    "TIMESCALEDB_INSERT_MODE", config.getTIMESCALEDB_INSERT_MODE().toString())));
         config.setTDENGINE_WAL_LEVEL(
             Integer.parseInt(
                 properties.getProperty("TDENGINE_WAL_LEVEL", config.getTDENGINE_WAL_LEVEL() + "")));
         config.setTDENGINE_REPLICA(
             Integer.parseInt(
                 properties.getProperty("TDENGINE_REPLICA", config.getTDENGINE_REPLICA() + "")));
+        config.setTDENGINE_INSERT_MODE(
+            TDengineInsertMode.getTDengineInsertMode(
+                properties.getProperty(
+                    "TDENGINE_INSERT_MODE", config.getTDENGINE_INSERT_MODE().toString())));
         config.setINFLUXDB_ORG(
             properties.getProperty("INFLUXDB_ORG", String.valueOf(config.getINFLUXDB_ORG())));
         config.setCNOSDB_SHARD_NUMBER(
@@ -395,6 +462,26 @@ public class ConfigDescriptor {
             Boolean.parseBoolean(
                 properties.getProperty(
                     "OP_MIN_INTERVAL_RANDOM", config.isOP_MIN_INTERVAL_RANDOM() + "")));
+        config.setTARGET_THROUGHPUT(
+            Double.parseDouble(
+                properties.getProperty("TARGET_THROUGHPUT", config.getTARGET_THROUGHPUT() + "")));
+        config.setTARGET_THROUGHPUT_UNIT(
+            ThroughputUnit.getThroughputUnit(
+                properties.getProperty(
+                    "TARGET_THROUGHPUT_UNIT", config.getTARGET_THROUGHPUT_UNIT().toString())));
+        config.setIS_TARGET_THROUGHPUT_PER_CLIENT(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "IS_TARGET_THROUGHPUT_PER_CLIENT",
+                    config.isIS_TARGET_THROUGHPUT_PER_CLIENT() + "")));
+        config.setENABLE_VIRTUAL_THREAD(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "ENABLE_VIRTUAL_THREAD", config.isENABLE_VIRTUAL_THREAD() + "")));
+        config.setMAX_IN_FLIGHT_PER_CLIENT(
+            Integer.parseInt(
+                properties.getProperty(
+                    "MAX_IN_FLIGHT_PER_CLIENT", config.getMAX_IN_FLIGHT_PER_CLIENT() + "")));
         config.setWRITE_OPERATION_TIMEOUT_MS(
             Integer.parseInt(
                 properties.getProperty(
@@ -454,6 +541,13 @@ public class ConfigDescriptor {
             Long.parseLong(properties.getProperty("STEP_SIZE", config.getSTEP_SIZE() + "")));
         config.setOPERATION_PROPORTION(
             properties.getProperty("OPERATION_PROPORTION", config.getOPERATION_PROPORTION()));
+        config.setOPERATION_PROPORTION_SCHEDULE(
+            properties
+                .getProperty(
+                    "OPERATION_PROPORTION_SCHEDULE", config.getOPERATION_PROPORTION_SCHEDULE())
+                .trim());
+        config.setWORKLOAD_PHASE_FILE(
+            properties.getProperty("WORKLOAD_PHASE_FILE", config.getWORKLOAD_PHASE_FILE()).trim());
         config.setENABLE_FIXED_QUERY(
             Boolean.parseBoolean(
                 properties.getProperty("ENABLE_FIXED_QUERY", config.isENABLE_FIXED_QUERY() + "")));
@@ -488,6 +582,17 @@ public class ConfigDescriptor {
             Integer.parseInt(
                 properties.getProperty(
                     "WORKLOAD_BUFFER_SIZE", config.getWORKLOAD_BUFFER_SIZE() + "")));
+        config.setENABLE_LAZY_WORKLOAD_BUFFER(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "ENABLE_LAZY_WORKLOAD_BUFFER", config.isENABLE_LAZY_WORKLOAD_BUFFER() + "")));
+        config.setENABLE_COLUMNAR_BATCH(
+            Boolean.parseBoolean(
+                properties.getProperty(
+                    "ENABLE_COLUMNAR_BATCH", config.isENABLE_COLUMNAR_BATCH() + "")));
+        config.setWORKLOAD_RING_SIZE(
+            Integer.parseInt(
+                properties.getProperty("WORKLOAD_RING_SIZE", config.getWORKLOAD_RING_SIZE() + "")));
         config.setTEST_DATA_PERSISTENCE(properties.getProperty("TEST_DATA_PERSISTENCE", "None"));
         config.setRECORD_SPLIT(
             Boolean.parseBoolean(
@@ -511,6 +616,10 @@ public class ConfigDescriptor {
             Integer.parseInt(
                 properties.getProperty(
                     "RESULT_PRINT_INTERVAL", config.getRESULT_PRINT_INTERVAL() + "")));
+        config.setTIME_WINDOW_INTERVAL(
+            Integer.parseInt(
+                properties.getProperty(
+                    "TIME_WINDOW_INTERVAL", config.getTIME_WINDOW_INTERVAL() + "")));
 
         config.setTEST_DATA_STORE_IP(
             properties.getProperty("TEST_DATA_STORE_IP", config.getTEST_DATA_STORE_IP()));
@@ -533,6 +642,18 @@ public class ConfigDescriptor {
         if (config.getTEST_DATA_PERSISTENCE().equals("CSV")) {
           config.setTEST_DATA_MAX_CONNECTION(1);
         }
+        config.setTEST_DATA_QUEUE_SIZE(
+            Integer.parseInt(
+                properties.getProperty(
+                    "TEST_DATA_QUEUE_SIZE", config.getTEST_DATA_QUEUE_SIZE() + "")));
+        config.setTEST_DATA_BATCH_SIZE(
+            Integer.parseInt(
+                properties.getProperty(
+                    "TEST_DATA_BATCH_SIZE", config.getTEST_DATA_BATCH_SIZE() + "")));
+        config.setTEST_DATA_FULL_POLICY(
+            PersistenceFullPolicy.getPersistenceFullPolicy(
+                properties.getProperty(
+                    "TEST_DATA_FULL_POLICY", config.getTEST_DATA_FULL_POLICY().toString())));
 
         config.setREMARK(properties.getProperty("REMARK", config.getREMARK()));
         config.setMYSQL_REAL_INSERT_RATE(
@@ -594,7 +715,7 @@ public class ConfigDescriptor {
 
   /** Check validation of config */
   private boolean checkConfig() {
-    boolean result = true;
+    boolean result = loadWorkloadPhases();
     // Checking config according to mode
     switch (config.getBENCHMARK_WORK_MODE()) {
       case TEST_WITH_DEFAULT_PATH:
@@ -664,6 +785,39 @@ public class ConfigDescriptor {
           result &= checkDatabaseVerification(config.getANOTHER_DBConfig());
         }
         break;
+      case GENERATOR_CEILING:
+        DBSwitch dbSwitch = config.getDbConfig().getDB_SWITCH();
+        if (dbSwitch != DBSwitch.DB_FAKE && dbSwitch != DBSwitch.DB_SelfCheck) {
+          LOGGER.warn(
+              "{} only writes to an in-process sink, so auto set DB_SWITCH = {}",
+              BenchmarkMode.GENERATOR_CEILING,
+              DBSwitch.DB_FAKE);
+          config.setDB_SWITCH(DBSwitch.DB_FAKE);
+        }
+        if (config.isIS_DOUBLE_WRITE()) {
+          LOGGER.warn("There is no another database in {}", BenchmarkMode.GENERATOR_CEILING);
+          config.setIS_DOUBLE_WRITE(false);
+          config.setIS_COMPARISON(false);
+          config.setIS_POINT_COMPARISON(false);
+        }
+        if (!config.hasWrite()) {
+          LOGGER.error("There should be write operations in {}", BenchmarkMode.GENERATOR_CEILING);
+          result = false;
+        }
+        if (config.isENABLE_VIRTUAL_THREAD()) {
+          LOGGER.warn("CPU time and allocation of clients are not measured on virtual threads");
+        }
+        break;
+      case COORDINATOR:
+        if (config.getBENCHMARK_COORDINATOR().isEmpty()) {
+          LOGGER.error("BENCHMARK_COORDINATOR must be set in coordinator mode");
+          result = false;
+        }
+        if (config.getBENCHMARK_WORKER_NUMBER() <= 0) {
+          LOGGER.error("BENCHMARK_WORKER_NUMBER must be positive in coordinator mode");
+          result = false;
+        }
+        break;
       default:
         break;
     }
@@ -693,6 +847,21 @@ public class ConfigDescriptor {
     }
     result &= checkDatabaseTableDeviceRelationship();
     result &= checkDeviceNumPerWrite();
+    result &= checkMaxInFlight();
+    result &= checkWarmUp();
+    if (config.getTIME_WINDOW_INTERVAL() < 0) {
+      LOGGER.error("TIME_WINDOW_INTERVAL must not be negative");
+      result = false;
+    }
+    if (config.getBENCHMARK_COORDINATOR_TIMEOUT_MS() < 0) {
+      LOGGER.error("BENCHMARK_COORDINATOR_TIMEOUT_MS must not be negative");
+      result = false;
+    }
+    if (config.isENABLE_VIRTUAL_THREAD() && !VirtualThreads.isSupported()) {
+      LOGGER.warn(
+          "Virtual threads need Java 21 or later, so auto set ENABLE_VIRTUAL_THREAD = false");
+      config.setENABLE_VIRTUAL_THREAD(false);
+    }
     result &= checkTag();
     if (!commonlyUseDB()) {
       if (config.isALIGN_BY_DEVICE()) {
@@ -731,6 +900,19 @@ public class ConfigDescriptor {
       LOGGER.error("Loop is too small that can't meet the need of OPERATION_PROPORTION");
       return false;
     }
+    if (!config.getOPERATION_PROPORTION_SCHEDULE().isEmpty()) {
+      for (String phase : config.getOPERATION_PROPORTION_SCHEDULE().split(";")) {
+        String[] durationAndProportion = phase.split("=");
+        if (durationAndProportion.length != 2
+            || !durationAndProportion[0].trim().matches("\\d+")
+            || !durationAndProportion[1].trim().matches("[\\d.]+(:[\\d.]+)*")) {
+          LOGGER.error(
+              "OPERATION_PROPORTION_SCHEDULE should be like 60=1:0:0:0:0:0:0:0:0:0:0:0;600=1:1:0:0:0:0:0:0:0:0:0:0, but get {}",
+              phase);
+          return false;
+        }
+      }
+    }
     return true;
   }
 
@@ -753,6 +935,130 @@ public class ConfigDescriptor {
     return true;
   }
 
+  /** Load and check WORKLOAD_PHASE_FILE, a relative path is also looked up in the config folder */
+  private boolean loadWorkloadPhases() {
+    if (config.getWORKLOAD_PHASE_FILE().isEmpty()) {
+      return true;
+    }
+    File file = new File(config.getWORKLOAD_PHASE_FILE());
+    if (!file.isAbsolute() && !file.exists()) {
+      file =
+          new File(
+              System.getProperty(Constants.BENCHMARK_CONF, "configuration/conf"),
+              config.getWORKLOAD_PHASE_FILE());
+    }
+    List<WorkloadPhase> phases;
+    try {
+      phases = WorkloadPhase.load(file.getPath(), config);
+    } catch (IOException | IllegalArgumentException e) {
+      LOGGER.error("Failed to load WORKLOAD_PHASE_FILE {}", file, e);
+      return false;
+    }
+    if (config.getBENCHMARK_WORK_MODE() != BenchmarkMode.TEST_WITH_DEFAULT_PATH
+        || config.isIS_POINT_COMPARISON()) {
+      LOGGER.error("WORKLOAD_PHASE_FILE is only supported by testWithDefaultPath");
+      return false;
+    }
+    if (!config.getOPERATION_PROPORTION_SCHEDULE().isEmpty()) {
+      LOGGER.error("WORKLOAD_PHASE_FILE and OPERATION_PROPORTION_SCHEDULE can't be both set");
+      return false;
+    }
+    boolean result = true;
+    for (WorkloadPhase phase : phases) {
+      if (phase.getDuration() <= 0
+          || phase.getClientNumber() <= 0
+          || phase.getClientNumber() > config.getDATA_CLIENT_NUMBER()
+          || phase.getBatchSizePerWrite() <= 0
+          || !phase.getOperationProportion().matches("[\\d.]+(:[\\d.]+)*")) {
+        LOGGER.error(
+            "Workload phase {} should last for a positive duration, use 1 to DATA_CLIENT_NUMBER clients, a positive batch size and a valid OPERATION_PROPORTION",
+            phase);
+        result = false;
+      }
+      if (!config.isIS_CLIENT_BIND()
+          && phase.getBatchSizePerWrite() != config.getBATCH_SIZE_PER_WRITE()) {
+        LOGGER.warn(
+            "Workload phase {} can't change BATCH_SIZE_PER_WRITE when IS_CLIENT_BIND = false",
+            phase.getName());
+      }
+    }
+    if (config.getTEST_MAX_TIME() != 0) {
+      LOGGER.warn("The test lasts until the last workload phase ends, so TEST_MAX_TIME is ignored");
+    }
+    config.setWORKLOAD_PHASES(phases);
+    return result;
+  }
+
+  private boolean checkWarmUp() {
+    switch (config.getWARM_UP_MODE()) {
+      case NONE:
+        return true;
+      case TIME:
+        if (config.getWARM_UP_TIME() <= 0) {
+          LOGGER.error("WARM_UP_TIME must be positive when WARM_UP_MODE = TIME");
+          return false;
+        }
+        break;
+      case OPERATION:
+        if (config.getWARM_UP_OPERATION_NUMBER() <= 0) {
+          LOGGER.error("WARM_UP_OPERATION_NUMBER must be positive when WARM_UP_MODE = OPERATION");
+          return false;
+        }
+        break;
+      default:
+        if (config.getWARM_UP_WINDOW() <= 0 || config.getWARM_UP_STABLE_THRESHOLD() < 0) {
+          LOGGER.error(
+              "WARM_UP_WINDOW must be positive and WARM_UP_STABLE_THRESHOLD must not be negative when WARM_UP_MODE = AUTO");
+          return false;
+        }
+    }
+    if (config.getWORKLOAD_PHASES().stream().anyMatch(WorkloadPhase::isWarmUp)) {
+      LOGGER.warn(
+          "Warm-up is set by the phases of WORKLOAD_PHASE_FILE, so WARM_UP_MODE is ignored");
+      config.setWARM_UP_MODE(WarmUpMode.NONE);
+    }
+    return true;
+  }
+
+  private boolean checkMaxInFlight() {
+    final int maxInFlight = config.getMAX_IN_FLIGHT_PER_CLIENT();
+    if (maxInFlight <= 0) {
+      LOGGER.error("MAX_IN_FLIGHT_PER_CLIENT must be greater than 0");
+      return false;
+    }
+    if (maxInFlight == 1) {
+      return true;
+    }
+    boolean isPipelined;
+    switch (config.getBENCHMARK_WORK_MODE()) {
+      case TEST_WITH_DEFAULT_PATH:
+      case GENERATOR_CEILING:
+        // GenerateDataDeviceClient writes and checks each point in turn
+        isPipelined = !config.isIS_POINT_COMPARISON();
+        break;
+      case VERIFICATION_WRITE:
+        isPipelined = true;
+        break;
+      default:
+        isPipelined = false;
+        break;
+    }
+    if (!isPipelined) {
+      LOGGER.warn(
+          "MAX_IN_FLIGHT_PER_CLIENT is not supported by the clients of this mode, so auto set MAX_IN_FLIGHT_PER_CLIENT = 1");
+      config.setMAX_IN_FLIGHT_PER_CLIENT(1);
+      return true;
+    }
+    if (config.getWORKLOAD_RING_SIZE() > 0 && config.getWORKLOAD_RING_SIZE() <= maxInFlight) {
+      // a batch in the ring must not be refilled while it is still being written
+      LOGGER.warn(
+          "WORKLOAD_RING_SIZE must be larger than MAX_IN_FLIGHT_PER_CLIENT, so auto set WORKLOAD_RING_SIZE = {}",
+          maxInFlight + 1);
+      config.setWORKLOAD_RING_SIZE(maxInFlight + 1);
+    }
+    return true;
+  }
+
   private boolean checkDeviceNumPerWrite() {
     final int dnw = config.getDEVICE_NUM_PER_WRITE();
     if (dnw <= 0) {
@@ -770,12 +1076,14 @@ public class ConfigDescriptor {
     if (dnw == 1) {
       return true;
     }
-    if (config.getDbConfig().getDB_SWITCH().getType() != DBType.IoTDB) {
-      LOGGER.error("DEVICE_NUM_PER_WRITE is only supported in IoTDB");
+    DBSwitch dbSwitch = config.getDbConfig().getDB_SWITCH();
+    if (dbSwitch.getType() != DBType.IoTDB && dbSwitch != DBSwitch.DB_TDENGINE_3) {
+      LOGGER.error("DEVICE_NUM_PER_WRITE is only supported in IoTDB and TDengine 3");
       return false;
     }
-    if (config.getIoTDB_DIALECT_MODE() == SQLDialect.TREE
-        && config.getDbConfig().getDB_SWITCH().getInsertMode() != INSERT_USE_SESSION_RECORDS) {
+    if (dbSwitch.getType() == DBType.IoTDB
+        && config.getIoTDB_DIALECT_MODE() == SQLDialect.TREE
+        && dbSwitch.getInsertMode() != INSERT_USE_SESSION_RECORDS) {
       LOGGER.error("The combination of DEVICE_NUM_PER_WRITE and insert-mode is not supported");
       return false;
     }
@@ -791,7 +1099,7 @@ public class ConfigDescriptor {
         return false;
       }
     }
-    if (config.getIoTDB_DIALECT_MODE() == SQLDialect.TABLE) {
+    if (dbSwitch.getType() == DBType.IoTDB && config.getIoTDB_DIALECT_MODE() == SQLDialect.TABLE) {
       for (int deviceNumPerTable :
           CommonAlgorithms.distributeDevicesToTable(
                   config.getDEVICE_NUMBER(), config.getIoTDB_TABLE_NUMBER())
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.conf;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * One phase of a workload file, e.g. ramp-up, steady state, spike or drain. The phases run in the
+ * order of PHASES, and the keys of a phase are prefixed by its name:
+ *
+ * <pre>
+ * PHASES=warmup,steady
+ * warmup.DURATION=60
+ * warmup.WARM_UP=true
+ * steady.DURATION=600
+ * steady.DATA_CLIENT_NUMBER=10
+ * steady.TARGET_THROUGHPUT=1000
+ * steady.OPERATION_PROPORTION=1:1:0:0:0:0:0:0:0:0:0:0
+ * steady.BATCH_SIZE_PER_WRITE=100
+ * </pre>
+ *
+ * DURATION is in seconds and required, the other keys default to those of config.properties.
+ */
+public class WorkloadPhase {
+
+  private final String name;
+
+  /** Duration of this phase, unit: ms */
+  private final long duration;
+
+  /** Whether the result of this phase is excluded from the final result */
+  private final boolean warmUp;
+
+  /** The number of active data clients, the clients with larger id wait during this phase */
+  private final int clientNumber;
+
+  /** Target throughput of open loop, 0 means closed loop */
+  private final double targetThroughput;
+
+  private final String operationProportion;
+
+  private final int batchSizePerWrite;
+
+  public WorkloadPhase(
+      String name,
+      long duration,
+      boolean warmUp,
+      int clientNumber,
+      double targetThroughput,
+      String operationProportion,
+      int batchSizePerWrite) {
+    this.name = name;
+    this.duration = duration;
+    this.warmUp = warmUp;
+    this.clientNumber = clientNumber;
+    this.targetThroughput = targetThroughput;
+    this.operationProportion = operationProportion;
+    this.batchSizePerWrite = batchSizePerWrite;
+  }
+
+  /** Load phases from workload file, the keys missing in the file are taken from config */
+  public static List<WorkloadPhase> load(String path, Config config) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream inputStream = new FileInputStream(path)) {
+      properties.load(inputStream);
+    }
+    return parse(properties, config);
+  }
+
+  static List<WorkloadPhase> parse(Properties properties, Config config) {
+    String names = properties.getProperty("PHASES", "").trim();
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("PHASES is not set in workload file");
+    }
+    List<WorkloadPhase> phases = new ArrayList<>();
+    for (String name : names.split(",")) {
+      name = name.trim();
+      String duration = properties.getProperty(name + ".DURATION");
+      if (duration == null) {
+        throw new IllegalArgumentException(name + ".DURATION is not set in workload file");
+      }
+      phases.add(
+          new WorkloadPhase(
+              name,
+              Long.parseLong(duration.trim()) * 1000L,
+              Boolean.parseBoolean(properties.getProperty(name + ".WARM_UP", "false").trim()),
+              Integer.parseInt(
+                  properties
+                      .getProperty(
+                          name + ".DATA_CLIENT_NUMBER", config.getDATA_CLIENT_NUMBER() + "")
+                      .trim()),
+              Double.parseDouble(
+                  properties
+                      .getProperty(name + ".TARGET_THROUGHPUT", config.getTARGET_THROUGHPUT() + "")
+                      .trim()),
+              padOperationProportion(
+                  properties
+                      .getProperty(name + ".OPERATION_PROPORTION", config.getOPERATION_PROPORTION())
+                      .trim(),
+                  config.getOPERATION_PROPORTION_LEN()),
+              Integer.parseInt(
+                  properties
+                      .getProperty(
+                          name + ".BATCH_SIZE_PER_WRITE", config.getBATCH_SIZE_PER_WRITE() + "")
+                      .trim())));
+    }
+    return phases;
+  }
+
+  /** The omitted operations at the end of proportion are 0, the same as OPERATION_PROPORTION */
+  private static String padOperationProportion(String proportion, int length) {
+    StringBuilder builder = new StringBuilder(proportion);
+    for (int i = proportion.split(":").length; i < length; i++) {
+      builder.append(":0");
+    }
+    return builder.toString();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getDuration() {
+    return duration;
+  }
+
+  public boolean isWarmUp() {
+    return warmUp;
+  }
+
+  public int getClientNumber() {
+    return clientNumber;
+  }
+
+  public double getTargetThroughput() {
+    return targetThroughput;
+  }
+
+  public String getOperationProportion() {
+    return operationProportion;
+  }
+
+  public int getBatchSizePerWrite() {
+    return batchSizePerWrite;
+  }
+
+  @Override
+  public String toString() {
+    return name
+        + "{duration="
+        + duration / 1000
+        + "s, warmUp="
+        + warmUp
+        + ", clients="
+        + clientNumber
+        + ", targetThroughput="
+        + targetThroughput
+        + ", operationProportion="
+        + operationProportion
+        + ", batchSize="
+        + batchSizePerWrite
+        + "}";
+  }
+}
@@ -8,12 +8,14 @@ public enum ThreadName {
   DATA_CLIENT_THREAD("DataClientService"),
   SCHEMA_CLIENT_THREAD("SchemaClientService"),
   EXECUTE_JOB("ExecuteJob"),
+  INGESTION_PIPELINE("IngestionPipeline"),
 
   // -------------------------- showService --------------------------
   SHOW_WORK_PROCESS("ShowWorkProgress"),
   SHOW_RESULT_PERIODICALLY("ShowResultPeriodically"),
   RESULT_PERSISTENCE("ResultPersistence"),
   CSV_RECORDER("CSVRecorder"),
+  HOST_RESOURCE_SAMPLER("HostResourceSampler"),
 
   UNKNOWN("UNKNOWN");
 
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.entity.Batch;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.ColumnCategory;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single device batch which organizes data in columns: timestamps are kept in a long[] and each
+ * sensor in a primitive array of its type. Text values are kept as references to the pooled
+ * workload strings, so filling a batch does not allocate per value.
+ *
+ * <p>The row view returned by {@link #getRecords()} is only materialized when an adapter asks for
+ * it, adapters which know this class should read {@link #getTimestamps()} and {@link
+ * #getColumn(int)} directly.
+ */
+public class ColumnarBatch implements IBatch {
+  private DeviceSchema deviceSchema;
+  private SensorType[] sensorTypes;
+  private long[] timestamps;
+  private Object[] columns;
+  private int rowCount;
+  private int fieldCount;
+  private int colIndex = -1;
+
+  /** Row view of this batch, built lazily and dropped whenever the columns change */
+  private List<Record> records;
+
+  public ColumnarBatch(DeviceSchema deviceSchema, int capacity) {
+    this.deviceSchema = deviceSchema;
+    this.rowCount = capacity;
+    this.timestamps = new long[capacity];
+    initColumns(deviceSchema.getSensors(), capacity);
+  }
+
+  private void initColumns(List<Sensor> sensors, int capacity) {
+    sensorTypes = new SensorType[sensors.size()];
+    columns = new Object[sensors.size()];
+    for (int i = 0; i < sensors.size(); i++) {
+      sensorTypes[i] = sensors.get(i).getSensorType();
+      columns[i] = newColumn(sensorTypes[i], capacity);
+    }
+    fieldCount = countFields(sensors);
+  }
+
+  private static int countFields(List<Sensor> sensors) {
+    int measureNum = 0;
+    // Count the number of measurements
+    for (int i = 0; i < sensors.size(); i++) {
+      if (sensors.get(i).getColumnCategory() == ColumnCategory.FIELD) {
+        measureNum++;
+      }
+    }
+    return measureNum;
+  }
+
+  /**
+   * Reuse this batch for another device and row count. The arrays are kept when they are large
+   * enough and the sensor types are unchanged, so refilling a batch of the same layout does not
+   * allocate. The caller must make sure the batch is no longer used by the database.
+   */
+  public void reuse(DeviceSchema deviceSchema, int rowCount) {
+    List<Sensor> sensors = deviceSchema.getSensors();
+    if (rowCount > timestamps.length || !hasSameTypes(sensors)) {
+      int capacity = Math.max(rowCount, timestamps.length);
+      timestamps = new long[capacity];
+      initColumns(sensors, capacity);
+    } else if (this.deviceSchema != deviceSchema) {
+      fieldCount = countFields(sensors);
+    }
+    this.deviceSchema = deviceSchema;
+    this.rowCount = rowCount;
+    this.records = null;
+  }
+
+  private boolean hasSameTypes(List<Sensor> sensors) {
+    if (sensors.size() != sensorTypes.length) {
+      return false;
+    }
+    for (int i = 0; i < sensorTypes.length; i++) {
+      if (sensors.get(i).getSensorType() != sensorTypes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Object newColumn(SensorType sensorType, int capacity) {
+    switch (sensorType) {
+      case BOOLEAN:
+        return new boolean[capacity];
+      case INT32:
+        return new int[capacity];
+      case INT64:
+      case TIMESTAMP:
+        return new long[capacity];
+      case FLOAT:
+        return new float[capacity];
+      case DOUBLE:
+        return new double[capacity];
+      case TEXT:
+      case STRING:
+      case BLOB:
+        return new String[capacity];
+      case DATE:
+        return new LocalDate[capacity];
+      default:
+        throw new UnsupportedOperationException(sensorType + ": This data type is not supported.");
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  public SensorType getSensorType(int column) {
+    return sensorTypes[column];
+  }
+
+  public long[] getTimestamps() {
+    return timestamps;
+  }
+
+  /**
+   * Get the values of one sensor, the array type depends on the sensor type: boolean[], int[],
+   * long[] (INT64, TIMESTAMP), float[], double[], String[] (TEXT, STRING, BLOB) or LocalDate[].
+   * Only the first {@link #getRowCount()} elements are valid.
+   */
+  public Object getColumn(int column) {
+    return columns[column];
+  }
+
+  public void setTimestamp(int row, long timestamp) {
+    timestamps[row] = timestamp;
+    records = null;
+  }
+
+  /** Store one value, boxed values are unboxed into the primitive column */
+  public void setValue(int column, int row, Object value) {
+    switch (sensorTypes[column]) {
+      case BOOLEAN:
+        ((boolean[]) columns[column])[row] = (boolean) value;
+        break;
+      case INT32:
+        ((int[]) columns[column])[row] = (int) value;
+        break;
+      case INT64:
+      case TIMESTAMP:
+        ((long[]) columns[column])[row] = (long) value;
+        break;
+      case FLOAT:
+        ((float[]) columns[column])[row] = (float) value;
+        break;
+      case DOUBLE:
+        ((double[]) columns[column])[row] = (double) value;
+        break;
+      case TEXT:
+      case STRING:
+      case BLOB:
+        ((String[]) columns[column])[row] = (String) value;
+        break;
+      case DATE:
+        ((LocalDate[]) columns[column])[row] = (LocalDate) value;
+        break;
+      default:
+        throw new UnsupportedOperationException(
+            sensorTypes[column] + ": This data type is not supported.");
+    }
+    records = null;
+  }
+
+  /**
+   * Copy one value from source, which must be a column of the same sensor type in the layout of
+   * {@link #getColumn(int)}. Primitive values are copied without boxing
+   */
+  public void copyValue(int column, int row, Object source, int sourceIndex) {
+    switch (sensorTypes[column]) {
+      case BOOLEAN:
+        ((boolean[]) columns[column])[row] = ((boolean[]) source)[sourceIndex];
+        break;
+      case INT32:
+        ((int[]) columns[column])[row] = ((int[]) source)[sourceIndex];
+        break;
+      case INT64:
+      case TIMESTAMP:
+        ((long[]) columns[column])[row] = ((long[]) source)[sourceIndex];
+        break;
+      case FLOAT:
+        ((float[]) columns[column])[row] = ((float[]) source)[sourceIndex];
+        break;
+      case DOUBLE:
+        ((double[]) columns[column])[row] = ((double[]) source)[sourceIndex];
+        break;
+      case TEXT:
+      case STRING:
+      case BLOB:
+      case DATE:
+        ((Object[]) columns[column])[row] = ((Object[]) source)[sourceIndex];
+        break;
+      default:
+        throw new UnsupportedOperationException(
+            sensorTypes[column] + ": This data type is not supported.");
+    }
+    records = null;
+  }
+
+  /** Get one value as object, notice that primitive values will be boxed */
+  public Object getValue(int column, int row) {
+    switch (sensorTypes[column]) {
+      case BOOLEAN:
+        return ((boolean[]) columns[column])[row];
+      case INT32:
+        return ((int[]) columns[column])[row];
+      case INT64:
+      case TIMESTAMP:
+        return ((long[]) columns[column])[row];
+      case FLOAT:
+        return ((float[]) columns[column])[row];
+      case DOUBLE:
+        return ((double[]) columns[column])[row];
+      case TEXT:
+      case STRING:
+      case BLOB:
+        return ((String[]) columns[column])[row];
+      case DATE:
+        return ((LocalDate[]) columns[column])[row];
+      default:
+        throw new UnsupportedOperationException(
+            sensorTypes[column] + ": This data type is not supported.");
+    }
+  }
+
+  /**
+   * Append the text form of one value to builder without boxing it, the result is the same as
+   * appending the value of {@link #getValue(int, int)}
+   */
+  public StringBuilder appendValue(StringBuilder builder, int column, int row) {
+    switch (sensorTypes[column]) {
+      case BOOLEAN:
+        return builder.append(((boolean[]) columns[column])[row]);
+      case INT32:
+        return builder.append(((int[]) columns[column])[row]);
+      case INT64:
+      case TIMESTAMP:
+        return builder.append(((long[]) columns[column])[row]);
+      case FLOAT:
+        return builder.append(((float[]) columns[column])[row]);
+      case DOUBLE:
+        return builder.append(((double[]) columns[column])[row]);
+      default:
+        return builder.append(getValue(column, row));
+    }
+  }
+
+  @Override
+  public long pointNum() {
+    return (long) fieldCount * rowCount;
+  }
+
+  @Override
+  public DeviceSchema getDeviceSchema() {
+    return deviceSchema;
+  }
+
+  @Override
+  public void addSchemaAndContent(DeviceSchema deviceSchema, List<Record> records) {
+    this.deviceSchema = deviceSchema;
+    this.rowCount = records.size();
+    this.timestamps = new long[rowCount];
+    initColumns(deviceSchema.getSensors(), rowCount);
+    for (int row = 0; row < rowCount; row++) {
+      Record record = records.get(row);
+      timestamps[row] = record.getTimestamp();
+      for (int column = 0; column < columns.length; column++) {
+        setValue(column, row, record.getRecordDataValue().get(column));
+      }
+    }
+    this.records = records;
+  }
+
+  @Override
+  public void setColIndex(int colIndex) {
+    this.colIndex = colIndex;
+  }
+
+  @Override
+  public int getColIndex() {
+    return colIndex;
+  }
+
+  /** Row view of the columns, it is built on first call and cached until the data changes */
+  @Override
+  public List<Record> getRecords() {
+    if (records == null) {
+      List<Record> view = new ArrayList<>(rowCount);
+      for (int row = 0; row < rowCount; row++) {
+        List<Object> values = new ArrayList<>(columns.length);
+        for (int column = 0; column < columns.length; column++) {
+          values.add(getValue(column, row));
+        }
+        view.add(new Record(timestamps[row], values));
+      }
+      records = view;
+    }
+    return records;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return false;
+  }
+
+  @Override
+  public void next() {
+    throw new UnsupportedOperationException("ColumnarBatch not support next()");
+  }
+
+  @Override
+  public void reset() {}
+
+  @Override
+  public String toString() {
+    return "ColumnarBatch{"
+        + "deviceSchema="
+        + deviceSchema
+        + ", rowCount="
+        + rowCount
+        + ", records="
+        + getRecords()
+        + '}';
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.extern;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.conf.Constants;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaUtil;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.source.BinaryDataFormat;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Convert a CSV dataset (the layout written in GENERATE_DATA mode, or prepared for
+ * VERIFICATION_WRITE mode) into binary data files once, so that replaying it does not parse text.
+ * The schema and info files are copied, each csv file of a device becomes a bin file of the same
+ * name, and every BATCH_SIZE_PER_WRITE rows (or every sensor header line) become one block.
+ *
+ * <p>Usage: java -cp "lib/*" -Dbenchmark-conf=conf
+ * cn.edu.tsinghua.iot.benchmark.extern.BinaryDataConverter [csv dataset dir] [binary dataset dir]
+ */
+public class BinaryDataConverter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryDataConverter.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+  private static final String CSV_SUFFIX = ".csv";
+  private static final String SENSOR_HEADER = "Sensor";
+
+  private final Path sourcePath;
+  private final Path targetPath;
+  private final Map<String, Map<String, SensorType>> sensorTypes = new HashMap<>();
+  private final BinaryDataWriter writer = new BinaryDataWriter();
+
+  public BinaryDataConverter(Path sourcePath, Path targetPath) {
+    this.sourcePath = sourcePath;
+    this.targetPath = targetPath;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      LOGGER.error("Usage: BinaryDataConverter [csv dataset dir] [binary dataset dir]");
+      return;
+    }
+    new BinaryDataConverter(Paths.get(args[0]), Paths.get(args[1])).convert();
+  }
+
+  /** Convert all csv files of the dataset */
+  public void convert() throws IOException {
+    long start = System.nanoTime();
+    Files.createDirectories(targetPath);
+    readSchema();
+    for (String fileName : new String[] {Constants.SCHEMA_PATH, Constants.INFO_PATH}) {
+      Path file = sourcePath.resolve(fileName);
+      if (Files.exists(file)) {
+        Files.copy(file, targetPath.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    List<Path> csvFiles;
+    try (Stream<Path> paths = Files.walk(sourcePath)) {
+      csvFiles =
+          paths
+              .filter(path -> path.getFileName().toString().endsWith(CSV_SUFFIX))
+              .collect(Collectors.toList());
+    }
+    long bytes = 0;
+    try {
+      for (Path csvFile : csvFiles) {
+        convertFile(csvFile);
+        bytes += Files.size(csvFile);
+      }
+    } finally {
+      writer.close();
+    }
+    double seconds = (System.nanoTime() - start) / 1000000000.0d;
+    LOGGER.info(
+        "Converted {} files ({} MB) into {} in {} s",
+        csvFiles.size(),
+        String.format("%.2f", bytes / 1024.0d / 1024.0d),
+        targetPath,
+        String.format("%.2f", seconds));
+  }
+
+  /** Read sensor types from schema file, each line is "device sensor typeOrdinal" */
+  private void readSchema() throws IOException {
+    Path schemaFile = sourcePath.resolve(Constants.SCHEMA_PATH);
+    if (!Files.exists(schemaFile)) {
+      throw new IOException("Failed to find schema file " + schemaFile);
+    }
+    for (String line : Files.readAllLines(schemaFile)) {
+      if (line.trim().length() != 0) {
+        String[] items = line.trim().split(" ");
+        sensorTypes
+            .computeIfAbsent(items[0], k -> new HashMap<>())
+            .put(items[1], SensorType.getType(Integer.parseInt(items[2])));
+      }
+    }
+  }
+
+  private void convertFile(Path csvFile) throws IOException {
+    String device = csvFile.getParent().getFileName().toString();
+    String fileName = csvFile.getFileName().toString();
+    Path binaryFile =
+        targetPath
+            .resolve(sourcePath.relativize(csvFile.getParent()))
+            .resolve(
+                fileName.substring(0, fileName.length() - CSV_SUFFIX.length())
+                    + BinaryDataFormat.FILE_SUFFIX);
+    Map<String, SensorType> deviceSensorTypes = sensorTypes.getOrDefault(device, new HashMap<>());
+    DeviceSchema deviceSchema = null;
+    List<Record> records = new ArrayList<>();
+    try (CSVReader csvReader =
+        new CSVReaderBuilder(Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)).build()) {
+      for (String[] items : csvReader) {
+        if (items.length == 0 || (items.length == 1 && items[0].isEmpty())) {
+          continue;
+        }
+        if (SENSOR_HEADER.equals(items[0])) {
+          flush(device, binaryFile, deviceSchema, records);
+          List<Sensor> sensors = new ArrayList<>();
+          for (int i = 1; i < items.length; i++) {
+            sensors.add(
+                new Sensor(items[i], deviceSensorTypes.getOrDefault(items[i], SensorType.TEXT)));
+          }
+          deviceSchema = new DeviceSchema(device, sensors, MetaUtil.getTags(device));
+          continue;
+        }
+        if (deviceSchema == null) {
+          throw new IOException("Missing sensor header in " + csvFile);
+        }
+        records.add(parseRecord(deviceSchema.getSensors(), items));
+        if (records.size() >= config.getBATCH_SIZE_PER_WRITE()) {
+          flush(device, binaryFile, deviceSchema, records);
+        }
+      }
+    }
+    flush(device, binaryFile, deviceSchema, records);
+  }
+
+  private void flush(
+      String device, Path binaryFile, DeviceSchema deviceSchema, List<Record> records)
+      throws IOException {
+    if (records.isEmpty()) {
+      return;
+    }
+    writer.appendBatch(device, binaryFile, new Batch(deviceSchema, new ArrayList<>(records)));
+    records.clear();
+  }
+
+  private static Record parseRecord(List<Sensor> sensors, String[] values) {
+    List<Object> recordValues = new ArrayList<>(sensors.size());
+    for (int i = 1; i < values.length; i++) {
+      switch (sensors.get(i - 1).getSensorType()) {
+        case BOOLEAN:
+          recordValues.add(Boolean.parseBoolean(values[i]));
+          break;
+        case INT32:
+          recordValues.add(Integer.parseInt(values[i]));
+          break;
+        case INT64:
+        case TIMESTAMP:
+          recordValues.add(Long.parseLong(values[i]));
+          break;
+        case FLOAT:
+          recordValues.add(Float.parseFloat(values[i]));
+          break;
+        case DOUBLE:
+          recordValues.add(Double.parseDouble(values[i]));
+          break;
+        case DATE:
+          recordValues.add(LocalDate.parse(values[i]));
+          break;
+        default:
+          recordValues.add(values[i]);
+      }
+    }
+    return new Record(Long.parseLong(values[0]), recordValues);
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.extern;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.source.BinaryDataFormat;
+import cn.edu.tsinghua.iot.benchmark.utils.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write batches into binary columnar files, see {@link BinaryDataFormat}. The file of each device
+ * is kept open until the device moves on to its next big batch file.
+ */
+public class BinaryDataWriter extends DataWriter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryDataWriter.class);
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  /** Current file and channel of each device */
+  private final Map<String, Path> deviceFiles = new HashMap<>();
+
+  private final Map<String, FileChannel> deviceChannels = new HashMap<>();
+  private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+  @Override
+  public boolean writeBatch(IBatch batch, long insertLoopIndex) throws Exception {
+    while (true) {
+      String device = batch.getDeviceSchema().getDevice();
+      Path dataFile =
+          Paths.get(
+              FileUtils.union(
+                  config.getFILE_PATH(),
+                  device,
+                  "BigBatch_"
+                      + (insertLoopIndex / config.getBIG_BATCH_SIZE())
+                      + BinaryDataFormat.FILE_SUFFIX));
+      try {
+        appendBatch(device, dataFile, batch);
+      } catch (IOException ioException) {
+        LOGGER.error("Write batch Error!" + batch, ioException);
+        return false;
+      }
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    batch.finishCheck();
+    return true;
+  }
+
+  /** Append the current device of batch as one block to dataFile */
+  public void appendBatch(String device, Path dataFile, IBatch batch) throws IOException {
+    FileChannel channel = getChannel(device, dataFile);
+    ByteBuffer block = encode(batch);
+    addDataBytes(block.remaining());
+    while (block.hasRemaining()) {
+      channel.write(block);
+    }
+  }
+
+  private FileChannel getChannel(String device, Path dataFile) throws IOException {
+    FileChannel channel = deviceChannels.get(device);
+    if (channel != null && dataFile.equals(deviceFiles.get(device))) {
+      return channel;
+    }
+    if (channel != null) {
+      closeChannel(channel);
+    }
+    Files.createDirectories(dataFile.getParent());
+    channel =
+        FileChannel.open(
+            dataFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    if (channel.size() == 0) {
+      ByteBuffer header = ByteBuffer.allocate(BinaryDataFormat.FILE_HEADER_SIZE);
+      header.putInt(BinaryDataFormat.MAGIC).putInt(BinaryDataFormat.VERSION).flip();
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+    }
+    deviceFiles.put(device, dataFile);
+    deviceChannels.put(device, channel);
+    return channel;
+  }
+
+  /** Encode the current device of batch into a block, the buffer is reused by next call */
+  private ByteBuffer encode(IBatch batch) {
+    List<Sensor> sensors = batch.getDeviceSchema().getSensors();
+    ColumnarBatch columnarBatch = batch instanceof ColumnarBatch ? (ColumnarBatch) batch : null;
+    List<Record> records = columnarBatch == null ? batch.getRecords() : null;
+    int rowCount = columnarBatch == null ? records.size() : columnarBatch.getRowCount();
+
+    byte[][] names = new byte[sensors.size()][];
+    byte[][][] texts = new byte[sensors.size()][][];
+    long blockSize = 8 + 8L * rowCount;
+    for (int column = 0; column < sensors.size(); column++) {
+      SensorType sensorType = sensors.get(column).getSensorType();
+      names[column] = sensors.get(column).getName().getBytes(StandardCharsets.UTF_8);
+      blockSize += 3 + names[column].length;
+      int valueSize = BinaryDataFormat.valueSize(sensorType);
+      if (valueSize > 0) {
+        blockSize += (long) valueSize * rowCount;
+      } else {
+        texts[column] = new byte[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+          Object value =
+              columnarBatch == null
+                  ? records.get(row).getRecordDataValue().get(column)
+                  : columnarBatch.getValue(column, row);
+          texts[column][row] = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+          blockSize += 4 + texts[column][row].length;
+        }
+      }
+    }
+    if (blockSize + 4 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Batch is too large for one block: " + blockSize);
+    }
+    ensureCapacity((int) blockSize + 4);
+
+    buffer.putInt((int) blockSize).putInt(rowCount).putInt(sensors.size());
+    for (int column = 0; column < sensors.size(); column++) {
+      buffer.put((byte) sensors.get(column).getSensorType().ordinal());
+      buffer.putShort((short) names[column].length).put(names[column]);
+    }
+    if (columnarBatch != null) {
+      buffer.asLongBuffer().put(columnarBatch.getTimestamps(), 0, rowCount);
+      buffer.position(buffer.position() + 8 * rowCount);
+    } else {
+      for (Record record : records) {
+        buffer.putLong(record.getTimestamp());
+      }
+    }
+    for (int column = 0; column < sensors.size(); column++) {
+      if (texts[column] != null) {
+        for (byte[] text : texts[column]) {
+          buffer.putInt(text.length).put(text);
+        }
+      } else if (columnarBatch != null) {
+        putColumn(columnarBatch, column, rowCount);
+      } else {
+        SensorType sensorType = sensors.get(column).getSensorType();
+        for (Record record : records) {
+          putValue(sensorType, record.getRecordDataValue().get(column));
+        }
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private void putColumn(ColumnarBatch batch, int column, int rowCount) {
+    Object values = batch.getColumn(column);
+    int position = buffer.position();
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        for (int row = 0; row < rowCount; row++) {
+          buffer.put((byte) (((boolean[]) values)[row] ? 1 : 0));
+        }
+        return;
+      case INT32:
+        buffer.asIntBuffer().put((int[]) values, 0, rowCount);
+        buffer.position(position + 4 * rowCount);
+        return;
+      case INT64:
+      case TIMESTAMP:
+        buffer.asLongBuffer().put((long[]) values, 0, rowCount);
+        buffer.position(position + 8 * rowCount);
+        return;
+      case FLOAT:
+        buffer.asFloatBuffer().put((float[]) values, 0, rowCount);
+        buffer.position(position + 4 * rowCount);
+        return;
+      case DOUBLE:
+        buffer.asDoubleBuffer().put((double[]) values, 0, rowCount);
+        buffer.position(position + 8 * rowCount);
+        return;
+      case DATE:
+        for (int row = 0; row < rowCount; row++) {
+          buffer.putInt((int) ((LocalDate[]) values)[row].toEpochDay());
+        }
+        return;
+      default:
+        throw new UnsupportedOperationException(
+            batch.getSensorType(column) + ": This data type is not supported.");
+    }
+  }
+
+  private void putValue(SensorType sensorType, Object value) {
+    switch (sensorType) {
+      case BOOLEAN:
+        buffer.put((byte) ((Boolean) value ? 1 : 0));
+        break;
+      case INT32:
+        buffer.putInt(((Number) value).intValue());
+        break;
+      case INT64:
+      case TIMESTAMP:
+        buffer.putLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        buffer.putFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        buffer.putDouble(((Number) value).doubleValue());
+        break;
+      case DATE:
+        buffer.putInt((int) ((LocalDate) value).toEpochDay());
+        break;
+      default:
+        throw new UnsupportedOperationException(sensorType + ": This data type is not supported.");
+    }
+  }
+
+  private void ensureCapacity(int size) {
+    if (buffer.capacity() < size) {
+      buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+    }
+    buffer.clear();
+  }
+
+  private void closeChannel(FileChannel channel) throws IOException {
+    addFileBytes(channel.size());
+    channel.close();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (FileChannel channel : deviceChannels.values()) {
+      closeChannel(channel);
+    }
+    deviceChannels.clear();
+    deviceFiles.clear();
+  }
+}
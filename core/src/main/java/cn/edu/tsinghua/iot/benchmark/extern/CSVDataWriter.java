@@ -19,71 +19,86 @@
 
 package cn.edu.tsinghua.iot.benchmark.extern;
 
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileCompression;
 import cn.edu.tsinghua.iot.benchmark.utils.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Write batches into csv files. The big batch file of each device is kept open until the device
+ * moves on to its next big batch file, and the lines of a batch are encoded into a reused direct
+ * buffer, so that one batch costs one write instead of opening the file for every line.
+ *
+ * <p>At most DATA_FILE_MAX_OPEN_NUM files are open at the same time. When more devices are written,
+ * the least recently written file is closed, and reopened in append mode when its device is written
+ * again. A compressed file reopened this way gets a new gzip member or zstd frame, which are read
+ * as one stream.
+ */
 public class CSVDataWriter extends DataWriter {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CSVDataWriter.class);
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  /**
+   * Output buffer of the compressor of each open file. The lines are already written in chunks of
+   * BUFFER_SIZE, so a small one is enough
+   */
+  private static final int COMPRESSION_BUFFER_SIZE = 8 * 1024;
+
+  private final DataFileCompression compression = config.getDATA_FILE_COMPRESSION();
+
+  private final int maxOpenFileNum;
+
+  /** Open big batch file of each device, from the least recently written one */
+  private final Map<String, DeviceFile> deviceFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final StringBuilder lines = new StringBuilder();
+
+  public CSVDataWriter() {
+    this(config.getDATA_FILE_MAX_OPEN_NUM());
+  }
+
+  CSVDataWriter(int maxOpenFileNum) {
+    this.maxOpenFileNum = Math.max(1, maxOpenFileNum);
+  }
 
   @Override
   public boolean writeBatch(IBatch batch, long insertLoopIndex) throws Exception {
     while (true) {
       String device = batch.getDeviceSchema().getDevice();
       try {
-        Path dirFile = Paths.get(FileUtils.union(config.getFILE_PATH(), device));
-        if (!Files.exists(dirFile)) {
-          Files.createDirectories(dirFile);
-        }
-        Path dataFile =
-            Paths.get(
-                FileUtils.union(
-                    config.getFILE_PATH(),
-                    device,
-                    "BigBatch_" + (insertLoopIndex / config.getBIG_BATCH_SIZE()) + ".csv"));
-        if (!Files.exists(dataFile)) {
-          Files.createFile(dataFile);
-        }
-        List<Sensor> sensors = batch.getDeviceSchema().getSensors();
-        StringBuffer sensorLine = new StringBuffer("Sensor");
-        for (Sensor sensor : sensors) {
-          sensorLine.append(",").append(sensor.getName());
-        }
-        sensorLine.append("\n");
-        Files.write(
-            dataFile,
-            sensorLine.toString().getBytes(StandardCharsets.UTF_8),
-            StandardOpenOption.APPEND);
-        for (Record record : batch.getRecords()) {
-          StringBuffer line = new StringBuffer(String.valueOf(record.getTimestamp()));
-          for (int i = 0; i < sensors.size(); i++) {
-            Object value = null;
-            value = record.getRecordDataValue().get(i);
-            if (value instanceof String) {
-              value = "\"" + value + "\"";
-            }
-            line.append(",").append(value);
-          }
-          line.append("\n");
-          Files.write(
-              dataFile,
-              line.toString().getBytes(StandardCharsets.UTF_8),
-              StandardOpenOption.APPEND);
-        }
+        WritableByteChannel channel =
+            getChannel(device, insertLoopIndex / config.getBIG_BATCH_SIZE());
+        lines.setLength(0);
+        appendLines(batch);
+        write(channel);
       } catch (IOException ioException) {
-        LOGGER.error("Write batch Error!" + batch);
+        LOGGER.error("Write batch Error!" + batch, ioException);
         return false;
       }
       if (!batch.hasNext()) {
@@ -94,4 +109,151 @@ public class CSVDataWriter extends DataWriter {
     batch.finishCheck();
     return true;
   }
+
+  private WritableByteChannel getChannel(String device, long bigBatchIndex) throws IOException {
+    DeviceFile deviceFile = deviceFiles.get(device);
+    if (deviceFile != null && deviceFile.bigBatchIndex == bigBatchIndex) {
+      return deviceFile.channel;
+    }
+    if (deviceFile != null) {
+      deviceFiles.remove(device);
+      deviceFile.close();
+    } else if (deviceFiles.size() >= maxOpenFileNum) {
+      Iterator<DeviceFile> iterator = deviceFiles.values().iterator();
+      DeviceFile leastRecentFile = iterator.next();
+      iterator.remove();
+      leastRecentFile.close();
+    }
+    Path dataFile =
+        Paths.get(
+            FileUtils.union(
+                config.getFILE_PATH(),
+                device,
+                "BigBatch_" + bigBatchIndex + ".csv" + compression.getSuffix()));
+    Files.createDirectories(dataFile.getParent());
+    FileChannel fileChannel =
+        FileChannel.open(
+            dataFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+    long openSize = fileChannel.size();
+    WritableByteChannel channel = fileChannel;
+    if (compression != DataFileCompression.NONE) {
+      channel =
+          Channels.newChannel(
+              compression.wrap(Channels.newOutputStream(fileChannel), COMPRESSION_BUFFER_SIZE));
+    }
+    deviceFile = new DeviceFile(dataFile, bigBatchIndex, openSize, channel);
+    deviceFiles.put(device, deviceFile);
+    return channel;
+  }
+
+  /** Append the sensor line and the record lines of the current device of batch */
+  private void appendLines(IBatch batch) {
+    List<Sensor> sensors = batch.getDeviceSchema().getSensors();
+    lines.append("Sensor");
+    for (Sensor sensor : sensors) {
+      lines.append(',').append(sensor.getName());
+    }
+    lines.append('\n');
+    if (batch instanceof ColumnarBatch) {
+      ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+      long[] timestamps = columnarBatch.getTimestamps();
+      for (int row = 0; row < columnarBatch.getRowCount(); row++) {
+        lines.append(timestamps[row]);
+        for (int column = 0; column < sensors.size(); column++) {
+          lines.append(',');
+          if (isText(columnarBatch.getSensorType(column))) {
+            lines.append('"').append(columnarBatch.getValue(column, row)).append('"');
+          } else {
+            columnarBatch.appendValue(lines, column, row);
+          }
+        }
+        lines.append('\n');
+      }
+      return;
+    }
+    for (Record record : batch.getRecords()) {
+      lines.append(record.getTimestamp());
+      List<Object> values = record.getRecordDataValue();
+      for (int i = 0; i < sensors.size(); i++) {
+        Object value = values.get(i);
+        lines.append(',');
+        if (value instanceof String) {
+          lines.append('"').append(value).append('"');
+        } else {
+          lines.append(value);
+        }
+      }
+      lines.append('\n');
+    }
+  }
+
+  private static boolean isText(SensorType sensorType) {
+    return sensorType == SensorType.TEXT
+        || sensorType == SensorType.STRING
+        || sensorType == SensorType.BLOB;
+  }
+
+  /** Encode lines into the buffer and write it to channel whenever it is full */
+  private void write(WritableByteChannel channel) throws IOException {
+    CharBuffer chars = CharBuffer.wrap(lines);
+    encoder.reset();
+    buffer.clear();
+    while (true) {
+      CoderResult result = encoder.encode(chars, buffer, true);
+      if (result.isOverflow()) {
+        flush(channel);
+      } else if (result.isUnderflow()) {
+        break;
+      } else {
+        result.throwException();
+      }
+    }
+    while (encoder.flush(buffer).isOverflow()) {
+      flush(channel);
+    }
+    flush(channel);
+  }
+
+  private void flush(WritableByteChannel channel) throws IOException {
+    buffer.flip();
+    addDataBytes(buffer.remaining());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (DeviceFile deviceFile : deviceFiles.values()) {
+      deviceFile.close();
+    }
+    deviceFiles.clear();
+  }
+
+  private static class DeviceFile {
+    private final Path path;
+    private final long bigBatchIndex;
+
+    /** Size of the file when it is opened, which is not zero if it is reopened */
+    private final long openSize;
+
+    /** The file channel itself, or a channel over the compressed stream of it */
+    private final WritableByteChannel channel;
+
+    private DeviceFile(Path path, long bigBatchIndex, long openSize, WritableByteChannel channel) {
+      this.path = path;
+      this.bigBatchIndex = bigBatchIndex;
+      this.openSize = openSize;
+      this.channel = channel;
+    }
+
+    private void close() throws IOException {
+      channel.close();
+      addFileBytes(Files.size(path) - openSize);
+    }
+  }
 }
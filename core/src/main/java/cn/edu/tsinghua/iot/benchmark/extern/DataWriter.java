@@ -23,12 +23,27 @@ import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
 public abstract class DataWriter {
 
   protected static final Config config = ConfigDescriptor.getInstance().getConfig();
 
+  /** Bytes encoded by all writers, before compression */
+  private static final LongAdder dataBytes = new LongAdder();
+
+  /** Bytes of the data files closed by all writers, after compression */
+  private static final LongAdder fileBytes = new LongAdder();
+
   public static DataWriter getDataWriter() {
-    return new CSVDataWriter();
+    switch (config.getDATA_FILE_FORMAT()) {
+      case BINARY:
+        return new BinaryDataWriter();
+      case CSV:
+      default:
+        return new CSVDataWriter();
+    }
   }
 
   /**
@@ -37,4 +52,23 @@ public abstract class DataWriter {
    * @param insertLoopIndex loop index of batch
    */
   public abstract boolean writeBatch(IBatch batch, long insertLoopIndex) throws Exception;
+
+  /** Flush and close the files which are still open */
+  public void close() throws IOException {}
+
+  protected static void addDataBytes(long bytes) {
+    dataBytes.add(bytes);
+  }
+
+  protected static void addFileBytes(long bytes) {
+    fileBytes.add(bytes);
+  }
+
+  public static long getDataBytes() {
+    return dataBytes.sum();
+  }
+
+  public static long getFileBytes() {
+    return fileBytes.sum();
+  }
 }
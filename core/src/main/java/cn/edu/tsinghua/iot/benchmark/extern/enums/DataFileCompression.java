@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.extern.enums;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** Compression of the CSV data files written in GENERATE_DATA mode */
+public enum DataFileCompression {
+  NONE(""),
+  GZIP(".gz"),
+  ZSTD(".zst");
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataFileCompression.class);
+
+  /** Appended to the file name, e.g. BigBatch_0.csv.gz */
+  private final String suffix;
+
+  DataFileCompression(String suffix) {
+    this.suffix = suffix;
+  }
+
+  public String getSuffix() {
+    return suffix;
+  }
+
+  public static DataFileCompression getDataFileCompression(String name) {
+    for (DataFileCompression compression : DataFileCompression.values()) {
+      if (compression.name().equalsIgnoreCase(name)) {
+        return compression;
+      }
+    }
+    LOGGER.warn("Unknown data file compression: " + name + ", use NONE.");
+    return DataFileCompression.NONE;
+  }
+
+  /** Wrap the raw file stream so that everything written to it is compressed */
+  public OutputStream wrap(OutputStream outputStream, int bufferSize) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPOutputStream(outputStream, bufferSize);
+      case ZSTD:
+        return new ZstdOutputStream(outputStream);
+      case NONE:
+      default:
+        return outputStream;
+    }
+  }
+
+  /** Wrap the raw file stream so that everything read from it is decompressed */
+  public InputStream wrap(InputStream inputStream, int bufferSize) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPInputStream(inputStream, bufferSize);
+      case ZSTD:
+        return new ZstdInputStream(inputStream);
+      case NONE:
+      default:
+        return inputStream;
+    }
+  }
+
+  /** Get the compression of a data file by its suffix */
+  public static DataFileCompression getByFileName(String fileName) {
+    for (DataFileCompression compression : DataFileCompression.values()) {
+      if (compression != NONE && fileName.endsWith(compression.suffix)) {
+        return compression;
+      }
+    }
+    return NONE;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.extern.enums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Format of the data files written in GENERATE_DATA mode */
+public enum DataFileFormat {
+  /** Text files, one line per row */
+  CSV,
+  /** Columnar binary files which can be read by memory mapping, see BinaryDataFormat */
+  BINARY;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DataFileFormat.class);
+
+  public static DataFileFormat getDataFileFormat(String name) {
+    for (DataFileFormat dataFileFormat : DataFileFormat.values()) {
+      if (dataFileFormat.name().equalsIgnoreCase(name)) {
+        return dataFileFormat;
+      }
+    }
+    LOGGER.warn("Unknown data file format: " + name + ", use CSV.");
+    return DataFileFormat.CSV;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -39,16 +39,32 @@ public class Function {
         param.getMax(),
         param.getMin(),
         param.getCycle(),
-        currentTime);
+        currentTime,
+        random);
+  }
+
+  /**
+   * Get value of function whose type has been parsed, random functions draw from the given random
+   * instead of the shared one so that the values do not depend on the order of calls
+   */
+  public static Number getValueByFunctionIdAndParam(
+      FunctionType functionType, FunctionParam param, long currentTime, Random random) {
+    return getValueByFunctionIdAndParam(
+        functionType, param.getMax(), param.getMin(), param.getCycle(), currentTime, random);
   }
 
   private static Number getValueByFunctionIdAndParam(
-      FunctionType functionType, double max, double min, long cycle, long currentTime) {
+      FunctionType functionType,
+      double max,
+      double min,
+      long cycle,
+      long currentTime,
+      Random random) {
     switch (functionType) {
       case FLOAT_SIN:
         return (float) getSineValue(max, min, cycle, currentTime);
       case FLOAT_RANDOM:
-        return (float) getRandomValue(max, min);
+        return (float) getRandomValue(max, min, random);
       case FLOAT_SQUARE:
         return (float) getSquareValue(max, min, cycle, currentTime);
       case FLOAT_MONO:
@@ -57,7 +73,7 @@ public class Function {
       case DOUBLE_SIN:
         return getSineValue(max, min, cycle, currentTime);
       case DOUBLE_RANDOM:
-        return getRandomValue(max, min);
+        return getRandomValue(max, min, random);
       case DOUBLE_SQUARE:
         return getSquareValue(max, min, cycle, currentTime);
       case DOUBLE_MONO:
@@ -66,7 +82,7 @@ public class Function {
       case INT_SIN:
         return (int) getSineValue(max, min, cycle, currentTime);
       case INT_RANDOM:
-        return (int) getRandomValue(max, min);
+        return (int) getRandomValue(max, min, random);
       case INT_SQUARE:
         return (int) getSquareValue(max, min, cycle, currentTime);
       case INT_MONO:
@@ -130,9 +146,10 @@ public class Function {
    *
    * @param max maximum of function
    * @param min minimum of function
+   * @param random source of random numbers
    * @return
    */
-  private static double getRandomValue(double max, double min) {
+  private static double getRandomValue(double max, double min, Random random) {
     return random.nextDouble() * (max - min) + min;
   }
 }
@@ -0,0 +1,491 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.PersistenceFactory;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
+import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sample the resources of benchmark host from procfs, and the CPU, GC and allocation of benchmark
+ * JVM from MXBeans, so that a throughput plateau can be told apart between database and benchmark
+ * host. Each sample is saved by the shared recorder, and the samples of each RESULT_PRINT_INTERVAL
+ * window are averaged and logged when the window ends.
+ *
+ * <p>Units: usages and ratios are percentages, network rates are KB/s, disk speeds and allocation
+ * speed are MB/s, process memory is MB, disk TPS and GC count are per second and per sample.
+ */
+public class HostResourceSampler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HostResourceSampler.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private static final Path PROC_STAT = Paths.get("/proc/stat");
+  private static final Path PROC_MEMINFO = Paths.get("/proc/meminfo");
+  private static final Path PROC_DISKSTATS = Paths.get("/proc/diskstats");
+  private static final Path PROC_NET_DEV = Paths.get("/proc/net/dev");
+  private static final Path PROC_SELF_STATUS = Paths.get("/proc/self/status");
+  private static final String SYS_BLOCK = "/sys/block/";
+
+  /** Block devices which are partitions of or built on other devices, counted by those */
+  private static final String[] VIRTUAL_DISK_PREFIXES = {"loop", "ram", "zram", "dm-", "md"};
+
+  private static final double NANO_TO_SECOND = 1000000000.0d;
+  private static final double MB = 1024.0d * 1024.0d;
+  private static final double KB = 1024.0d;
+  private static final int SECTOR_SIZE = 512;
+
+  /** com.sun.management.ThreadMXBean.getTotalThreadAllocatedBytes() of Java 21+, or null */
+  private static final Method TOTAL_THREAD_ALLOCATED_BYTES = getTotalThreadAllocatedBytesMethod();
+
+  private final int interval;
+  private final int samplesPerWindow;
+  private final boolean procAvailable = Files.isReadable(PROC_STAT);
+
+  private final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+  private final List<GarbageCollectorMXBean> gcBeans =
+      ManagementFactory.getGarbageCollectorMXBeans();
+
+  private ScheduledExecutorService service;
+  private TestDataPersistence recorder;
+
+  /** Counters of the previous sample, only accessed by the sampler thread */
+  private long lastNanos;
+
+  private long cpuTotal;
+  private long cpuIdle;
+  private long diskOperations;
+  private long sectorsRead;
+  private long sectorsWritten;
+  private final Map<String, Long> diskIoTicks = new HashMap<>();
+  private final Map<String, Boolean> physicalDisks = new HashMap<>();
+  private long networkReceived;
+  private long networkSent;
+  private long processCpuNanos;
+  private long gcMillis;
+  private long gcCount;
+  private long allocatedBytes;
+
+  /** Allocated bytes of each live thread and their sum, if there is no total of all threads */
+  private final Map<Long, Long> threadAllocatedBytes = new HashMap<>();
+
+  private long allocatedBytesOfThreads;
+
+  /** Sum of the samples in current window */
+  private final double[] windowSum = new double[SystemMetrics.values().length];
+
+  private final int[] windowCount = new int[SystemMetrics.values().length];
+  private int samplesInWindow = 0;
+
+  private static Method getTotalThreadAllocatedBytesMethod() {
+    try {
+      return com.sun.management.ThreadMXBean.class.getMethod("getTotalThreadAllocatedBytes");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  public HostResourceSampler() {
+    this.interval = alignInterval(config.getMONITOR_INTERVAL(), config.getRESULT_PRINT_INTERVAL());
+    this.samplesPerWindow =
+        interval > 0 && config.getRESULT_PRINT_INTERVAL() > 0
+            ? config.getRESULT_PRINT_INTERVAL() / interval
+            : 0;
+  }
+
+  /**
+   * Shorten the interval to a divisor of result print interval, so that every result window ends
+   * with a sample
+   */
+  static int alignInterval(int monitorInterval, int resultPrintInterval) {
+    if (monitorInterval <= 0 || resultPrintInterval <= 0) {
+      return monitorInterval;
+    }
+    if (monitorInterval >= resultPrintInterval) {
+      return resultPrintInterval;
+    }
+    int aligned = monitorInterval;
+    while (resultPrintInterval % aligned != 0) {
+      aligned--;
+    }
+    return aligned;
+  }
+
+  /** Start sampling at the same moment as result windows, return false if sampling is disabled */
+  public boolean start() {
+    if (config.getMONITOR_INTERVAL() <= 0) {
+      return false;
+    }
+    if (interval != config.getMONITOR_INTERVAL()) {
+      LOGGER.info(
+          "Sample host resources every {} s to align with RESULT_PRINT_INTERVAL={}",
+          interval,
+          config.getRESULT_PRINT_INTERVAL());
+    }
+    if (!procAvailable) {
+      LOGGER.warn("{} is not readable, only resources of benchmark process are sampled", PROC_STAT);
+    }
+    recorder = new PersistenceFactory().getPersistence();
+    // take the counters as the base of the first sample
+    lastNanos = System.nanoTime();
+    collect(null, 0);
+    service =
+        Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory(ThreadName.HOST_RESOURCE_SAMPLER.getName(), true));
+    service.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.SECONDS);
+    return true;
+  }
+
+  /** Stop sampling, log the samples of the unfinished window and release the recorder */
+  public void stop() {
+    if (service == null) {
+      return;
+    }
+    service.shutdownNow();
+    try {
+      if (!service.awaitTermination(interval, TimeUnit.SECONDS)) {
+        LOGGER.warn("Host resource sampler did not stop in {} s", interval);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (samplesInWindow > 0) {
+      logWindow();
+    }
+    recorder.closeAsync();
+    service = null;
+  }
+
+  private void sample() {
+    try {
+      long now = System.nanoTime();
+      double seconds = (now - lastNanos) / NANO_TO_SECOND;
+      lastNanos = now;
+      Map<SystemMetrics, Float> metrics = new EnumMap<>(SystemMetrics.class);
+      collect(metrics, seconds);
+      recorder.saveSystemMetricsAsync(System.currentTimeMillis(), metrics);
+      for (Map.Entry<SystemMetrics, Float> entry : metrics.entrySet()) {
+        windowSum[entry.getKey().ordinal()] += entry.getValue();
+        windowCount[entry.getKey().ordinal()]++;
+      }
+      samplesInWindow++;
+      if (samplesInWindow == samplesPerWindow) {
+        logWindow();
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Failed to sample host resources", e);
+    }
+  }
+
+  private void logWindow() {
+    StringBuilder builder = new StringBuilder();
+    for (SystemMetrics metric : SystemMetrics.values()) {
+      int count = windowCount[metric.ordinal()];
+      if (count > 0) {
+        builder
+            .append(builder.length() == 0 ? "" : ", ")
+            .append(metric)
+            .append('=')
+            .append(String.format("%.2f", windowSum[metric.ordinal()] / count));
+      }
+    }
+    LOGGER.info("Average host resources of the last {} s: {}", samplesInWindow * interval, builder);
+    Arrays.fill(windowSum, 0);
+    Arrays.fill(windowCount, 0);
+    samplesInWindow = 0;
+  }
+
+  /** Read all counters, and put the rates since previous sample into metrics if it is not null */
+  private void collect(Map<SystemMetrics, Float> metrics, double seconds) {
+    if (procAvailable) {
+      try {
+        collectCpu(metrics);
+        collectMemory(metrics);
+        collectDisk(metrics, seconds);
+        collectNetwork(metrics, seconds);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.debug("Failed to read procfs", e);
+      }
+    }
+    collectProcess(metrics, seconds);
+  }
+
+  private void collectCpu(Map<SystemMetrics, Float> metrics) throws IOException {
+    // cpu user nice system idle iowait irq softirq steal ...
+    String[] fields = split(readLines(PROC_STAT).get(0));
+    long total = 0;
+    for (int i = 1; i <= 8 && i < fields.length; i++) {
+      total += Long.parseLong(fields[i]);
+    }
+    long idle = Long.parseLong(fields[4]) + Long.parseLong(fields[5]);
+    if (metrics != null && total > cpuTotal) {
+      double busy = (total - cpuTotal) - (idle - cpuIdle);
+      put(metrics, SystemMetrics.CPU_USAGE, busy * 100 / (total - cpuTotal));
+    }
+    cpuTotal = total;
+    cpuIdle = idle;
+  }
+
+  private void collectMemory(Map<SystemMetrics, Float> metrics) throws IOException {
+    if (metrics == null) {
+      return;
+    }
+    long total = 0;
+    long available = -1;
+    long free = 0;
+    for (String line : readLines(PROC_MEMINFO)) {
+      String[] fields = split(line);
+      switch (fields[0]) {
+        case "MemTotal:":
+          total = Long.parseLong(fields[1]);
+          break;
+        case "MemAvailable:":
+          available = Long.parseLong(fields[1]);
+          break;
+        case "MemFree:":
+        case "Buffers:":
+        case "Cached:":
+          free += Long.parseLong(fields[1]);
+          break;
+        default:
+          break;
+      }
+    }
+    if (available < 0) {
+      // kernels before 3.14
+      available = free;
+    }
+    if (total > 0) {
+      put(metrics, SystemMetrics.MEM_USAGE, (total - available) * 100.0d / total);
+    }
+  }
+
+  private void collectDisk(Map<SystemMetrics, Float> metrics, double seconds) throws IOException {
+    long operations = 0;
+    long read = 0;
+    long written = 0;
+    double maxUtil = 0;
+    // major minor name reads merged sectors_read ms writes merged sectors_written ms in_flight
+    // io_ticks ...
+    for (String line : readLines(PROC_DISKSTATS)) {
+      String[] fields = split(line);
+      if (fields.length < 13 || !isPhysicalDisk(fields[2])) {
+        continue;
+      }
+      operations += Long.parseLong(fields[3]) + Long.parseLong(fields[7]);
+      read += Long.parseLong(fields[5]);
+      written += Long.parseLong(fields[9]);
+      long ioTicks = Long.parseLong(fields[12]);
+      Long lastIoTicks = diskIoTicks.put(fields[2], ioTicks);
+      if (lastIoTicks != null && seconds > 0) {
+        maxUtil = Math.max(maxUtil, (ioTicks - lastIoTicks) / (seconds * 10));
+      }
+    }
+    if (metrics != null && seconds > 0) {
+      put(metrics, SystemMetrics.DISK_IO_USAGE, Math.min(maxUtil, 100));
+      put(metrics, SystemMetrics.DISK_TPS, (operations - diskOperations) / seconds);
+      put(
+          metrics,
+          SystemMetrics.DISK_READ_SPEED_MB,
+          (read - sectorsRead) * SECTOR_SIZE / MB / seconds);
+      put(
+          metrics,
+          SystemMetrics.DISK_WRITE_SPEED_MB,
+          (written - sectorsWritten) * SECTOR_SIZE / MB / seconds);
+    }
+    diskOperations = operations;
+    sectorsRead = read;
+    sectorsWritten = written;
+  }
+
+  private boolean isPhysicalDisk(String name) {
+    return physicalDisks.computeIfAbsent(
+        name,
+        k -> {
+          for (String prefix : VIRTUAL_DISK_PREFIXES) {
+            if (k.startsWith(prefix)) {
+              return false;
+            }
+          }
+          // partitions are not listed in /sys/block
+          return Files.exists(Paths.get(SYS_BLOCK + k));
+        });
+  }
+
+  private void collectNetwork(Map<SystemMetrics, Float> metrics, double seconds)
+      throws IOException {
+    long received = 0;
+    long sent = 0;
+    // two lines of header, then "name: rx_bytes rx_packets ... (8 fields) tx_bytes ..."
+    List<String> lines = readLines(PROC_NET_DEV);
+    for (int i = 2; i < lines.size(); i++) {
+      String line = lines.get(i);
+      int colon = line.indexOf(':');
+      if (colon < 0 || "lo".equals(line.substring(0, colon).trim())) {
+        continue;
+      }
+      String[] fields = split(line.substring(colon + 1));
+      received += Long.parseLong(fields[0]);
+      sent += Long.parseLong(fields[8]);
+    }
+    if (metrics != null && seconds > 0) {
+      put(metrics, SystemMetrics.NETWORK_R_RATE, (received - networkReceived) / KB / seconds);
+      put(metrics, SystemMetrics.NETWORK_S_RATE, (sent - networkSent) / KB / seconds);
+    }
+    networkReceived = received;
+    networkSent = sent;
+  }
+
+  /** Resources used by benchmark process itself */
+  private void collectProcess(Map<SystemMetrics, Float> metrics, double seconds) {
+    long cpuNanos = -1;
+    if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+      cpuNanos = ((com.sun.management.OperatingSystemMXBean) osBean).getProcessCpuTime();
+    }
+    long millis = 0;
+    long count = 0;
+    for (GarbageCollectorMXBean gcBean : gcBeans) {
+      millis += Math.max(gcBean.getCollectionTime(), 0);
+      count += Math.max(gcBean.getCollectionCount(), 0);
+    }
+    long allocated = getAllocatedBytes();
+    if (metrics != null && seconds > 0) {
+      if (cpuNanos >= 0) {
+        put(
+            metrics,
+            SystemMetrics.PROCESS_CPU_USAGE,
+            (cpuNanos - processCpuNanos)
+                * 100
+                / NANO_TO_SECOND
+                / seconds
+                / osBean.getAvailableProcessors());
+      }
+      put(metrics, SystemMetrics.GC_TIME_RATIO, (millis - gcMillis) / 10.0d / seconds);
+      put(metrics, SystemMetrics.GC_COUNT, count - gcCount);
+      if (allocated >= 0 && allocatedBytes >= 0) {
+        put(
+            metrics,
+            SystemMetrics.ALLOCATION_SPEED_MB,
+            (allocated - allocatedBytes) / MB / seconds);
+      }
+      put(metrics, SystemMetrics.PROCESS_MEM_SIZE, getProcessMemory() / MB);
+    }
+    processCpuNanos = cpuNanos;
+    gcMillis = millis;
+    gcCount = count;
+    allocatedBytes = allocated;
+  }
+
+  /**
+   * Bytes allocated by benchmark process so far, -1 if not supported. Allocation of virtual threads
+   * is counted in their carrier threads. Before Java 21 there is no total of all threads, so the
+   * growth of each live thread since the previous sample is summed up instead, which misses what a
+   * thread allocates between the previous sample and its end.
+   */
+  long getAllocatedBytes() {
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+    if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    if (TOTAL_THREAD_ALLOCATED_BYTES != null) {
+      try {
+        // including the threads which have ended
+        return (long) TOTAL_THREAD_ALLOCATED_BYTES.invoke(bean);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        LOGGER.debug("Failed to get total allocated bytes, sum up threads instead", e);
+      }
+    }
+    long[] threadIds = bean.getAllThreadIds();
+    long[] bytes = bean.getThreadAllocatedBytes(threadIds);
+    Map<Long, Long> liveThreads = new HashMap<>(threadIds.length * 2);
+    for (int i = 0; i < threadIds.length; i++) {
+      if (bytes[i] < 0) {
+        // ended after its id was got
+        continue;
+      }
+      Long previous = threadAllocatedBytes.get(threadIds[i]);
+      allocatedBytesOfThreads += bytes[i] - (previous == null ? 0 : previous);
+      liveThreads.put(threadIds[i], bytes[i]);
+    }
+    threadAllocatedBytes.clear();
+    threadAllocatedBytes.putAll(liveThreads);
+    return allocatedBytesOfThreads;
+  }
+
+  /** Resident memory of benchmark process, or used heap and non heap if procfs is not available */
+  private long getProcessMemory() {
+    if (procAvailable) {
+      try {
+        for (String line : readLines(PROC_SELF_STATUS)) {
+          if (line.startsWith("VmRSS:")) {
+            return Long.parseLong(split(line)[1]) * 1024;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.debug("Failed to read {}", PROC_SELF_STATUS, e);
+      }
+    }
+    return memoryBean.getHeapMemoryUsage().getUsed() + memoryBean.getNonHeapMemoryUsage().getUsed();
+  }
+
+  private static List<String> readLines(Path path) throws IOException {
+    return Files.readAllLines(path, StandardCharsets.ISO_8859_1);
+  }
+
+  private static String[] split(String line) {
+    return line.trim().split("\\s+");
+  }
+
+  private static void put(Map<SystemMetrics, Float> metrics, SystemMetrics metric, double value) {
+    metrics.put(metric, (float) value);
+  }
+}
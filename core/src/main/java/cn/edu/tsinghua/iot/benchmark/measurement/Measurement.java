@@ -22,32 +22,37 @@ package cn.edu.tsinghua.iot.benchmark.measurement;
 import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.conf.Constants;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.Metric;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.TotalOperationResult;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.TotalResult;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.PersistenceFactory;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
-import com.clearspring.analytics.stream.quantile.TDigest;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import java.util.zip.DataFormatException;
 
 public class Measurement {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(Measurement.class);
   private static final Config config = ConfigDescriptor.getInstance().getConfig();
-  private static final Map<Operation, TDigest> operationLatencyDigest =
-      new EnumMap<>(Operation.class);
-  private static final Map<Operation, Double> operationLatencySumAllClient =
-      new EnumMap<>(Operation.class);
+  private final Map<Operation, Double> operationLatencySumAllClient;
   private double createSchemaFinishTime = 0;
   private double elapseTime;
   private final Map<Operation, Double> operationLatencySumThisClient;
@@ -55,19 +60,74 @@ public class Measurement {
   private final Map<Operation, Long> failOperationNumMap;
   private final Map<Operation, Long> okPointNumMap;
   private final Map<Operation, Long> failPointNumMap;
+
+  /**
+   * Latency recorders of this client, unit: us. Each measurement is only written by its own client
+   * thread, so recording is wait-free and never contends with other clients.
+   */
+  private final Map<Operation, SingleWriterRecorder> latencyRecorders;
+
+  /**
+   * Latency of all clients since the last resetIntervalLatency(), filled by mergeMeasurement(). It
+   * is not reset with the counters, so the latency merged by a warm-up or phase check in between is
+   * still shown in the next interval
+   */
+  private final Map<Operation, Histogram> intervalLatencyHistograms;
+
+  /** Latency of all clients since the test began, filled by mergeMeasurement() */
+  private final Map<Operation, Histogram> cumulativeLatencyHistograms;
+
+  /** Latency of all clients since the last workload phase cut, filled by mergeMeasurement() */
+  private final Map<Operation, Histogram> phaseLatencyHistograms;
+
+  /**
+   * Latency of each span of this client, unit: us, null unless ENABLE_LATENCY_BREAKDOWN. A span may
+   * be recorded by the thread which the database hands the request over to, so the recorders allow
+   * several writers
+   */
+  private final Map<Operation, Map<LatencySpan, Recorder>> spanRecorders;
+
+  /** Latency of each span of all clients since the test began, filled by mergeMeasurement() */
+  private final Map<Operation, Map<LatencySpan, Histogram>> cumulativeSpanHistograms;
+
+  /** Latency of each span of all clients since the last cutPhase() */
+  private final Map<Operation, Map<LatencySpan, Histogram>> phaseSpanHistograms;
+
+  /**
+   * Counters merged at the last workload phase cut, null before the first cut. The warm-up is cut
+   * by cutWarmUp() instead, so it does not move this boundary
+   */
+  private Measurement lastPhaseCut = null;
+
+  /** Sum of the phases excluded from result by excludePhase(), null if none is excluded */
+  private Measurement excludedPhases = null;
+
+  /** Time windows of this client, created when the client records first, null if disabled */
+  private volatile TimeWindowRing timeWindowRing = null;
+
+  /** Number of operations sent later than their whole slot in open loop mode */
+  private long missedSlotNum = 0;
+
+  /** Max number of operations (or points) behind the open loop schedule */
+  private long maxScheduleBacklog = 0;
+
   private static final String RESULT_ITEM = "%-25s";
   private static final String LATENCY_ITEM = "%-12s";
 
-  /** Precision = 3 / COMPRESSION */
-  private static final int COMPRESSION = (int) (300 / config.getRESULT_PRECISION());
+  /** Latency is recorded in microseconds and reported in milliseconds */
+  private static final double MILLIS_TO_MICROS = 1000.0;
 
-  static {
-    for (Operation operation : Operation.values()) {
-      operationLatencyDigest.put(
-          operation, new TDigest(COMPRESSION, new Random(config.getDATA_SEED())));
-      operationLatencySumAllClient.put(operation, 0D);
-    }
-  }
+  /** Significant value digits of histograms derived from RESULT_PRECISION, e.g. 0.1% -> 3 */
+  private static final int SIGNIFICANT_DIGITS =
+      (int)
+          Math.max(
+              0, Math.min(5, Math.ceil(-Math.log10(config.getRESULT_PRECISION() / 100) - 1e-9)));
+
+  /** Time windows are only kept when there is a recorder to save them */
+  private static final boolean TIME_WINDOW_ENABLED =
+      config.isUSE_MEASUREMENT()
+          && config.getTIME_WINDOW_INTERVAL() > 0
+          && !Constants.TDP_NONE.equals(config.getTEST_DATA_PERSISTENCE());
 
   public Measurement() {
     okOperationNumMap = new EnumMap<>(Operation.class);
@@ -75,6 +135,25 @@ public class Measurement {
     okPointNumMap = new EnumMap<>(Operation.class);
     failPointNumMap = new EnumMap<>(Operation.class);
     operationLatencySumThisClient = new EnumMap<>(Operation.class);
+    operationLatencySumAllClient = new EnumMap<>(Operation.class);
+    latencyRecorders = new EnumMap<>(Operation.class);
+    intervalLatencyHistograms = new EnumMap<>(Operation.class);
+    cumulativeLatencyHistograms = new EnumMap<>(Operation.class);
+    phaseLatencyHistograms = new EnumMap<>(Operation.class);
+    cumulativeSpanHistograms = new EnumMap<>(Operation.class);
+    phaseSpanHistograms = new EnumMap<>(Operation.class);
+    spanRecorders = config.isENABLE_LATENCY_BREAKDOWN() ? new EnumMap<>(Operation.class) : null;
+    for (Operation operation : Operation.values()) {
+      // packed histograms only take memory for the value range actually recorded
+      latencyRecorders.put(operation, new SingleWriterRecorder(SIGNIFICANT_DIGITS, true));
+      if (spanRecorders != null) {
+        Map<LatencySpan, Recorder> recorders = new EnumMap<>(LatencySpan.class);
+        for (LatencySpan span : LatencySpan.values()) {
+          recorders.put(span, new Recorder(SIGNIFICANT_DIGITS, true));
+        }
+        spanRecorders.put(operation, recorders);
+      }
+    }
     resetMeasurementMaps();
   }
 
@@ -85,7 +164,15 @@ public class Measurement {
       okPointNumMap.put(operation, 0L);
       failPointNumMap.put(operation, 0L);
       operationLatencySumThisClient.put(operation, 0D);
+      operationLatencySumAllClient.put(operation, 0D);
     }
+    missedSlotNum = 0;
+    maxScheduleBacklog = 0;
+  }
+
+  /** Start the next interval, e.g. after the result of the last interval is output */
+  public void resetIntervalLatency() {
+    intervalLatencyHistograms.values().forEach(Histogram::reset);
   }
 
   public void mergeCreateSchemaFinishTime(Measurement m) {
@@ -100,6 +187,8 @@ public class Measurement {
    * @param m measurement to be merged
    */
   public void mergeMeasurement(Measurement m) {
+    missedSlotNum += m.missedSlotNum;
+    maxScheduleBacklog = Math.max(maxScheduleBacklog, m.maxScheduleBacklog);
     for (Operation operation : Operation.values()) {
       okOperationNumMap.put(
           operation, okOperationNumMap.get(operation) + m.getOkOperationNum(operation));
@@ -119,10 +208,251 @@ public class Measurement {
           operation,
           operationLatencySumAllClient.get(operation)
               + m.getOperationLatencySumThisClient().get(operation));
+
+      // the recorder of client only returns latencies recorded since its last call
+      Histogram latency = m.latencyRecorders.get(operation).getIntervalHistogram();
+      if (latency.getTotalCount() > 0) {
+        intervalLatencyHistograms
+            .computeIfAbsent(operation, k -> new Histogram(SIGNIFICANT_DIGITS))
+            .add(latency);
+        cumulativeLatencyHistograms
+            .computeIfAbsent(operation, k -> new Histogram(SIGNIFICANT_DIGITS))
+            .add(latency);
+        phaseLatencyHistograms
+            .computeIfAbsent(operation, k -> new Histogram(SIGNIFICANT_DIGITS))
+            .add(latency);
+      }
+      if (m.spanRecorders != null) {
+        for (Map.Entry<LatencySpan, Recorder> entry : m.spanRecorders.get(operation).entrySet()) {
+          Histogram spanLatency = entry.getValue().getIntervalHistogram();
+          if (spanLatency.getTotalCount() > 0) {
+            getSpanHistogram(cumulativeSpanHistograms, operation, entry.getKey()).add(spanLatency);
+            getSpanHistogram(phaseSpanHistograms, operation, entry.getKey()).add(spanLatency);
+          }
+        }
+      }
+    }
+  }
+
+  private static Histogram getSpanHistogram(
+      Map<Operation, Map<LatencySpan, Histogram>> histograms,
+      Operation operation,
+      LatencySpan span) {
+    return histograms
+        .computeIfAbsent(operation, k -> new EnumMap<>(LatencySpan.class))
+        .computeIfAbsent(span, k -> new Histogram(SIGNIFICANT_DIGITS));
+  }
+
+  /**
+   * Split the merged result since the last cut into a phase, e.g. a phase of WORKLOAD_PHASE_FILE.
+   * Must be called right after merging the measurements of all clients.
+   *
+   * @param phaseElapseTime elapsed time of the phase, unit: second
+   * @return the result of the phase
+   */
+  public Measurement cutPhase(double phaseElapseTime) {
+    Measurement phase = new Measurement();
+    phase.createSchemaFinishTime = createSchemaFinishTime;
+    phase.elapseTime = phaseElapseTime;
+    phase.maxScheduleBacklog = maxScheduleBacklog;
+    phase.addCounters(this, 1);
+    if (lastPhaseCut != null) {
+      phase.addCounters(lastPhaseCut, -1);
+    } else {
+      lastPhaseCut = new Measurement();
+    }
+    lastPhaseCut.resetMeasurementMaps();
+    lastPhaseCut.addCounters(this, 1);
+    copyLatency(phaseLatencyHistograms, phaseSpanHistograms, phase);
+    phaseLatencyHistograms.values().forEach(Histogram::reset);
+    phaseSpanHistograms.values().forEach(spans -> spans.values().forEach(Histogram::reset));
+    return phase;
+  }
+
+  /**
+   * Split the merged result since test began into the warm-up. Unlike cutPhase() it keeps the
+   * boundary of the current workload phase, so the warm-up may end in the middle of a phase. Must
+   * be called right after merging the measurements of all clients.
+   *
+   * @param warmUpTime elapsed time of the warm-up, unit: second
+   * @return the result of the warm-up
+   */
+  public Measurement cutWarmUp(double warmUpTime) {
+    Measurement warmUp = new Measurement();
+    warmUp.createSchemaFinishTime = createSchemaFinishTime;
+    warmUp.elapseTime = warmUpTime;
+    warmUp.maxScheduleBacklog = maxScheduleBacklog;
+    warmUp.addCounters(this, 1);
+    copyLatency(cumulativeLatencyHistograms, cumulativeSpanHistograms, warmUp);
+    return warmUp;
+  }
+
+  /** Copy latency into the result of a phase, whose latency is kept as since test began */
+  private static void copyLatency(
+      Map<Operation, Histogram> latency,
+      Map<Operation, Map<LatencySpan, Histogram>> spanLatency,
+      Measurement phase) {
+    for (Map.Entry<Operation, Histogram> entry : latency.entrySet()) {
+      phase.cumulativeLatencyHistograms.put(entry.getKey(), entry.getValue().copy());
+    }
+    for (Map.Entry<Operation, Map<LatencySpan, Histogram>> entry : spanLatency.entrySet()) {
+      for (Map.Entry<LatencySpan, Histogram> span : entry.getValue().entrySet()) {
+        getSpanHistogram(phase.cumulativeSpanHistograms, entry.getKey(), span.getKey())
+            .add(span.getValue());
+      }
+    }
+  }
+
+  /**
+   * Exclude a phase returned by cutPhase() or cutWarmUp() from the result of this measurement, e.g.
+   * warm-up
+   */
+  public void excludePhase(Measurement phase) {
+    if (excludedPhases == null) {
+      excludedPhases = new Measurement();
+    }
+    excludedPhases.addCounters(phase, 1);
+    excludedPhases.elapseTime += phase.elapseTime;
+    // the latency since test began is kept by this measurement, so it is subtracted only once
+    for (Map.Entry<Operation, Histogram> entry : phase.cumulativeLatencyHistograms.entrySet()) {
+      Histogram histogram = cumulativeLatencyHistograms.get(entry.getKey());
+      if (histogram != null) {
+        histogram.subtract(entry.getValue());
+      }
+    }
+    for (Map.Entry<Operation, Map<LatencySpan, Histogram>> entry :
+        phase.cumulativeSpanHistograms.entrySet()) {
+      for (Map.Entry<LatencySpan, Histogram> span : entry.getValue().entrySet()) {
+        getSpanHistogram(cumulativeSpanHistograms, entry.getKey(), span.getKey())
+            .subtract(span.getValue());
+      }
+    }
+  }
+
+  /** Remove the counters and time of excluded phases, must be called after each merge */
+  public void removeExcludedPhases() {
+    if (excludedPhases != null) {
+      addCounters(excludedPhases, -1);
+      elapseTime -= excludedPhases.elapseTime;
+    }
+  }
+
+  /** Elapsed time of the excluded phases, unit: second */
+  public double getExcludedTime() {
+    return excludedPhases == null ? 0 : excludedPhases.elapseTime;
+  }
+
+  /** Latency of all operations since test began, except the excluded phases */
+  public Histogram getCumulativeLatency() {
+    Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+    cumulativeLatencyHistograms.values().forEach(latency::add);
+    return latency;
+  }
+
+  /** The number of succeeded and failed operations of all types */
+  public long getOperationNum() {
+    long operationNum = 0;
+    for (Operation operation : Operation.values()) {
+      operationNum += okOperationNumMap.get(operation) + failOperationNumMap.get(operation);
+    }
+    return operationNum;
+  }
+
+  /** Latency of all operations since the last resetIntervalLatency() */
+  public Histogram getIntervalLatency() {
+    Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+    intervalLatencyHistograms.values().forEach(latency::add);
+    return latency;
+  }
+
+  public boolean hasIntervalLatency() {
+    return !intervalLatencyHistograms.isEmpty();
+  }
+
+  private void addCounters(Measurement m, int sign) {
+    missedSlotNum += sign * m.missedSlotNum;
+    for (Operation operation : Operation.values()) {
+      okOperationNumMap.merge(operation, sign * m.getOkOperationNum(operation), Long::sum);
+      failOperationNumMap.merge(operation, sign * m.getFailOperationNum(operation), Long::sum);
+      okPointNumMap.merge(operation, sign * m.getOkPointNum(operation), Long::sum);
+      failPointNumMap.merge(operation, sign * m.getFailPointNum(operation), Long::sum);
+      operationLatencySumThisClient.merge(
+          operation, sign * m.operationLatencySumThisClient.get(operation), Double::sum);
+      operationLatencySumAllClient.merge(
+          operation, sign * m.operationLatencySumAllClient.get(operation), Double::sum);
+    }
+  }
+
+  /**
+   * Write the merged counters and the latency since test began, so that a coordinator can merge the
+   * results of several benchmark processes with {@link #mergeMeasurement(DataInputStream)}
+   */
+  public void writeTo(DataOutputStream out) throws IOException {
+    out.writeDouble(createSchemaFinishTime);
+    out.writeDouble(elapseTime);
+    out.writeLong(missedSlotNum);
+    out.writeLong(maxScheduleBacklog);
+    out.writeInt(Operation.values().length);
+    for (Operation operation : Operation.values()) {
+      out.writeUTF(operation.name());
+      out.writeLong(okOperationNumMap.get(operation));
+      out.writeLong(failOperationNumMap.get(operation));
+      out.writeLong(okPointNumMap.get(operation));
+      out.writeLong(failPointNumMap.get(operation));
+      out.writeDouble(operationLatencySumThisClient.get(operation));
+      out.writeDouble(operationLatencySumAllClient.get(operation));
+      Histogram histogram = cumulativeLatencyHistograms.get(operation);
+      if (histogram == null || histogram.getTotalCount() == 0) {
+        out.writeInt(0);
+      } else {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        out.writeInt(length);
+        out.write(buffer.array(), 0, length);
+      }
+    }
+  }
+
+  /**
+   * Merge the measurement of another benchmark process written by {@link
+   * #writeTo(DataOutputStream)}. The processes run at the same time, so the elapsed time is the
+   * longest one
+   */
+  public void mergeMeasurement(DataInputStream in) throws IOException {
+    createSchemaFinishTime = Math.max(createSchemaFinishTime, in.readDouble());
+    elapseTime = Math.max(elapseTime, in.readDouble());
+    missedSlotNum += in.readLong();
+    maxScheduleBacklog = Math.max(maxScheduleBacklog, in.readLong());
+    int operationNumber = in.readInt();
+    for (int i = 0; i < operationNumber; i++) {
+      Operation operation = Operation.valueOf(in.readUTF());
+      okOperationNumMap.merge(operation, in.readLong(), Long::sum);
+      failOperationNumMap.merge(operation, in.readLong(), Long::sum);
+      okPointNumMap.merge(operation, in.readLong(), Long::sum);
+      failPointNumMap.merge(operation, in.readLong(), Long::sum);
+      operationLatencySumThisClient.merge(operation, in.readDouble(), Math::max);
+      operationLatencySumAllClient.merge(operation, in.readDouble(), Double::sum);
+      int length = in.readInt();
+      if (length > 0) {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        Histogram latency;
+        try {
+          latency = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+        } catch (DataFormatException e) {
+          throw new IOException("Failed to decode latency of " + operation, e);
+        }
+        intervalLatencyHistograms
+            .computeIfAbsent(operation, k -> new Histogram(SIGNIFICANT_DIGITS))
+            .add(latency);
+        cumulativeLatencyHistograms
+            .computeIfAbsent(operation, k -> new Histogram(SIGNIFICANT_DIGITS))
+            .add(latency);
+      }
     }
   }
 
-  /** Calculate metrics of each operation */
+  /** Calculate metrics of each operation from the latency of all clients since test began */
   public void calculateMetrics(List<Operation> operations) {
     for (Operation operation : operations) {
       double avgLatency;
@@ -132,54 +462,36 @@ public class Measurement {
         Metric.MAX_THREAD_LATENCY_SUM
             .getTypeValueMap()
             .put(operation, operationLatencySumThisClient.get(operation));
-        Function<Double, Double> quantileOrItself =
-            (q) -> {
-              // Count the number of non-null centroids
-              if (countNonNullCentroids(operationLatencyDigest.get(operation)) > 1) {
-                return operationLatencyDigest.get(operation).quantile(q);
-              } else {
-                // com.clearspring.analytics.stream.quantile.TDigest.quantile needs
-                // result size greater than 1 to calculate.
-                // If there is only one result, just return this result instead of quantile
-                return operationLatencyDigest.get(operation).centroids().iterator().next().mean();
-              }
-            };
-        // log negative latency details
-        logNegativeLatencyDetails(operations);
-        Metric.MIN_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.0));
-        Metric.MAX_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(1.0));
-        Metric.P10_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.1));
-        Metric.P25_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.25));
-        Metric.MEDIAN_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.50));
-        Metric.P75_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.75));
-        Metric.P90_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.90));
-        Metric.P95_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.95));
-        Metric.P99_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.99));
-        Metric.P999_LATENCY.getTypeValueMap().put(operation, quantileOrItself.apply(0.999));
+        Histogram histogram = cumulativeLatencyHistograms.get(operation);
+        if (histogram == null || histogram.getTotalCount() == 0) {
+          continue;
+        }
+        DoubleUnaryOperator quantile = q -> getLatencyAtQuantile(histogram, q);
+        Metric.MIN_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.0));
+        Metric.MAX_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(1.0));
+        Metric.P10_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.1));
+        Metric.P25_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.25));
+        Metric.MEDIAN_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.50));
+        Metric.P75_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.75));
+        Metric.P90_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.90));
+        Metric.P95_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.95));
+        Metric.P99_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.99));
+        Metric.P999_LATENCY.getTypeValueMap().put(operation, quantile.applyAsDouble(0.999));
       }
     }
   }
 
-  private int countNonNullCentroids(TDigest tDigest) {
-    return StreamSupport.stream(tDigest.centroids().spliterator(), false)
-        .filter(Objects::nonNull)
-        .mapToInt(c -> 1)
-        .sum();
-  }
-
-  private void logNegativeLatencyDetails(List<Operation> operations) {
-    for (Operation operation : operations) {
-      TDigest tDigest = operationLatencyDigest.get(operation);
-      // Output all centers of mass less than 0 in TDigest.
-      tDigest
-          .centroids()
-          .forEach(
-              centroid -> {
-                if (centroid != null && centroid.mean() < 0) {
-                  LOGGER.error("{}: Centroid mean: {}", operation, centroid.mean());
-                }
-              });
+  /** Get latency in ms at quantile q, 0 means the min value and 1 means the max value */
+  private static double getLatencyAtQuantile(Histogram histogram, double q) {
+    long value;
+    if (q <= 0) {
+      value = histogram.getMinValue();
+    } else if (q >= 1) {
+      value = histogram.getMaxValue();
+    } else {
+      value = histogram.getValueAtPercentile(q * 100);
     }
+    return value / MILLIS_TO_MICROS;
   }
 
   /** Show measurements and record according to TEST_DATA_PERSISTENCE */
@@ -197,6 +509,24 @@ public class Measurement {
         .append(String.format("%.2f", elapseTime))
         .append(" second")
         .append('\n');
+    if (excludedPhases != null) {
+      stringBuilder
+          .append("Excluded warm-up time: ")
+          .append(String.format("%.2f", excludedPhases.elapseTime))
+          .append(" second")
+          .append('\n');
+    }
+    if (config.getTARGET_THROUGHPUT() > 0) {
+      stringBuilder
+          .append("Open loop schedule missed ")
+          .append(missedSlotNum)
+          .append(" slots, max backlog ")
+          .append(maxScheduleBacklog)
+          .append(" ")
+          .append(config.getTARGET_THROUGHPUT_UNIT().name().toLowerCase())
+          .append("(s)")
+          .append('\n');
+    }
     recorder.saveResultAsync(
         "total", TotalResult.CREATE_SCHEMA_TIME.getName(), "" + createSchemaFinishTime);
     recorder.saveResultAsync("total", TotalResult.ELAPSED_TIME.getName(), "" + elapseTime);
@@ -302,6 +632,115 @@ public class Measurement {
     return stringBuilder.toString();
   }
 
+  /** Show latency of each span of operations, see ENABLE_LATENCY_BREAKDOWN */
+  public String getLatencyBreakdownString(List<Operation> operations) {
+    StringBuilder stringBuilder = new StringBuilder("\n");
+    stringBuilder
+        .append(
+            "------------------------------------------------------Latency Breakdown (ms) Matrix------------------------------------------------------")
+        .append('\n');
+    stringBuilder.append(String.format(RESULT_ITEM, "Operation"));
+    stringBuilder.append(String.format(LATENCY_ITEM, "SPAN"));
+    stringBuilder.append(String.format(LATENCY_ITEM, "COUNT"));
+    Metric[] metrics = {
+      Metric.AVG_LATENCY,
+      Metric.MEDIAN_LATENCY,
+      Metric.P99_LATENCY,
+      Metric.P999_LATENCY,
+      Metric.MAX_LATENCY
+    };
+    for (Metric metric : metrics) {
+      stringBuilder.append(String.format(LATENCY_ITEM, metric.name));
+    }
+    stringBuilder.append('\n');
+    for (Operation operation : operations) {
+      Map<LatencySpan, Histogram> spans = cumulativeSpanHistograms.get(operation);
+      if (spans == null) {
+        continue;
+      }
+      for (Map.Entry<LatencySpan, Histogram> entry : spans.entrySet()) {
+        Histogram histogram = entry.getValue();
+        stringBuilder.append(String.format(RESULT_ITEM, operation.getName()));
+        stringBuilder.append(String.format(LATENCY_ITEM, entry.getKey().getName()));
+        stringBuilder.append(String.format(LATENCY_ITEM, histogram.getTotalCount()));
+        for (Metric metric : metrics) {
+          double value = histogram.getTotalCount() == 0 ? 0 : getIntervalMetric(histogram, metric);
+          stringBuilder.append(String.format(LATENCY_ITEM, String.format("%.2f", value)));
+        }
+        stringBuilder.append('\n');
+      }
+    }
+    stringBuilder
+        .append(
+            "-----------------------------------------------------------------------------------------------------------------------------------------")
+        .append('\n');
+    return stringBuilder.toString();
+  }
+
+  /** Show latency metrics of all clients in the last interval */
+  public String getIntervalMetricsString(List<Operation> operations) {
+    StringBuilder stringBuilder = new StringBuilder("\n");
+    stringBuilder
+        .append(
+            "--------------------------------------------------------------Interval Latency (ms) Matrix--------------------------------------------------------------")
+        .append('\n');
+    stringBuilder.append(String.format(RESULT_ITEM, "Operation"));
+    stringBuilder.append(String.format(LATENCY_ITEM, "COUNT"));
+    for (Metric metric : Metric.values()) {
+      if (metric != Metric.MAX_THREAD_LATENCY_SUM) {
+        stringBuilder.append(String.format(LATENCY_ITEM, metric.name));
+      }
+    }
+    stringBuilder.append('\n');
+    for (Operation operation : operations) {
+      Histogram histogram = intervalLatencyHistograms.get(operation);
+      long count = histogram == null ? 0 : histogram.getTotalCount();
+      stringBuilder.append(String.format(RESULT_ITEM, operation.getName()));
+      stringBuilder.append(String.format(LATENCY_ITEM, count));
+      for (Metric metric : Metric.values()) {
+        if (metric != Metric.MAX_THREAD_LATENCY_SUM) {
+          double value = count == 0 ? 0 : getIntervalMetric(histogram, metric);
+          stringBuilder.append(String.format(LATENCY_ITEM, String.format("%.2f", value)));
+        }
+      }
+      stringBuilder.append('\n');
+    }
+    stringBuilder
+        .append(
+            "--------------------------------------------------------------------------------------------------------------------------------------------------------")
+        .append('\n');
+    return stringBuilder.toString();
+  }
+
+  private static double getIntervalMetric(Histogram histogram, Metric metric) {
+    switch (metric) {
+      case AVG_LATENCY:
+        return histogram.getMean() / MILLIS_TO_MICROS;
+      case MIN_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.0);
+      case P10_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.1);
+      case P25_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.25);
+      case MEDIAN_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.5);
+      case P75_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.75);
+      case P90_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.9);
+      case P95_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.95);
+      case P99_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.99);
+      case P999_LATENCY:
+        return getLatencyAtQuantile(histogram, 0.999);
+      case MAX_LATENCY:
+        return getLatencyAtQuantile(histogram, 1.0);
+      default:
+        return 0;
+    }
+  }
+
   /** output measurement to csv */
   public void outputCSV() {
     MeasurementCsvWriter measurementCsvWriter = new MeasurementCsvWriter();
@@ -476,7 +915,8 @@ public class Measurement {
     return failOperationNumMap.get(operation);
   }
 
-  private long getOkPointNum(Operation operation) {
+  /** The number of succeeded points of operation, cumulative since test began */
+  public long getOkPointNum(Operation operation) {
     return okPointNumMap.get(operation);
   }
 
@@ -484,19 +924,105 @@ public class Measurement {
     return failPointNumMap.get(operation);
   }
 
+  /** Record latency of one operation, unit: ms. Must be called by the owner client thread */
   public void addOperationLatency(Operation op, double latency) {
-    synchronized (operationLatencyDigest.get(op)) {
-      operationLatencyDigest.get(op).add(latency);
-    }
+    latencyRecorders.get(op).recordValue(toMicros(latency));
     operationLatencySumThisClient.put(op, operationLatencySumThisClient.get(op) + latency);
   }
 
+  /** Record latency of one span of an operation, unit: ns. May be called by any thread */
+  public void addSpanLatency(Operation operation, LatencySpan span, long latencyInNanos) {
+    if (spanRecorders != null) {
+      spanRecorders
+          .get(operation)
+          .get(span)
+          .recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyInNanos)));
+    }
+  }
+
+  /**
+   * Record one ok operation with its latency (unit: ms) and points, also into the current time
+   * window. Must be called by the owner client thread
+   */
+  public void addOkOperation(Operation operation, double latency, long pointNum) {
+    addOperationLatency(operation, latency);
+    okOperationNumMap.put(operation, okOperationNumMap.get(operation) + 1);
+    okPointNumMap.put(operation, okPointNumMap.get(operation) + pointNum);
+    TimeWindowRing ring = getTimeWindowRing();
+    if (ring != null) {
+      ring.recordOk(operation, pointNum, toMicros(latency));
+    }
+  }
+
+  private static long toMicros(double latencyInMillis) {
+    return Math.max(0, Math.round(latencyInMillis * MILLIS_TO_MICROS));
+  }
+
+  private TimeWindowRing getTimeWindowRing() {
+    if (TIME_WINDOW_ENABLED && timeWindowRing == null) {
+      timeWindowRing =
+          new TimeWindowRing(
+              TimeUnit.MILLISECONDS.toNanos(config.getTIME_WINDOW_INTERVAL()), SIGNIFICANT_DIGITS);
+    }
+    return timeWindowRing;
+  }
+
+  /** Create the series which time windows of clients are collected into, null if disabled */
+  public static TimeWindowSeries newTimeWindowSeries() {
+    if (!TIME_WINDOW_ENABLED) {
+      return null;
+    }
+    return new TimeWindowSeries(
+        TimeUnit.MILLISECONDS.toNanos(config.getTIME_WINDOW_INTERVAL()), SIGNIFICANT_DIGITS);
+  }
+
+  /**
+   * Move the time windows of this client before endIndex into series, see {@link
+   * TimeWindowRing#collectTo(TimeWindowSeries, long)}
+   */
+  public void collectTimeWindows(TimeWindowSeries series, long endIndex) {
+    TimeWindowRing ring = timeWindowRing;
+    if (ring != null) {
+      ring.collectTo(series, endIndex);
+    }
+  }
+
+  /** Number of records dropped because the time windows were not collected in time */
+  public long getDroppedTimeWindowNum() {
+    TimeWindowRing ring = timeWindowRing;
+    return ring == null ? 0 : ring.getDroppedNum();
+  }
+
+  /**
+   * Record one operation which missed its slot of open loop schedule
+   *
+   * @param backlog the number of operations (or points) behind schedule when it was sent
+   */
+  public void addMissedSlot(long backlog) {
+    missedSlotNum++;
+    if (backlog > maxScheduleBacklog) {
+      maxScheduleBacklog = backlog;
+    }
+  }
+
+  public long getMissedSlotNum() {
+    return missedSlotNum;
+  }
+
+  public long getMaxScheduleBacklog() {
+    return maxScheduleBacklog;
+  }
+
   public void addOkPointNum(Operation operation, long pointNum) {
     okPointNumMap.put(operation, okPointNumMap.get(operation) + pointNum);
   }
 
   public void addFailPointNum(Operation operation, long pointNum) {
     failPointNumMap.put(operation, failPointNumMap.get(operation) + pointNum);
+    TimeWindowRing ring = getTimeWindowRing();
+    if (ring != null) {
+      ring.recordFail(operation, 0, pointNum);
+    }
   }
 
   public void addOkOperationNum(Operation operation) {
@@ -505,6 +1031,10 @@ public class Measurement {
 
   public void addFailOperationNum(Operation operation) {
     failOperationNumMap.put(operation, failOperationNumMap.get(operation) + 1);
+    TimeWindowRing ring = getTimeWindowRing();
+    if (ring != null) {
+      ring.recordFail(operation, 1, 0);
+    }
   }
 
   public double getCreateSchemaFinishTime() {
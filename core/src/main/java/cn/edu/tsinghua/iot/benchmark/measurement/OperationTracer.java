@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
+
+/**
+ * Split the latency of the current operation into spans. DBWrapper starts the trace before calling
+ * the database, then the database marks the end of each span by {@link #lap(LatencySpan)}, whose
+ * latency is the time since the previous lap. Databases keep {@link #DISABLED} unless
+ * ENABLE_LATENCY_BREAKDOWN is set, which records nothing.
+ *
+ * <p>A database which hands the request over to a job thread passes the id of the trace to it, see
+ * {@link #lap(LatencySpan, long)}. A job thread may go on after its operation timed out, its laps
+ * are dropped then instead of being counted into the next operation.
+ */
+public class OperationTracer {
+
+  public static final OperationTracer DISABLED = new OperationTracer(null);
+
+  private final Measurement measurement;
+  private Operation operation = null;
+  private long lastLap = 0;
+
+  /** Increased by each start and stop, laps of an older trace are dropped */
+  private long traceId = 0;
+
+  /**
+   * @param measurement where the spans are recorded, null to record nothing
+   */
+  public OperationTracer(Measurement measurement) {
+    this.measurement = measurement;
+  }
+
+  /** Start the trace of an operation, called by DBWrapper */
+  public void start(Operation operation) {
+    if (measurement != null) {
+      synchronized (this) {
+        traceId++;
+        this.operation = operation;
+        this.lastLap = System.nanoTime();
+      }
+    }
+  }
+
+  /**
+   * Stop the current trace, e.g. when the database gives up waiting for its job thread, so that the
+   * later laps of that thread are dropped
+   */
+  public void stop() {
+    if (measurement != null) {
+      synchronized (this) {
+        traceId++;
+        this.operation = null;
+      }
+    }
+  }
+
+  /**
+   * Get the id of the current trace, which a job thread passes to {@link #lap(LatencySpan, long)}
+   */
+  public long getTraceId() {
+    if (measurement == null) {
+      return 0;
+    }
+    synchronized (this) {
+      return traceId;
+    }
+  }
+
+  /** Mark the end of a span of the current trace, called by the thread which started it */
+  public void lap(LatencySpan span) {
+    if (measurement != null) {
+      synchronized (this) {
+        record(span);
+      }
+    }
+  }
+
+  /**
+   * Mark the end of a span on the thread which the database hands the request over to, the lap is
+   * dropped unless the trace of traceId is still the current one
+   */
+  public void lap(LatencySpan span, long traceId) {
+    if (measurement != null) {
+      synchronized (this) {
+        if (traceId == this.traceId) {
+          record(span);
+        }
+      }
+    }
+  }
+
+  private void record(LatencySpan span) {
+    if (operation != null) {
+      long now = System.nanoTime();
+      measurement.addSpanLatency(operation, span, now - lastLap);
+      lastLap = now;
+    }
+  }
+}
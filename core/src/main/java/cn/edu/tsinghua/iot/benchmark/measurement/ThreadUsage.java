@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CPU time and allocated bytes of the tasks run by a client, measured by the thread which runs them
+ * so that the threads of an executor can be counted even after they have ended. Allocation is only
+ * measured on HotSpot compatible JVMs, and neither is measured on virtual threads, in which case
+ * {@link #isSupported()} is false.
+ */
+public class ThreadUsage {
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  private final String name;
+  private final LongAdder cpuTime = new LongAdder();
+  private final LongAdder allocatedBytes = new LongAdder();
+  private final LongAdder taskNum = new LongAdder();
+  private volatile boolean supported = true;
+
+  public ThreadUsage(String name) {
+    this.name = name;
+  }
+
+  /** Run task on current thread and add the CPU time and allocated bytes of it */
+  public void run(Runnable task) {
+    long startCpuTime = getCurrentThreadCpuTime();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    try {
+      task.run();
+    } finally {
+      long endCpuTime = getCurrentThreadCpuTime();
+      long endAllocatedBytes = getCurrentThreadAllocatedBytes();
+      if (startCpuTime < 0 || endCpuTime < 0 || startAllocatedBytes < 0 || endAllocatedBytes < 0) {
+        supported = false;
+      } else {
+        cpuTime.add(endCpuTime - startCpuTime);
+        allocatedBytes.add(endAllocatedBytes - startAllocatedBytes);
+      }
+      taskNum.increment();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** unit: ns */
+  public long getCpuTime() {
+    return cpuTime.sum();
+  }
+
+  public long getAllocatedBytes() {
+    return allocatedBytes.sum();
+  }
+
+  public long getTaskNum() {
+    return taskNum.sum();
+  }
+
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /** CPU time of current thread, -1 if not supported, unit: ns */
+  private static long getCurrentThreadCpuTime() {
+    if (!threadBean.isCurrentThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+      return -1;
+    }
+    return threadBean.getCurrentThreadCpuTime();
+  }
+
+  /** Bytes allocated by current thread, -1 if not supported */
+  private static long getCurrentThreadAllocatedBytes() {
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+    if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
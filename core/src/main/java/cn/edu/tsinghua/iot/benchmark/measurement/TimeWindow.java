@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Counters and latency of each operation in one fixed-width time window. Windows of the same index
+ * from different clients are merged by {@link #add(TimeWindow)}.
+ */
+public class TimeWindow {
+
+  private static final int OPERATION_NUM = Operation.values().length;
+
+  /** Latency is recorded in microseconds and reported in milliseconds */
+  private static final double MILLIS_TO_MICROS = 1000.0;
+
+  private final int significantDigits;
+  private long index;
+  private final long[] okOperationNum = new long[OPERATION_NUM];
+  private final long[] failOperationNum = new long[OPERATION_NUM];
+  private final long[] okPointNum = new long[OPERATION_NUM];
+  private final long[] failPointNum = new long[OPERATION_NUM];
+
+  /** Latency of ok operations, unit: us, created when the operation is first recorded */
+  private final Histogram[] latency = new Histogram[OPERATION_NUM];
+
+  /** Whether this window has been merged by the collector, only used by {@link TimeWindowRing} */
+  private volatile boolean collected;
+
+  public TimeWindow(long index, int significantDigits) {
+    this.index = index;
+    this.significantDigits = significantDigits;
+  }
+
+  /** Reuse this window for another index */
+  void reset(long index) {
+    this.index = index;
+    for (int i = 0; i < OPERATION_NUM; i++) {
+      okOperationNum[i] = 0;
+      failOperationNum[i] = 0;
+      okPointNum[i] = 0;
+      failPointNum[i] = 0;
+      if (latency[i] != null) {
+        latency[i].reset();
+      }
+    }
+  }
+
+  /**
+   * @param latencyInMicros latency of the operation, unit: us
+   */
+  void recordOk(Operation operation, long pointNum, long latencyInMicros) {
+    int i = operation.ordinal();
+    okOperationNum[i]++;
+    okPointNum[i] += pointNum;
+    getLatency(i).recordValue(latencyInMicros);
+  }
+
+  void recordFail(Operation operation, long operationNum, long pointNum) {
+    int i = operation.ordinal();
+    failOperationNum[i] += operationNum;
+    failPointNum[i] += pointNum;
+  }
+
+  /** Merge a window of the same index */
+  public void add(TimeWindow window) {
+    for (int i = 0; i < OPERATION_NUM; i++) {
+      okOperationNum[i] += window.okOperationNum[i];
+      failOperationNum[i] += window.failOperationNum[i];
+      okPointNum[i] += window.okPointNum[i];
+      failPointNum[i] += window.failPointNum[i];
+      if (window.latency[i] != null && window.latency[i].getTotalCount() > 0) {
+        getLatency(i).add(window.latency[i]);
+      }
+    }
+  }
+
+  private Histogram getLatency(int i) {
+    if (latency[i] == null) {
+      latency[i] = new Histogram(significantDigits);
+    }
+    return latency[i];
+  }
+
+  public long getIndex() {
+    return index;
+  }
+
+  boolean isCollected() {
+    return collected;
+  }
+
+  void setCollected(boolean collected) {
+    this.collected = collected;
+  }
+
+  public long getOkOperationNum(Operation operation) {
+    return okOperationNum[operation.ordinal()];
+  }
+
+  public long getFailOperationNum(Operation operation) {
+    return failOperationNum[operation.ordinal()];
+  }
+
+  public long getOkPointNum(Operation operation) {
+    return okPointNum[operation.ordinal()];
+  }
+
+  public long getFailPointNum(Operation operation) {
+    return failPointNum[operation.ordinal()];
+  }
+
+  /** Ratio of failed operations among all operations, 0 if there is no operation */
+  public double getErrorRate(Operation operation) {
+    long operationNum = getOkOperationNum(operation) + getFailOperationNum(operation);
+    return operationNum == 0 ? 0 : (double) getFailOperationNum(operation) / operationNum;
+  }
+
+  /** Latency of ok operations at percentile, unit: ms, 0 if there is no ok operation */
+  public double getLatencyAtPercentile(Operation operation, double percentile) {
+    Histogram histogram = latency[operation.ordinal()];
+    if (histogram == null || histogram.getTotalCount() == 0) {
+      return 0;
+    }
+    return histogram.getValueAtPercentile(percentile) / MILLIS_TO_MICROS;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import org.HdrHistogram.WriterReaderPhaser;
+
+/**
+ * Time windows of one client. The client thread records into the slot of the current window without
+ * locking, and the collector moves windows which have ended into a {@link TimeWindowSeries}, so
+ * that each window is merged only once. A slot is reused after it has been collected; if the
+ * collector falls behind by the whole ring, records of the new window are dropped rather than
+ * overwriting a window which is not collected yet.
+ */
+public class TimeWindowRing {
+
+  /** Slots of the ring, the collector runs every window so only a few slots are in use */
+  static final int RING_SIZE = 64;
+
+  private final long windowNanos;
+  private final TimeWindow[] slots = new TimeWindow[RING_SIZE];
+  private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+
+  /** Number of records dropped because their slot was not collected, only written by client */
+  private volatile long droppedNum = 0;
+
+  /**
+   * @param windowNanos width of each window, unit: ns
+   */
+  public TimeWindowRing(long windowNanos, int significantDigits) {
+    this.windowNanos = windowNanos;
+    for (int i = 0; i < RING_SIZE; i++) {
+      slots[i] = new TimeWindow(Long.MIN_VALUE, significantDigits);
+      slots[i].setCollected(true);
+    }
+  }
+
+  /** Record one ok operation, must be called by the owner client thread */
+  public void recordOk(Operation operation, long pointNum, long latencyInMicros) {
+    long criticalValue = phaser.writerCriticalSectionEnter();
+    try {
+      TimeWindow window = getCurrentWindow();
+      if (window != null) {
+        window.recordOk(operation, pointNum, latencyInMicros);
+      }
+    } finally {
+      phaser.writerCriticalSectionExit(criticalValue);
+    }
+  }
+
+  /** Record failed operations or points, must be called by the owner client thread */
+  public void recordFail(Operation operation, long operationNum, long pointNum) {
+    long criticalValue = phaser.writerCriticalSectionEnter();
+    try {
+      TimeWindow window = getCurrentWindow();
+      if (window != null) {
+        window.recordFail(operation, operationNum, pointNum);
+      }
+    } finally {
+      phaser.writerCriticalSectionExit(criticalValue);
+    }
+  }
+
+  /** Get the slot of current window, null if the slot still holds an uncollected window */
+  private TimeWindow getCurrentWindow() {
+    long index = System.nanoTime() / windowNanos;
+    // System.nanoTime() may be negative
+    TimeWindow window = slots[(int) Math.floorMod(index, (long) RING_SIZE)];
+    if (window.getIndex() != index) {
+      if (!window.isCollected()) {
+        droppedNum++;
+        return null;
+      }
+      window.reset(index);
+      window.setCollected(false);
+    }
+    return window;
+  }
+
+  /**
+   * Merge the windows before endIndex into series. Records entering after the phase flip fall into
+   * windows of at least the index of now, so the collected windows are no longer written.
+   *
+   * @param endIndex windows whose index is less than it are collected, which must not be larger
+   *     than the index of now unless the client has stopped
+   */
+  public synchronized void collectTo(TimeWindowSeries series, long endIndex) {
+    phaser.readerLock();
+    try {
+      phaser.flipPhase();
+      for (TimeWindow window : slots) {
+        if (!window.isCollected() && window.getIndex() < endIndex) {
+          series.add(window);
+          window.setCollected(true);
+        }
+      }
+    } finally {
+      phaser.readerUnlock();
+    }
+  }
+
+  public long getDroppedNum() {
+    return droppedNum;
+  }
+}
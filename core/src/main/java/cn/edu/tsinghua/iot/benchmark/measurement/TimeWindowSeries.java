@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** Time windows of all clients merged by index, see {@link TimeWindowRing} */
+public class TimeWindowSeries {
+
+  private final long windowNanos;
+  private final int significantDigits;
+
+  /** Difference between wall clock and System.nanoTime(), unit: ms */
+  private final long clockOffset;
+
+  private final TreeMap<Long, TimeWindow> windows = new TreeMap<>();
+
+  /**
+   * @param windowNanos width of each window, unit: ns
+   */
+  public TimeWindowSeries(long windowNanos, int significantDigits) {
+    this.windowNanos = windowNanos;
+    this.significantDigits = significantDigits;
+    this.clockOffset =
+        System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  }
+
+  /** Merge a window of one client */
+  synchronized void add(TimeWindow window) {
+    windows
+        .computeIfAbsent(window.getIndex(), k -> new TimeWindow(k, significantDigits))
+        .add(window);
+  }
+
+  /** Index of the window which contains now */
+  public long getCurrentIndex() {
+    return System.nanoTime() / windowNanos;
+  }
+
+  /** Wall clock time when the window began, unit: ms */
+  public long getStartTime(TimeWindow window) {
+    return clockOffset + TimeUnit.NANOSECONDS.toMillis(window.getIndex() * windowNanos);
+  }
+
+  /** Width of each window, unit: second */
+  public double getWindowSeconds() {
+    return windowNanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * Get all windows from the first one to the last one in order, windows without any operation are
+   * filled as empty ones, so that a stall shows up as zero throughput
+   */
+  public synchronized List<TimeWindow> getWindows() {
+    List<TimeWindow> result = new ArrayList<>();
+    if (windows.isEmpty()) {
+      return result;
+    }
+    long next = windows.firstKey();
+    for (Map.Entry<Long, TimeWindow> entry : windows.entrySet()) {
+      for (; next < entry.getKey(); next++) {
+        result.add(new TimeWindow(next, significantDigits));
+      }
+      result.add(entry.getValue());
+      next = entry.getKey() + 1;
+    }
+    return result;
+  }
+
+  /** Get the metrics of an operation in a window, throughput unit: point/s and operation/s */
+  public Map<TimeWindowMetrics, Double> getMetrics(TimeWindow window, Operation operation) {
+    double seconds = getWindowSeconds();
+    Map<TimeWindowMetrics, Double> metrics = new EnumMap<>(TimeWindowMetrics.class);
+    metrics.put(TimeWindowMetrics.THROUGHPUT, window.getOkPointNum(operation) / seconds);
+    metrics.put(
+        TimeWindowMetrics.OPERATION_THROUGHPUT, window.getOkOperationNum(operation) / seconds);
+    metrics.put(TimeWindowMetrics.P50_LATENCY, window.getLatencyAtPercentile(operation, 50));
+    metrics.put(TimeWindowMetrics.P99_LATENCY, window.getLatencyAtPercentile(operation, 99));
+    metrics.put(TimeWindowMetrics.P999_LATENCY, window.getLatencyAtPercentile(operation, 99.9));
+    metrics.put(TimeWindowMetrics.ERROR_RATE, window.getErrorRate(operation));
+    return metrics;
+  }
+}
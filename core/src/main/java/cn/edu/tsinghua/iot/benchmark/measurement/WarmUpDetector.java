@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.WarmUpMode;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decide when warm-up ends, so that first-call costs such as preparing statements, opening
+ * connections and JIT compilation are not counted in the final result. In AUTO mode the latency
+ * since test began is checked every window, and warm-up ends once the median latency of
+ * STABLE_WINDOW_NUM consecutive windows each differs from the previous one by at most the
+ * threshold.
+ */
+public class WarmUpDetector {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpDetector.class);
+
+  /** Check interval of OPERATION mode, unit: ms */
+  private static final long OPERATION_CHECK_INTERVAL = 100;
+
+  static final int STABLE_WINDOW_NUM = 3;
+
+  private final WarmUpMode mode;
+
+  /** Warm-up time of TIME mode, or max warm-up time of AUTO mode, unit: ms */
+  private final long warmUpTime;
+
+  private final long warmUpOperationNum;
+
+  /** Max relative change of median latency between stable windows */
+  private final double stableThreshold;
+
+  /** Window of AUTO mode, unit: ms */
+  private final long window;
+
+  /** Latency since test began at the end of last window */
+  private Histogram lastLatency = null;
+
+  private double lastMedian = -1;
+  private int stableWindowNum = 0;
+
+  /**
+   * @param warmUpTime unit: ms
+   * @param stableThreshold max change of median latency in percent
+   * @param window unit: ms
+   */
+  public WarmUpDetector(
+      WarmUpMode mode,
+      long warmUpTime,
+      long warmUpOperationNum,
+      double stableThreshold,
+      long window) {
+    this.mode = mode;
+    this.warmUpTime = warmUpTime;
+    this.warmUpOperationNum = warmUpOperationNum;
+    this.stableThreshold = stableThreshold / 100;
+    this.window = window;
+  }
+
+  /** Interval of calling isFinished(), unit: ms */
+  public long getCheckInterval() {
+    switch (mode) {
+      case TIME:
+        return warmUpTime;
+      case OPERATION:
+        return OPERATION_CHECK_INTERVAL;
+      default:
+        return window;
+    }
+  }
+
+  /**
+   * @param elapsedTime time since test began, unit: ms
+   * @param operationNum operations of all clients since test began
+   * @param latency latency of all clients since test began
+   * @return whether warm-up is finished
+   */
+  public boolean isFinished(long elapsedTime, long operationNum, Histogram latency) {
+    switch (mode) {
+      case TIME:
+        return elapsedTime >= warmUpTime;
+      case OPERATION:
+        return operationNum >= warmUpOperationNum;
+      case AUTO:
+        if (isStable(latency)) {
+          return true;
+        }
+        if (warmUpTime > 0 && elapsedTime >= warmUpTime) {
+          LOGGER.warn(
+              "Median latency is not stable after {} ms of warm-up, stop warm-up anyway",
+              elapsedTime);
+          return true;
+        }
+        return false;
+      default:
+        return true;
+    }
+  }
+
+  private boolean isStable(Histogram latency) {
+    Histogram windowLatency = latency.copy();
+    if (lastLatency != null) {
+      windowLatency.subtract(lastLatency);
+    }
+    lastLatency = latency.copy();
+    if (windowLatency.getTotalCount() == 0) {
+      // nothing is done in this window, e.g. the connections are still being opened
+      stableWindowNum = 0;
+      lastMedian = -1;
+      return false;
+    }
+    double median = windowLatency.getValueAtPercentile(50);
+    if (lastMedian >= 0 && Math.abs(median - lastMedian) <= stableThreshold * lastMedian) {
+      stableWindowNum++;
+    } else {
+      stableWindowNum = 0;
+    }
+    lastMedian = median;
+    return stableWindowNum >= STABLE_WINDOW_NUM - 1;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement.enums;
+
+/** Spans of one operation, see ENABLE_LATENCY_BREAKDOWN */
+public enum LatencySpan {
+  /** Build the request on the client, e.g. generate a tablet or a SQL */
+  PREPARE("prepare"),
+  /** Wait for the job thread to pick the request up, e.g. in the executor of IoTDB session */
+  HAND_OFF("handOff"),
+  /** Send the request and wait for the response, if the driver does not tell them apart */
+  SERVER_WAIT("serverWait"),
+  /** Read and parse the result */
+  DECODE("decode");
+
+  String name;
+
+  LatencySpan(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
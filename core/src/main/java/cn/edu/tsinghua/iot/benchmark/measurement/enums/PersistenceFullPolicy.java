@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.enums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** What a client does when the result queue of its thread is full because the recorder lags */
+public enum PersistenceFullPolicy {
+  /** Wait until the recorder has taken some results, the test is slowed down by the recorder */
+  BLOCK,
+  /** Drop the result and count it, the number of dropped results is logged when closing */
+  DROP;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceFullPolicy.class);
+
+  public static PersistenceFullPolicy getPersistenceFullPolicy(String name) {
+    for (PersistenceFullPolicy policy : PersistenceFullPolicy.values()) {
+      if (policy.name().equalsIgnoreCase(name)) {
+        return policy;
+      }
+    }
+    LOGGER.warn("Unknown persistence full policy: " + name + ", use BLOCK.");
+    return PersistenceFullPolicy.BLOCK;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -36,6 +36,10 @@ public enum SystemMetrics {
    * @param tps I/O TPS
    * @param ioRead I/O read speed
    * @param ioWrite I/O write speed
+   * @param processCpu CPU usage of the benchmark process
+   * @param gcTime percentage of time spent in GC by the benchmark process
+   * @param gcCount GC count of the benchmark process
+   * @param allocation allocation speed of the benchmark process
    */
 
   CPU_USAGE,
@@ -53,4 +57,9 @@ public enum SystemMetrics {
   SEQUENCE_FILE_SIZE,
   UN_SEQUENCE_FILE_SIZE,
   WAL_FILE_SIZE,
+
+  PROCESS_CPU_USAGE,
+  GC_TIME_RATIO,
+  GC_COUNT,
+  ALLOCATION_SPEED_MB,
 }
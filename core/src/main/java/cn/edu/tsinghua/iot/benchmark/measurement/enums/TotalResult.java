@@ -21,7 +21,14 @@ package cn.edu.tsinghua.iot.benchmark.measurement.enums;
 
 public enum TotalResult {
   CREATE_SCHEMA_TIME("createSchemaTime"),
-  ELAPSED_TIME("elapsedTime");
+  ELAPSED_TIME("elapsedTime"),
+  // results of generatorCeilingMode
+  MAX_POINT_RATE("maxPointRate"),
+  ALLOCATED_BYTES_PER_POINT("allocatedBytesPerPoint"),
+  CPU_TIME_PER_POINT("cpuTimePerPoint"),
+  THREAD_CPU_TIME("cpuTime"),
+  THREAD_CPU_USAGE("cpuUsage"),
+  THREAD_ALLOCATED_BYTES("allocatedBytes");
 
   String name;
 
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.enums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** When warm-up ends, the operations before are excluded from the final result */
+public enum WarmUpMode {
+  /** No warm-up, all operations are counted */
+  NONE,
+  /** Warm-up lasts for WARM_UP_TIME */
+  TIME,
+  /** Warm-up lasts until all clients have done WARM_UP_OPERATION_NUMBER operations */
+  OPERATION,
+  /** Warm-up lasts until the median latency is stable, at most WARM_UP_TIME */
+  AUTO;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpMode.class);
+
+  public static WarmUpMode getWarmUpMode(String name) {
+    for (WarmUpMode mode : WarmUpMode.values()) {
+      if (mode.name().equalsIgnoreCase(name)) {
+        return mode;
+      }
+    }
+    LOGGER.warn("Unknown warm-up mode: " + name + ", use NONE.");
+    return WarmUpMode.NONE;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
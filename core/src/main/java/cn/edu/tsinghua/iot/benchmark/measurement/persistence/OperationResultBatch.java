@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.persistence;
+
+/**
+ * A group of operation results taken from the result queues, which a recorder saves together. The
+ * fields are kept in parallel arrays that are reused for every group.
+ */
+public class OperationResultBatch {
+
+  final String[] operations;
+  final long[] okPoints;
+  final long[] failPoints;
+  final double[] latencies;
+  final String[] remarks;
+  final String[] devices;
+  final long[] recordTimes;
+  private int size = 0;
+
+  public OperationResultBatch(int capacity) {
+    operations = new String[capacity];
+    okPoints = new long[capacity];
+    failPoints = new long[capacity];
+    latencies = new double[capacity];
+    remarks = new String[capacity];
+    devices = new String[capacity];
+    recordTimes = new long[capacity];
+  }
+
+  void add(
+      String operation,
+      long okPoint,
+      long failPoint,
+      double latency,
+      String remark,
+      String device,
+      long recordTime) {
+    operations[size] = operation;
+    okPoints[size] = okPoint;
+    failPoints[size] = failPoint;
+    latencies[size] = latency;
+    remarks[size] = remark;
+    devices[size] = device;
+    recordTimes[size] = recordTime;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int remaining() {
+    return operations.length - size;
+  }
+
+  public boolean isFull() {
+    return size == operations.length;
+  }
+
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      operations[i] = null;
+      remarks[i] = null;
+      devices[i] = null;
+    }
+    size = 0;
+  }
+
+  public String getOperation(int index) {
+    return operations[index];
+  }
+
+  public long getOkPoint(int index) {
+    return okPoints[index];
+  }
+
+  public long getFailPoint(int index) {
+    return failPoints[index];
+  }
+
+  /** unit: ms */
+  public double getLatency(int index) {
+    return latencies[index];
+  }
+
+  /** unit: points/second */
+  public double getRate(int index) {
+    return latencies[index] > 0 ? okPoints[index] * 1000 / latencies[index] : 0;
+  }
+
+  public String getRemark(int index) {
+    return remarks[index];
+  }
+
+  public String getDevice(int index) {
+    return devices[index];
+  }
+
+  /** The time when the operation finished, unit: ms */
+  public long getRecordTime(int index) {
+    return recordTimes[index];
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue of operation results with a single consumer, the writer thread of the recorder. The clients
+ * sharing one ring are serialized by its monitor while the consumer reads without locking. The
+ * fields are stored in preallocated parallel arrays, so offering a result does not allocate.
+ */
+public class OperationResultRing {
+
+  private final int mask;
+  private final String[] operations;
+  private final long[] okPoints;
+  private final long[] failPoints;
+  private final double[] latencies;
+  private final String[] remarks;
+  private final String[] devices;
+  private final long[] recordTimes;
+
+  /** Index of the next slot to write, only changed by the producer */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Index of the next slot to read, only changed by the consumer */
+  private final AtomicLong head = new AtomicLong();
+
+  /** Whether results are rejected, guarded by this */
+  private boolean closed = false;
+
+  OperationResultRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    mask = size - 1;
+    operations = new String[size];
+    okPoints = new long[size];
+    failPoints = new long[size];
+    latencies = new double[size];
+    remarks = new String[size];
+    devices = new String[size];
+    recordTimes = new long[size];
+  }
+
+  /** Called by the producers, return false if the ring is full or closed */
+  synchronized boolean offer(
+      String operation,
+      long okPoint,
+      long failPoint,
+      double latency,
+      String remark,
+      String device,
+      long recordTime) {
+    long currentTail = tail.get();
+    if (closed || currentTail - head.get() > mask) {
+      return false;
+    }
+    int index = (int) (currentTail & mask);
+    operations[index] = operation;
+    okPoints[index] = okPoint;
+    failPoints[index] = failPoint;
+    latencies[index] = latency;
+    remarks[index] = remark;
+    devices[index] = device;
+    recordTimes[index] = recordTime;
+    // publish the slot after its fields are written
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Reject all results offered afterwards, the results offered before are left for the consumer to
+   * drain
+   */
+  synchronized void close() {
+    closed = true;
+  }
+
+  /** Called by the consumer, move as many results as batch can take, return the number moved */
+  int drainTo(OperationResultBatch batch) {
+    long currentHead = head.get();
+    int count = (int) Math.min(tail.get() - currentHead, batch.remaining());
+    for (int i = 0; i < count; i++) {
+      int index = (int) ((currentHead + i) & mask);
+      batch.add(
+          operations[index],
+          okPoints[index],
+          failPoints[index],
+          latencies[index],
+          remarks[index],
+          devices[index],
+          recordTimes[index]);
+      operations[index] = null;
+      remarks[index] = null;
+      devices[index] = null;
+    }
+    // release the slots after they are read
+    head.lazySet(currentHead + count);
+    return count;
+  }
+}
@@ -33,7 +33,25 @@ public class PersistenceFactory {
   private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceFactory.class);
   private static final Config config = ConfigDescriptor.getInstance().getConfig();
 
+  /** The recorder shared by the whole process, replaced once all its users have closed it */
+  private static TestDataPersistence persistence = null;
+
+  /**
+   * Get the shared recorder, every call must be paired with {@link
+   * TestDataPersistence#closeAsync()}
+   */
   public TestDataPersistence getPersistence() {
+    synchronized (PersistenceFactory.class) {
+      if (persistence == null || !persistence.retain()) {
+        persistence = createPersistence();
+        persistence.retain();
+        persistence.start();
+      }
+      return persistence;
+    }
+  }
+
+  private TestDataPersistence createPersistence() {
     switch (config.getTEST_DATA_PERSISTENCE()) {
       case Constants.TDP_NONE:
         return new NoneRecorder();
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.persistence;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Format the record time of operation results as yyyy-MM-dd HH:mm:ss.SSS. Only the second is
+ * formatted by SimpleDateFormat and cached, so results within the same second cost no allocation.
+ * It is not thread-safe and is used by the writer thread of a recorder.
+ */
+public class RecordTimeFormat {
+
+  private final SimpleDateFormat secondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+  private long cachedSecond = Long.MIN_VALUE;
+  private String cachedSecondText;
+
+  /** Append the formatted time to builder */
+  public StringBuilder appendTo(StringBuilder builder, long timeInMillis) {
+    long second = Math.floorDiv(timeInMillis, 1000L);
+    if (second != cachedSecond) {
+      cachedSecondText = secondFormat.format(new Date(second * 1000L));
+      cachedSecond = second;
+    }
+    int millis = (int) Math.floorMod(timeInMillis, 1000L);
+    builder.append(cachedSecondText).append('.');
+    if (millis < 100) {
+      builder.append('0');
+    }
+    if (millis < 10) {
+      builder.append('0');
+    }
+    return builder.append(millis);
+  }
+
+  public String format(long timeInMillis) {
+    return appendTo(new StringBuilder(23), timeInMillis).toString();
+  }
+}
@@ -22,30 +22,85 @@ package cn.edu.tsinghua.iot.benchmark.measurement.persistence;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.PersistenceFullPolicy;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.none.NoneRecorder;
 import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
-import java.util.concurrent.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * One recorder is shared by the whole process, see {@link PersistenceFactory}. Operation results
+ * are put into one of a fixed number of rings, each user such as a {@link
+ * cn.edu.tsinghua.iot.benchmark.tsdb.DBWrapper} gets its ring by {@link #getRing()}. A single
+ * writer thread drains all rings, handing the results to the recorder in groups of up to
+ * TEST_DATA_BATCH_SIZE, so that the sink is only accessed by one thread and can commit a group at
+ * once. The number of rings does not grow with the number of clients or threads.
+ */
 public abstract class TestDataPersistence {
 
   protected static final Logger LOGGER = LoggerFactory.getLogger(TestDataPersistence.class);
   protected static final Config config = ConfigDescriptor.getInstance().getConfig();
-  protected ExecutorService service =
-      Executors.newFixedThreadPool(
-          config.getTEST_DATA_MAX_CONNECTION(),
-          new NamedThreadFactory(ThreadName.RESULT_PERSISTENCE.getName(), true));
+
+  /** How long the writer sleeps when all rings are empty */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** How long a client waits for the writer when its ring is full under BLOCK policy */
+  private static final long BLOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /** Number of rings, enough to keep the clients of one ring from contending much */
+  private static final int RING_NUM =
+      Math.min(64, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+  private final OperationResultRing[] rings = new OperationResultRing[RING_NUM];
+  private final AtomicInteger nextRing = new AtomicInteger(0);
+
+  /** Other work such as final results, which is rare and also run by the writer */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  private final OperationResultBatch operationResults =
+      new OperationResultBatch(config.getTEST_DATA_BATCH_SIZE());
+  private final LongAdder droppedResults = new LongAdder();
+  private Thread writer = null;
+
+  /** Number of users which have not closed this recorder, guarded by this */
+  private int references = 0;
+
+  private volatile boolean closed = false;
+
+  protected TestDataPersistence() {
+    for (int i = 0; i < rings.length && !isNoneRecorder(); i++) {
+      rings[i] = new OperationResultRing(config.getTEST_DATA_QUEUE_SIZE());
+    }
+  }
 
   /**
    * Store system resources metrics data
    *
+   * @param recordTime when the metrics were sampled, in milliseconds
    * @param systemMetricsMap System resources metrics to be stored
    */
-  public abstract void insertSystemMetrics(Map<SystemMetrics, Float> systemMetricsMap);
+  protected abstract void insertSystemMetrics(
+      long recordTime, Map<SystemMetrics, Float> systemMetricsMap);
+
+  /**
+   * Store the metrics of one operation in one time window
+   *
+   * @param startTime when the window began, in milliseconds
+   * @param operation name of the operation
+   * @param timeWindowMetrics metrics of the operation in the window
+   */
+  protected abstract void insertTimeWindow(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics);
 
   /** Save config of test */
   public abstract void saveTestConfig();
@@ -63,6 +118,22 @@ public abstract class TestDataPersistence {
   protected abstract void saveOperationResult(
       String operation, long okPoint, long failPoint, double latency, String remark, String device);
 
+  /**
+   * Save a group of operation results, recorders override it to commit the group at once. The batch
+   * is reused after this method returns
+   */
+  protected void saveOperationResults(OperationResultBatch batch) {
+    for (int i = 0; i < batch.size(); i++) {
+      saveOperationResult(
+          batch.getOperation(i),
+          batch.getOkPoint(i),
+          batch.getFailPoint(i),
+          batch.getLatency(i),
+          batch.getRemark(i),
+          batch.getDevice(i));
+    }
+  }
+
   /** Create new record when line meet max line */
   protected abstract void createNewRecord(
       String operation, long okPoint, long failPoint, double latency, String remark, String device);
@@ -76,9 +147,15 @@ public abstract class TestDataPersistence {
    */
   protected abstract void saveResult(String operation, String key, String value);
 
+  /** Get the ring of a new user, users are spread over the rings in turn */
+  public OperationResultRing getRing() {
+    return rings[nextRing.getAndIncrement() & (rings.length - 1)];
+  }
+
   /**
-   * Save measurement result of operation async
+   * Save measurement result of operation async, the result is dropped if this recorder is closed
    *
+   * @param ring ring of the caller, see {@link #getRing()}
    * @param operation which sensorType of operation
    * @param okPoint okPoint of operation
    * @param failPoint failPoint of operation
@@ -86,27 +163,46 @@ public abstract class TestDataPersistence {
    * @param remark remark of operation
    */
   public void saveOperationResultAsync(
+      OperationResultRing ring,
       String operation,
       long okPoint,
       long failPoint,
       double latency,
       String remark,
       String device) {
-    if (!isNoneRecorder()) {
-      service.submit(
-          () -> {
-            saveOperationResult(operation, okPoint, failPoint, latency, remark, device);
-          });
+    if (isNoneRecorder()) {
+      return;
+    }
+    long recordTime = System.currentTimeMillis();
+    while (!ring.offer(operation, okPoint, failPoint, latency, remark, device, recordTime)) {
+      // a closed recorder closes its rings, so offering fails forever
+      if (closed || config.getTEST_DATA_FULL_POLICY() == PersistenceFullPolicy.DROP) {
+        droppedResults.increment();
+        return;
+      }
+      LockSupport.parkNanos(BLOCK_NANOS);
     }
   }
 
   /** Save result of operation Async */
   public void saveResultAsync(String operation, String key, String value) {
     if (!isNoneRecorder()) {
-      service.submit(
-          () -> {
-            saveResult(operation, key, value);
-          });
+      tasks.add(() -> saveResult(operation, key, value));
+    }
+  }
+
+  /** Save system resources metrics Async, the map must not be changed afterwards */
+  public void saveSystemMetricsAsync(long recordTime, Map<SystemMetrics, Float> systemMetricsMap) {
+    if (!isNoneRecorder()) {
+      tasks.add(() -> insertSystemMetrics(recordTime, systemMetricsMap));
+    }
+  }
+
+  /** Save metrics of time window Async, the map must not be changed afterwards */
+  public void saveTimeWindowAsync(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics) {
+    if (!isNoneRecorder()) {
+      tasks.add(() -> insertTimeWindow(startTime, operation, timeWindowMetrics));
     }
   }
 
@@ -114,18 +210,107 @@ public abstract class TestDataPersistence {
     return this instanceof NoneRecorder;
   }
 
+  /** Start the writer thread, called once by {@link PersistenceFactory} */
+  void start() {
+    if (!isNoneRecorder()) {
+      writer =
+          new NamedThreadFactory(ThreadName.RESULT_PERSISTENCE.getName(), true)
+              .newThread(this::drain);
+      writer.start();
+    }
+  }
+
+  /** Register one more user, return false if this recorder has been closed */
+  synchronized boolean retain() {
+    if (closed) {
+      return false;
+    }
+    references++;
+    return true;
+  }
+
+  private void drain() {
+    while (true) {
+      boolean stopping = closed;
+      if (stopping) {
+        // the results offered before are drained below, those offered afterwards are dropped
+        for (OperationResultRing ring : rings) {
+          ring.close();
+        }
+      }
+      int count = drainOperationResults();
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+        count++;
+      }
+      if (count == 0) {
+        if (stopping) {
+          break;
+        }
+        LockSupport.parkNanos(IDLE_NANOS);
+      }
+    }
+    close();
+  }
+
+  /** Move the results of all rings into groups and save them, return the number of results */
+  private int drainOperationResults() {
+    int count = 0;
+    for (OperationResultRing ring : rings) {
+      int drained;
+      while ((drained = ring.drainTo(operationResults)) > 0) {
+        count += drained;
+        if (operationResults.isFull()) {
+          commitOperationResults();
+        }
+      }
+    }
+    if (operationResults.size() > 0) {
+      commitOperationResults();
+    }
+    return count;
+  }
+
+  private void commitOperationResults() {
+    try {
+      saveOperationResults(operationResults);
+    } catch (Exception e) {
+      LOGGER.error("Failed to save {} operation results", operationResults.size(), e);
+    } finally {
+      operationResults.clear();
+    }
+  }
+
   /** Close record */
   protected abstract void close();
 
+  /**
+   * Release this recorder. When the last user releases it, wait until all results are saved and
+   * then close it
+   */
   public void closeAsync() {
-    while (!service.isTerminated()) {
-      try {
-        Thread.sleep(1000);
-      } catch (Exception e) {
-        // do nothing
+    synchronized (this) {
+      if (closed || --references > 0) {
+        return;
       }
+      closed = true;
+    }
+    if (writer == null) {
       close();
-      service.shutdown();
+      return;
+    }
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while waiting for results to be saved");
+      Thread.currentThread().interrupt();
+    }
+    if (droppedResults.sum() > 0) {
+      LOGGER.warn(
+          "{} operation results were dropped because the recorder could not keep up",
+          droppedResults.sum());
     }
   }
 }
@@ -24,6 +24,9 @@ import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.conf.Constants;
 import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.OperationResultBatch;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.RecordTimeFormat;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
@@ -54,8 +57,10 @@ public class CSVRecorder extends TestDataPersistence {
   /** reentrantLock used for writing result into file */
   private static final ReentrantLock reentrantLock = new ReentrantLock(true);
 
-  private static final SimpleDateFormat dateFormat =
-      new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+  /** Values with fixed decimal places are appended as scaled longs below this limit */
+  private static final long FIXED_SCALE = 1000000L;
+
+  private static final double FIXED_LIMIT = (double) Long.MAX_VALUE / FIXED_SCALE;
   private static final SimpleDateFormat projectDateFormat =
       new SimpleDateFormat("yyyy_MM_dd_hh_mm_ss_SSS");
   private static final long EXP_TIME = System.currentTimeMillis();
@@ -82,12 +87,40 @@ public class CSVRecorder extends TestDataPersistence {
   static volatile FileWriter projectWriter = null;
   static volatile String projectWriterName = null;
   static FileWriter serverInfoWriter = null;
+  static FileWriter timeWindowWriter = null;
   static FileWriter confWriter = null;
   static FileWriter finalResultWriter = null;
   static String confDir;
   static String dataDir;
   static String csvDir;
 
+  /** Lines of operation results, only used by the writer thread */
+  private final StringBuilder lines = new StringBuilder();
+
+  private final RecordTimeFormat recordTimeFormat = new RecordTimeFormat();
+
+  /** Columns of server info file in the order of its header */
+  private static final SystemMetrics[] SERVER_INFO_COLUMNS = {
+    SystemMetrics.CPU_USAGE,
+    SystemMetrics.MEM_USAGE,
+    SystemMetrics.DISK_IO_USAGE,
+    SystemMetrics.NETWORK_R_RATE,
+    SystemMetrics.NETWORK_S_RATE,
+    SystemMetrics.PROCESS_MEM_SIZE,
+    SystemMetrics.DATA_FILE_SIZE,
+    SystemMetrics.SYSTEM_FILE_SIZE,
+    SystemMetrics.SEQUENCE_FILE_SIZE,
+    SystemMetrics.UN_SEQUENCE_FILE_SIZE,
+    SystemMetrics.WAL_FILE_SIZE,
+    SystemMetrics.DISK_TPS,
+    SystemMetrics.DISK_READ_SPEED_MB,
+    SystemMetrics.DISK_WRITE_SPEED_MB,
+    SystemMetrics.PROCESS_CPU_USAGE,
+    SystemMetrics.GC_TIME_RATIO,
+    SystemMetrics.GC_COUNT,
+    SystemMetrics.ALLOCATION_SPEED_MB
+  };
+
   private static final String THREE = ",%s,%s\n";
   private static final String FOUR = ",%s,%s,%s\n";
 
@@ -124,6 +157,12 @@ public class CSVRecorder extends TestDataPersistence {
         projectWriter = new FileWriter(projectWriterName, true);
       }
       finalResultWriter = new FileWriter(csvDir + "/" + projectID + "_FINAL_RESULT.csv", true);
+      if (config.getMONITOR_INTERVAL() > 0 && serverInfoWriter == null) {
+        serverInfoWriter = new FileWriter(csvDir + "/" + projectID + "_SERVER_INFO.csv", true);
+      }
+      if (config.getTIME_WINDOW_INTERVAL() > 0 && timeWindowWriter == null) {
+        timeWindowWriter = new FileWriter(csvDir + "/" + projectID + "_TIME_SERIES.csv", true);
+      }
       initCSVFile();
     } catch (IOException e) {
       LOGGER.error("Failed to init csv", e);
@@ -136,6 +175,9 @@ public class CSVRecorder extends TestDataPersistence {
         if (serverInfoWriter != null) {
           serverInfoWriter.close();
         }
+        if (timeWindowWriter != null) {
+          timeWindowWriter.close();
+        }
       } catch (IOException ioException) {
         LOGGER.error("", ioException);
       }
@@ -152,10 +194,19 @@ public class CSVRecorder extends TestDataPersistence {
         String firstLine =
             "id,cpu_usage,mem_usage,diskIo_usage,net_recv_rate,net_send_rate"
                 + ",pro_mem_size,dataFileSize,systemFizeSize,sequenceFileSize,unsequenceFileSize"
-                + ",walFileSize,tps,MB_read,MB_wrtn\n";
+                + ",walFileSize,tps,MB_read,MB_wrtn,pro_cpu_usage,gc_time_ratio,gc_count"
+                + ",MB_alloc\n";
         serverInfoWriter.append(firstLine);
         serverInfoWriter.flush();
       }
+      if (timeWindowWriter != null) {
+        StringBuilder firstLine = new StringBuilder("id,startTime,operation");
+        for (TimeWindowMetrics metric : TimeWindowMetrics.values()) {
+          firstLine.append(',').append(metric.getName());
+        }
+        timeWindowWriter.append(firstLine.append('\n'));
+        timeWindowWriter.flush();
+      }
       if (finalResultWriter != null) {
         String firstLine = "id,operation,result_key,result_value\n";
         finalResultWriter.append(firstLine);
@@ -173,41 +224,42 @@ public class CSVRecorder extends TestDataPersistence {
   }
 
   @Override
-  public void insertSystemMetrics(Map<SystemMetrics, Float> systemMetricsMap) {
-    String system =
-        System.currentTimeMillis()
-            + ","
-            + systemMetricsMap.get(SystemMetrics.CPU_USAGE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.MEM_USAGE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.DISK_IO_USAGE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.NETWORK_R_RATE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.NETWORK_S_RATE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.PROCESS_MEM_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.DATA_FILE_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.SYSTEM_FILE_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.SEQUENCE_FILE_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.UN_SEQUENCE_FILE_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.WAL_FILE_SIZE)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.DISK_TPS)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.DISK_READ_SPEED_MB)
-            + ","
-            + systemMetricsMap.get(SystemMetrics.DISK_WRITE_SPEED_MB)
-            + "\n";
+  protected void insertSystemMetrics(long recordTime, Map<SystemMetrics, Float> systemMetricsMap) {
+    StringBuilder system = new StringBuilder().append(recordTime);
+    for (SystemMetrics metric : SERVER_INFO_COLUMNS) {
+      system.append(',');
+      Float value = systemMetricsMap.get(metric);
+      if (value != null) {
+        system.append(value);
+      }
+    }
+    system.append('\n');
     try {
       if (serverInfoWriter != null) {
         serverInfoWriter.append(system);
+        serverInfoWriter.flush();
+      }
+    } catch (IOException e) {
+      LOGGER.error("", e);
+    }
+  }
+
+  @Override
+  protected void insertTimeWindow(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics) {
+    lines.setLength(0);
+    lines.append(',');
+    recordTimeFormat.appendTo(lines, startTime);
+    lines.append(',').append(operation);
+    for (TimeWindowMetrics metric : TimeWindowMetrics.values()) {
+      lines.append(',');
+      appendFixed(timeWindowMetrics.get(metric));
+    }
+    lines.append('\n');
+    try {
+      if (timeWindowWriter != null) {
+        timeWindowWriter.append(lines);
+        timeWindowWriter.flush();
       }
     } catch (IOException e) {
       LOGGER.error("", e);
@@ -268,17 +320,90 @@ public class CSVRecorder extends TestDataPersistence {
       // unit: points/second
       rate = okPoint * 1000 / latency;
     }
-    String time = dateFormat.format(new java.util.Date(System.currentTimeMillis()));
-    String line =
-        String.format(
-            ",%s,%s,%s,%d,%d,%f,%f,%s\n",
-            time, device, operation, okPoint, failPoint, latency, rate, remark);
+    lines.setLength(0);
+    appendLine(
+        operation, okPoint, failPoint, latency, rate, remark, device, System.currentTimeMillis());
+    writeLines();
+  }
+
+  /** Write the whole group with one append, the lines are built without String.format */
+  @Override
+  protected void saveOperationResults(OperationResultBatch batch) {
+    lines.setLength(0);
+    for (int i = 0; i < batch.size(); i++) {
+      if (config.isRECORD_SPLIT()
+          && config.IncrementAndGetCURRENT_RECORD_LINE() >= config.getRECORD_SPLIT_MAX_LINE()) {
+        // lines before the split belong to the old file
+        writeLines();
+        lines.setLength(0);
+        createNewRecord(
+            batch.getOperation(i),
+            batch.getOkPoint(i),
+            batch.getFailPoint(i),
+            batch.getLatency(i),
+            batch.getRemark(i),
+            batch.getDevice(i));
+      }
+      appendLine(
+          batch.getOperation(i),
+          batch.getOkPoint(i),
+          batch.getFailPoint(i),
+          batch.getLatency(i),
+          batch.getRate(i),
+          batch.getRemark(i),
+          batch.getDevice(i),
+          batch.getRecordTime(i));
+    }
+    writeLines();
+  }
+
+  /** Append one line in the format of ",%s,%s,%s,%d,%d,%f,%f,%s\n" */
+  private void appendLine(
+      String operation,
+      long okPoint,
+      long failPoint,
+      double latency,
+      double rate,
+      String remark,
+      String device,
+      long recordTime) {
+    lines.append(',');
+    recordTimeFormat.appendTo(lines, recordTime);
+    lines.append(',').append(device).append(',').append(operation);
+    lines.append(',').append(okPoint).append(',').append(failPoint).append(',');
+    appendFixed(latency);
+    lines.append(',');
+    appendFixed(rate);
+    lines.append(',').append(remark).append('\n');
+  }
+
+  /** Append value with 6 decimal places like %f */
+  private void appendFixed(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= FIXED_LIMIT) {
+      lines.append(String.format("%f", value));
+      return;
+    }
+    long scaled = Math.round(Math.abs(value) * FIXED_SCALE);
+    if (value < 0 && scaled != 0) {
+      lines.append('-');
+    }
+    lines.append(scaled / FIXED_SCALE).append('.');
+    long fraction = scaled % FIXED_SCALE;
+    for (long digit = FIXED_SCALE / 10; digit > 1 && fraction < digit; digit /= 10) {
+      lines.append('0');
+    }
+    lines.append(fraction);
+  }
 
+  private void writeLines() {
+    if (lines.length() == 0) {
+      return;
+    }
     // when create a new file writer, old file may be closed.
     int count = 0;
     while (true) {
       try {
-        projectWriter.append(line);
+        projectWriter.append(lines);
         break;
       } catch (IOException e) {
         LOGGER.warn("try to write into old closed file, just try again");
@@ -379,6 +504,10 @@ public class CSVRecorder extends TestDataPersistence {
         serverInfoWriter.flush();
         serverInfoWriter.close();
       }
+      if (timeWindowWriter != null) {
+        timeWindowWriter.flush();
+        timeWindowWriter.close();
+      }
       service.shutdown();
     } catch (IOException ioException) {
       LOGGER.error("Failed to close writer", ioException);
@@ -25,8 +25,10 @@ import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.Metric;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SingleTestMetrics;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.TotalOperationResult;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.TotalResult;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.OperationResultBatch;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import org.slf4j.Logger;
@@ -39,6 +41,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.SimpleDateFormat;
+import java.util.HashMap;
 import java.util.Map;
 
 public class IotdbRecorder extends TestDataPersistence {
@@ -59,6 +62,7 @@ public class IotdbRecorder extends TestDataPersistence {
   private static final String PATH_PREFIX = "root." + config.getTEST_DATA_STORE_DB();
   private static final String INSERT_SQL_PREFIX = "INSERT INTO " + PATH_PREFIX;
   private static final String OPERATION_RESULT_PREFIX = INSERT_SQL_PREFIX + "." + PROJECT_ID + ".";
+  private static final String TIME_WINDOW_PREFIX = PATH_PREFIX + "." + PROJECT_ID + ".time_window.";
   private static final String INSERT_SQL_STR1 = ") values(";
   private static final String INSERT_SQL_STR2 = "(timestamp";
 
@@ -76,6 +80,11 @@ public class IotdbRecorder extends TestDataPersistence {
 
   private long count = 0;
 
+  /** Multi-row INSERT of each operation in the current group */
+  private final Map<String, StringBuilder> operationRows = new HashMap<>();
+
+  private long sequence = 0;
+
   private static int threadID = 0;
   private int myID = 0;
   public static boolean initSchema = false;
@@ -117,6 +126,37 @@ public class IotdbRecorder extends TestDataPersistence {
       initSingleTestMetrics();
       initResultMetrics();
     }
+    if (config.getMONITOR_INTERVAL() > 0) {
+      initSystemMetrics();
+    }
+    if (config.getTIME_WINDOW_INTERVAL() > 0) {
+      initTimeWindowMetrics();
+    }
+  }
+
+  /** Time window metrics include: root.test.projectID.time_window.operation. */
+  private void initTimeWindowMetrics() {
+    try (Statement statement = connection.createStatement()) {
+      for (Operation op : Operation.values()) {
+        for (TimeWindowMetrics metric : TimeWindowMetrics.values()) {
+          String createSeriesSql =
+              String.format(
+                  CREATE_SERIES_SQL,
+                  TIME_WINDOW_PREFIX + op.getName() + "." + metric.getName(),
+                  DOUBLE_TYPE,
+                  ENCODING,
+                  COMPRESS);
+          statement.addBatch(createSeriesSql);
+        }
+      }
+      statement.executeBatch();
+      statement.clearBatch();
+    } catch (SQLException e) {
+      // ignore if already has the time series
+      if (!e.getMessage().contains(ALREADY_KEYWORD)) {
+        LOGGER.error(CRETE_SCHEMA_ERROR_HINT, e);
+      }
+    }
   }
 
   /** System metrics include: root.test.localName. */
@@ -211,10 +251,9 @@ public class IotdbRecorder extends TestDataPersistence {
   }
 
   @Override
-  public void insertSystemMetrics(Map<SystemMetrics, Float> systemMetricsMap) {
+  protected void insertSystemMetrics(long recordTime, Map<SystemMetrics, Float> systemMetricsMap) {
     try (Statement statement = connection.createStatement()) {
-      long currTime = System.currentTimeMillis();
-      currTime = currTime * 1000000;
+      long currTime = recordTime * 1000000;
       StringBuffer builder =
           new StringBuffer(INSERT_SQL_PREFIX)
               .append(".")
@@ -238,6 +277,23 @@ public class IotdbRecorder extends TestDataPersistence {
     }
   }
 
+  @Override
+  protected void insertTimeWindow(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics) {
+    StringBuffer builder =
+        new StringBuffer("INSERT INTO ")
+            .append(TIME_WINDOW_PREFIX)
+            .append(operation)
+            .append(INSERT_SQL_STR2);
+    StringBuffer valueBuilder = new StringBuffer(INSERT_SQL_STR1).append(startTime * 1000000);
+    for (Map.Entry<TimeWindowMetrics, Double> entry : timeWindowMetrics.entrySet()) {
+      builder.append(",").append(entry.getKey().getName());
+      valueBuilder.append(",").append(entry.getValue());
+    }
+    builder.append(valueBuilder);
+    addBatch(builder);
+  }
+
   @Override
   protected void saveOperationResult(
       String operation,
@@ -263,6 +319,46 @@ public class IotdbRecorder extends TestDataPersistence {
     addBatch(builder);
   }
 
+  /**
+   * Insert the results of one operation with one multi-row INSERT, like a tablet of the operation
+   * device, and send the statements of the group in one JDBC batch
+   */
+  @Override
+  protected void saveOperationResults(OperationResultBatch batch) {
+    operationRows.clear();
+    for (int i = 0; i < batch.size(); i++) {
+      StringBuilder rows = operationRows.get(batch.getOperation(i));
+      if (rows == null) {
+        rows = new StringBuilder(OPERATION_RESULT_PREFIX);
+        rows.append(batch.getOperation(i)).append(INSERT_SQL_STR2);
+        for (SingleTestMetrics metrics : SingleTestMetrics.values()) {
+          rows.append(",").append(metrics.getName());
+        }
+        rows.append(") values");
+        operationRows.put(batch.getOperation(i), rows);
+      } else {
+        rows.append(",");
+      }
+      // results of the same millisecond are kept apart by the sequence
+      long currTime = batch.getRecordTime(i) * 1000000 + (sequence++ % 1000000);
+      rows.append("(").append(currTime);
+      rows.append(",'").append(batch.getDevice(i)).append("'");
+      rows.append(",").append(batch.getOkPoint(i));
+      rows.append(",").append(batch.getFailPoint(i));
+      rows.append(",").append(batch.getLatency(i));
+      rows.append(",'").append(batch.getRemark(i)).append("')");
+    }
+    try {
+      for (StringBuilder rows : operationRows.values()) {
+        globalStatement.addBatch(rows.toString());
+      }
+      globalStatement.executeBatch();
+      globalStatement.clearBatch();
+    } catch (SQLException e) {
+      LOGGER.error("Insert operation results failed", e);
+    }
+  }
+
   @Override
   protected void createNewRecord(
       String operation,
@@ -23,6 +23,9 @@ import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.conf.Constants;
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.OperationResultBatch;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.RecordTimeFormat;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 import cn.edu.tsinghua.iot.benchmark.mode.enums.BenchmarkMode;
 import org.slf4j.Logger;
@@ -47,6 +50,7 @@ public class MySqlRecorder extends TestDataPersistence {
   private static final ReentrantLock reentrantLock = new ReentrantLock(true);
 
   private static final String SAVE_CONFIG = "insert into CONFIG values(NULL, %s, %s, %s)";
+  private static final String INSERT_RESULT = "insert into %s values(NULL,?,?,?,?,?,?,?,?)";
   private static final String SAVE_RESULT =
       "insert into FINAL_RESULT values(NULL, '%s', '%s', '%s', '%s')";
 
@@ -77,6 +81,9 @@ public class MySqlRecorder extends TestDataPersistence {
           projectDateFormat.format(new java.util.Date(EXP_TIME)));
   private static String OPERATION_TABLE_NAME = PROJECT_ID;
 
+  /** Table of time windows, one row for each operation in each window */
+  private static final String TIME_WINDOW_TABLE_NAME = PROJECT_ID + "_TIME_WINDOW";
+
   /** If now line > CSV_MAX_LINE, then the result will write into other files */
   private static final AtomicLong tableNumber = new AtomicLong(1);
 
@@ -89,7 +96,17 @@ public class MySqlRecorder extends TestDataPersistence {
           projectDateFormat.format(new java.util.Date(EXP_TIME)));
 
   private final String day;
+
+  /** Table of system resources metrics, one row for each sample */
+  private final String systemMetricsTable;
+
   private Statement statement;
+
+  /** Insert statement of operation results and the table it was prepared for */
+  private PreparedStatement insertStatement = null;
+
+  private String insertStatementTable = null;
+  private final RecordTimeFormat recordTimeFormat = new RecordTimeFormat();
   private Connection connection = null;
   private String localName;
   private long count = 0;
@@ -107,6 +124,7 @@ public class MySqlRecorder extends TestDataPersistence {
     Date date = new Date(EXP_TIME);
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy_MM_dd");
     day = dateFormat.format(date);
+    systemMetricsTable = "SERVER_MODE_" + localName + "_" + day;
     try {
       Class.forName(Constants.MYSQL_DRIVENAME);
       connection = DriverManager.getConnection(URL);
@@ -137,6 +155,30 @@ public class MySqlRecorder extends TestDataPersistence {
         LOGGER.info("Table FINAL_RESULT create success!");
       }
       createOperationTable(OPERATION_TABLE_NAME);
+      if (config.getMONITOR_INTERVAL() > 0 && !hasTable(systemMetricsTable)) {
+        StringBuilder createTable =
+            new StringBuilder("create table ")
+                .append(systemMetricsTable)
+                .append(" (id BIGINT NOT NULL");
+        for (SystemMetrics metric : SystemMetrics.values()) {
+          createTable.append(", ").append(metric.name().toLowerCase()).append(" DOUBLE");
+        }
+        statement.executeUpdate(
+            createTable.append(") COMMENT = \"").append(COMMENT).append("\";").toString());
+        LOGGER.info("Table {} create success!", systemMetricsTable);
+      }
+      if (config.getTIME_WINDOW_INTERVAL() > 0 && !hasTable(TIME_WINDOW_TABLE_NAME)) {
+        StringBuilder createTable =
+            new StringBuilder("create table ")
+                .append(TIME_WINDOW_TABLE_NAME)
+                .append(" (startTime BIGINT NOT NULL, operation VARCHAR(50)");
+        for (TimeWindowMetrics metric : TimeWindowMetrics.values()) {
+          createTable.append(", ").append(metric.getName()).append(" DOUBLE");
+        }
+        statement.executeUpdate(
+            createTable.append(") COMMENT = \"").append(COMMENT).append("\";").toString());
+        LOGGER.info("Table {} create success!", TIME_WINDOW_TABLE_NAME);
+      }
     } catch (SQLException e) {
       LOGGER.error("Failed to create tables in MySQL, because: ", e);
     }
@@ -158,32 +200,42 @@ public class MySqlRecorder extends TestDataPersistence {
   }
 
   @Override
-  public void insertSystemMetrics(Map<SystemMetrics, Float> systemMetricsMap) {
-    String sql = "";
+  protected void insertSystemMetrics(long recordTime, Map<SystemMetrics, Float> systemMetricsMap) {
+    checkConnection();
+    StringBuilder sql =
+        new StringBuilder("insert into ")
+            .append(systemMetricsTable)
+            .append(" values(")
+            .append(recordTime);
+    for (SystemMetrics metric : SystemMetrics.values()) {
+      sql.append(',').append(systemMetricsMap.get(metric));
+    }
+    sql.append(')');
     try {
-      sql =
-          String.format(
-              "insert into SERVER_MODE_"
-                  + localName
-                  + "_"
-                  + day
-                  + " values(%d,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f,%f)",
-              System.currentTimeMillis(),
-              systemMetricsMap.get(SystemMetrics.CPU_USAGE),
-              systemMetricsMap.get(SystemMetrics.MEM_USAGE),
-              systemMetricsMap.get(SystemMetrics.DISK_IO_USAGE),
-              systemMetricsMap.get(SystemMetrics.NETWORK_R_RATE),
-              systemMetricsMap.get(SystemMetrics.NETWORK_S_RATE),
-              systemMetricsMap.get(SystemMetrics.PROCESS_MEM_SIZE),
-              systemMetricsMap.get(SystemMetrics.DATA_FILE_SIZE),
-              systemMetricsMap.get(SystemMetrics.SYSTEM_FILE_SIZE),
-              systemMetricsMap.get(SystemMetrics.SEQUENCE_FILE_SIZE),
-              systemMetricsMap.get(SystemMetrics.UN_SEQUENCE_FILE_SIZE),
-              systemMetricsMap.get(SystemMetrics.WAL_FILE_SIZE),
-              systemMetricsMap.get(SystemMetrics.DISK_TPS),
-              systemMetricsMap.get(SystemMetrics.DISK_READ_SPEED_MB),
-              systemMetricsMap.get(SystemMetrics.DISK_WRITE_SPEED_MB));
-      statement.executeUpdate(sql);
+      statement.executeUpdate(sql.toString());
+    } catch (SQLException e) {
+      LOGGER.error("{} insert into MySQL failed, because {}", sql, e);
+    }
+  }
+
+  @Override
+  protected void insertTimeWindow(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics) {
+    checkConnection();
+    StringBuilder sql =
+        new StringBuilder("insert into ")
+            .append(TIME_WINDOW_TABLE_NAME)
+            .append(" values(")
+            .append(startTime)
+            .append(",'")
+            .append(operation)
+            .append('\'');
+    for (TimeWindowMetrics metric : TimeWindowMetrics.values()) {
+      sql.append(',').append(timeWindowMetrics.get(metric));
+    }
+    sql.append(')');
+    try {
+      statement.executeUpdate(sql.toString());
     } catch (SQLException e) {
       LOGGER.error("{} insert into MySQL failed, because {}", sql, e);
     }
@@ -199,27 +251,7 @@ public class MySqlRecorder extends TestDataPersistence {
       String device) {
     if (config.IncrementAndGetCURRENT_RECORD_LINE() % 10
         < config.getMYSQL_REAL_INSERT_RATE() * 10) {
-      // check whether the connection is valid
-      try {
-        if (!connection.isValid(TIME_OUT)) {
-          LOGGER.info("Try to reconnect to MySQL");
-          try {
-            if (statement != null) {
-              statement.close();
-            }
-            if (connection != null) {
-              connection.close();
-            }
-            Class.forName(Constants.MYSQL_DRIVENAME);
-            connection = DriverManager.getConnection(URL);
-            statement = connection.createStatement();
-          } catch (Exception ex) {
-            LOGGER.error("Reconnect to MySQL failed because", ex);
-          }
-        }
-      } catch (SQLException ex) {
-        LOGGER.error("Test if MySQL connection is valid failed", ex);
-      }
+      checkConnection();
       // create table or insert
       if (config.isRECORD_SPLIT()) {
         if (config.getCURRENT_RECORD_LINE() >= config.getRECORD_SPLIT_MAX_LINE()) {
@@ -235,6 +267,101 @@ public class MySqlRecorder extends TestDataPersistence {
     }
   }
 
+  /** Insert the sampled results of the group with one JDBC batch, rewritten by the driver */
+  @Override
+  protected void saveOperationResults(OperationResultBatch batch) {
+    checkConnection();
+    PreparedStatement insertStatement = null;
+    int rows = 0;
+    try {
+      for (int i = 0; i < batch.size(); i++) {
+        if (config.IncrementAndGetCURRENT_RECORD_LINE() % 10
+            >= config.getMYSQL_REAL_INSERT_RATE() * 10) {
+          continue;
+        }
+        if (config.isRECORD_SPLIT()
+            && config.getCURRENT_RECORD_LINE() >= config.getRECORD_SPLIT_MAX_LINE()) {
+          // rows before the split belong to the old table
+          if (rows > 0) {
+            insertStatement.executeBatch();
+            rows = 0;
+          }
+          createNewRecord(
+              batch.getOperation(i),
+              batch.getOkPoint(i),
+              batch.getFailPoint(i),
+              batch.getLatency(i),
+              batch.getRemark(i),
+              batch.getDevice(i));
+        }
+        insertStatement = getInsertStatement();
+        insertStatement.setString(1, recordTimeFormat.format(batch.getRecordTime(i)));
+        insertStatement.setString(2, batch.getDevice(i));
+        insertStatement.setString(3, batch.getOperation(i));
+        insertStatement.setLong(4, batch.getOkPoint(i));
+        insertStatement.setLong(5, batch.getFailPoint(i));
+        insertStatement.setDouble(6, batch.getLatency(i));
+        insertStatement.setDouble(7, batch.getRate(i));
+        insertStatement.setString(8, batch.getRemark(i));
+        insertStatement.addBatch();
+        rows++;
+      }
+      if (rows > 0) {
+        insertStatement.executeBatch();
+      }
+    } catch (SQLException e) {
+      LOGGER.error("Failed to save {} operation results into MySQL", batch.size(), e);
+      closeInsertStatement();
+    }
+  }
+
+  /** Get the insert statement of the current operation table, prepared again after split */
+  private PreparedStatement getInsertStatement() throws SQLException {
+    if (insertStatement == null || !OPERATION_TABLE_NAME.equals(insertStatementTable)) {
+      closeInsertStatement();
+      insertStatement =
+          connection.prepareStatement(String.format(INSERT_RESULT, OPERATION_TABLE_NAME));
+      insertStatementTable = OPERATION_TABLE_NAME;
+    }
+    return insertStatement;
+  }
+
+  private void closeInsertStatement() {
+    if (insertStatement != null) {
+      try {
+        insertStatement.close();
+      } catch (SQLException e) {
+        LOGGER.warn("Failed to close insert statement", e);
+      }
+      insertStatement = null;
+    }
+  }
+
+  /** Check whether the connection is valid, reconnect if not */
+  private void checkConnection() {
+    try {
+      if (!connection.isValid(TIME_OUT)) {
+        LOGGER.info("Try to reconnect to MySQL");
+        try {
+          closeInsertStatement();
+          if (statement != null) {
+            statement.close();
+          }
+          if (connection != null) {
+            connection.close();
+          }
+          Class.forName(Constants.MYSQL_DRIVENAME);
+          connection = DriverManager.getConnection(URL);
+          statement = connection.createStatement();
+        } catch (Exception ex) {
+          LOGGER.error("Reconnect to MySQL failed because", ex);
+        }
+      }
+    } catch (SQLException ex) {
+      LOGGER.error("Test if MySQL connection is valid failed", ex);
+    }
+  }
+
   @Override
   protected void createNewRecord(
       String operation,
@@ -465,6 +592,7 @@ public class MySqlRecorder extends TestDataPersistence {
 
   @Override
   public void close() {
+    closeInsertStatement();
     if (connection != null) {
       try {
         if (!statement.isClosed()) {
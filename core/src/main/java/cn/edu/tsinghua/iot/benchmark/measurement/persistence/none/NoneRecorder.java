@@ -20,6 +20,7 @@
 package cn.edu.tsinghua.iot.benchmark.measurement.persistence.none;
 
 import cn.edu.tsinghua.iot.benchmark.measurement.enums.SystemMetrics;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 
 import java.util.Map;
@@ -27,7 +28,13 @@ import java.util.Map;
 public class NoneRecorder extends TestDataPersistence {
 
   @Override
-  public void insertSystemMetrics(Map<SystemMetrics, Float> systemMetricsMap) {
+  protected void insertSystemMetrics(long recordTime, Map<SystemMetrics, Float> systemMetricsMap) {
+    // DO nothing
+  }
+
+  @Override
+  protected void insertTimeWindow(
+      long startTime, String operation, Map<TimeWindowMetrics, Double> timeWindowMetrics) {
     // DO nothing
   }
 
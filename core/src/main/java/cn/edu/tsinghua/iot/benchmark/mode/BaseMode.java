@@ -22,19 +22,33 @@ package cn.edu.tsinghua.iot.benchmark.mode;
 import cn.edu.tsinghua.iot.benchmark.client.DataClient;
 import cn.edu.tsinghua.iot.benchmark.client.SchemaClient;
 import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.client.progress.PhaseProgress;
 import cn.edu.tsinghua.iot.benchmark.client.progress.TaskProgress;
+import cn.edu.tsinghua.iot.benchmark.cluster.CoordinatorClient;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.conf.WorkloadPhase;
 import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.measurement.HostResourceSampler;
 import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.TimeWindow;
+import cn.edu.tsinghua.iot.benchmark.measurement.TimeWindowSeries;
+import cn.edu.tsinghua.iot.benchmark.measurement.WarmUpDetector;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.WarmUpMode;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.PersistenceFactory;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBWrapper;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
 import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
+import cn.edu.tsinghua.iot.benchmark.utils.PinnedThreadMonitor;
+import cn.edu.tsinghua.iot.benchmark.workload.SingletonWorkDataWorkLoad;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -47,6 +61,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -66,13 +81,11 @@ public abstract class BaseMode {
   private static final String LATENCY_ITEM = "%-80s";
 
   protected ExecutorService schemaExecutorService =
-      Executors.newFixedThreadPool(
-          config.getSCHEMA_CLIENT_NUMBER(),
-          new NamedThreadFactory(ThreadName.SCHEMA_CLIENT_THREAD.getName()));
+      ExecutorUtils.newClientExecutor(
+          ThreadName.SCHEMA_CLIENT_THREAD, config.getSCHEMA_CLIENT_NUMBER());
   protected ExecutorService executorService =
-      Executors.newFixedThreadPool(
-          config.getDATA_CLIENT_NUMBER(),
-          new NamedThreadFactory(ThreadName.DATA_CLIENT_THREAD.getName()));
+      ExecutorUtils.newClientExecutor(
+          ThreadName.DATA_CLIENT_THREAD, config.getDATA_CLIENT_NUMBER());
   protected CountDownLatch schemaDownLatch = new CountDownLatch(config.getSCHEMA_CLIENT_NUMBER());
   protected CyclicBarrier schemaBarrier = new CyclicBarrier(config.getSCHEMA_CLIENT_NUMBER());
   protected CountDownLatch dataDownLatch = new CountDownLatch(config.getDATA_CLIENT_NUMBER());
@@ -83,17 +96,53 @@ public abstract class BaseMode {
   protected Measurement baseModeMeasurement = new Measurement();
   protected long startTime = 0;
 
+  /** Sample resources of benchmark host while data clients run */
+  protected HostResourceSampler hostResourceSampler = new HostResourceSampler();
+
+  /** Connection to coordinator, null if this benchmark is not a worker of a coordinator */
+  protected CoordinatorClient coordinatorClient = null;
+
+  /** Report where virtual threads are pinned, null if clients run on platform threads */
+  protected PinnedThreadMonitor pinnedThreadMonitor = null;
+
+  /** Current phase of WORKLOAD_PHASE_FILE, null if there is no workload phase */
+  protected PhaseProgress phaseProgress = null;
+
+  /** When the current workload phase began, unit: ns */
+  private volatile long phaseStartTime = 0;
+
+  /** Check whether warm-up is finished, null if there is no warm-up or it is finished */
+  private volatile ScheduledFuture<?> warmUpFuture = null;
+
+  /** Time windows of all clients, null if TIME_WINDOW_INTERVAL is disabled */
+  protected TimeWindowSeries timeWindowSeries = Measurement.newTimeWindowSeries();
+
   protected abstract boolean preCheck();
 
   /** Start benchmark */
   public void run() {
-    if (!preCheck()) {
+    if (!config.getBENCHMARK_COORDINATOR().isEmpty() && !registerToCoordinator()) {
+      return;
+    }
+    if (ExecutorUtils.isVirtualThreadEnabled()) {
+      LOGGER.info("Run clients on virtual threads.");
+      pinnedThreadMonitor = new PinnedThreadMonitor();
+      if (!pinnedThreadMonitor.start()) {
+        pinnedThreadMonitor = null;
+      }
+    }
+    if (!preCheck() || !awaitCoordinatorStart()) {
+      stopPinnedThreadMonitor();
+      closeCoordinatorClient();
       return;
     }
     dataBarrier =
         new CyclicBarrier(
             config.getDATA_CLIENT_NUMBER(),
             () -> {
+              if (phaseProgress != null) {
+                startWorkloadPhases();
+              }
               printService.scheduleAtFixedRate(
                   () -> {
                     if (!config.isIS_POINT_COMPARISON()) {
@@ -118,14 +167,25 @@ public abstract class BaseMode {
       }
       dataClients.add(client);
     }
+    if (!config.getWORKLOAD_PHASES().isEmpty()) {
+      phaseProgress = new PhaseProgress(config.getWORKLOAD_PHASES());
+      dataClients.forEach(client -> client.setPhaseProgress(phaseProgress));
+    }
     for (DataClient client : dataClients) {
       executorService.submit(client);
     }
     setTimeLimitScheduler();
+    hostResourceSampler.start();
     if (config.getRESULT_PRINT_INTERVAL() != 0) {
       setMiddleMeasureScheduler();
     }
     startTime = System.nanoTime();
+    if (config.getWARM_UP_MODE() != WarmUpMode.NONE) {
+      setWarmUpScheduler();
+    }
+    if (timeWindowSeries != null) {
+      setTimeWindowScheduler();
+    }
     executorService.shutdown();
     try {
       // wait for all dataClients finish test
@@ -135,13 +195,243 @@ public abstract class BaseMode {
       LOGGER.error("Exception occurred during waiting for all threads finish.", e);
       Thread.currentThread().interrupt();
     }
+    stopPinnedThreadMonitor();
+    hostResourceSampler.stop();
+    SingletonWorkDataWorkLoad.reportUnusedLoops();
+    saveTimeWindows();
     postCheck();
+    sendResultToCoordinator();
     printSqlStatements();
     scheduler.shutdownNow();
   }
 
+  /** Get the shard of devices of this worker from coordinator */
+  private boolean registerToCoordinator() {
+    try {
+      coordinatorClient =
+          CoordinatorClient.connect(
+              config.getBENCHMARK_COORDINATOR(), config.getBENCHMARK_COORDINATOR_TIMEOUT_MS());
+    } catch (IOException | IllegalArgumentException e) {
+      LOGGER.error("Failed to register to coordinator {}", config.getBENCHMARK_COORDINATOR(), e);
+      return false;
+    }
+    config.setBENCHMARK_CLUSTER(true);
+    config.setBENCHMARK_INDEX(coordinatorClient.getBenchmarkIndex());
+    config.setFIRST_DEVICE_INDEX(config.getBENCHMARK_INDEX() * config.getDEVICE_NUMBER());
+    LOGGER.info(
+        "Registered as worker {} of {}, first device index is {}",
+        config.getBENCHMARK_INDEX(),
+        coordinatorClient.getWorkerNumber(),
+        config.getFIRST_DEVICE_INDEX());
+    return true;
+  }
+
+  /** Wait until all workers of coordinator are ready, return true if not a worker */
+  private boolean awaitCoordinatorStart() {
+    if (coordinatorClient == null) {
+      return true;
+    }
+    try {
+      LOGGER.info("Waiting for other workers of coordinator");
+      coordinatorClient.awaitStart();
+      return true;
+    } catch (IOException e) {
+      LOGGER.error("Failed to wait for coordinator to start", e);
+      return false;
+    }
+  }
+
+  private void sendResultToCoordinator() {
+    if (coordinatorClient == null) {
+      return;
+    }
+    try {
+      coordinatorClient.sendResult(baseModeMeasurement);
+    } catch (IOException e) {
+      LOGGER.error("Failed to send result to coordinator", e);
+    }
+    closeCoordinatorClient();
+  }
+
+  private void closeCoordinatorClient() {
+    if (coordinatorClient != null) {
+      try {
+        coordinatorClient.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close connection to coordinator", e);
+      }
+      coordinatorClient = null;
+    }
+  }
+
+  private void stopPinnedThreadMonitor() {
+    if (pinnedThreadMonitor != null) {
+      pinnedThreadMonitor.stop();
+      pinnedThreadMonitor = null;
+    }
+  }
+
+  /** Switch to the next workload phase at the end of each phase, the last one stops clients */
+  private void startWorkloadPhases() {
+    phaseStartTime = System.nanoTime();
+    long delay = 0;
+    for (int i = 0; i < phaseProgress.getPhaseNumber(); i++) {
+      delay += phaseProgress.getPhase(i).getDuration();
+      final int index = i;
+      scheduler.schedule(() -> finishWorkloadPhase(index), delay, TimeUnit.MILLISECONDS);
+    }
+    LOGGER.info("Start workload phase {}", phaseProgress.getPhase(0));
+  }
+
+  /** Output the result of a workload phase, which is excluded from final result if warm-up */
+  private void finishWorkloadPhase(int index) {
+    WorkloadPhase phase = phaseProgress.getPhase(index);
+    try {
+      long now = System.nanoTime();
+      synchronized (baseModeMeasurement) {
+        baseModeMeasurement.resetMeasurementMaps();
+        dataClients.stream()
+            .flatMap(DataClient::getMeasurements)
+            .forEach(baseModeMeasurement::mergeMeasurement);
+        Measurement phaseMeasurement =
+            baseModeMeasurement.cutPhase((now - phaseStartTime) / NANO_TO_SECOND);
+        if (phase.isWarmUp()) {
+          baseModeMeasurement.excludePhase(phaseMeasurement);
+        }
+        printMeasurement(
+            phaseMeasurement,
+            getOperations(),
+            "Workload phase "
+                + phase.getName()
+                + (phase.isWarmUp() ? " (warm-up, excluded from the final result)" : "")
+                + " finished. The result of this phase is: ",
+            false);
+      }
+      phaseStartTime = now;
+    } catch (Exception e) {
+      LOGGER.error("Exception occurred during measuring workload phase {}:", phase.getName(), e);
+    }
+    phaseProgress.nextPhase();
+    if (phaseProgress.isFinished()) {
+      LOGGER.info("All workload phases finished, start to stop all dataClients.");
+      dataClients.forEach(DataClient::stopClient);
+    } else {
+      LOGGER.info("Start workload phase {}", phaseProgress.getPhase(index + 1));
+    }
+  }
+
+  private void setWarmUpScheduler() {
+    WarmUpDetector warmUpDetector =
+        new WarmUpDetector(
+            config.getWARM_UP_MODE(),
+            TimeUnit.SECONDS.toMillis(config.getWARM_UP_TIME()),
+            config.getWARM_UP_OPERATION_NUMBER(),
+            config.getWARM_UP_STABLE_THRESHOLD(),
+            TimeUnit.SECONDS.toMillis(config.getWARM_UP_WINDOW()));
+    long interval = warmUpDetector.getCheckInterval();
+    warmUpFuture =
+        scheduler.scheduleAtFixedRate(
+            () -> checkWarmUp(warmUpDetector), interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /** Exclude the result before from final result once warm-up is finished */
+  private void checkWarmUp(WarmUpDetector warmUpDetector) {
+    try {
+      long now = System.nanoTime();
+      synchronized (baseModeMeasurement) {
+        baseModeMeasurement.resetMeasurementMaps();
+        dataClients.stream()
+            .flatMap(DataClient::getMeasurements)
+            .forEach(baseModeMeasurement::mergeMeasurement);
+        if (!warmUpDetector.isFinished(
+            TimeUnit.NANOSECONDS.toMillis(now - startTime),
+            baseModeMeasurement.getOperationNum(),
+            baseModeMeasurement.getCumulativeLatency())) {
+          return;
+        }
+        double warmUpTime = (now - startTime) / NANO_TO_SECOND;
+        // the current workload phase, if any, goes on and is still measured from its start
+        Measurement warmUpMeasurement = baseModeMeasurement.cutWarmUp(warmUpTime);
+        baseModeMeasurement.excludePhase(warmUpMeasurement);
+        printMeasurement(
+            warmUpMeasurement,
+            getOperations(),
+            String.format(
+                "Warm-up finished after %.2f second, its result is excluded from the final result: ",
+                warmUpTime),
+            false);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Exception occurred during checking warm-up:", e);
+    }
+    warmUpFuture.cancel(false);
+    warmUpFuture = null;
+  }
+
+  /** Collect the windows which have ended every window, so each window is merged only once */
+  private void setTimeWindowScheduler() {
+    long interval = config.getTIME_WINDOW_INTERVAL();
+    scheduler.scheduleAtFixedRate(
+        () -> {
+          try {
+            long endIndex = timeWindowSeries.getCurrentIndex();
+            dataClients.stream()
+                .flatMap(DataClient::getMeasurements)
+                .forEach(m -> m.collectTimeWindows(timeWindowSeries, endIndex));
+          } catch (Exception e) {
+            LOGGER.error("Exception occurred during collecting time windows:", e);
+          }
+        },
+        interval,
+        interval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** Save throughput, latency and error rate of each time window by the recorder */
+  private void saveTimeWindows() {
+    if (timeWindowSeries == null) {
+      return;
+    }
+    // all clients have stopped, so the windows which are not ended yet are collected too
+    dataClients.stream()
+        .flatMap(DataClient::getMeasurements)
+        .forEach(m -> m.collectTimeWindows(timeWindowSeries, Long.MAX_VALUE));
+    long droppedNum =
+        dataClients.stream()
+            .flatMap(DataClient::getMeasurements)
+            .mapToLong(Measurement::getDroppedTimeWindowNum)
+            .sum();
+    if (droppedNum > 0) {
+      LOGGER.warn(
+          "{} operations were not counted in time windows because the windows were not collected in time",
+          droppedNum);
+    }
+    List<TimeWindow> windows = timeWindowSeries.getWindows();
+    List<Operation> operations = new ArrayList<>();
+    for (Operation operation : getOperations()) {
+      if (windows.stream()
+          .anyMatch(w -> w.getOkOperationNum(operation) + w.getFailOperationNum(operation) > 0)) {
+        operations.add(operation);
+      }
+    }
+    TestDataPersistence recorder = new PersistenceFactory().getPersistence();
+    for (TimeWindow window : windows) {
+      long windowStartTime = timeWindowSeries.getStartTime(window);
+      for (Operation operation : operations) {
+        recorder.saveTimeWindowAsync(
+            windowStartTime, operation.getName(), timeWindowSeries.getMetrics(window, operation));
+      }
+    }
+    recorder.closeAsync();
+    LOGGER.info(
+        "Saved {} time windows of {} ms for {} operations",
+        windows.size(),
+        config.getTIME_WINDOW_INTERVAL(),
+        operations.size());
+  }
+
   private void setTimeLimitScheduler() {
-    if (config.getTEST_MAX_TIME() != 0) {
+    if (config.getTEST_MAX_TIME() != 0 && phaseProgress == null) {
       scheduler.schedule(
           () -> {
             try {
@@ -162,17 +452,11 @@ public abstract class BaseMode {
     scheduler.scheduleAtFixedRate(
         () -> {
           try {
-            List<Operation> operations;
-            if (config.isIS_POINT_COMPARISON()) {
-              operations = Collections.singletonList(Operation.DEVICE_QUERY);
-            } else {
-              operations = Operation.getNormalOperation();
-            }
             middleMeasure(
                 baseModeMeasurement,
-                dataClients.stream().map(DataClient::getMeasurement),
+                dataClients.stream().flatMap(DataClient::getMeasurements),
                 startTime,
-                operations);
+                getOperations());
           } catch (Exception e) {
             LOGGER.error("Exception occurred during print measurement:", e);
           }
@@ -182,6 +466,13 @@ public abstract class BaseMode {
         TimeUnit.SECONDS);
   }
 
+  private static List<Operation> getOperations() {
+    if (config.isIS_POINT_COMPARISON()) {
+      return Collections.singletonList(Operation.DEVICE_QUERY);
+    }
+    return Operation.getNormalOperation();
+  }
+
   protected abstract void postCheck();
 
   /** Clean up data */
@@ -282,14 +573,25 @@ public abstract class BaseMode {
       List<Operation> operations,
       String prefix,
       boolean needPrintConf) {
-    double elapseTime = (System.nanoTime() - startTime) / NANO_TO_SECOND;
-    if (elapseTime < 0) {
-      LOGGER.error("elapseTime is negative: {}", elapseTime);
-    }
-    measurement.setElapseTime(elapseTime);
-    // sum up all the measurements and calculate statistics
-    measurement.resetMeasurementMaps();
-    allClientsMeasurement.forEach(measurement::mergeMeasurement);
+    // middle and final measure may overlap, the latency histograms of clients are drained once
+    synchronized (measurement) {
+      double elapseTime = (System.nanoTime() - startTime) / NANO_TO_SECOND;
+      if (elapseTime < 0) {
+        LOGGER.error("elapseTime is negative: {}", elapseTime);
+      }
+      measurement.setElapseTime(elapseTime);
+      // sum up all the measurements and calculate statistics
+      measurement.resetMeasurementMaps();
+      allClientsMeasurement.forEach(measurement::mergeMeasurement);
+      measurement.removeExcludedPhases();
+      printMeasurement(measurement, operations, prefix, needPrintConf);
+      measurement.resetIntervalLatency();
+    }
+  }
+
+  /** Calculate metrics of a merged measurement and output them */
+  protected static void printMeasurement(
+      Measurement measurement, List<Operation> operations, String prefix, boolean needPrintConf) {
     // output results
     String showMeasurement = prefix;
     if (needPrintConf) {
@@ -302,6 +604,12 @@ public abstract class BaseMode {
         if (!operations.isEmpty()) {
           showMeasurement += measurement.getMeasurementsString(operations);
           showMeasurement += measurement.getMetricsString(operations);
+          if (config.isENABLE_LATENCY_BREAKDOWN()) {
+            showMeasurement += measurement.getLatencyBreakdownString(operations);
+          }
+          if (config.getRESULT_PRINT_INTERVAL() != 0 && measurement.hasIntervalLatency()) {
+            showMeasurement += measurement.getIntervalMetricsString(operations);
+          }
         }
       } catch (IllegalArgumentException e) {
         LOGGER.error(
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.mode;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.cluster.Coordinator;
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Run no client itself, but coordinate BENCHMARK_WORKER_NUMBER benchmarks whose
+ * BENCHMARK_COORDINATOR is this one, and output the merged result of them
+ */
+public class CoordinatorMode extends BaseMode {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CoordinatorMode.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  @Override
+  public void run() {
+    int port = Coordinator.parseAddress(config.getBENCHMARK_COORDINATOR()).getPort();
+    long timeoutMs = config.getBENCHMARK_COORDINATOR_TIMEOUT_MS();
+    try (Coordinator coordinator =
+        new Coordinator(port, config.getBENCHMARK_WORKER_NUMBER(), timeoutMs)) {
+      LOGGER.info(
+          "Coordinator listens on port {}, waiting for {} workers",
+          coordinator.getPort(),
+          config.getBENCHMARK_WORKER_NUMBER());
+      coordinator.acceptWorkers();
+      coordinator.startWorkers();
+      // workers run the test after they are started, which takes up to TEST_MAX_TIME
+      long resultTimeoutMs =
+          timeoutMs > 0 && config.getTEST_MAX_TIME() > 0
+              ? timeoutMs + config.getTEST_MAX_TIME()
+              : 0;
+      baseModeMeasurement = coordinator.collectResults(resultTimeoutMs);
+    } catch (IOException e) {
+      LOGGER.error("Coordinator stops because a worker failed", e);
+      return;
+    }
+    postCheck();
+  }
+
+  @Override
+  protected boolean preCheck() {
+    return true;
+  }
+
+  @Override
+  protected void postCheck() {
+    List<Operation> operations;
+    if (config.isIS_POINT_COMPARISON()) {
+      operations = Collections.singletonList(Operation.DEVICE_QUERY);
+    } else {
+      operations = Operation.getNormalOperation();
+    }
+    printMeasurement(
+        baseModeMeasurement, operations, "All workers finished. The merged test result is: ", true);
+  }
+}
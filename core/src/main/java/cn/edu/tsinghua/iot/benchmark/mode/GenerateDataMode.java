@@ -21,6 +21,7 @@ package cn.edu.tsinghua.iot.benchmark.mode;
 
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.extern.DataWriter;
 import cn.edu.tsinghua.iot.benchmark.extern.SchemaWriter;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
 import cn.edu.tsinghua.iot.benchmark.utils.FileUtils;
@@ -32,6 +33,8 @@ public class GenerateDataMode extends BaseMode {
   private static final Logger LOGGER = LoggerFactory.getLogger(GenerateDataMode.class);
   private static final Config config = ConfigDescriptor.getInstance().getConfig();
   private static final MetaDataSchema metaDataSchema = MetaDataSchema.getInstance();
+  private static final double NANO_TO_SECOND = 1000000000.0d;
+  private static final double BYTE_TO_MB = 1024.0d * 1024.0d;
 
   @Override
   protected boolean preCheck() {
@@ -40,6 +43,15 @@ public class GenerateDataMode extends BaseMode {
 
   @Override
   protected void postCheck() {
+    double elapseTime = (System.nanoTime() - startTime) / NANO_TO_SECOND;
+    double dataSize = DataWriter.getDataBytes() / BYTE_TO_MB;
+    double fileSize = DataWriter.getFileBytes() / BYTE_TO_MB;
+    LOGGER.info(
+        "Generated {} MB of data into {} MB of files in {} s, throughput: {} MB/s",
+        String.format("%.2f", dataSize),
+        String.format("%.2f", fileSize),
+        String.format("%.2f", elapseTime),
+        String.format("%.2f", elapseTime > 0 ? dataSize / elapseTime : 0));
     LOGGER.info("Data Location: {}", config.getFILE_PATH());
     LOGGER.info("Schema Location: {}", FileUtils.union(config.getFILE_PATH(), "schema.txt"));
     LOGGER.info("Generate Info Location: {}", FileUtils.union(config.getFILE_PATH(), "info.txt"));
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.mode;
+
+import cn.edu.tsinghua.iot.benchmark.client.DataClient;
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.measurement.ThreadUsage;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TotalResult;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.PersistenceFactory;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Run the clients, workloads and measurement of testWithDefaultPath against an in-process sink
+ * (FakeDB or SelfCheck), so that the result is the ceiling of this benchmark host for the
+ * configured schema: the maximum points written per second, the bytes allocated and CPU time spent
+ * per point, and the CPU time of each client thread. The ceiling covers the whole test including
+ * warm-up, because CPU time and allocation can't be split by phase.
+ */
+public class GeneratorCeilingMode extends BaseMode {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GeneratorCeilingMode.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private static final double NANO_TO_SECOND = 1000000000.0d;
+  private static final double NANO_TO_MILLIS = 1000000.0d;
+  private static final double MB = 1024.0d * 1024.0d;
+  private static final String RESULT_ITEM = "%-45s";
+  private static final String THREAD_ITEM = "%-20s";
+
+  /** Held during the whole test, so that all clients share one recorder */
+  private TestDataPersistence recorder;
+
+  @Override
+  protected boolean preCheck() {
+    LOGGER.info(
+        "Measure the ceiling of generating data by writing to {}",
+        config.getDbConfig().getDB_SWITCH());
+    recorder = new PersistenceFactory().getPersistence();
+    recorder.saveTestConfig();
+    return !config.isCREATE_SCHEMA() || registerSchema();
+  }
+
+  @Override
+  protected void postCheck() {
+    double elapseTime = (System.nanoTime() - startTime) / NANO_TO_SECOND;
+    finalMeasure(
+        baseModeMeasurement,
+        dataClients.stream().flatMap(DataClient::getMeasurements),
+        startTime,
+        Operation.getNormalOperation());
+    long pointNum =
+        dataClients.stream()
+            .flatMap(DataClient::getMeasurements)
+            .mapToLong(m -> m.getOkPointNum(Operation.INGESTION))
+            .sum();
+    List<ThreadUsage> threadUsages =
+        dataClients.stream().flatMap(DataClient::getThreadUsages).collect(Collectors.toList());
+    LOGGER.info(getCeilingString(pointNum, elapseTime, threadUsages));
+    recorder.closeAsync();
+  }
+
+  /**
+   * Output and save the ceiling
+   *
+   * @param pointNum points written by all clients
+   * @param elapseTime unit: s
+   * @param threadUsages CPU and allocation of all client threads
+   */
+  String getCeilingString(long pointNum, double elapseTime, List<ThreadUsage> threadUsages) {
+    long cpuTime = 0;
+    long allocatedBytes = 0;
+    boolean supported = !threadUsages.isEmpty();
+    StringBuilder threads = new StringBuilder();
+    threads.append(
+        String.format(
+            THREAD_ITEM + RESULT_ITEM + THREAD_ITEM + THREAD_ITEM + THREAD_ITEM + "\n",
+            "",
+            "Thread",
+            "cpuTime(ms)",
+            "cpuUsage(%)",
+            "allocated(MB)"));
+    for (ThreadUsage usage : threadUsages) {
+      if (!usage.isSupported()) {
+        supported = false;
+        threads.append(
+            String.format(
+                THREAD_ITEM + RESULT_ITEM + "%s\n", "", usage.getName(), "not supported"));
+        continue;
+      }
+      cpuTime += usage.getCpuTime();
+      allocatedBytes += usage.getAllocatedBytes();
+      String threadCpuTime = String.format("%.2f", usage.getCpuTime() / NANO_TO_MILLIS);
+      String threadCpuUsage =
+          String.format("%.2f", usage.getCpuTime() * 100 / NANO_TO_SECOND / elapseTime);
+      threads.append(
+          String.format(
+              THREAD_ITEM + RESULT_ITEM + THREAD_ITEM + THREAD_ITEM + THREAD_ITEM + "\n",
+              "",
+              usage.getName(),
+              threadCpuTime,
+              threadCpuUsage,
+              String.format("%.2f", usage.getAllocatedBytes() / MB)));
+      recorder.saveResultAsync(
+          usage.getName(), TotalResult.THREAD_CPU_TIME.getName(), threadCpuTime);
+      recorder.saveResultAsync(
+          usage.getName(), TotalResult.THREAD_CPU_USAGE.getName(), threadCpuUsage);
+      recorder.saveResultAsync(
+          usage.getName(),
+          TotalResult.THREAD_ALLOCATED_BYTES.getName(),
+          "" + usage.getAllocatedBytes());
+    }
+
+    String maxPointRate = String.format("%.2f", elapseTime > 0 ? pointNum / elapseTime : 0);
+    recorder.saveResultAsync("total", TotalResult.MAX_POINT_RATE.getName(), maxPointRate);
+    StringBuilder result = new StringBuilder("\n");
+    result
+        .append(
+            "--------------------------------------------------------Generator Ceiling--------------------------------------------------------")
+        .append('\n')
+        .append(String.format(RESULT_ITEM, "Elapsed time(s)"))
+        .append(String.format("%.2f", elapseTime))
+        .append('\n')
+        .append(String.format(RESULT_ITEM, "Written points"))
+        .append(pointNum)
+        .append('\n')
+        .append(String.format(RESULT_ITEM, "Max point rate(point/s)"))
+        .append(maxPointRate)
+        .append('\n');
+    if (supported && pointNum > 0) {
+      String allocatedBytesPerPoint = String.format("%.2f", (double) allocatedBytes / pointNum);
+      String cpuTimePerPoint = String.format("%.2f", (double) cpuTime / pointNum);
+      recorder.saveResultAsync(
+          "total", TotalResult.ALLOCATED_BYTES_PER_POINT.getName(), allocatedBytesPerPoint);
+      recorder.saveResultAsync("total", TotalResult.CPU_TIME_PER_POINT.getName(), cpuTimePerPoint);
+      result
+          .append(String.format(RESULT_ITEM, "Allocated bytes per point"))
+          .append(allocatedBytesPerPoint)
+          .append('\n')
+          .append(String.format(RESULT_ITEM, "CPU time per point(ns)"))
+          .append(cpuTimePerPoint)
+          .append('\n');
+    } else {
+      result
+          .append(
+              "CPU time and allocation per point are not measured, because the JVM or virtual threads do not support them, or no point is written")
+          .append('\n');
+    }
+    result
+        .append("Client threads:")
+        .append('\n')
+        .append(threads)
+        .append(
+            "---------------------------------------------------------------------------------------------------------------------------------");
+    return result.toString();
+  }
+}
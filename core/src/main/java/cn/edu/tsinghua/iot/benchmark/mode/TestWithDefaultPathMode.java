@@ -38,10 +38,13 @@ public class TestWithDefaultPathMode extends BaseMode {
   private static final Logger LOGGER = LoggerFactory.getLogger(TestWithDefaultPathMode.class);
   private static final Config config = ConfigDescriptor.getInstance().getConfig();
 
+  /** Held during the whole test, so that all clients share one recorder */
+  private TestDataPersistence recorder;
+
   @Override
   protected boolean preCheck() {
     PersistenceFactory persistenceFactory = new PersistenceFactory();
-    TestDataPersistence recorder = persistenceFactory.getPersistence();
+    recorder = persistenceFactory.getPersistence();
     recorder.saveTestConfig();
     List<DBConfig> dbConfigs = new ArrayList<>();
     dbConfigs.add(config.getDbConfig());
@@ -67,8 +70,9 @@ public class TestWithDefaultPathMode extends BaseMode {
     }
     finalMeasure(
         baseModeMeasurement,
-        dataClients.stream().map(DataClient::getMeasurement),
+        dataClients.stream().flatMap(DataClient::getMeasurements),
         startTime,
         operations);
+    recorder.closeAsync();
   }
 }
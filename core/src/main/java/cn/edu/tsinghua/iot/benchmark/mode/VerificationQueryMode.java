@@ -35,7 +35,7 @@ public class VerificationQueryMode extends BaseMode {
   protected void postCheck() {
     finalMeasure(
         baseModeMeasurement,
-        dataClients.stream().map(DataClient::getMeasurement),
+        dataClients.stream().flatMap(DataClient::getMeasurements),
         startTime,
         Collections.singletonList(Operation.VERIFICATION_QUERY));
   }
@@ -52,7 +52,7 @@ public class VerificationWriteMode extends BaseMode {
   protected void postCheck() {
     finalMeasure(
         baseModeMeasurement,
-        dataClients.stream().map(DataClient::getMeasurement),
+        dataClients.stream().flatMap(DataClient::getMeasurements),
         startTime,
         Collections.singletonList(Operation.INGESTION));
   }
@@ -26,7 +26,9 @@ public enum BenchmarkMode {
   TEST_WITH_DEFAULT_PATH("testWithDefaultPath"),
   GENERATE_DATA("generateDataMode"),
   VERIFICATION_WRITE("verificationWriteMode"),
-  VERIFICATION_QUERY("verificationQueryMode");
+  VERIFICATION_QUERY("verificationQueryMode"),
+  COORDINATOR("coordinatorMode"),
+  GENERATOR_CEILING("generatorCeilingMode");
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkMode.class);
   public String mode;
@@ -34,6 +34,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,7 +58,7 @@ public class DeviceSchema implements Cloneable {
   /** List of tags */
   private Map<String, String> tags;
 
-  /** Sensors in this device */
+  /** Sensors in this device, read only */
   private List<Sensor> sensors;
 
   /** Only used for synthetic data set */
@@ -74,7 +75,7 @@ public class DeviceSchema implements Cloneable {
   public DeviceSchema(int deviceId, List<Sensor> sensors, Map<String, String> tags) {
     this.deviceId = deviceId;
     this.device = MetaUtil.getDeviceName(deviceId);
-    this.sensors = sensors;
+    this.sensors = Collections.unmodifiableList(sensors);
     this.tags = tags;
     try {
       int deviceBelongToWhichTable =
@@ -103,7 +104,7 @@ public class DeviceSchema implements Cloneable {
       LOGGER.error("Create device schema failed.", e);
     }
     this.device = deviceName;
-    this.sensors = sensors;
+    this.sensors = Collections.unmodifiableList(sensors);
     this.tags = tags;
   }
 
@@ -116,7 +117,7 @@ public class DeviceSchema implements Cloneable {
     this.group = MetaUtil.getGroupName(groupId);
     this.table = MetaUtil.getTableName(tableName);
     this.device = deviceName;
-    this.sensors = sensors;
+    this.sensors = Collections.unmodifiableList(sensors);
     this.tags = tags;
   }
 
@@ -148,12 +149,13 @@ public class DeviceSchema implements Cloneable {
     this.group = group;
   }
 
+  /** Get the sensors of this device, the list is read only and should be copied before change */
   public List<Sensor> getSensors() {
-    return new ArrayList<>(sensors);
+    return sensors;
   }
 
   public void setSensors(List<Sensor> sensors) {
-    this.sensors = sensors;
+    this.sensors = Collections.unmodifiableList(sensors);
   }
 
   public Map<String, String> getTags() {
@@ -193,11 +195,12 @@ public class DeviceSchema implements Cloneable {
     DeviceSchema result = new DeviceSchema();
     result.group = ReadWriteIOUtils.readString(inputStream);
     result.device = ReadWriteIOUtils.readString(inputStream);
-    result.sensors = new ArrayList<>();
+    List<Sensor> sensors = new ArrayList<>();
     int number = ReadWriteIOUtils.readInt(inputStream);
     for (int i = 0; i < number; i++) {
-      result.sensors.add(Sensor.deserialize(inputStream));
+      sensors.add(Sensor.deserialize(inputStream));
     }
+    result.setSensors(sensors);
     result.deviceId = ReadWriteIOUtils.readInt(inputStream);
     int tagNumber = ReadWriteIOUtils.readInt(inputStream);
     for (int i = 0; i < tagNumber; i++) {
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.source;
+
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+
+/**
+ * Layout of binary data files. All numbers are big endian.
+ *
+ * <pre>
+ * file   := MAGIC(int) VERSION(int) block*
+ * block  := blockSize(int, bytes after this field) rowCount(int) sensorCount(int) sensor*
+ *           timestamps(long * rowCount) column*
+ * sensor := type(byte, ordinal of SensorType) nameLength(short) name(UTF-8)
+ * column := values of one sensor, BOOLEAN: byte, INT32: int, INT64/TIMESTAMP: long,
+ *           FLOAT: float, DOUBLE: double, DATE: epoch day(int),
+ *           TEXT/STRING/BLOB: length(int) UTF-8 bytes
+ * </pre>
+ *
+ * <p>One block holds one batch of one device. Fixed size columns are stored contiguously, so they
+ * are copied from the mapped file into the primitive arrays of a columnar batch without parsing.
+ */
+public final class BinaryDataFormat {
+  /** "IOTB" */
+  public static final int MAGIC = 0x494F5442;
+
+  public static final int VERSION = 1;
+  public static final int FILE_HEADER_SIZE = 8;
+  public static final String FILE_SUFFIX = ".bin";
+
+  private BinaryDataFormat() {}
+
+  /** Size of one value in bytes, -1 for variable length types */
+  public static int valueSize(SensorType sensorType) {
+    switch (sensorType) {
+      case BOOLEAN:
+        return 1;
+      case INT32:
+      case FLOAT:
+      case DATE:
+        return 4;
+      case INT64:
+      case TIMESTAMP:
+      case DOUBLE:
+        return 8;
+      default:
+        return -1;
+    }
+  }
+
+  public static boolean isBinaryFile(String fileName) {
+    return fileName.endsWith(FILE_SUFFIX);
+  }
+}
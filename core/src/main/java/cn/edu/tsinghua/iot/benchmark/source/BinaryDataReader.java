@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.source;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaUtil;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read binary data files by memory mapping, see {@link BinaryDataFormat}. Each block becomes one
+ * {@link ColumnarBatch} whose fixed size columns are bulk copied from the mapped pages. Files are
+ * mapped in windows, so files larger than 2 GB can be read as well.
+ *
+ * <p>Like WORKLOAD_RING_SIZE of generated data, the batches are taken in turn from a ring which is
+ * larger than MAX_IN_FLIGHT_PER_CLIENT, so reading a block allocates nothing after warm up. A batch
+ * returned by {@link #nextBatch()} is refilled by a later call, the caller must not keep it.
+ */
+public class BinaryDataReader extends DataReader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BinaryDataReader.class);
+  private static final MetaDataSchema metaDataSchema = MetaDataSchema.getInstance();
+  private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+  /** Size of the mapped windows, a block larger than it is mapped alone */
+  private final long windowSize;
+
+  private FileChannel channel = null;
+  private long fileSize = 0;
+
+  /** Position of next block in current file */
+  private long position = 0;
+
+  private MappedByteBuffer window = null;
+  private long windowStart = 0;
+
+  private String deviceName;
+  private Map<String, Sensor> schemaSensors;
+
+  /** Schema of the previous block, reused while the sensors of blocks are the same */
+  private DeviceSchema deviceSchema = null;
+
+  private final ColumnarBatch[] batchRing =
+      new ColumnarBatch
+          [Math.max(config.getWORKLOAD_RING_SIZE(), config.getMAX_IN_FLIGHT_PER_CLIENT() + 1)];
+
+  private int batchRingIndex = 0;
+
+  public BinaryDataReader(List<String> files) {
+    this(files, WINDOW_SIZE);
+  }
+
+  BinaryDataReader(List<String> files, long windowSize) {
+    super(files);
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  public boolean hasNextBatch() {
+    while (channel == null || position >= fileSize) {
+      if (!changeFile()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public IBatch nextBatch() {
+    try {
+      ByteBuffer block = mapBlock();
+      int rowCount = block.getInt();
+      DeviceSchema schema = readSchema(block);
+      ColumnarBatch batch = batchRing[batchRingIndex];
+      if (batch == null) {
+        batch = new ColumnarBatch(schema, rowCount);
+        batchRing[batchRingIndex] = batch;
+      } else {
+        batch.reuse(schema, rowCount);
+      }
+      batchRingIndex = (batchRingIndex + 1) % batchRing.length;
+      readLongs(block, batch.getTimestamps(), rowCount);
+      for (int column = 0; column < batch.getColumnCount(); column++) {
+        readColumn(block, batch, column, rowCount);
+      }
+      return batch;
+    } catch (IOException e) {
+      // the rest of this file can not be located, so the data set is incomplete
+      position = fileSize;
+      throw new UncheckedIOException("Failed to read file " + currentFileName, e);
+    }
+  }
+
+  /** Map the next block and move to the block after it, return the block without its size */
+  private ByteBuffer mapBlock() throws IOException {
+    ByteBuffer sizeBuffer = map(position, 4);
+    int blockSize = sizeBuffer.getInt();
+    ByteBuffer block = map(position + 4, blockSize);
+    position += 4 + blockSize;
+    return block;
+  }
+
+  /** Get a buffer of [start, start + length) in current file, remap the window if necessary */
+  private ByteBuffer map(long start, int length) throws IOException {
+    if (start + length > fileSize) {
+      throw new IOException("Incomplete block at " + start);
+    }
+    if (window == null || start < windowStart || start + length > windowStart + window.capacity()) {
+      windowStart = start;
+      long size = Math.min(fileSize - start, Math.max(windowSize, length));
+      window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+    ByteBuffer buffer = window.duplicate();
+    buffer.position((int) (start - windowStart));
+    buffer.limit((int) (start - windowStart) + length);
+    return buffer.slice();
+  }
+
+  private DeviceSchema readSchema(ByteBuffer block) {
+    int sensorNumber = block.getInt();
+    List<Sensor> sensors = new ArrayList<>(sensorNumber);
+    for (int i = 0; i < sensorNumber; i++) {
+      SensorType sensorType = SensorType.getType(block.get());
+      byte[] name = new byte[block.getShort()];
+      block.get(name);
+      String sensorName = new String(name, StandardCharsets.UTF_8);
+      Sensor sensor = schemaSensors.get(sensorName);
+      if (sensor == null || sensor.getSensorType() != sensorType) {
+        sensor = new Sensor(sensorName, sensorType);
+      }
+      sensors.add(sensor);
+    }
+    if (deviceSchema == null || !sensors.equals(deviceSchema.getSensors())) {
+      deviceSchema = new DeviceSchema(deviceName, sensors, MetaUtil.getTags(deviceName));
+    }
+    return deviceSchema;
+  }
+
+  private static void readLongs(ByteBuffer block, long[] values, int rowCount) {
+    block.asLongBuffer().get(values, 0, rowCount);
+    block.position(block.position() + 8 * rowCount);
+  }
+
+  private static void readColumn(ByteBuffer block, ColumnarBatch batch, int column, int rowCount) {
+    Object values = batch.getColumn(column);
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        for (int row = 0; row < rowCount; row++) {
+          ((boolean[]) values)[row] = block.get() != 0;
+        }
+        break;
+      case INT32:
+        block.asIntBuffer().get((int[]) values, 0, rowCount);
+        block.position(block.position() + 4 * rowCount);
+        break;
+      case INT64:
+      case TIMESTAMP:
+        readLongs(block, (long[]) values, rowCount);
+        break;
+      case FLOAT:
+        block.asFloatBuffer().get((float[]) values, 0, rowCount);
+        block.position(block.position() + 4 * rowCount);
+        break;
+      case DOUBLE:
+        block.asDoubleBuffer().get((double[]) values, 0, rowCount);
+        block.position(block.position() + 8 * rowCount);
+        break;
+      case DATE:
+        for (int row = 0; row < rowCount; row++) {
+          ((LocalDate[]) values)[row] = LocalDate.ofEpochDay(block.getInt());
+        }
+        break;
+      default:
+        for (int row = 0; row < rowCount; row++) {
+          byte[] text = new byte[block.getInt()];
+          block.get(text);
+          ((String[]) values)[row] = new String(text, StandardCharsets.UTF_8);
+        }
+    }
+  }
+
+  private boolean changeFile() {
+    closeChannel();
+    if (currentFileIndex >= files.size()) {
+      return false;
+    }
+    currentFileName = files.get(currentFileIndex++);
+    deviceName = new File(currentFileName).getParentFile().getName();
+    schemaSensors = new HashMap<>();
+    DeviceSchema originMetaSchema = metaDataSchema.getDeviceSchemaByName(deviceName);
+    if (originMetaSchema != null) {
+      for (Sensor sensor : originMetaSchema.getSensors()) {
+        schemaSensors.put(sensor.getName(), sensor);
+      }
+    }
+    deviceSchema = null;
+    try {
+      channel = FileChannel.open(Paths.get(currentFileName), StandardOpenOption.READ);
+      fileSize = channel.size();
+      ByteBuffer header = map(0, BinaryDataFormat.FILE_HEADER_SIZE);
+      if (header.getInt() != BinaryDataFormat.MAGIC) {
+        throw new IOException("Not a binary data file");
+      }
+      int version = header.getInt();
+      if (version != BinaryDataFormat.VERSION) {
+        throw new IOException("Unsupported binary data file version " + version);
+      }
+      position = BinaryDataFormat.FILE_HEADER_SIZE;
+    } catch (IOException e) {
+      LOGGER.error("Failed to read " + currentFileName, e);
+      // skip this file
+      closeChannel();
+    }
+    return true;
+  }
+
+  private void closeChannel() {
+    window = null;
+    fileSize = 0;
+    position = 0;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close " + currentFileName, e);
+      }
+      channel = null;
+    }
+  }
+}
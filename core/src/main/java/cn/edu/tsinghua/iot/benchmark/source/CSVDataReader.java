@@ -23,6 +23,7 @@ import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileCompression;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaUtil;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
@@ -39,6 +40,7 @@ public class CSVDataReader extends DataReader {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CSVDataReader.class);
   private static final MetaDataSchema metaDataSchema = MetaDataSchema.getInstance();
+  private static final int BUFFER_SIZE = 64 * 1024;
   private Iterator<String[]> iterator = null;
 
   public CSVDataReader(List<String> files) {
@@ -135,8 +137,10 @@ public class CSVDataReader extends DataReader {
             new CSVReaderBuilder(
                     new BufferedReader(
                         new InputStreamReader(
-                            new FileInputStream(new File(currentFileName)),
-                            StandardCharsets.UTF_8)))
+                            DataFileCompression.getByFileName(currentFileName)
+                                .wrap(new FileInputStream(new File(currentFileName)), BUFFER_SIZE),
+                            StandardCharsets.UTF_8),
+                        BUFFER_SIZE))
                 .build();
         iterator = csvReader.iterator();
       } catch (IOException ioException) {
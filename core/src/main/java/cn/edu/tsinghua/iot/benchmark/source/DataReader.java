@@ -35,6 +35,8 @@ public abstract class DataReader {
   public static DataReader getInstance(List<String> files) {
     if (config.isIS_COPY_MODE()) {
       return new CopyDataReader(files);
+    } else if (!files.isEmpty() && BinaryDataFormat.isBinaryFile(files.get(0))) {
+      return new BinaryDataReader(files);
     } else {
       return new CSVDataReader(files);
     }
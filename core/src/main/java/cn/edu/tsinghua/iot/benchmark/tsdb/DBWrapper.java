@@ -27,7 +27,9 @@ import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.DeviceSummary;
 import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
 import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.persistence.OperationResultRing;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.PersistenceFactory;
 import cn.edu.tsinghua.iot.benchmark.measurement.persistence.TestDataPersistence;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
@@ -62,6 +64,13 @@ public class DBWrapper implements IDatabase {
   private List<IDatabase> databases = new ArrayList<>();
   private final Measurement measurement = new Measurement();
   private TestDataPersistence recorder;
+  private OperationResultRing resultRing;
+  private OperationTracer tracer = OperationTracer.DISABLED;
+
+  private static final long NO_INTENDED_START_TIME = Long.MIN_VALUE;
+
+  /** Intended start time of the next operation in open loop mode, unit: ns */
+  private long intendedStartTime = NO_INTENDED_START_TIME;
 
   /** Use DBFactory to get database */
   public DBWrapper(List<DBConfig> dbConfigs) {
@@ -79,19 +88,49 @@ public class DBWrapper implements IDatabase {
     }
     PersistenceFactory persistenceFactory = new PersistenceFactory();
     recorder = persistenceFactory.getPersistence();
+    resultRing = recorder.getRing();
+    if (config.isENABLE_LATENCY_BREAKDOWN()) {
+      tracer = new OperationTracer(measurement);
+      for (IDatabase database : databases) {
+        if (database != null) {
+          database.setOperationTracer(tracer);
+        }
+      }
+    }
   }
 
   public Measurement getMeasurement() {
     return measurement;
   }
 
+  /**
+   * Set the intended start time of the next operation in open loop mode, its latency is measured
+   * from this time instead of the actual send time
+   *
+   * @param intendedStartTime unit: ns, as returned by System.nanoTime()
+   */
+  public void setIntendedStartTime(long intendedStartTime) {
+    this.intendedStartTime = intendedStartTime;
+  }
+
+  /** Get the start time of operation latency, the intended start time is only used once */
+  private long getOperationStartTime(Operation operation) {
+    tracer.start(operation);
+    long now = System.nanoTime();
+    if (intendedStartTime != NO_INTENDED_START_TIME) {
+      now = Math.min(now, intendedStartTime);
+      intendedStartTime = NO_INTENDED_START_TIME;
+    }
+    return now;
+  }
+
   @Override
   public Status insertOneBatch(IBatch batch) throws DBConnectException {
     Status status = null;
     Operation operation = Operation.INGESTION;
     try {
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.insertOneBatchWithCheck(batch);
         status = measureOneBatch(status, operation, batch, start);
       }
@@ -101,6 +140,7 @@ public class DBWrapper implements IDatabase {
       measurement.addFailOperationNum(operation);
       measurement.addFailPointNum(operation, batch.pointNum());
       recorder.saveOperationResultAsync(
+          resultRing,
           operation.getName(),
           0,
           batch.pointNum(),
@@ -134,6 +174,7 @@ public class DBWrapper implements IDatabase {
       measurement.addFailOperationNum(operation);
       measurement.addFailPointNum(operation, batch.pointNum());
       recorder.saveOperationResultAsync(
+          resultRing,
           operation.getName(),
           0,
           batch.pointNum(),
@@ -156,7 +197,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.preciseQuery(preciseQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -181,7 +222,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.rangeQuery(rangeQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -206,7 +247,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.valueRangeQuery(valueRangeQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -231,7 +272,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.aggRangeQuery(aggRangeQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -256,7 +297,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.aggValueQuery(aggValueQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -281,7 +322,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.aggRangeValueQuery(aggRangeValueQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -306,7 +347,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.groupByQuery(groupByQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -331,7 +372,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.groupByQueryOrderByDesc(groupByQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -356,7 +397,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.latestPointQuery(latestPointQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -382,7 +423,7 @@ public class DBWrapper implements IDatabase {
       rangeQuery.setDesc(true);
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.rangeQueryOrderByDesc(rangeQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -408,7 +449,7 @@ public class DBWrapper implements IDatabase {
       valueRangeQuery.setDesc(true);
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.valueRangeQueryOrderByDesc(valueRangeQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -431,7 +472,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.verificationQuery(verificationQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -453,7 +494,7 @@ public class DBWrapper implements IDatabase {
     try {
       List<Status> statuses = new ArrayList<>();
       for (IDatabase database : databases) {
-        long start = System.nanoTime();
+        long start = getOperationStartTime(operation);
         status = database.deviceQuery(deviceQuery);
         long end = System.nanoTime();
         status.setTimeCost(end - start);
@@ -565,12 +606,10 @@ public class DBWrapper implements IDatabase {
             operation.getName());
         latencyInMillis = 0;
       }
-      measurement.addOperationLatency(operation, latencyInMillis);
-      measurement.addOkOperationNum(operation);
-      measurement.addOkPointNum(operation, okPointNum);
+      measurement.addOkOperation(operation, latencyInMillis, okPointNum);
     }
     recorder.saveOperationResultAsync(
-        operation.getName(), okPointNum, 0, latencyInMillis, "", device);
+        resultRing, operation.getName(), okPointNum, 0, latencyInMillis, "", device);
   }
 
   private int doPointComparison(List<Status> statuses, DeviceQuery deviceQuery) {
@@ -747,7 +786,7 @@ public class DBWrapper implements IDatabase {
       }
       // currently, we do not have expected result point number for query
       recorder.saveOperationResultAsync(
-          operation.getName(), 0, 0, 0, status.getException().toString(), device);
+          resultRing, operation.getName(), 0, 0, 0, status.getException().toString(), device);
     }
   }
 
@@ -761,7 +800,8 @@ public class DBWrapper implements IDatabase {
       measurement.addFailOperationNum(operation);
       // currently, we do not have expected result point number for query
       LOGGER.error(ERROR_LOG, operation, e);
-      recorder.saveOperationResultAsync(operation.getName(), 0, 0, 0, e.toString(), device);
+      recorder.saveOperationResultAsync(
+          resultRing, operation.getName(), 0, 0, 0, e.toString(), device);
     }
   }
 }
@@ -24,6 +24,7 @@ import cn.edu.tsinghua.iot.benchmark.entity.DeviceSummary;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
 import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
 import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
@@ -82,6 +83,13 @@ public interface IDatabase {
     return status;
   }
 
+  /**
+   * Set the tracer of this DB instance when ENABLE_LATENCY_BREAKDOWN is set. A DB which supports
+   * latency breakdown keeps it and calls {@link OperationTracer#lap} at the end of each span of
+   * insertion and query, others ignore it.
+   */
+  default void setOperationTracer(OperationTracer tracer) {}
+
   /**
    * Query data of one or multiple sensors at a precise timestamp. e.g. select v1... from data where
    * time = ? and device in ?
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.enums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** How the TDengine 3 adapter writes a batch */
+public enum TDengineInsertMode {
+  /** One INSERT statement text which covers all sub-tables of the batch */
+  SQL,
+  /**
+   * Parameter binding (STMT) of the native driver, columns of each sub-table are bound as arrays
+   */
+  STMT;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TDengineInsertMode.class);
+
+  public static TDengineInsertMode getTDengineInsertMode(String name) {
+    for (TDengineInsertMode insertMode : TDengineInsertMode.values()) {
+      if (insertMode.name().equalsIgnoreCase(name)) {
+        return insertMode;
+      }
+    }
+    LOGGER.warn("Unknown TDengine insert mode: " + name + ", use SQL.");
+    return TDengineInsertMode.SQL;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.enums;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** How the TimescaleDB adapters write a batch */
+public enum TimescaleDBInsertMode {
+  /** One INSERT statement text per row, sent by Statement.addBatch */
+  STATEMENT,
+  /** A multi-row INSERT PreparedStatement reused for each column layout, values are typed binds */
+  PREPARED_STATEMENT,
+  /** COPY FROM STDIN in binary format, encoded straight from the batch */
+  COPY;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TimescaleDBInsertMode.class);
+
+  public static TimescaleDBInsertMode getTimescaleDBInsertMode(String name) {
+    for (TimescaleDBInsertMode insertMode : TimescaleDBInsertMode.values()) {
+      if (insertMode.name().equalsIgnoreCase(name)) {
+        return insertMode;
+      }
+    }
+    LOGGER.warn("Unknown TimescaleDB insert mode: " + name + ", use STATEMENT.");
+    return TimescaleDBInsertMode.STATEMENT;
+  }
+
+  @Override
+  public String toString() {
+    return name();
+  }
+}
@@ -22,6 +22,7 @@ package cn.edu.tsinghua.iot.benchmark.tsdb.fakedb;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
@@ -37,6 +38,10 @@ import java.util.List;
 
 public class FakeDB implements IDatabase {
 
+  public FakeDB(DBConfig dbConfig) {
+    // empty constructor
+  }
+
   @Override
   public void init() throws TsdbException {}
 
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.http;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keep-alive HTTP transport shared by all clients of the HTTP based databases. Connections are
+ * pooled, up to HTTP_CLIENT_POOL_SIZE per host, so that a request reuses an idle connection instead
+ * of opening a new TCP connection. Request bodies are sent from the buffer of the caller without
+ * copying, and gzipped if HTTP_ENABLE_GZIP is true. Every database instance opens the transport in
+ * init and releases it in close, the metrics of each host are logged once the last one is released.
+ *
+ * <p>Each request blocks its caller until the response is read, HTTP/1.1 pipelining is not used.
+ * Several writes of a client are in flight at once when MAX_IN_FLIGHT_PER_CLIENT is larger than 1,
+ * as the ingestion pipeline then sends each of them from its own thread on its own pooled
+ * connection.
+ */
+public class HttpTransport {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HttpTransport.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  /** Content type of gzipped bodies of KairosDB, which are sent without Content-Encoding */
+  public static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+  /** Times a request is resent when the server closed its pooled connection without responding */
+  private static final int STALE_CONNECTION_RETRY_NUM = 1;
+
+  private static final HttpTransport INSTANCE = new HttpTransport();
+
+  /** Metrics of each host:port */
+  private final Map<String, HostMetrics> hostMetrics = new ConcurrentHashMap<>();
+
+  /** Number of database instances which opened the transport and have not released it yet */
+  private final AtomicInteger openNum = new AtomicInteger(0);
+
+  private final PoolingHttpClientConnectionManager manager;
+  private final CloseableHttpClient client;
+  private final RequestConfig writeConfig;
+  private final RequestConfig readConfig;
+  private final ThreadLocal<ExposedByteArrayOutputStream> gzipBuffers =
+      ThreadLocal.withInitial(() -> new ExposedByteArrayOutputStream(GZIP_BUFFER_SIZE));
+
+  private HttpTransport() {
+    manager = new PoolingHttpClientConnectionManager(this::createConnection);
+    // the pool size limits each host, the total allows every host of the tested databases to reach
+    // it
+    manager.setDefaultMaxPerRoute(config.getHTTP_CLIENT_POOL_SIZE());
+    manager.setMaxTotal(config.getHTTP_CLIENT_POOL_SIZE() * getHostNum());
+    client =
+        HttpClients.custom()
+            .setConnectionManager(manager)
+            .setUserAgent("iot-benchmark")
+            .disableCookieManagement()
+            .setRetryHandler(HttpTransport::retryRequest)
+            .build();
+    writeConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(config.getWRITE_OPERATION_TIMEOUT_MS())
+            .setConnectionRequestTimeout(config.getWRITE_OPERATION_TIMEOUT_MS())
+            .setSocketTimeout(config.getWRITE_OPERATION_TIMEOUT_MS())
+            .build();
+    readConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(config.getREAD_OPERATION_TIMEOUT_MS())
+            .setConnectionRequestTimeout(config.getREAD_OPERATION_TIMEOUT_MS())
+            .setSocketTimeout(config.getREAD_OPERATION_TIMEOUT_MS())
+            .build();
+  }
+
+  /** Number of hosts which are requested, including those of the other database of double write */
+  private static int getHostNum() {
+    int hostNum = config.getDbConfig().getHOST().size();
+    if (config.isIS_DOUBLE_WRITE()) {
+      hostNum += config.getANOTHER_DBConfig().getHOST().size();
+    }
+    return Math.max(hostNum, 1);
+  }
+
+  /** Open the transport for one database instance, which must release it when closed */
+  public static HttpTransport open() {
+    INSTANCE.openNum.incrementAndGet();
+    return INSTANCE;
+  }
+
+  /** Release the transport, log and reset the metrics if no database instance is using it */
+  public void release() {
+    if (openNum.decrementAndGet() == 0) {
+      logMetrics();
+      manager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Send a GET request with the read timeout, return the body of the response */
+  public String get(String url) throws IOException {
+    return execute(new HttpGet(url), readConfig, 0);
+  }
+
+  /** Send a DELETE request with the write timeout, return the body of the response */
+  public String delete(String url) throws IOException {
+    return execute(new HttpDelete(url), writeConfig, 0);
+  }
+
+  /** Send a POST request of a query with the read timeout, the body is never gzipped */
+  public String query(String url, String body, String contentType) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    HttpPost post = new HttpPost(url);
+    ByteArrayEntity entity = new ByteArrayEntity(bytes);
+    entity.setContentType(contentType);
+    post.setEntity(entity);
+    return execute(post, readConfig, bytes.length);
+  }
+
+  /** Send a POST request of a write with the write timeout, return the body of the response */
+  public String write(String url, String body, String contentType, Header... headers)
+      throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    return write(url, bytes, bytes.length, contentType, headers);
+  }
+
+  /**
+   * Send a POST request of a write with the write timeout. The body is sent from the buffer
+   * directly, so the caller must not change it until this method returns.
+   *
+   * @param url url of the write endpoint
+   * @param body buffer whose first length bytes are the body
+   * @param length length of the body
+   * @param contentType content type of the body
+   * @param headers other headers, e.g. Authorization
+   * @return the body of the response
+   * @throws IOException if the request fails or the response is not 2xx
+   */
+  public String write(String url, byte[] body, int length, String contentType, Header... headers)
+      throws IOException {
+    HttpPost post = new HttpPost(url);
+    for (Header header : headers) {
+      post.addHeader(header);
+    }
+    if (config.isHTTP_ENABLE_GZIP()) {
+      ExposedByteArrayOutputStream gzipBuffer = gzipBuffers.get();
+      gzipBuffer.reset();
+      try (GZIPOutputStream outputStream = new GZIPOutputStream(gzipBuffer, GZIP_BUFFER_SIZE)) {
+        outputStream.write(body, 0, length);
+      }
+      body = gzipBuffer.getBuffer();
+      length = gzipBuffer.size();
+      if (!GZIP_CONTENT_TYPE.equals(contentType)) {
+        post.addHeader("Content-Encoding", "gzip");
+      }
+    }
+    ByteArrayEntity entity = new ByteArrayEntity(body, 0, length);
+    entity.setContentType(contentType);
+    post.setEntity(entity);
+    return execute(post, writeConfig, length);
+  }
+
+  private String execute(HttpRequestBase request, RequestConfig requestConfig, long sentBytes)
+      throws IOException {
+    request.setConfig(requestConfig);
+    HttpHost host = URIUtils.extractHost(request.getURI());
+    HostMetrics metrics = getMetrics(host == null ? "unknown" : getHostKey(host));
+    metrics.requestNum.increment();
+    metrics.sentBytes.add(sentBytes);
+    try (CloseableHttpResponse response = client.execute(request)) {
+      // consume the whole entity so that the connection goes back to the pool
+      HttpEntity entity = response.getEntity();
+      byte[] content = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+      metrics.receivedBytes.add(content.length);
+      String result = new String(content, StandardCharsets.UTF_8);
+      int statusCode = response.getStatusLine().getStatusCode();
+      if (statusCode < 200 || statusCode >= 300) {
+        throw new IOException(
+            "HTTP " + statusCode + " from " + request.getURI() + ", response: " + result);
+      }
+      return result;
+    } catch (IOException e) {
+      metrics.failedNum.increment();
+      throw e;
+    }
+  }
+
+  /**
+   * Resend a request if the server closed the kept-alive connection without responding, e.g. at its
+   * idle timeout, which the pool only checks for connections idle for more than 2 seconds. Writes
+   * are resent too, as writing the same points again does not change the data.
+   */
+  private static boolean retryRequest(
+      IOException exception, int executionCount, HttpContext context) {
+    return executionCount <= STALE_CONNECTION_RETRY_NUM
+        && exception instanceof NoHttpResponseException;
+  }
+
+  private ManagedHttpClientConnection createConnection(
+      HttpRoute route, ConnectionConfig connectionConfig) {
+    getMetrics(getHostKey(route.getTargetHost())).connectionNum.increment();
+    return ManagedHttpClientConnectionFactory.INSTANCE.create(route, connectionConfig);
+  }
+
+  private HostMetrics getMetrics(String host) {
+    return hostMetrics.computeIfAbsent(host, k -> new HostMetrics());
+  }
+
+  private static String getHostKey(HttpHost host) {
+    int port = host.getPort();
+    if (port < 0) {
+      port = "https".equalsIgnoreCase(host.getSchemeName()) ? 443 : 80;
+    }
+    return host.getHostName() + ":" + port;
+  }
+
+  private void logMetrics() {
+    Map<String, HostMetrics> sorted = new TreeMap<>(hostMetrics);
+    hostMetrics.clear();
+    for (Map.Entry<String, HostMetrics> entry : sorted.entrySet()) {
+      HostMetrics metrics = entry.getValue();
+      LOGGER.info(
+          "HTTP transport of {}: {} requests, {} failed, {} connections opened, {} bytes sent, {} bytes received",
+          entry.getKey(),
+          metrics.requestNum.sum(),
+          metrics.failedNum.sum(),
+          metrics.connectionNum.sum(),
+          metrics.sentBytes.sum(),
+          metrics.receivedBytes.sum());
+    }
+    if (!sorted.isEmpty()) {
+      LOGGER.info("HTTP connection pool: {}", manager.getTotalStats());
+    }
+  }
+
+  /** Counters of one host, updated by all clients concurrently */
+  private static class HostMetrics {
+    private final LongAdder requestNum = new LongAdder();
+    private final LongAdder failedNum = new LongAdder();
+    private final LongAdder connectionNum = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+  }
+
+  private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    ExposedByteArrayOutputStream(int size) {
+      super(size);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
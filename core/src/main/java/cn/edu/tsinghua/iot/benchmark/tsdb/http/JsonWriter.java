@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.http;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Write JSON straight into a byte buffer which is reused by every request of one database instance,
+ * so that encoding a batch allocates neither objects for the points nor copies of the payload. The
+ * buffer is sent by {@link HttpTransport#write(String, byte[], int, String,
+ * org.apache.http.Header...)} as it is. Only the scalars are written here, the structure is left to
+ * the caller, which usually writes the constant parts from bytes built once by {@link
+ * #toBytes(String)}.
+ */
+public class JsonWriter {
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private byte[] buffer;
+  private int size = 0;
+
+  public JsonWriter() {
+    this(INITIAL_CAPACITY);
+  }
+
+  private JsonWriter(int capacity) {
+    buffer = new byte[Math.max(capacity, 16)];
+  }
+
+  /** Drop the content, the buffer is kept at its current capacity */
+  public void reset() {
+    size = 0;
+  }
+
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Roll back to a former size, e.g. to drop a trailing separator */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  /** Write bytes which are valid JSON already, e.g. built by {@link #toBytes(String)} */
+  public void writeRaw(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  public void writeByte(char value) {
+    ensureCapacity(1);
+    buffer[size++] = (byte) value;
+  }
+
+  public void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii(Long.toString(value));
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      buffer[size++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long remain = value / 10; remain > 0; remain /= 10) {
+      digits++;
+    }
+    for (int i = size + digits - 1; i >= size; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    size += digits;
+  }
+
+  /** Write a double, NaN and infinity are written as null as JSON has no literal of them */
+  public void writeDouble(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      writeAscii("null");
+    } else {
+      writeAscii(Double.toString(value));
+    }
+  }
+
+  /** Write a float with the digits of float rather than those of the widened double */
+  public void writeFloat(float value) {
+    if (Float.isNaN(value) || Float.isInfinite(value)) {
+      writeAscii("null");
+    } else {
+      writeAscii(Float.toString(value));
+    }
+  }
+
+  /** Write a quoted and escaped string */
+  public void writeString(String value) {
+    writeByte('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        // rare in benchmark data, so the rest is escaped by the slow path
+        writeEscapedUtf8(value.substring(i));
+        break;
+      }
+      writeEscapedAscii(c);
+    }
+    writeByte('"');
+  }
+
+  /** Write a boxed value of a record, which is a number, a boolean, a string or null */
+  public void writeValue(Object value) {
+    if (value == null) {
+      writeAscii("null");
+    } else if (value instanceof Double) {
+      writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      writeFloat((Float) value);
+    } else if (value instanceof Long || value instanceof Integer) {
+      writeLong(((Number) value).longValue());
+    } else if (value instanceof Number || value instanceof Boolean) {
+      writeAscii(value.toString());
+    } else {
+      writeString(value.toString());
+    }
+  }
+
+  /** Write one value of a columnar batch without boxing it */
+  public void writeValue(ColumnarBatch batch, int column, int row) {
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        writeAscii(((boolean[]) batch.getColumn(column))[row] ? "true" : "false");
+        break;
+      case INT32:
+        writeLong(((int[]) batch.getColumn(column))[row]);
+        break;
+      case INT64:
+      case TIMESTAMP:
+        writeLong(((long[]) batch.getColumn(column))[row]);
+        break;
+      case FLOAT:
+        writeFloat(((float[]) batch.getColumn(column))[row]);
+        break;
+      case DOUBLE:
+        writeDouble(((double[]) batch.getColumn(column))[row]);
+        break;
+      default:
+        writeValue(batch.getValue(column, row));
+        break;
+    }
+  }
+
+  /** Encode a string as a JSON string once, for keys and values repeated by every point */
+  public static byte[] toBytes(String value) {
+    JsonWriter writer = new JsonWriter(value.length() + 2);
+    writer.writeString(value);
+    return Arrays.copyOf(writer.buffer, writer.size);
+  }
+
+  private void writeEscapedUtf8(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        writeEscapedAscii(c);
+      } else {
+        int end = i + 1;
+        while (end < value.length() && value.charAt(end) >= 0x80) {
+          end++;
+        }
+        writeRaw(value.substring(i, end).getBytes(StandardCharsets.UTF_8));
+        i = end - 1;
+      }
+    }
+  }
+
+  private void writeEscapedAscii(char c) {
+    ensureCapacity(6);
+    if (c == '"' || c == '\\') {
+      buffer[size++] = '\\';
+      buffer[size++] = (byte) c;
+    } else if (c >= 0x20) {
+      buffer[size++] = (byte) c;
+    } else if (c == '\n') {
+      buffer[size++] = '\\';
+      buffer[size++] = 'n';
+    } else if (c == '\r') {
+      buffer[size++] = '\\';
+      buffer[size++] = 'r';
+    } else if (c == '\t') {
+      buffer[size++] = '\\';
+      buffer[size++] = 't';
+    } else {
+      buffer[size++] = '\\';
+      buffer[size++] = 'u';
+      buffer[size++] = '0';
+      buffer[size++] = '0';
+      buffer[size++] = HEX[c >> 4];
+      buffer[size++] = HEX[c & 0xf];
+    }
+  }
+
+  private void writeAscii(String value) {
+    int length = value.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      buffer[size++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + length));
+    }
+  }
+}
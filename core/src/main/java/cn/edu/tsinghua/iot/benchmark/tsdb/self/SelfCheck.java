@@ -19,8 +19,7 @@
 
 package cn.edu.tsinghua.iot.benchmark.tsdb.self;
 
-import cn.edu.tsinghua.iot.benchmark.conf.Config;
-import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
@@ -32,31 +31,54 @@ import cn.edu.tsinghua.iot.benchmark.workload.query.impl.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process sink which counts the points and out-of-order points of each device. All clients (and
+ * all in-flight writes of a client) have their own instance, so the statistics are shared by all
+ * instances and logged once the last opened instance is closed.
+ */
 public class SelfCheck implements IDatabase {
-  private static final Config config = ConfigDescriptor.getInstance().getConfig();
   private static final Logger logger = LoggerFactory.getLogger(SelfCheck.class);
-  private long loop = 0;
-  private final Map<String, Long> deviceNameToMaxTime = new HashMap<>();
-  private final Map<String, Long> deviceNameToTotalPoints = new HashMap<>();
-  private final Map<String, Long> deviceNameToOutOfOrderPoints = new HashMap<>();
+
+  /** Statistics of all devices written by any instance */
+  private static final Map<String, DeviceStatistics> deviceStatistics = new ConcurrentHashMap<>();
+
+  /** Number of instances which are initialized and not closed yet */
+  private static final AtomicInteger openNum = new AtomicInteger(0);
+
+  private boolean isOpen = false;
 
   public SelfCheck(DBConfig dbConfig) {
     // empty constructor
   }
 
   @Override
-  public void init() throws TsdbException {}
+  public void init() throws TsdbException {
+    if (!isOpen) {
+      isOpen = true;
+      openNum.incrementAndGet();
+    }
+  }
 
   @Override
-  public void cleanup() throws TsdbException {}
+  public void cleanup() throws TsdbException {
+    deviceStatistics.clear();
+  }
 
   @Override
-  public void close() throws TsdbException {}
+  public void close() throws TsdbException {
+    if (isOpen) {
+      isOpen = false;
+      if (openNum.decrementAndGet() == 0) {
+        logStatistics();
+      }
+    }
+  }
 
   @Override
   public Double registerSchema(List<DeviceSchema> schemaList) throws TsdbException {
@@ -65,89 +87,117 @@ public class SelfCheck implements IDatabase {
 
   @Override
   public Status insertOneBatch(IBatch batch) {
-    String deviceName = batch.getDeviceSchema().getDevice();
-    long maxTime = deviceNameToMaxTime.getOrDefault(deviceName, 0L);
-    long totalPoint = deviceNameToTotalPoints.getOrDefault(deviceName, 0L);
-    long outOfOrderPoint = deviceNameToOutOfOrderPoints.getOrDefault(deviceName, 0L);
-    for (Record record : batch.getRecords()) {
-      long point = record.getRecordDataValue().size();
-      totalPoint += point;
-      if (record.getTimestamp() >= maxTime) {
-        // in order
-        maxTime = record.getTimestamp();
+    while (true) {
+      DeviceStatistics statistics =
+          deviceStatistics.computeIfAbsent(
+              batch.getDeviceSchema().getDevice(), k -> new DeviceStatistics());
+      if (batch instanceof ColumnarBatch) {
+        ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+        int rowCount = columnarBatch.getRowCount();
+        long[] timestamps = columnarBatch.getTimestamps();
+        long point = rowCount == 0 ? 0 : columnarBatch.pointNum() / rowCount;
+        synchronized (statistics) {
+          for (int row = 0; row < rowCount; row++) {
+            statistics.add(timestamps[row], point);
+          }
+        }
       } else {
-        // out of order
-        outOfOrderPoint += record.getRecordDataValue().size();
+        synchronized (statistics) {
+          for (Record record : batch.getRecords()) {
+            statistics.add(record.getTimestamp(), record.getRecordDataValue().size());
+          }
+        }
+      }
+      if (!batch.hasNext()) {
+        break;
       }
+      batch.next();
     }
-    deviceNameToMaxTime.put(deviceName, maxTime);
-    deviceNameToTotalPoints.put(deviceName, totalPoint);
-    deviceNameToOutOfOrderPoints.put(deviceName, outOfOrderPoint);
-    return check(new Status(true));
-  }
-
-  private Status check(Status status) {
-    loop++;
-    if (loop == config.getLOOP()) {
-      Set<String> deviceNames = deviceNameToMaxTime.keySet();
-      for (String deviceName : deviceNames) {
-        long totalPoint = deviceNameToTotalPoints.get(deviceName);
-        long outOfOrderPoint = deviceNameToOutOfOrderPoints.get(deviceName);
+    return new Status(true);
+  }
+
+  /** Log statistics of all devices, then drop them so that the next test starts from zero */
+  private static void logStatistics() {
+    Map<String, DeviceStatistics> sorted = new TreeMap<>(deviceStatistics);
+    deviceStatistics.clear();
+    for (Map.Entry<String, DeviceStatistics> entry : sorted.entrySet()) {
+      DeviceStatistics statistics = entry.getValue();
+      synchronized (statistics) {
         logger.info(
             "Device: {}, total point: {}, out of order point: {}, out of order point ratio: {} %",
-            deviceName, totalPoint, outOfOrderPoint, outOfOrderPoint * 100.0 / totalPoint);
+            entry.getKey(),
+            statistics.totalPoint,
+            statistics.outOfOrderPoint,
+            statistics.outOfOrderPoint * 100.0 / statistics.totalPoint);
+      }
+    }
+  }
+
+  /** Points of one device, guarded by the lock of itself */
+  private static class DeviceStatistics {
+    private long maxTime = 0;
+    private long totalPoint = 0;
+    private long outOfOrderPoint = 0;
+
+    private void add(long timestamp, long point) {
+      totalPoint += point;
+      if (timestamp >= maxTime) {
+        // in order
+        maxTime = timestamp;
+      } else {
+        // out of order
+        outOfOrderPoint += point;
       }
     }
-    return status;
   }
 
   @Override
   public Status preciseQuery(PreciseQuery preciseQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status rangeQuery(RangeQuery rangeQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status valueRangeQuery(ValueRangeQuery valueRangeQuery) {
-    return check(new Status(true, 0));
+    return new Status(true, 0);
   }
 
   @Override
   public Status aggRangeQuery(AggRangeQuery aggRangeQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status aggValueQuery(AggValueQuery aggValueQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status aggRangeValueQuery(AggRangeValueQuery aggRangeValueQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status groupByQuery(GroupByQuery groupByQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status latestPointQuery(LatestPointQuery latestPointQuery) {
-    return check(new Status(true, null, null));
+    return new Status(true, null, null);
   }
 
   @Override
   public Status rangeQueryOrderByDesc(RangeQuery rangeQuery) {
-    return check(new Status(true));
+    return new Status(true);
   }
 
   @Override
   public Status valueRangeQueryOrderByDesc(ValueRangeQuery valueRangeQuery) {
-    return check(new Status(true));
+    return new Status(true);
   }
 }
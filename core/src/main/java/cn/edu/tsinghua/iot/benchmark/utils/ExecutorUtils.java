@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.utils;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create the executors which run clients and the jobs of database adapters. When
+ * ENABLE_VIRTUAL_THREAD is true, every task runs on its own virtual thread, otherwise on platform
+ * threads of a fixed pool.
+ */
+public class ExecutorUtils {
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private ExecutorUtils() {}
+
+  public static boolean isVirtualThreadEnabled() {
+    return config.isENABLE_VIRTUAL_THREAD() && VirtualThreads.isSupported();
+  }
+
+  /** Executor of schema clients or data clients */
+  public static ExecutorService newClientExecutor(ThreadName threadName, int clientNumber) {
+    if (isVirtualThreadEnabled()) {
+      return VirtualThreads.newThreadPerTaskExecutor(threadName.getName());
+    }
+    return Executors.newFixedThreadPool(clientNumber, new NamedThreadFactory(threadName.getName()));
+  }
+
+  /**
+   * Executor which runs the jobs of one client, e.g. operations with timeout. With virtual threads
+   * it holds no thread when idle, so no OS thread is kept per client.
+   */
+  public static ExecutorService newJobExecutor(ThreadName threadName) {
+    if (isVirtualThreadEnabled()) {
+      return VirtualThreads.newThreadPerTaskExecutor(threadName.getName());
+    }
+    return Executors.newSingleThreadExecutor(new NamedThreadFactory(threadName.getName()));
+  }
+
+  /**
+   * Executor which runs up to jobNumber jobs of one client at once, e.g. its writes in flight. Its
+   * platform threads are only started when needed and end when idle for a minute.
+   */
+  public static ExecutorService newJobExecutor(ThreadName threadName, int jobNumber) {
+    if (isVirtualThreadEnabled()) {
+      return VirtualThreads.newThreadPerTaskExecutor(threadName.getName());
+    }
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            jobNumber,
+            jobNumber,
+            1,
+            TimeUnit.MINUTES,
+            new LinkedBlockingQueue<>(),
+            new NamedThreadFactory(threadName.getName()));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Listen to the jdk.VirtualThreadPinned events of JFR while benchmark runs on virtual threads. A
+ * virtual thread is pinned when it blocks inside synchronized code or a native frame, then it holds
+ * its carrier thread, which is typical for JDBC drivers. Pinned events are counted by the benchmark
+ * frame nearest to the top of the stack, so the report shows which adapter method blocks.
+ *
+ * <p>JFR streaming is accessed by reflection, the monitor does nothing when it is not available.
+ */
+public class PinnedThreadMonitor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+  private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  private static final String BENCHMARK_PACKAGE = "cn.edu.tsinghua.iot.benchmark";
+  private static final String UNKNOWN_FRAME = "unknown";
+
+  private final Map<String, LongAdder> pinnedCount = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> pinnedNanos = new ConcurrentHashMap<>();
+  private AutoCloseable recordingStream;
+
+  /** Start listening, return false if JFR streaming is not supported by the running JVM */
+  public boolean start() {
+    try {
+      Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+      Object stream = streamClass.getConstructor().newInstance();
+      Object settings = streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+      // the settings object is an internal subclass, so look up the method of the public class
+      Class.forName("jdk.jfr.EventSettings").getMethod("withStackTrace").invoke(settings);
+      streamClass
+          .getMethod("onEvent", String.class, Consumer.class)
+          .invoke(stream, PINNED_EVENT, (Consumer<Object>) this::onPinned);
+      streamClass.getMethod("startAsync").invoke(stream);
+      recordingStream = (AutoCloseable) stream;
+      return true;
+    } catch (Exception e) {
+      LOGGER.warn("Failed to listen to pinned virtual threads because {}", e.toString());
+      return false;
+    }
+  }
+
+  private void onPinned(Object event) {
+    String frame = UNKNOWN_FRAME;
+    long nanos = 0;
+    try {
+      Duration duration = (Duration) invoke(event, "getDuration");
+      nanos = duration.toNanos();
+      frame = findBenchmarkFrame(invoke(event, "getStackTrace"));
+    } catch (Exception e) {
+      LOGGER.debug("Failed to parse pinned event", e);
+    }
+    pinnedCount.computeIfAbsent(frame, k -> new LongAdder()).increment();
+    pinnedNanos.computeIfAbsent(frame, k -> new LongAdder()).add(nanos);
+  }
+
+  private static String findBenchmarkFrame(Object stackTrace) throws Exception {
+    if (stackTrace == null) {
+      return UNKNOWN_FRAME;
+    }
+    for (Object frame : (List<?>) invoke(stackTrace, "getFrames")) {
+      Object method = invoke(frame, "getMethod");
+      String className = (String) invoke(invoke(method, "getType"), "getName");
+      if (className.startsWith(BENCHMARK_PACKAGE)) {
+        return className + "." + invoke(method, "getName");
+      }
+    }
+    return UNKNOWN_FRAME;
+  }
+
+  private static Object invoke(Object target, String methodName) throws Exception {
+    Method method = target.getClass().getMethod(methodName);
+    return method.invoke(target);
+  }
+
+  /** Stop listening and log where virtual threads were pinned */
+  public void stop() {
+    if (recordingStream == null) {
+      return;
+    }
+    try {
+      recordingStream.close();
+    } catch (Exception e) {
+      LOGGER.warn("Failed to close JFR recording stream", e);
+    }
+    recordingStream = null;
+    if (pinnedCount.isEmpty()) {
+      LOGGER.info("No virtual thread was pinned to its carrier thread.");
+      return;
+    }
+    StringBuilder report = new StringBuilder("Virtual threads pinned to carrier threads:");
+    pinnedCount.entrySet().stream()
+        .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+        .forEach(
+            entry ->
+                report
+                    .append(System.lineSeparator())
+                    .append(
+                        String.format(
+                            "%-80s count: %-10d total: %.2f ms",
+                            entry.getKey(),
+                            entry.getValue().sum(),
+                            pinnedNanos.get(entry.getKey()).sum() / 1000000.0d)));
+    LOGGER.warn(report.toString());
+  }
+}
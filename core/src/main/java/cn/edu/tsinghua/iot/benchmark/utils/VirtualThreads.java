@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21+) by reflection, so that benchmark still compiles and runs on
+ * Java 8. {@link #isSupported()} is false when the running JVM has no virtual threads.
+ */
+public class VirtualThreads {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+  /** Thread.ofVirtual() */
+  private static final Method OF_VIRTUAL;
+
+  /** Thread.Builder.name(String, long) */
+  private static final Method BUILDER_NAME;
+
+  /** Thread.Builder.factory() */
+  private static final Method BUILDER_FACTORY;
+
+  /** Executors.newThreadPerTaskExecutor(ThreadFactory) */
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      // virtual threads are a preview feature before Java 21, it throws if preview is disabled
+      ofVirtual.invoke(null);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      ofVirtual = null;
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      LOGGER.debug("Virtual threads are not available", e);
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {}
+
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a factory of virtual threads named like {@link NamedThreadFactory}, i.e.
+   * poolName-thread-1, poolName-thread-2...
+   */
+  public static ThreadFactory newThreadFactory(String poolName) {
+    checkSupported();
+    try {
+      Object builder = OF_VIRTUAL.invoke(null);
+      builder = BUILDER_NAME.invoke(builder, poolName + "-thread-", 1L);
+      return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Failed to create virtual thread factory", e);
+    }
+  }
+
+  /** Create an executor which starts a new virtual thread for each task */
+  public static ExecutorService newThreadPerTaskExecutor(String poolName) {
+    ThreadFactory threadFactory = newThreadFactory(poolName);
+    try {
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Failed to create virtual thread executor", e);
+    }
+  }
+
+  private static void checkSupported() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+    }
+  }
+}
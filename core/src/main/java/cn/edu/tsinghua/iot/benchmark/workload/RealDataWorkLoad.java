@@ -19,6 +19,7 @@
 
 package cn.edu.tsinghua.iot.benchmark.workload;
 
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
@@ -26,6 +27,7 @@ import cn.edu.tsinghua.iot.benchmark.source.DataReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.UncheckedIOException;
 import java.util.List;
 
 public class RealDataWorkLoad extends DataWorkLoad {
@@ -42,8 +44,18 @@ public class RealDataWorkLoad extends DataWorkLoad {
   @Override
   public IBatch getOneBatch() throws WorkloadException {
     if (dataReader.hasNextBatch()) {
-      IBatch batch = dataReader.nextBatch();
-      if (config.isIS_RECENT_QUERY()) {
+      IBatch batch;
+      try {
+        batch = dataReader.nextBatch();
+      } catch (UncheckedIOException e) {
+        throw new WorkloadException(e.getMessage(), e.getCause());
+      }
+      if (config.isIS_RECENT_QUERY() && batch instanceof ColumnarBatch) {
+        ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+        for (int row = 0; row < columnarBatch.getRowCount(); row++) {
+          currentTimestamp = Math.max(currentTimestamp, columnarBatch.getTimestamps()[row]);
+        }
+      } else if (config.isIS_RECENT_QUERY()) {
         for (Record record : batch.getRecords()) {
           currentTimestamp = Math.max(currentTimestamp, record.getTimestamp());
         }
@@ -30,25 +30,60 @@ import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Data workload shared by all clients when IS_CLIENT_BIND is false. The n-th device loop of the
+ * whole test always writes the same device and timestamps, no matter which client gets it.
+ *
+ * <p>A client announces how many batches it is going to get by {@link #prepareBatches(long)}, then
+ * the device loops of these batches are leased to its thread with one atomic operation, and the
+ * batches are generated from the lease without touching shared state. A client which stops before
+ * getting all of them hands the rest back by {@link #releaseBatches()}, and the next lease of any
+ * client takes the loops handed back first. So the loops written by all clients are the same as
+ * getting them one by one from a single counter, except for the loops handed back after all other
+ * clients stopped, which are reported by {@link #getUnusedLoopNum()}.
+ */
 public class SingletonWorkDataWorkLoad extends GenerateDataWorkLoad {
   private static final Logger LOGGER = LoggerFactory.getLogger(SingletonWorkDataWorkLoad.class);
-  private static final List<Sensor> SENSORS = Collections.synchronizedList(config.getSENSORS());
+  private static final List<Sensor> SENSORS = Collections.unmodifiableList(config.getSENSORS());
   private static SingletonWorkDataWorkLoad singletonWorkDataWorkLoad = null;
-  private static final AtomicInteger sensorIndex = new AtomicInteger();
-  private final AtomicLong insertLoop = new AtomicLong(0);
   private static final List<Integer> deviceIds = MetaUtil.sortDeviceId();
+  private final long firstLoop;
+  private final AtomicLong insertLoop = new AtomicLong(0);
+  private final ThreadLocal<Deque<LoopRange>> loopLease = ThreadLocal.withInitial(ArrayDeque::new);
+
+  /** Loops leased by clients and handed back unused, taken by the next leases */
+  private final Queue<LoopRange> unusedLoops = new ConcurrentLinkedQueue<>();
 
-  private SingletonWorkDataWorkLoad() {
+  /** Device loops [next, end) */
+  private static class LoopRange {
+    private long next;
+    private final long end;
+
+    private LoopRange(long next, long end) {
+      this.next = next;
+      this.end = end;
+    }
+
+    private long size() {
+      return end - next;
+    }
+  }
+
+  SingletonWorkDataWorkLoad() {
     if (config.isIS_OUT_OF_ORDER()) {
       long startIndex = (long) (config.getLOOP() * config.getOUT_OF_ORDER_RATIO());
       this.insertLoop.set(startIndex);
     }
+    this.firstLoop = insertLoop.get();
   }
 
   public static SingletonWorkDataWorkLoad getInstance() {
@@ -62,6 +97,91 @@ public class SingletonWorkDataWorkLoad extends GenerateDataWorkLoad {
     return singletonWorkDataWorkLoad;
   }
 
+  @Override
+  public void prepareBatches(long batchNum) {
+    Deque<LoopRange> lease = loopLease.get();
+    long needLoopNum = batchNum * config.getDEVICE_NUM_PER_WRITE();
+    for (LoopRange range : lease) {
+      needLoopNum -= range.size();
+    }
+    // loops handed back by stopped clients are written first, so that no loop is skipped
+    LoopRange unused;
+    while (needLoopNum > 0 && (unused = unusedLoops.poll()) != null) {
+      if (unused.size() > needLoopNum) {
+        unusedLoops.offer(new LoopRange(unused.next + needLoopNum, unused.end));
+        unused = new LoopRange(unused.next, unused.next + needLoopNum);
+      }
+      lease.addLast(unused);
+      needLoopNum -= unused.size();
+    }
+    if (needLoopNum > 0) {
+      long next = insertLoop.getAndAdd(needLoopNum);
+      lease.addLast(new LoopRange(next, next + needLoopNum));
+    }
+  }
+
+  @Override
+  public void releaseBatches() {
+    Deque<LoopRange> lease = loopLease.get();
+    long loopNum = 0;
+    for (LoopRange range = lease.pollFirst(); range != null; range = lease.pollFirst()) {
+      if (range.size() > 0) {
+        loopNum += range.size();
+        unusedLoops.offer(range);
+      }
+    }
+    if (loopNum > 0 && !config.isIS_QUIET_MODE()) {
+      LOGGER.info(
+          "{} handed back {} unused device loops", Thread.currentThread().getName(), loopNum);
+    }
+  }
+
+  /** Get the next device loop from the lease of current thread, or from the shared counter */
+  private long nextLoop() {
+    Deque<LoopRange> lease = loopLease.get();
+    for (LoopRange range = lease.peekFirst(); range != null; range = lease.peekFirst()) {
+      if (range.next < range.end) {
+        return range.next++;
+      }
+      lease.pollFirst();
+    }
+    LoopRange unused = unusedLoops.poll();
+    if (unused != null) {
+      long loop = unused.next++;
+      if (unused.next < unused.end) {
+        unusedLoops.offer(unused);
+      }
+      return loop;
+    }
+    return insertLoop.getAndIncrement();
+  }
+
+  /**
+   * Number of device loops handed back and not written by any client yet, i.e. the loops skipped by
+   * the test if all clients have stopped
+   */
+  public long getUnusedLoopNum() {
+    long loopNum = 0;
+    for (LoopRange range : unusedLoops) {
+      loopNum += range.size();
+    }
+    return loopNum;
+  }
+
+  /** Log the loops skipped because clients stopped in the middle of their leases, if any */
+  public static void reportUnusedLoops() {
+    SingletonWorkDataWorkLoad workLoad = singletonWorkDataWorkLoad;
+    if (workLoad == null) {
+      return;
+    }
+    long loopNum = workLoad.getUnusedLoopNum();
+    if (loopNum > 0) {
+      LOGGER.warn(
+          "{} device loops were leased by clients which stopped before writing them, so they are not written",
+          loopNum);
+    }
+  }
+
   @Override
   public IBatch getOneBatch() throws WorkloadException {
     IBatch batch = null;
@@ -73,13 +193,14 @@ public class SingletonWorkDataWorkLoad extends GenerateDataWorkLoad {
       batch = new MultiDeviceBatch(config.getDEVICE_NUM_PER_WRITE());
     }
     for (int i = 0; i < config.getDEVICE_NUM_PER_WRITE(); i++) {
-      long curLoop = insertLoop.getAndIncrement();
+      long curLoop = nextLoop();
       // create schema of batch
       List<Sensor> sensors = new ArrayList<>();
       if (config.isIS_SENSOR_TS_ALIGNMENT()) {
         sensors = SENSORS;
       } else {
-        int sensorId = sensorIndex.getAndIncrement() % config.getSENSOR_NUMBER();
+        // sensors are taken in turn, one per device loop
+        int sensorId = (int) ((curLoop - firstLoop) % config.getSENSOR_NUMBER());
         batch.setColIndex(sensorId);
         sensors.add(SENSORS.get(sensorId));
       }
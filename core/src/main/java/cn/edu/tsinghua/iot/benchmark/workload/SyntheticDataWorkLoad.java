@@ -20,6 +20,7 @@
 package cn.edu.tsinghua.iot.benchmark.workload;
 
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.MultiDeviceBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
@@ -30,21 +31,42 @@ import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import java.util.*;
 
 public class SyntheticDataWorkLoad extends GenerateDataWorkLoad {
-  private long insertLoop = 0;
+  /** Row offset of the first row of current loop over devices */
+  private long loopRowOffset = 0;
+
+  /** Rows per device of the batches in current loop */
+  private int batchSize = config.getBATCH_SIZE_PER_WRITE();
+
+  /** Rows per device of the batches since next loop, so that timestamps stay continuous */
+  private int nextBatchSize = batchSize;
+
   private int deviceIndex = 0;
   private int sensorIndex = 0;
   private final List<DeviceSchema> deviceSchemas;
 
+  /** Schemas of generated batches, cached per device (and per sensor if not aligned) */
+  private final DeviceSchema[][] batchSchemas;
+
+  /** Reusable columnar batches handed out in turn, empty if WORKLOAD_RING_SIZE = 0 */
+  private final ColumnarBatch[] batchRing;
+
+  private int batchRingIndex = 0;
+
   public SyntheticDataWorkLoad(List<DeviceSchema> deviceSchemas) {
     this.deviceSchemas = deviceSchemas;
     this.deviceSchemaSize = deviceSchemas.size();
+    this.batchSchemas = new DeviceSchema[deviceSchemaSize][];
+    this.batchRing = new ColumnarBatch[config.getWORKLOAD_RING_SIZE()];
   }
 
   @Override
   public IBatch getOneBatch() throws WorkloadException {
+    if (config.isENABLE_COLUMNAR_BATCH() && config.getDEVICE_NUM_PER_WRITE() == 1) {
+      return getOneColumnarBatch();
+    }
     IBatch batch;
     // TODO: bad, should be fixed in the future
-    final int recordNumPerDevice = config.getBATCH_SIZE_PER_WRITE();
+    final int recordNumPerDevice = batchSize;
     // create the schema of batch
     if (config.getDEVICE_NUM_PER_WRITE() == 1) {
       batch = new Batch();
@@ -52,19 +74,12 @@ public class SyntheticDataWorkLoad extends GenerateDataWorkLoad {
       batch = new MultiDeviceBatch(config.getDEVICE_NUM_PER_WRITE());
     }
     for (int i = 0; i < config.getDEVICE_NUM_PER_WRITE(); i++) {
-      DeviceSchema deviceSchema =
-          new DeviceSchema(
-              deviceSchemas.get(deviceIndex).getDeviceId(),
-              deviceSchemas.get(deviceIndex).getSensors(),
-              deviceSchemas.get(deviceIndex).getTags());
+      DeviceSchema deviceSchema = getBatchSchema();
       if (!config.isIS_SENSOR_TS_ALIGNMENT()) {
-        List<Sensor> sensors = new ArrayList<>();
-        sensors.add(deviceSchema.getSensors().get(sensorIndex));
-        deviceSchema.setSensors(sensors);
         batch.setColIndex(sensorIndex);
       }
       // create the data of batch
-      long rowOffset = insertLoop * config.getBATCH_SIZE_PER_WRITE();
+      long rowOffset = loopRowOffset;
       List<Record> records = new ArrayList<>();
       for (long offset = 0; offset < recordNumPerDevice; offset++, rowOffset++) {
         records.add(
@@ -72,22 +87,88 @@ public class SyntheticDataWorkLoad extends GenerateDataWorkLoad {
                 getCurrentTimestamp(rowOffset),
                 generateOneRow(deviceSchema.getDeviceId(), batch.getColIndex(), rowOffset)));
       }
-      // move
-      if (config.isIS_SENSOR_TS_ALIGNMENT()) {
-        deviceIndex++;
+      move();
+      batch.addSchemaAndContent(deviceSchema, records);
+    }
+    return batch;
+  }
+
+  /** Generate one single device batch in columnar layout, data is the same as getOneBatch */
+  private IBatch getOneColumnarBatch() throws WorkloadException {
+    final int recordNumPerDevice = batchSize;
+    DeviceSchema deviceSchema = getBatchSchema();
+    int colIndex = config.isIS_SENSOR_TS_ALIGNMENT() ? -1 : sensorIndex;
+    ColumnarBatch batch;
+    if (batchRing.length == 0) {
+      batch = new ColumnarBatch(deviceSchema, recordNumPerDevice);
+    } else {
+      // only timestamps and values are rewritten, so generation allocates nothing after warm up
+      batch = batchRing[batchRingIndex];
+      if (batch == null) {
+        batch = new ColumnarBatch(deviceSchema, recordNumPerDevice);
+        batchRing[batchRingIndex] = batch;
       } else {
-        sensorIndex++;
-        if (sensorIndex >= deviceSchemas.get(deviceIndex).getSensors().size()) {
-          deviceIndex++;
-          sensorIndex = 0;
-        }
-      }
-      if (deviceIndex >= deviceSchemaSize) {
-        deviceIndex = 0;
-        insertLoop++;
+        batch.reuse(deviceSchema, recordNumPerDevice);
       }
-      batch.addSchemaAndContent(deviceSchema, records);
+      batchRingIndex = (batchRingIndex + 1) % batchRing.length;
+    }
+    batch.setColIndex(colIndex);
+    // create the data of batch
+    long rowOffset = loopRowOffset;
+    for (int row = 0; row < recordNumPerDevice; row++, rowOffset++) {
+      batch.setTimestamp(row, getCurrentTimestamp(rowOffset));
+      fillOneRow(batch, row, deviceSchema.getDeviceId(), colIndex, rowOffset);
     }
+    move();
     return batch;
   }
+
+  @Override
+  public void setBatchSize(int batchSize) {
+    this.nextBatchSize = batchSize;
+    if (deviceIndex == 0 && sensorIndex == 0) {
+      // no batch of current loop is generated yet
+      this.batchSize = batchSize;
+    }
+  }
+
+  /** Get the schema of the current device (and sensor if not aligned) */
+  private DeviceSchema getBatchSchema() {
+    DeviceSchema originSchema = deviceSchemas.get(deviceIndex);
+    DeviceSchema[] schemas = batchSchemas[deviceIndex];
+    if (schemas == null) {
+      schemas =
+          new DeviceSchema
+              [config.isIS_SENSOR_TS_ALIGNMENT() ? 1 : originSchema.getSensors().size()];
+      batchSchemas[deviceIndex] = schemas;
+    }
+    int schemaIndex = config.isIS_SENSOR_TS_ALIGNMENT() ? 0 : sensorIndex;
+    if (schemas[schemaIndex] == null) {
+      List<Sensor> sensors = originSchema.getSensors();
+      if (!config.isIS_SENSOR_TS_ALIGNMENT()) {
+        sensors = Collections.singletonList(sensors.get(sensorIndex));
+      }
+      schemas[schemaIndex] =
+          new DeviceSchema(originSchema.getDeviceId(), sensors, originSchema.getTags());
+    }
+    return schemas[schemaIndex];
+  }
+
+  /** Move to the next device (or sensor if not aligned) */
+  private void move() {
+    if (config.isIS_SENSOR_TS_ALIGNMENT()) {
+      deviceIndex++;
+    } else {
+      sensorIndex++;
+      if (sensorIndex >= deviceSchemas.get(deviceIndex).getSensors().size()) {
+        deviceIndex++;
+        sensorIndex = 0;
+      }
+    }
+    if (deviceIndex >= deviceSchemaSize) {
+      deviceIndex = 0;
+      loopRowOffset += batchSize;
+      batchSize = nextBatchSize;
+    }
+  }
 }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.workload;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.conf.Constants;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.function.Function;
+import cn.edu.tsinghua.iot.benchmark.function.FunctionParam;
+import cn.edu.tsinghua.iot.benchmark.function.enums.FunctionType;
+import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+/**
+ * Regular values of each sensor which generated data is taken from. The values of one sensor are
+ * kept in a primitive array with the same layout as {@link ColumnarBatch#getColumn(int)}, and only
+ * depend on DATA_SEED and the index of the sensor, so the columns are generated in parallel, or
+ * lazily when a sensor is first written, without changing the data.
+ */
+public class WorkloadBuffer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkloadBuffer.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+  private static final String CHAR_TABLE =
+      "1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+  /** Spread the seeds of neighbouring sensors, the golden ratio increment of SplitMix64 */
+  private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+  private static final long timeStampConst =
+      TimeUtils.getTimestampConst(config.getTIMESTAMP_PRECISION());
+
+  private final List<Sensor> sensors;
+  private final int bufferSize;
+
+  /** Values of FLOAT and DOUBLE sensors are rounded to DOUBLE_LENGTH decimal places */
+  private final double ratio;
+
+  private final AtomicReferenceArray<Object> columns;
+
+  public WorkloadBuffer(List<Sensor> sensors, int bufferSize, boolean lazy) {
+    this.sensors = sensors;
+    this.bufferSize = bufferSize;
+    double ratio = 1.0;
+    for (int i = 0; i < config.getDOUBLE_LENGTH(); i++) {
+      ratio *= 10;
+    }
+    this.ratio = ratio;
+    this.columns = new AtomicReferenceArray<>(sensors.size());
+    if (!lazy) {
+      generateAll();
+    }
+  }
+
+  /** Generate the columns of all sensors on the common fork join pool */
+  private void generateAll() {
+    AtomicInteger finished = new AtomicInteger();
+    IntStream.range(0, sensors.size())
+        .parallel()
+        .forEach(
+            sensorIndex -> {
+              columns.set(sensorIndex, generateColumn(sensorIndex));
+              int count = finished.incrementAndGet();
+              if (count % 5000 == 0) {
+                LOGGER.info("Finish {} % WorkLoad Buffer", (count * 100.0 / sensors.size()));
+              }
+            });
+  }
+
+  /** Get the values of one sensor, they are generated by the first caller if lazy */
+  public Object getColumn(int sensorIndex) {
+    Object column = columns.get(sensorIndex);
+    if (column == null) {
+      column = generateColumn(sensorIndex);
+      if (!columns.compareAndSet(sensorIndex, null, column)) {
+        column = columns.get(sensorIndex);
+      }
+    }
+    return column;
+  }
+
+  /** Get one value as object, notice that primitive values will be boxed */
+  public Object getValue(int sensorIndex, int index) {
+    Object column = getColumn(sensorIndex);
+    switch (sensors.get(sensorIndex).getSensorType()) {
+      case BOOLEAN:
+        return ((boolean[]) column)[index];
+      case INT32:
+        return ((int[]) column)[index];
+      case INT64:
+      case TIMESTAMP:
+        return ((long[]) column)[index];
+      case FLOAT:
+        return ((float[]) column)[index];
+      case DOUBLE:
+        return ((double[]) column)[index];
+      default:
+        return ((Object[]) column)[index];
+    }
+  }
+
+  private Object generateColumn(int sensorIndex) {
+    Sensor sensor = sensors.get(sensorIndex);
+    Random random = new Random(config.getDATA_SEED() + SEED_INCREMENT * (sensorIndex + 1));
+    switch (sensor.getSensorType()) {
+      case TEXT:
+      case STRING:
+      case BLOB:
+        String[] texts = new String[bufferSize];
+        char[] chars = new char[config.getSTRING_LENGTH()];
+        for (int i = 0; i < bufferSize; i++) {
+          for (int k = 0; k < chars.length; k++) {
+            chars[k] = CHAR_TABLE.charAt(random.nextInt(CHAR_TABLE.length()));
+          }
+          texts[i] = new String(chars);
+        }
+        return texts;
+      default:
+        break;
+    }
+    FunctionParam param = config.getSENSOR_FUNCTION().get(sensor.getName());
+    FunctionType functionType = FunctionType.valueOf(param.getFunctionType().toUpperCase());
+    switch (sensor.getSensorType()) {
+      case BOOLEAN:
+        boolean[] booleans = new boolean[bufferSize];
+        double middle = (param.getMax() + param.getMin()) / 2;
+        for (int i = 0; i < bufferSize; i++) {
+          booleans[i] = getNumber(functionType, param, i, random).floatValue() > middle;
+        }
+        return booleans;
+      case INT32:
+        int[] ints = new int[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+          ints[i] = getNumber(functionType, param, i, random).intValue();
+        }
+        return ints;
+      case INT64:
+      case TIMESTAMP:
+        long[] longs = new long[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+          longs[i] = getNumber(functionType, param, i, random).longValue();
+        }
+        return longs;
+      case FLOAT:
+        float[] floats = new float[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+          float value = getNumber(functionType, param, i, random).floatValue();
+          floats[i] = (float) (Math.round(value * ratio) / ratio);
+        }
+        return floats;
+      case DOUBLE:
+        double[] doubles = new double[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+          double value = getNumber(functionType, param, i, random).doubleValue();
+          doubles[i] = Math.round(value * ratio) / ratio;
+        }
+        return doubles;
+      case DATE:
+        LocalDate[] dates = new LocalDate[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+          dates[i] = LocalDate.ofEpochDay(getNumber(functionType, param, i, random).shortValue());
+        }
+        return dates;
+      default:
+        throw new UnsupportedOperationException(
+            sensor.getSensorType() + ": This data type is not supported.");
+    }
+  }
+
+  /**
+   * Get the function value at stepOffset. The timestamp is only used to generate periodic data, so
+   * the timestamp is also periodic
+   */
+  private static Number getNumber(
+      FunctionType functionType, FunctionParam param, long stepOffset, Random random) {
+    // offset of data ahead
+    long offset = config.getPOINT_STEP() * stepOffset;
+    // timestamp for next data
+    long timestamp = 0;
+    // change timestamp frequency
+    if (config.isIS_REGULAR_FREQUENCY()) {
+      // data is in regular frequency, then do nothing
+      timestamp += config.getPOINT_STEP();
+    } else {
+      // data is not in regular frequency, then use random
+      timestamp += config.getPOINT_STEP() * random.nextDouble();
+    }
+    long currentTimestamp = Constants.START_TIMESTAMP * timeStampConst + offset + timestamp;
+    return Function.getValueByFunctionIdAndParam(functionType, param, currentTimestamp, random);
+  }
+}
@@ -27,6 +27,24 @@ public interface IDataWorkLoad extends IWorkLoad {
   /** Insert one batch into database NOTICE: every row contains data from all sensors */
   IBatch getOneBatch() throws WorkloadException;
 
+  /**
+   * Announce that the calling thread is going to get batchNum batches, so that a workload shared by
+   * clients can reserve them at once instead of one by one
+   */
+  default void prepareBatches(long batchNum) {}
+
+  /**
+   * Hand back the batches prepared by the calling thread but not got, e.g. when the client stops in
+   * the middle of an operation, so that a shared workload can give them to other clients
+   */
+  default void releaseBatches() {}
+
+  /**
+   * Change the number of rows per device of the following batches, used by workload phases. The
+   * workloads which don't support it keep BATCH_SIZE_PER_WRITE
+   */
+  default void setBatchSize(int batchSize) {}
+
   /** Get Batch Number */
   long getBatchNumber();
 
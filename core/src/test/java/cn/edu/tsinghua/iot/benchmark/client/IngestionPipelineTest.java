@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBWrapper;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBSwitch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IngestionPipelineTest {
+
+  private static final int MAX_IN_FLIGHT = 3;
+
+  /** Writes in flight now and at most, shared by all connections */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  /** Counted down when a write is on the wire */
+  private final CountDownLatch sent = new CountDownLatch(MAX_IN_FLIGHT);
+
+  /** Hold the writes on the wire until the test lets them return */
+  private final CountDownLatch response = new CountDownLatch(1);
+
+  @Test
+  public void testWritesInFlight() throws Exception {
+    List<DBWrapper> dbWrappers = new ArrayList<>();
+    for (int i = 0; i < MAX_IN_FLIGHT; i++) {
+      dbWrappers.add(new BlockingDBWrapper());
+    }
+    IngestionPipeline pipeline = new IngestionPipeline(dbWrappers);
+    pipeline.init();
+
+    int batchNum = MAX_IN_FLIGHT + 2;
+    AtomicInteger submitted = new AtomicInteger();
+    Thread client =
+        new Thread(
+            () -> {
+              try {
+                for (int i = 0; i < batchNum; i++) {
+                  assertTrue(pipeline.submit(newBatch(i)));
+                  submitted.incrementAndGet();
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    client.start();
+
+    // all connections have a write on the wire at once
+    assertTrue(sent.await(10, TimeUnit.SECONDS));
+    assertEquals(MAX_IN_FLIGHT, inFlight.get());
+    // and the client waits for an idle connection before it sends one more
+    Thread.sleep(100);
+    assertEquals(MAX_IN_FLIGHT, submitted.get());
+    assertTrue(client.isAlive());
+
+    response.countDown();
+    client.join(10_000);
+    assertFalse(client.isAlive());
+    pipeline.awaitInFlight();
+    assertEquals(0, inFlight.get());
+    assertEquals(MAX_IN_FLIGHT, maxInFlight.get());
+
+    // each request is measured by the connection which sent it
+    // one point per batch
+    long okPointNum = 0;
+    for (DBWrapper dbWrapper : dbWrappers) {
+      Measurement measurement = dbWrapper.getMeasurement();
+      assertTrue(measurement.getOkPointNum(Operation.INGESTION) > 0);
+      okPointNum += measurement.getOkPointNum(Operation.INGESTION);
+    }
+    assertEquals(batchNum, okPointNum);
+    assertEquals(MAX_IN_FLIGHT - 1, pipeline.getMeasurements().size());
+    pipeline.close();
+  }
+
+  private static IBatch newBatch(int index) {
+    DeviceSchema deviceSchema =
+        new DeviceSchema(
+            "d_0", Collections.singletonList(new Sensor("s_0", SensorType.INT64)), new HashMap<>());
+    List<Record> records =
+        Collections.singletonList(
+            new Record(index, Collections.singletonList((Object) (long) index)));
+    return new Batch(deviceSchema, records);
+  }
+
+  private static DBConfig fakeDBConfig() {
+    DBConfig dbConfig = new DBConfig();
+    dbConfig.setDB_SWITCH(DBSwitch.DB_FAKE);
+    return dbConfig;
+  }
+
+  /** A connection to FakeDB whose writes return when the test lets them */
+  private class BlockingDBWrapper extends DBWrapper {
+
+    private BlockingDBWrapper() {
+      super(Collections.singletonList(fakeDBConfig()));
+    }
+
+    @Override
+    public Status insertOneBatch(IBatch batch) throws DBConnectException {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      sent.countDown();
+      try {
+        response.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      inFlight.decrementAndGet();
+      return super.insertOneBatch(batch);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.client.operation.OperationAliasTable;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class OperationAliasTableTest {
+
+  @Test
+  public void testProportion() {
+    OperationAliasTable table = new OperationAliasTable("1:1:2:0:0:0:0:0:0:0:0:0");
+    Random random = new Random(0);
+    Map<Operation, Integer> counts = new EnumMap<>(Operation.class);
+    int loop = 400000;
+    for (int i = 0; i < loop; i++) {
+      counts.merge(table.sample(random), 1, Integer::sum);
+    }
+    assertEquals(3, counts.size());
+    assertEquals(0.25, counts.get(Operation.INGESTION) / (double) loop, 0.01);
+    assertEquals(0.25, counts.get(Operation.PRECISE_QUERY) / (double) loop, 0.01);
+    assertEquals(0.5, counts.get(Operation.RANGE_QUERY) / (double) loop, 0.01);
+  }
+
+  @Test
+  public void testMissingProportion() {
+    OperationAliasTable table = new OperationAliasTable("0:1");
+    Random random = new Random(0);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(Operation.PRECISE_QUERY, table.sample(random));
+    }
+  }
+
+  @Test
+  public void testSameSeed() {
+    OperationAliasTable table = new OperationAliasTable("3:1:1:1:0:0:0:0:0:0:0:1");
+    Random first = new Random(42);
+    Random second = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      Operation operation = table.sample(first);
+      assertEquals(operation, table.sample(second));
+      assertFalse(operation == Operation.AGG_RANGE_QUERY);
+    }
+  }
+}
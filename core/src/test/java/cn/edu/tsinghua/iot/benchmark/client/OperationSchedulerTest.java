@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.client;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.OperationScheduler;
+import cn.edu.tsinghua.iot.benchmark.client.operation.ThroughputUnit;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationSchedulerTest {
+
+  @Test
+  public void testIntendedStartTime() throws InterruptedException {
+    Measurement measurement = new Measurement();
+    // one operation per 10 ms
+    OperationScheduler scheduler =
+        new OperationScheduler(100, ThroughputUnit.OPERATION, measurement);
+    long first = scheduler.acquireWrite(1000);
+    long second = scheduler.acquireWrite(1000);
+    assertEquals(10_000_000L, second - first);
+    assertTrue(System.nanoTime() >= second);
+
+    // stall for about 5 slots, the delayed operations keep their intended start time
+    Thread.sleep(55);
+    long third = scheduler.acquireQuery();
+    long fourth = scheduler.acquireQuery();
+    assertEquals(20_000_000L, third - first);
+    assertEquals(30_000_000L, fourth - first);
+  }
+
+  @Test
+  public void testOperationLongerThanInterval() throws InterruptedException {
+    Measurement measurement = new Measurement();
+    // one operation per 10 ms, but each one takes 25 ms
+    OperationScheduler scheduler =
+        new OperationScheduler(100, ThroughputUnit.OPERATION, measurement);
+    long[] intended = new long[4];
+    long[] sent = new long[4];
+    for (int i = 0; i < intended.length; i++) {
+      intended[i] = scheduler.acquireWrite(1000);
+      sent[i] = System.nanoTime();
+      Thread.sleep(25);
+    }
+    for (int i = 1; i < intended.length; i++) {
+      // the schedule does not slip with the slow operations
+      assertEquals(10_000_000L * i, intended[i] - intended[0]);
+      // so the latency from the intended start includes the time spent behind schedule
+      assertTrue(sent[i] - intended[i] >= 15_000_000L * i);
+    }
+    // each operation after the first is sent after its whole slot has passed
+    assertEquals(3, measurement.getMissedSlotNum());
+    // the last one is sent at least 45 ms late, i.e. 4 slots behind
+    assertTrue(measurement.getMaxScheduleBacklog() >= 4);
+  }
+
+  @Test
+  public void testPointUnit() {
+    Measurement measurement = new Measurement();
+    // 1000 points per ms
+    OperationScheduler scheduler =
+        new OperationScheduler(1_000_000, ThroughputUnit.POINT, measurement);
+    long first = scheduler.acquireWrite(2000);
+    long second = scheduler.acquireWrite(500);
+    long third = scheduler.acquireWrite(500);
+    assertEquals(2_000_000L, second - first);
+    assertEquals(500_000L, third - second);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.cluster;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.Metric;
+import org.junit.Test;
+
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CoordinatorTest {
+
+  private static final long TIMEOUT_MS = 10000;
+
+  @Test
+  public void testMergeWorkersOnLocalhost() throws Exception {
+    int workerNumber = 3;
+    ExecutorService executor = Executors.newFixedThreadPool(workerNumber);
+    try (Coordinator coordinator = new Coordinator(0, workerNumber, TIMEOUT_MS)) {
+      String address = "127.0.0.1:" + coordinator.getPort();
+      List<Future<Integer>> indexes = new ArrayList<>();
+      for (int i = 0; i < workerNumber; i++) {
+        indexes.add(executor.submit(() -> runWorker(address)));
+      }
+      coordinator.acceptWorkers();
+      coordinator.startWorkers();
+      Measurement merged = coordinator.collectResults(TIMEOUT_MS);
+
+      Set<Integer> shards = new HashSet<>();
+      for (Future<Integer> index : indexes) {
+        shards.add(index.get());
+      }
+      assertEquals(workerNumber, shards.size());
+      // worker i records latencies 100 * i + 1 .. 100 * i + 100 and runs for i + 1 seconds
+      assertEquals(workerNumber, merged.getElapseTime(), 0.001);
+      merged.calculateMetrics(Collections.singletonList(Operation.INGESTION));
+      assertEquals(150.5, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+      assertEquals(150, Metric.MEDIAN_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.2);
+      assertEquals(1, Metric.MIN_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+      assertEquals(300, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.3);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRegistrationTimeout() throws Exception {
+    try (Coordinator coordinator = new Coordinator(0, 2, 500);
+        Socket silent = new Socket("127.0.0.1", coordinator.getPort())) {
+      // the connection which never registers is dropped, then the coordinator gives up
+      coordinator.acceptWorkers();
+      fail();
+    } catch (SocketTimeoutException e) {
+      assertEquals("Only 0 of 2 workers registered in 500 ms", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testDropWorkerWithoutResult() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (Coordinator coordinator = new Coordinator(0, 2, TIMEOUT_MS)) {
+      String address = "127.0.0.1:" + coordinator.getPort();
+      Future<Integer> finished = executor.submit(() -> runWorker(address));
+      executor.submit(
+          () -> {
+            // fails after it is started
+            try (CoordinatorClient client = CoordinatorClient.connect(address, TIMEOUT_MS)) {
+              client.awaitStart();
+            }
+            return null;
+          });
+      coordinator.acceptWorkers();
+      coordinator.startWorkers();
+      Measurement merged = coordinator.collectResults(TIMEOUT_MS);
+
+      int index = finished.get();
+      // only the latencies of the finished worker are merged
+      assertEquals(index + 1, merged.getElapseTime(), 0.001);
+      merged.calculateMetrics(Collections.singletonList(Operation.INGESTION));
+      assertEquals(
+          100 * index + 50.5, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static int runWorker(String address) throws Exception {
+    try (CoordinatorClient client = CoordinatorClient.connect(address, TIMEOUT_MS)) {
+      client.awaitStart();
+      int index = client.getBenchmarkIndex();
+      Measurement clientMeasurement = new Measurement();
+      for (int i = 1; i <= 100; i++) {
+        clientMeasurement.addOperationLatency(Operation.INGESTION, 100 * index + i);
+        clientMeasurement.addOkOperationNum(Operation.INGESTION);
+      }
+      Measurement workerMeasurement = new Measurement();
+      workerMeasurement.mergeMeasurement(clientMeasurement);
+      workerMeasurement.setElapseTime(index + 1);
+      client.sendResult(workerMeasurement);
+      return index;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.conf;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadPhaseTest {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  @Test
+  public void testParse() {
+    Properties properties = new Properties();
+    properties.setProperty("PHASES", "warmup, spike");
+    properties.setProperty("warmup.DURATION", "60");
+    properties.setProperty("warmup.WARM_UP", "true");
+    properties.setProperty("spike.DURATION", "10");
+    properties.setProperty("spike.DATA_CLIENT_NUMBER", "2");
+    properties.setProperty("spike.TARGET_THROUGHPUT", "5000");
+    properties.setProperty("spike.OPERATION_PROPORTION", "1:1");
+    properties.setProperty("spike.BATCH_SIZE_PER_WRITE", "1000");
+    List<WorkloadPhase> phases = WorkloadPhase.parse(properties, config);
+
+    assertEquals(2, phases.size());
+    WorkloadPhase warmUp = phases.get(0);
+    assertEquals("warmup", warmUp.getName());
+    assertEquals(60000, warmUp.getDuration());
+    assertTrue(warmUp.isWarmUp());
+    assertEquals(config.getDATA_CLIENT_NUMBER(), warmUp.getClientNumber());
+    assertEquals(config.getOPERATION_PROPORTION(), warmUp.getOperationProportion());
+    assertEquals(config.getBATCH_SIZE_PER_WRITE(), warmUp.getBatchSizePerWrite());
+
+    WorkloadPhase spike = phases.get(1);
+    assertFalse(spike.isWarmUp());
+    assertEquals(10000, spike.getDuration());
+    assertEquals(2, spike.getClientNumber());
+    assertEquals(5000, spike.getTargetThroughput(), 0);
+    assertEquals("1:1:0:0:0:0:0:0:0:0:0:0", spike.getOperationProportion());
+    assertEquals(1000, spike.getBatchSizePerWrite());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingDuration() {
+    Properties properties = new Properties();
+    properties.setProperty("PHASES", "steady");
+    WorkloadPhase.parse(properties, config);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.entity;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ColumnarBatchTest {
+
+  @Test
+  public void testRecordView() {
+    List<Sensor> sensors = new ArrayList<>();
+    sensors.add(new Sensor("s1", SensorType.INT32));
+    sensors.add(new Sensor("s2", SensorType.DOUBLE));
+    sensors.add(new Sensor("s3", SensorType.TEXT));
+    DeviceSchema deviceSchema = new DeviceSchema("d1", sensors, new HashMap<>());
+
+    ColumnarBatch batch = new ColumnarBatch(deviceSchema, 3);
+    for (int row = 0; row < 3; row++) {
+      batch.setTimestamp(row, 1000L + row);
+      batch.setValue(0, row, row);
+      batch.setValue(1, row, row * 1.5);
+      batch.setValue(2, row, "v" + row);
+    }
+
+    assertEquals(9, batch.pointNum());
+    assertArrayEquals(new int[] {0, 1, 2}, (int[]) batch.getColumn(0));
+    assertEquals(3, batch.getRecords().size());
+    assertEquals(
+        new Record(1002L, Arrays.asList(2, 3.0, "v2")).toString(),
+        batch.getRecords().get(2).toString());
+    assertEquals("3.0", batch.appendValue(new StringBuilder(), 1, 2).toString());
+
+    // changing a value invalidates the cached view
+    batch.setValue(0, 2, 7);
+    assertEquals(7, batch.getRecords().get(2).getRecordDataValue().get(0));
+  }
+
+  @Test
+  public void testReuse() {
+    List<Sensor> sensors = new ArrayList<>();
+    sensors.add(new Sensor("s1", SensorType.FLOAT));
+    DeviceSchema first = new DeviceSchema("d1", sensors, new HashMap<>());
+    DeviceSchema second = new DeviceSchema("d2", sensors, new HashMap<>());
+
+    ColumnarBatch batch = new ColumnarBatch(first, 4);
+    Object column = batch.getColumn(0);
+    batch.setValue(0, 0, 1.0f);
+    assertEquals(1, batch.getRecords().get(0).getRecordDataValue().size());
+
+    batch.reuse(second, 2);
+    assertSame(column, batch.getColumn(0));
+    assertSame(second, batch.getDeviceSchema());
+    assertEquals(2, batch.pointNum());
+    assertEquals(2, batch.getRecords().size());
+  }
+}
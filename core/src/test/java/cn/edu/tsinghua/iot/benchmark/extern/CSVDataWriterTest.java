@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.extern;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.extern.enums.DataFileCompression;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.source.CSVDataReader;
+import cn.edu.tsinghua.iot.benchmark.source.DataReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CSVDataWriterTest {
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+  private static final int DEVICE_NUM = 3;
+  private static final int LOOP_NUM = 4;
+
+  private final String filePath = config.getFILE_PATH();
+  private final DataFileCompression compression = config.getDATA_FILE_COMPRESSION();
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("csv");
+    config.setFILE_PATH(dir.toString());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    config.setFILE_PATH(filePath);
+    config.setDATA_FILE_COMPRESSION(compression);
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void testNone() throws Exception {
+    testWriteAndRead(DataFileCompression.NONE);
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    testWriteAndRead(DataFileCompression.GZIP);
+  }
+
+  @Test
+  public void testZstd() throws Exception {
+    testWriteAndRead(DataFileCompression.ZSTD);
+  }
+
+  /**
+   * Write the devices round robin with fewer open files than devices, so that every write closes a
+   * file and reopens one in append mode, then write once more with a new writer. A compressed file
+   * is made of several gzip members or zstd frames then, which must be read as one stream.
+   */
+  private void testWriteAndRead(DataFileCompression compression) throws Exception {
+    config.setDATA_FILE_COMPRESSION(compression);
+    List<DeviceSchema> deviceSchemas =
+        MetaDataSchema.getInstance().getAllDeviceSchemas().subList(0, DEVICE_NUM);
+    List<List<Record>> written = new ArrayList<>();
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      written.add(new ArrayList<>());
+    }
+    long fileBytes = DataWriter.getFileBytes();
+    CSVDataWriter writer = new CSVDataWriter(DEVICE_NUM - 1);
+    for (int loop = 0; loop < LOOP_NUM; loop++) {
+      for (int i = 0; i < DEVICE_NUM; i++) {
+        assertTrue(writer.writeBatch(createBatch(deviceSchemas.get(i), loop, written.get(i)), 0));
+      }
+    }
+    writer.close();
+    writer = new CSVDataWriter(DEVICE_NUM - 1);
+    assertTrue(writer.writeBatch(createBatch(deviceSchemas.get(0), LOOP_NUM, written.get(0)), 0));
+    writer.close();
+
+    long totalFileBytes = 0;
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      Path file =
+          Paths.get(
+              dir.toString(),
+              deviceSchemas.get(i).getDevice(),
+              "BigBatch_0.csv" + compression.getSuffix());
+      totalFileBytes += Files.size(file);
+      DataReader reader = DataReader.getInstance(Collections.singletonList(file.toString()));
+      assertTrue(reader instanceof CSVDataReader);
+      List<Record> read = new ArrayList<>();
+      while (reader.hasNextBatch()) {
+        read.addAll(reader.nextBatch().getRecords());
+      }
+      assertEquals(written.get(i).toString(), read.toString());
+    }
+    // the bytes of a reopened file are counted once
+    assertEquals(totalFileBytes, DataWriter.getFileBytes() - fileBytes);
+  }
+
+  /** A batch with one value of each sensor type, and a text value to be quoted */
+  private static Batch createBatch(DeviceSchema deviceSchema, int loop, List<Record> written) {
+    List<Record> records = new ArrayList<>();
+    for (int row = 0; row < config.getBATCH_SIZE_PER_WRITE(); row++) {
+      int index = loop * config.getBATCH_SIZE_PER_WRITE() + row;
+      List<Object> values = new ArrayList<>();
+      for (Sensor sensor : deviceSchema.getSensors()) {
+        switch (sensor.getSensorType()) {
+          case BOOLEAN:
+            values.add(index % 2 == 0);
+            break;
+          case INT32:
+            values.add(index);
+            break;
+          case INT64:
+          case TIMESTAMP:
+            values.add(index * 10L);
+            break;
+          case FLOAT:
+            values.add(index * 1.5f);
+            break;
+          case DOUBLE:
+            values.add(index * 2.5d);
+            break;
+          case DATE:
+            values.add(LocalDate.ofEpochDay(index));
+            break;
+          default:
+            values.add("text, " + index);
+        }
+      }
+      records.add(new Record(1000L + index, values));
+    }
+    written.addAll(records);
+    return new Batch(deviceSchema, records);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class HostResourceSamplerTest {
+
+  private static volatile byte[] sink;
+
+  @Test
+  public void testAlignInterval() {
+    // a divisor of the window is kept
+    assertEquals(10, HostResourceSampler.alignInterval(10, 60));
+    // otherwise it is shortened to the nearest divisor
+    assertEquals(6, HostResourceSampler.alignInterval(7, 60));
+    assertEquals(1, HostResourceSampler.alignInterval(4, 7));
+    // at most one sample per window
+    assertEquals(60, HostResourceSampler.alignInterval(100, 60));
+    // no window to align with
+    assertEquals(7, HostResourceSampler.alignInterval(7, 0));
+    // sampling is disabled
+    assertEquals(0, HostResourceSampler.alignInterval(0, 60));
+  }
+
+  @Test
+  public void testAllocatedBytesOfEndedThread() throws InterruptedException {
+    HostResourceSampler sampler = new HostResourceSampler();
+    long before = sampler.getAllocatedBytes();
+    assumeTrue(before >= 0);
+    CountDownLatch allocated = new CountDownLatch(1);
+    CountDownLatch sampled = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 64; i++) {
+                sink = new byte[1024 * 1024];
+              }
+              allocated.countDown();
+              try {
+                sampled.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+    thread.start();
+    allocated.await();
+    long whileAlive = sampler.getAllocatedBytes();
+    assertTrue(whileAlive - before >= 64L * 1024 * 1024);
+    sampled.countDown();
+    thread.join();
+    // what the thread allocated is still counted after it ended
+    assertTrue(sampler.getAllocatedBytes() >= whileAlive);
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.Metric;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MeasurementTest {
+
+  @Test
+  public void testMergeLatency() {
+    List<Operation> operations = Collections.singletonList(Operation.INGESTION);
+    Measurement client1 = new Measurement();
+    Measurement client2 = new Measurement();
+    for (int i = 1; i <= 100; i++) {
+      Measurement client = i % 2 == 0 ? client1 : client2;
+      client.addOperationLatency(Operation.INGESTION, i);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+
+    Measurement total = new Measurement();
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client1);
+    total.mergeMeasurement(client2);
+    total.calculateMetrics(operations);
+    assertEquals(50.5, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+    assertEquals(50, Metric.MEDIAN_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.1);
+    assertEquals(100, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.1);
+    assertTrue(total.getIntervalMetricsString(operations).contains("100"));
+    total.resetIntervalLatency();
+
+    // the next interval only contains new latency, cumulative metrics keep the old ones
+    client1.addOperationLatency(Operation.INGESTION, 1000);
+    client1.addOkOperationNum(Operation.INGESTION);
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client1);
+    total.mergeMeasurement(client2);
+    total.calculateMetrics(operations);
+    assertEquals(1000, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 1);
+    assertEquals(51, Metric.MEDIAN_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.1);
+    assertTrue(total.getIntervalMetricsString(operations).contains("1000."));
+  }
+
+  @Test
+  public void testExcludePhase() {
+    List<Operation> operations = Collections.singletonList(Operation.INGESTION);
+    Measurement client = new Measurement();
+    Measurement total = new Measurement();
+    for (int i = 0; i < 10; i++) {
+      client.addOperationLatency(Operation.INGESTION, 1000);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement warmUp = total.cutPhase(10);
+    total.excludePhase(warmUp);
+    warmUp.calculateMetrics(operations);
+    assertEquals(1000, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+    assertEquals(1000, Metric.MIN_LATENCY.getTypeValueMap().get(Operation.INGESTION), 1);
+
+    for (int i = 1; i <= 100; i++) {
+      client.addOperationLatency(Operation.INGESTION, i);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    total.setElapseTime(30);
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement steady = total.cutPhase(20);
+    total.removeExcludedPhases();
+    assertEquals(20, total.getElapseTime(), 0.01);
+    assertEquals(10, total.getExcludedTime(), 0.01);
+    steady.calculateMetrics(operations);
+    assertEquals(50.5, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+    total.calculateMetrics(operations);
+    assertEquals(50.5, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+    assertEquals(100, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.1);
+  }
+
+  @Test
+  public void testWarmUpKeepsIntervalLatency() {
+    Measurement client = new Measurement();
+    Measurement total = new Measurement();
+    for (int i = 0; i < 10; i++) {
+      client.addOperationLatency(Operation.INGESTION, 1000);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    // the warm-up check merges and drains the latency of clients between two outputs
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement warmUp = total.cutWarmUp(10);
+    total.excludePhase(warmUp);
+
+    for (int i = 0; i < 20; i++) {
+      client.addOperationLatency(Operation.INGESTION, 10);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    total.removeExcludedPhases();
+    // the interval still has the latency drained by the warm-up check
+    assertEquals(30, total.getIntervalLatency().getTotalCount());
+    assertEquals(30, warmUp.getOperationNum() + total.getOperationNum());
+    assertEquals(20, total.getOperationNum());
+
+    total.resetIntervalLatency();
+    assertEquals(0, total.getIntervalLatency().getTotalCount());
+  }
+
+  @Test
+  public void testWarmUpEndsInPhase() {
+    List<Operation> operations = Collections.singletonList(Operation.INGESTION);
+    Measurement client = new Measurement();
+    Measurement total = new Measurement();
+    for (int i = 0; i < 10; i++) {
+      client.addOperationLatency(Operation.INGESTION, 1000);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    // warm-up ends 5 seconds into the first phase
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement warmUp = total.cutWarmUp(5);
+    total.excludePhase(warmUp);
+    assertEquals(10, warmUp.getOperationNum());
+
+    for (int i = 0; i < 20; i++) {
+      client.addOperationLatency(Operation.INGESTION, 10);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    // the first phase still counts from its own start, as its elapsed time does
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement first = total.cutPhase(15);
+    assertEquals(30, first.getOperationNum());
+    first.calculateMetrics(operations);
+    assertEquals(1000, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 1);
+    assertEquals(340, Metric.AVG_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.01);
+
+    for (int i = 0; i < 5; i++) {
+      client.addOperationLatency(Operation.INGESTION, 10);
+      client.addOkOperationNum(Operation.INGESTION);
+    }
+    total.setElapseTime(25);
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    Measurement second = total.cutPhase(10);
+    assertEquals(5, second.getOperationNum());
+
+    // the final result only excludes the warm-up
+    total.removeExcludedPhases();
+    assertEquals(25, total.getOperationNum());
+    assertEquals(20, total.getElapseTime(), 0.01);
+    total.calculateMetrics(operations);
+    assertEquals(10, Metric.MAX_LATENCY.getTypeValueMap().get(Operation.INGESTION), 0.1);
+  }
+
+  @Test
+  public void testLatencyBreakdown() {
+    Config config = ConfigDescriptor.getInstance().getConfig();
+    List<Operation> operations = Collections.singletonList(Operation.INGESTION);
+    config.setENABLE_LATENCY_BREAKDOWN(true);
+    Measurement client;
+    Measurement total;
+    try {
+      client = new Measurement();
+      total = new Measurement();
+    } finally {
+      config.setENABLE_LATENCY_BREAKDOWN(false);
+    }
+    OperationTracer tracer = new OperationTracer(client);
+    tracer.start(Operation.INGESTION);
+    tracer.lap(LatencySpan.PREPARE);
+    client.addSpanLatency(Operation.INGESTION, LatencySpan.SERVER_WAIT, 1234000000L);
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    String breakdown = total.getLatencyBreakdownString(operations);
+    assertTrue(breakdown.contains("prepare"));
+    assertTrue(breakdown.contains("serverWait"));
+    assertTrue(breakdown.contains("1234."));
+    assertFalse(breakdown.contains("decode"));
+
+    // spans of an excluded phase are removed from the final result too
+    total.excludePhase(total.cutPhase(1));
+    assertFalse(total.getLatencyBreakdownString(operations).contains("1234."));
+  }
+
+  @Test
+  public void testStaleLap() {
+    Config config = ConfigDescriptor.getInstance().getConfig();
+    List<Operation> operations = Collections.singletonList(Operation.INGESTION);
+    config.setENABLE_LATENCY_BREAKDOWN(true);
+    Measurement client;
+    Measurement total;
+    try {
+      client = new Measurement();
+      total = new Measurement();
+    } finally {
+      config.setENABLE_LATENCY_BREAKDOWN(false);
+    }
+    OperationTracer tracer = new OperationTracer(client);
+    tracer.start(Operation.INGESTION);
+    long timedOut = tracer.getTraceId();
+    tracer.stop();
+    // the job thread of the timed out operation laps after it is stopped
+    tracer.lap(LatencySpan.HAND_OFF, timedOut);
+    tracer.start(Operation.INGESTION);
+    tracer.lap(LatencySpan.SERVER_WAIT, timedOut);
+    tracer.lap(LatencySpan.PREPARE, tracer.getTraceId());
+    total.resetMeasurementMaps();
+    total.mergeMeasurement(client);
+    String breakdown = total.getLatencyBreakdownString(operations);
+    assertTrue(breakdown.contains("prepare"));
+    assertFalse(breakdown.contains("handOff"));
+    assertFalse(breakdown.contains("serverWait"));
+  }
+}
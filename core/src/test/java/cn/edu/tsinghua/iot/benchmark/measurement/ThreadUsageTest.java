@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThreadUsageTest {
+
+  @Test
+  public void testRun() throws InterruptedException {
+    ThreadUsage usage = new ThreadUsage("client");
+    List<long[]> arrays = new ArrayList<>();
+    Runnable task =
+        () -> {
+          for (int i = 0; i < 100; i++) {
+            arrays.add(new long[1024]);
+          }
+        };
+    usage.run(task);
+    // tasks of other threads are added too
+    Thread thread = new Thread(() -> usage.run(task));
+    thread.start();
+    thread.join();
+
+    assertEquals("client", usage.getName());
+    assertEquals(2, usage.getTaskNum());
+    Assume.assumeTrue(usage.isSupported());
+    assertTrue(usage.getAllocatedBytes() >= 2 * 100 * 1024 * 8);
+    assertTrue(usage.getCpuTime() > 0);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.TimeWindowMetrics;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeWindowRingTest {
+
+  /** Long enough that all records of a test fall into the same window */
+  private static final long WINDOW_NANOS = TimeUnit.DAYS.toNanos(1);
+
+  @Test
+  public void testCollect() {
+    TimeWindowSeries series = new TimeWindowSeries(WINDOW_NANOS, 3);
+    TimeWindowRing client1 = new TimeWindowRing(WINDOW_NANOS, 3);
+    TimeWindowRing client2 = new TimeWindowRing(WINDOW_NANOS, 3);
+    for (int i = 1; i <= 100; i++) {
+      client1.recordOk(Operation.INGESTION, 10, i * 1000L);
+    }
+    client2.recordOk(Operation.INGESTION, 10, 200000);
+    client2.recordFail(Operation.INGESTION, 1, 10);
+
+    // the current window is not ended yet
+    client1.collectTo(series, series.getCurrentIndex());
+    client2.collectTo(series, series.getCurrentIndex());
+    assertEquals(0, series.getWindows().size());
+
+    client1.collectTo(series, Long.MAX_VALUE);
+    client2.collectTo(series, Long.MAX_VALUE);
+    // collected windows are not merged again
+    client1.collectTo(series, Long.MAX_VALUE);
+    List<TimeWindow> windows = series.getWindows();
+    assertEquals(1, windows.size());
+    TimeWindow window = windows.get(0);
+    assertEquals(101, window.getOkOperationNum(Operation.INGESTION));
+    assertEquals(1010, window.getOkPointNum(Operation.INGESTION));
+    assertEquals(1, window.getFailOperationNum(Operation.INGESTION));
+    assertEquals(10, window.getFailPointNum(Operation.INGESTION));
+
+    Map<TimeWindowMetrics, Double> metrics = series.getMetrics(window, Operation.INGESTION);
+    assertEquals(51, metrics.get(TimeWindowMetrics.P50_LATENCY), 0.1);
+    assertEquals(100, metrics.get(TimeWindowMetrics.P99_LATENCY), 0.1);
+    assertEquals(200, metrics.get(TimeWindowMetrics.P999_LATENCY), 0.1);
+    assertEquals(1.0 / 102, metrics.get(TimeWindowMetrics.ERROR_RATE), 1e-9);
+    assertEquals(
+        1010.0 / TimeUnit.DAYS.toSeconds(1), metrics.get(TimeWindowMetrics.THROUGHPUT), 1e-9);
+  }
+
+  @Test
+  public void testEmptyWindowsAreFilled() {
+    TimeWindowSeries series = new TimeWindowSeries(WINDOW_NANOS, 3);
+    TimeWindow first = new TimeWindow(10, 3);
+    first.recordOk(Operation.INGESTION, 10, 1000);
+    TimeWindow last = new TimeWindow(13, 3);
+    last.recordOk(Operation.INGESTION, 10, 1000);
+    series.add(last);
+    series.add(first);
+    List<TimeWindow> windows = series.getWindows();
+    assertEquals(4, windows.size());
+    for (int i = 0; i < windows.size(); i++) {
+      assertEquals(10 + i, windows.get(i).getIndex());
+    }
+    assertEquals(0, windows.get(1).getOkOperationNum(Operation.INGESTION));
+    assertEquals(
+        0,
+        series.getMetrics(windows.get(2), Operation.INGESTION).get(TimeWindowMetrics.P99_LATENCY),
+        0);
+  }
+}
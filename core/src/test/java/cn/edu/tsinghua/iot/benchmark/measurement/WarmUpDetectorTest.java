@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement;
+
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.WarmUpMode;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmUpDetectorTest {
+
+  @Test
+  public void testTimeAndOperation() {
+    WarmUpDetector time = new WarmUpDetector(WarmUpMode.TIME, 1000, 0, 5, 1000);
+    assertFalse(time.isFinished(999, 100, new Histogram(3)));
+    assertTrue(time.isFinished(1000, 0, new Histogram(3)));
+
+    WarmUpDetector operation = new WarmUpDetector(WarmUpMode.OPERATION, 1000, 100, 5, 1000);
+    assertFalse(operation.isFinished(5000, 99, new Histogram(3)));
+    assertTrue(operation.isFinished(0, 100, new Histogram(3)));
+  }
+
+  @Test
+  public void testAuto() {
+    WarmUpDetector detector = new WarmUpDetector(WarmUpMode.AUTO, 0, 0, 5, 1000);
+    Histogram latency = new Histogram(3);
+    // the first windows are slow and getting faster, then the median is stable
+    long[] medians = {5000, 2000, 1000, 1020, 1000, 990};
+    boolean[] finished = {false, false, false, false, true, true};
+    for (int i = 0; i < medians.length; i++) {
+      latency.recordValueWithCount(medians[i], 100);
+      assertTrue(finished[i] == detector.isFinished(i * 1000L, 0, latency));
+    }
+  }
+
+  @Test
+  public void testAutoTimeout() {
+    WarmUpDetector detector = new WarmUpDetector(WarmUpMode.AUTO, 3000, 0, 5, 1000);
+    Histogram latency = new Histogram(3);
+    long median = 10000;
+    for (int i = 1; i < 3; i++) {
+      median /= 2;
+      latency.recordValueWithCount(median, 100);
+      assertFalse(detector.isFinished(i * 1000L, 0, latency));
+    }
+    latency.recordValueWithCount(median / 2, 100);
+    assertTrue(detector.isFinished(3000, 0, latency));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.measurement.persistence;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OperationResultRingTest {
+
+  @Test
+  public void testOfferAndDrain() {
+    OperationResultRing ring = new OperationResultRing(3);
+    OperationResultBatch batch = new OperationResultBatch(3);
+    // capacity is rounded up to 4
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer("INGESTION", i, 0, 1.0, "", "d_" + i, 1000L + i));
+    }
+    assertFalse(ring.offer("INGESTION", 4, 0, 1.0, "", "d_4", 1004L));
+
+    assertEquals(3, ring.drainTo(batch));
+    assertTrue(batch.isFull());
+    assertEquals(0, ring.drainTo(batch));
+    assertEquals("d_2", batch.getDevice(2));
+    assertEquals(1000.0, batch.getRate(1), 0.0);
+    batch.clear();
+
+    // the slots are released and the ring wraps around
+    assertTrue(ring.offer("QUERY", 5, 1, 0.0, "failed", "d_5", 1005L));
+    assertEquals(2, ring.drainTo(batch));
+    assertEquals(3, batch.getOkPoint(0));
+    assertEquals("QUERY", batch.getOperation(1));
+    assertEquals(1005L, batch.getRecordTime(1));
+    assertEquals(0.0, batch.getRate(1), 0.0);
+  }
+
+  @Test
+  public void testClose() {
+    OperationResultRing ring = new OperationResultRing(4);
+    OperationResultBatch batch = new OperationResultBatch(4);
+    assertTrue(ring.offer("INGESTION", 1, 0, 1.0, "", "d_0", 1000L));
+    ring.close();
+    // results offered after closing are rejected, those offered before are still drained
+    assertFalse(ring.offer("INGESTION", 2, 0, 1.0, "", "d_0", 1001L));
+    assertEquals(1, ring.drainTo(batch));
+    assertEquals(1, batch.getOkPoint(0));
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.source;
+
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.extern.BinaryDataWriter;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryDataReaderTest {
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    List<Sensor> sensors = new ArrayList<>();
+    sensors.add(new Sensor("s_0", SensorType.BOOLEAN));
+    sensors.add(new Sensor("s_1", SensorType.INT32));
+    sensors.add(new Sensor("s_2", SensorType.INT64));
+    sensors.add(new Sensor("s_3", SensorType.FLOAT));
+    sensors.add(new Sensor("s_4", SensorType.DOUBLE));
+    sensors.add(new Sensor("s_5", SensorType.TEXT));
+    sensors.add(new Sensor("s_6", SensorType.DATE));
+    DeviceSchema deviceSchema = new DeviceSchema("d_0", sensors, new HashMap<>());
+    List<Record> records = new ArrayList<>();
+    for (int row = 0; row < 3; row++) {
+      records.add(
+          new Record(
+              1000L + row,
+              Arrays.asList(
+                  row % 2 == 0,
+                  row,
+                  row * 10L,
+                  row * 1.5f,
+                  row * 2.5d,
+                  "text-" + row,
+                  LocalDate.ofEpochDay(row))));
+    }
+
+    Path dir = Files.createTempDirectory("binary");
+    Path file = dir.resolve("d_0").resolve("BigBatch_0" + BinaryDataFormat.FILE_SUFFIX);
+    BinaryDataWriter writer = new BinaryDataWriter();
+    writer.appendBatch("d_0", file, new Batch(deviceSchema, records));
+    writer.appendBatch("d_0", file, new Batch(deviceSchema, records.subList(0, 1)));
+    writer.close();
+
+    DataReader reader = DataReader.getInstance(Collections.singletonList(file.toString()));
+    assertTrue(reader instanceof BinaryDataReader);
+    assertTrue(reader.hasNextBatch());
+    IBatch batch = reader.nextBatch();
+    assertEquals("d_0", batch.getDeviceSchema().getDevice());
+    assertEquals(records.toString(), batch.getRecords().toString());
+    assertTrue(reader.hasNextBatch());
+    assertEquals(1, reader.nextBatch().getRecords().size());
+    assertFalse(reader.hasNextBatch());
+
+    Files.delete(file);
+    Files.delete(file.getParent());
+    new File(dir.toString()).delete();
+  }
+
+  @Test
+  public void testReuseBatch() throws Exception {
+    List<Sensor> sensors = new ArrayList<>();
+    sensors.add(new Sensor("s_0", SensorType.INT64));
+    sensors.add(new Sensor("s_1", SensorType.TEXT));
+    sensors.add(new Sensor("s_2", SensorType.DOUBLE));
+    DeviceSchema deviceSchema = new DeviceSchema("d_0", sensors, new HashMap<>());
+    DeviceSchema otherSchema =
+        new DeviceSchema(
+            "d_0", Collections.singletonList(new Sensor("s_3", SensorType.INT32)), new HashMap<>());
+    int batchSize = 4;
+    int ringSize =
+        Math.max(
+            ConfigDescriptor.getInstance().getConfig().getWORKLOAD_RING_SIZE(),
+            ConfigDescriptor.getInstance().getConfig().getMAX_IN_FLIGHT_PER_CLIENT() + 1);
+    // full blocks, another layout in the middle, and a partial block at the end of the file
+    List<List<Record>> blocks = new ArrayList<>();
+    List<DeviceSchema> schemas = new ArrayList<>();
+    for (int block = 0; block < 2 * ringSize + 2; block++) {
+      boolean other = block == ringSize;
+      int rowCount = block == 2 * ringSize + 1 ? 1 : batchSize;
+      List<Record> records = new ArrayList<>();
+      for (int row = 0; row < rowCount; row++) {
+        long index = (long) block * batchSize + row;
+        records.add(
+            new Record(
+                1000L + index,
+                other
+                    ? Collections.singletonList((int) index)
+                    : Arrays.asList(index, "text-" + index, index * 2.5d)));
+      }
+      blocks.add(records);
+      schemas.add(other ? otherSchema : deviceSchema);
+    }
+
+    Path dir = Files.createTempDirectory("binary");
+    Path file = dir.resolve("d_0").resolve("BigBatch_0" + BinaryDataFormat.FILE_SUFFIX);
+    BinaryDataWriter writer = new BinaryDataWriter();
+    for (int block = 0; block < blocks.size(); block++) {
+      writer.appendBatch("d_0", file, new Batch(schemas.get(block), blocks.get(block)));
+    }
+    writer.close();
+
+    // blocks cross the mapped windows when they are small
+    for (long windowSize : new long[] {64L * 1024 * 1024, 100}) {
+      DataReader reader =
+          new BinaryDataReader(Collections.singletonList(file.toString()), windowSize);
+      List<IBatch> batches = new ArrayList<>();
+      for (List<Record> records : blocks) {
+        assertTrue(reader.hasNextBatch());
+        IBatch batch = reader.nextBatch();
+        assertEquals(records.size(), ((ColumnarBatch) batch).getRowCount());
+        assertEquals(records.toString(), batch.getRecords().toString());
+        batches.add(batch);
+        // the batches still in the ring keep their rows
+        int first = Math.max(0, batches.size() - ringSize);
+        for (int previous = first; previous < batches.size(); previous++) {
+          assertEquals(
+              blocks.get(previous).toString(), batches.get(previous).getRecords().toString());
+        }
+      }
+      assertFalse(reader.hasNextBatch());
+      // the batches are taken from the ring in turn
+      for (int block = ringSize; block < batches.size(); block++) {
+        assertSame(batches.get(block - ringSize), batches.get(block));
+      }
+      assertEquals(ringSize, batches.stream().distinct().count());
+    }
+
+    Files.delete(file);
+    Files.delete(file.getParent());
+    new File(dir.toString()).delete();
+  }
+
+  @Test
+  public void testIncompleteBlock() throws Exception {
+    List<Sensor> sensors = Collections.singletonList(new Sensor("s_0", SensorType.INT64));
+    DeviceSchema deviceSchema = new DeviceSchema("d_0", sensors, new HashMap<>());
+    List<Record> records =
+        Collections.singletonList(new Record(1000L, Collections.singletonList(1L)));
+
+    Path dir = Files.createTempDirectory("binary");
+    Path file = dir.resolve("d_0").resolve("BigBatch_0" + BinaryDataFormat.FILE_SUFFIX);
+    BinaryDataWriter writer = new BinaryDataWriter();
+    writer.appendBatch("d_0", file, new Batch(deviceSchema, records));
+    writer.appendBatch("d_0", file, new Batch(deviceSchema, records));
+    writer.close();
+    // cut the last value of the second block
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+    DataReader reader = DataReader.getInstance(Collections.singletonList(file.toString()));
+    assertTrue(reader.hasNextBatch());
+    assertEquals(1, reader.nextBatch().getRecords().size());
+    assertTrue(reader.hasNextBatch());
+    try {
+      reader.nextBatch();
+      fail();
+    } catch (UncheckedIOException e) {
+      assertTrue(e.getMessage().contains(file.toString()));
+    }
+    assertFalse(reader.hasNextBatch());
+
+    Files.delete(file);
+    Files.delete(file.getParent());
+    new File(dir.toString()).delete();
+  }
+}
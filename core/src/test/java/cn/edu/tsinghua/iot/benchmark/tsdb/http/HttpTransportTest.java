@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.http;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpTransportTest {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private HttpTransport transport;
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+
+  /** Remote ports of the requests received by the server, i.e. the connections of the pool */
+  private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+  @Before
+  public void setUp() {
+    transport = HttpTransport.open();
+  }
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+    transport.release();
+  }
+
+  @Test
+  public void testKeepAlive() throws Exception {
+    String url = startServer(exchange -> respond(exchange, 200, "ok"));
+    for (int i = 0; i < 5; i++) {
+      assertEquals("ok", transport.write(url, "point " + i, "text/plain"));
+    }
+    // requests one after another reuse the same connection
+    assertEquals(1, clientPorts.size());
+  }
+
+  @Test
+  public void testWritesInFlight() throws Exception {
+    int writeNum = 3;
+    CountDownLatch received = new CountDownLatch(writeNum);
+    String url =
+        startServer(
+            exchange -> {
+              // only respond once all writes are on the wire at the same time
+              received.countDown();
+              try {
+                received.await(10, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              respond(exchange, 200, String.valueOf(received.getCount()));
+            });
+    ExecutorService writers = Executors.newFixedThreadPool(writeNum);
+    try {
+      List<Future<String>> responses = new ArrayList<>();
+      for (int i = 0; i < writeNum; i++) {
+        responses.add(writers.submit(() -> transport.write(url, "point", "text/plain")));
+      }
+      for (Future<String> response : responses) {
+        assertEquals("0", response.get(20, TimeUnit.SECONDS));
+      }
+    } finally {
+      writers.shutdownNow();
+    }
+    // each write in flight has its own pooled connection
+    assertEquals(writeNum, clientPorts.size());
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    List<String> encodings = new ArrayList<>();
+    List<String> bodies = new ArrayList<>();
+    String url =
+        startServer(
+            exchange -> {
+              encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+              try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                bodies.add(new String(readAll(in), StandardCharsets.UTF_8));
+              }
+              respond(exchange, 204, "");
+            });
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      body.append("cpu,host=h").append(i).append(" value=").append(i).append('\n');
+    }
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    config.setHTTP_ENABLE_GZIP(true);
+    try {
+      // only the first length bytes of the buffer are the body
+      byte[] buffer = new byte[bytes.length + 16];
+      System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+      assertEquals("", transport.write(url, buffer, bytes.length, "text/plain"));
+      // KairosDB takes gzipped points by the content type instead
+      transport.write(url, "[]", HttpTransport.GZIP_CONTENT_TYPE);
+    } finally {
+      config.setHTTP_ENABLE_GZIP(false);
+    }
+    assertEquals("gzip", encodings.get(0));
+    assertEquals(body.toString(), bodies.get(0));
+    assertNull(encodings.get(1));
+    assertEquals("[]", bodies.get(1));
+  }
+
+  @Test
+  public void testErrorStatus() throws Exception {
+    String url = startServer(exchange -> respond(exchange, 500, "disk full"));
+    try {
+      transport.write(url, "point", "text/plain");
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("HTTP 500"));
+      assertTrue(e.getMessage().contains("disk full"));
+    }
+  }
+
+  @Test
+  public void testRetryStaleConnection() throws Exception {
+    AtomicInteger connectionNum = new AtomicInteger();
+    try (ServerSocket serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+      Thread serverThread =
+          new Thread(
+              () -> {
+                try {
+                  // the first connection is closed without response, like a stale keep-alive one
+                  try (Socket socket = serverSocket.accept()) {
+                    connectionNum.incrementAndGet();
+                    readRequest(socket.getInputStream());
+                  }
+                  try (Socket socket = serverSocket.accept()) {
+                    connectionNum.incrementAndGet();
+                    readRequest(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
+                    out.write(
+                        "HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok"
+                            .getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                  }
+                } catch (IOException e) {
+                  // the test fails on the client side
+                }
+              });
+      serverThread.start();
+      String url = "http://127.0.0.1:" + serverSocket.getLocalPort() + "/write";
+      assertEquals("ok", transport.write(url, "point", "text/plain"));
+      serverThread.join(10_000);
+    }
+    assertEquals(2, connectionNum.get());
+  }
+
+  private String startServer(HttpHandler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          clientPorts.add(exchange.getRemoteAddress().getPort());
+          handler.handle(exchange);
+        });
+    serverExecutor = Executors.newCachedThreadPool();
+    server.setExecutor(serverExecutor);
+    server.start();
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/write";
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length == 0) {
+      // the exchange is closed by the server as soon as the headers of no body are sent
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int length;
+    while ((length = in.read(buffer)) > 0) {
+      out.write(buffer, 0, length);
+    }
+    return out.toByteArray();
+  }
+
+  /** Read the head and the body of one request */
+  private static void readRequest(InputStream in) throws IOException {
+    StringBuilder head = new StringBuilder();
+    while (!head.toString().endsWith("\r\n\r\n")) {
+      int b = in.read();
+      if (b < 0) {
+        return;
+      }
+      head.append((char) b);
+    }
+    int contentLength = 0;
+    for (String line : head.toString().split("\r\n")) {
+      if (line.toLowerCase().startsWith("content-length:")) {
+        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+      }
+    }
+    for (int i = 0; i < contentLength; i++) {
+      in.read();
+    }
+  }
+}
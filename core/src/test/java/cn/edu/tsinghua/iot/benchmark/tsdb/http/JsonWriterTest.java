@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tsdb.http;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JsonWriterTest {
+
+  @Test
+  public void testScalars() {
+    String text = "a\"b\\c\nd\u0001温度😀";
+    JsonWriter writer = new JsonWriter();
+    writer.writeByte('[');
+    writer.writeLong(Long.MIN_VALUE);
+    writer.writeByte(',');
+    writer.writeLong(-120);
+    writer.writeByte(',');
+    writer.writeValue(2.5f);
+    writer.writeByte(',');
+    writer.writeValue(1.0E-5);
+    writer.writeByte(',');
+    writer.writeValue(Double.NaN);
+    writer.writeByte(',');
+    writer.writeValue(true);
+    writer.writeByte(',');
+    writer.writeRaw(JsonWriter.toBytes(text));
+    writer.writeByte(']');
+
+    JSONArray array =
+        JSON.parseArray(new String(writer.getBuffer(), 0, writer.size(), StandardCharsets.UTF_8));
+    assertEquals(Long.MIN_VALUE, array.getLongValue(0));
+    assertEquals(-120, array.getIntValue(1));
+    assertEquals(2.5, array.getDoubleValue(2), 0);
+    assertEquals(1.0E-5, array.getDoubleValue(3), 0);
+    assertNull(array.get(4));
+    assertEquals(true, array.getBoolean(5));
+    assertEquals(text, array.getString(6));
+  }
+
+  @Test
+  public void testColumnarValues() {
+    List<Sensor> sensors = new ArrayList<>();
+    sensors.add(new Sensor("s1", SensorType.INT64));
+    sensors.add(new Sensor("s2", SensorType.FLOAT));
+    sensors.add(new Sensor("s3", SensorType.TEXT));
+    ColumnarBatch batch = new ColumnarBatch(new DeviceSchema("d1", sensors, new HashMap<>()), 1);
+    batch.setValue(0, 0, 7L);
+    batch.setValue(1, 0, 0.1f);
+    batch.setValue(2, 0, "x");
+
+    JsonWriter writer = new JsonWriter();
+    for (int column = 0; column < 3; column++) {
+      writer.writeValue(batch, column, 0);
+      writer.writeByte(' ');
+    }
+    // float keeps its own digits instead of 0.10000000149011612
+    assertEquals(
+        "7 0.1 \"x\" ", new String(writer.getBuffer(), 0, writer.size(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.workload;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SingletonWorkDataWorkLoadTest {
+
+  @Test
+  public void testLeasedLoops() throws Exception {
+    final int threadNum = 4;
+    final int batchNumPerThread = 25;
+    final int stoppedLeaseNum = 10;
+    final int stoppedBatchNum = 3;
+    SingletonWorkDataWorkLoad workLoad = new SingletonWorkDataWorkLoad();
+    Set<String> written = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = Executors.newFixedThreadPool(threadNum);
+    // a client stops in the middle of its lease, like on TEST_MAX_TIME
+    executorService
+        .submit(
+            () -> {
+              workLoad.prepareBatches(stoppedLeaseNum);
+              for (int j = 0; j < stoppedBatchNum; j++) {
+                addPoints(written, workLoad.getOneBatch());
+              }
+              workLoad.releaseBatches();
+              return null;
+            })
+        .get();
+    Assert.assertEquals(stoppedLeaseNum - stoppedBatchNum, workLoad.getUnusedLoopNum());
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(
+          executorService.submit(
+              () -> {
+                // lease in parts like clients do with one ingestion per operation, and prepare the
+                // second part before the first one is used up
+                int first = 10;
+                workLoad.prepareBatches(first);
+                for (int j = 0; j < batchNumPerThread; j++) {
+                  if (j == first / 2) {
+                    workLoad.prepareBatches(batchNumPerThread - first / 2);
+                  }
+                  addPoints(written, workLoad.getOneBatch());
+                }
+                workLoad.releaseBatches();
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+    Assert.assertEquals(0, workLoad.getUnusedLoopNum());
+    Assert.assertEquals(
+        getSequentialPoints(stoppedBatchNum + threadNum * batchNumPerThread), written);
+  }
+
+  @Test
+  public void testUnusedLoops() throws Exception {
+    final int leaseNum = 10;
+    final int stoppedBatchNum = 4;
+    SingletonWorkDataWorkLoad workLoad = new SingletonWorkDataWorkLoad();
+    Set<String> written = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    executorService
+        .submit(
+            () -> {
+              workLoad.prepareBatches(leaseNum);
+              for (int j = 0; j < stoppedBatchNum; j++) {
+                addPoints(written, workLoad.getOneBatch());
+              }
+              workLoad.releaseBatches();
+              return null;
+            })
+        .get();
+    executorService.shutdown();
+    Assert.assertEquals(leaseNum - stoppedBatchNum, workLoad.getUnusedLoopNum());
+    Assert.assertEquals(getSequentialPoints(stoppedBatchNum), written);
+
+    // the loops handed back are written first even without a lease
+    for (int j = stoppedBatchNum; j < leaseNum; j++) {
+      addPoints(written, workLoad.getOneBatch());
+    }
+    Assert.assertEquals(0, workLoad.getUnusedLoopNum());
+    Assert.assertEquals(getSequentialPoints(leaseNum), written);
+  }
+
+  /** Points written by getting batches one by one from a single counter */
+  private static Set<String> getSequentialPoints(int batchNum) throws Exception {
+    SingletonWorkDataWorkLoad workLoad = new SingletonWorkDataWorkLoad();
+    Set<String> points = new HashSet<>();
+    for (int i = 0; i < batchNum; i++) {
+      addPoints(points, workLoad.getOneBatch());
+    }
+    return points;
+  }
+
+  private static void addPoints(Set<String> points, IBatch batch) {
+    String device = batch.getDeviceSchema().getDevice();
+    for (Record record : batch.getRecords()) {
+      Assert.assertTrue(points.add(device + "@" + record.getTimestamp()));
+    }
+  }
+}
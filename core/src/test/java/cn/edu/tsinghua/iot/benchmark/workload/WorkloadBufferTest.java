@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.workload;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkloadBufferTest {
+
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  @Test
+  public void testLazyIsSameAsEager() {
+    List<Sensor> sensors = config.getSENSORS();
+    WorkloadBuffer eager = new WorkloadBuffer(sensors, 50, false);
+    WorkloadBuffer lazy = new WorkloadBuffer(sensors, 50, true);
+    // generate lazily in reverse order, the values only depend on the sensor index
+    for (int sensorIndex = sensors.size() - 1; sensorIndex >= 0; sensorIndex--) {
+      for (int i = 0; i < 50; i++) {
+        assertEquals(eager.getValue(sensorIndex, i), lazy.getValue(sensorIndex, i));
+      }
+    }
+  }
+}
@@ -30,6 +30,7 @@ import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeValueQuery;
@@ -44,7 +45,7 @@ import com.influxdb.client.domain.Bucket;
 import com.influxdb.client.domain.Organization;
 import com.influxdb.query.FluxRecord;
 import com.influxdb.query.FluxTable;
-import org.apache.http.HttpStatus;
+import org.apache.http.message.BasicHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +66,7 @@ public class InfluxDB implements IDatabase {
   private final String influxUrl;
   private final String influxDbName;
   private com.influxdb.client.InfluxDBClient client;
+  private HttpTransport transport;
 
   private static long timeStampConst;
 
@@ -99,6 +101,7 @@ public class InfluxDB implements IDatabase {
   public void init() throws TsdbException {
     try {
       client = InfluxDBClientFactory.create(influxUrl, token.toCharArray(), org, influxDbName);
+      transport = HttpTransport.open();
     } catch (Exception e) {
       LOGGER.error("Initialize InfluxDB failed because ", e);
       throw new TsdbException(e);
@@ -125,6 +128,10 @@ public class InfluxDB implements IDatabase {
     if (client != null) {
       client.close();
     }
+    if (transport != null) {
+      transport.release();
+      transport = null;
+    }
   }
 
   @Override
@@ -170,17 +177,12 @@ public class InfluxDB implements IDatabase {
       for (InfluxDBModel influxDBModel : influxDBModels) {
         lines.add(model2write(influxDBModel));
       }
-      int responseCode =
-          HttpRequestUtil.writeData(
-              CREATE_URL,
-              String.join("\n", lines),
-              "text/plain; version=0.0.4; charset=utf-8",
-              token);
-      if (HttpStatus.SC_NO_CONTENT == responseCode) {
-        return new Status(true);
-      } else {
-        return new Status(false, 0);
-      }
+      transport.write(
+          CREATE_URL,
+          String.join("\n", lines),
+          "text/plain; version=0.0.4; charset=utf-8",
+          new BasicHeader("Authorization", "Token " + token));
+      return new Status(true);
     } catch (Exception e) {
       return new Status(false, 0, e, e.getMessage());
     }
@@ -24,15 +24,17 @@ import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.*;
 import okhttp3.OkHttpClient.Builder;
-import org.influxdb.dto.BatchPoints;
 import org.influxdb.dto.Query;
 import org.influxdb.dto.QueryResult;
 import org.influxdb.dto.QueryResult.Result;
@@ -54,11 +56,26 @@ public class InfluxDB implements IDatabase {
 
   private org.influxdb.InfluxDB influxDbInstance;
   private static final long TIMESTAMP_TO_NANO = getToNanoConst(config.getTIMESTAMP_PRECISION());
+  private static final String LINE_PROTOCOL = "text/plain; charset=utf-8";
+
+  /** Encoder of write bodies, its buffer is reused by all writes of this client */
+  private final LineProtocolEncoder encoder = new LineProtocolEncoder(TIMESTAMP_TO_NANO);
+
+  protected HttpTransport transport;
+  private final String writeUrl;
+  protected OperationTracer tracer = OperationTracer.DISABLED;
 
   /** constructor. */
   public InfluxDB(DBConfig dbConfig) {
     influxUrl = "http://" + dbConfig.getHOST().get(0) + ":" + dbConfig.getPORT().get(0);
     influxDbName = dbConfig.getDB_NAME();
+    writeUrl =
+        influxUrl
+            + "/write?db="
+            + influxDbName
+            + "&rp="
+            + defaultRp
+            + "&precision=n&consistency=all";
   }
 
   @Override
@@ -71,6 +88,7 @@ public class InfluxDB implements IDatabase {
               .writeTimeout(5, TimeUnit.MINUTES)
               .retryOnConnectionFailure(true);
       influxDbInstance = org.influxdb.InfluxDBFactory.connect(influxUrl, client);
+      transport = HttpTransport.open();
     } catch (Exception e) {
       LOGGER.error("Initialize InfluxDB failed because ", e);
       throw new TsdbException(e);
@@ -94,6 +112,10 @@ public class InfluxDB implements IDatabase {
     if (influxDbInstance != null) {
       influxDbInstance.close();
     }
+    if (transport != null) {
+      transport.release();
+      transport = null;
+    }
   }
 
   @Override
@@ -111,24 +133,30 @@ public class InfluxDB implements IDatabase {
     return TimeUtils.convertToSeconds(end - start, "ns");
   }
 
+  @Override
+  public void setOperationTracer(OperationTracer tracer) {
+    this.tracer = tracer;
+  }
+
   @Override
   public Status insertOneBatch(IBatch batch) {
-    BatchPoints batchPoints =
-        BatchPoints.database(influxDbName)
-            .retentionPolicy(defaultRp)
-            .consistency(org.influxdb.InfluxDB.ConsistencyLevel.ALL)
-            .build();
-    try {
-      InfluxDataModel model;
-      for (Record record : batch.getRecords()) {
-        model =
-            createDataModel(
-                batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue());
-        batchPoints.point(model.toInfluxPoint());
-      }
+    return writeLineProtocol(writeUrl, batch);
+  }
 
-      influxDbInstance.write(batchPoints);
+  /**
+   * Encode all devices of batch into one line protocol body and post it to the write endpoint.
+   *
+   * @param url url of the write endpoint, including database and precision=n
+   * @param batch batch to write
+   * @return status of the write
+   */
+  protected Status writeLineProtocol(String url, IBatch batch) {
+    try {
+      encoder.encode(batch);
+      tracer.lap(LatencySpan.PREPARE);
 
+      transport.write(url, encoder.getBuffer(), encoder.size(), LINE_PROTOCOL);
+      tracer.lap(LatencySpan.SERVER_WAIT);
       return new Status(true);
     } catch (Exception e) {
       LOGGER.warn(e.getMessage());
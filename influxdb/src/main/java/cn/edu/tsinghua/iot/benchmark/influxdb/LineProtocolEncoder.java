@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.influxdb;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encode batches into the line protocol of InfluxDB 1.x straight into a reused byte buffer, e.g.
+ * group_0,device=d_0 s_0=1i,s_1=2.5 1535558400000000000. The escaped "measurement,tags " prefix of
+ * every device is built once and shared by all encoders, the escaped "field=" keys are built once
+ * per sensor list. The output is the same as Point of influxdb-java, except that fields keep the
+ * order of the schema instead of being sorted.
+ */
+class LineProtocolEncoder {
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
+  /** Escaped "measurement,device=xxx " of each device, the only tag is sorted trivially */
+  private static final Map<String, byte[]> PREFIXES = new ConcurrentHashMap<>();
+
+  private final long toNanoConst;
+  private final Map<List<Sensor>, byte[][]> fieldKeys = new HashMap<>();
+
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private int size = 0;
+
+  LineProtocolEncoder(long toNanoConst) {
+    this.toNanoConst = toNanoConst;
+  }
+
+  /**
+   * Encode all devices of batch into the buffer, one line for each record.
+   *
+   * @return the number of bytes encoded
+   */
+  int encode(IBatch batch) {
+    size = 0;
+    while (true) {
+      DeviceSchema deviceSchema = batch.getDeviceSchema();
+      byte[] prefix = getPrefix(deviceSchema);
+      List<Sensor> sensors = deviceSchema.getSensors();
+      if (batch.getColIndex() != -1) {
+        // only one sensor is written, its values are the first of each record
+        sensors = sensors.subList(batch.getColIndex(), batch.getColIndex() + 1);
+      }
+      byte[][] keys = getFieldKeys(sensors);
+      if (batch instanceof ColumnarBatch) {
+        encode((ColumnarBatch) batch, prefix, keys);
+      } else {
+        for (Record record : batch.getRecords()) {
+          encode(record, prefix, keys);
+        }
+      }
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    return size;
+  }
+
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void encode(ColumnarBatch batch, byte[] prefix, byte[][] keys) {
+    long[] timestamps = batch.getTimestamps();
+    for (int row = 0; row < batch.getRowCount(); row++) {
+      writeBytes(prefix);
+      boolean isFirstField = true;
+      for (int column = 0; column < keys.length; column++) {
+        Object values = batch.getColumn(column);
+        if (values instanceof Object[] && ((Object[]) values)[row] == null) {
+          continue;
+        }
+        if (!isFirstField) {
+          writeByte((byte) ',');
+        }
+        isFirstField = false;
+        writeBytes(keys[column]);
+        writeValue(batch, column, row);
+      }
+      writeTimestamp(timestamps[row]);
+    }
+  }
+
+  private void encode(Record record, byte[] prefix, byte[][] keys) {
+    List<Object> values = record.getRecordDataValue();
+    writeBytes(prefix);
+    boolean isFirstField = true;
+    for (int column = 0; column < values.size(); column++) {
+      Object value = values.get(column);
+      if (value == null) {
+        continue;
+      }
+      if (!isFirstField) {
+        writeByte((byte) ',');
+      }
+      isFirstField = false;
+      writeBytes(keys[column]);
+      writeValue(value);
+    }
+    writeTimestamp(record.getTimestamp());
+  }
+
+  private void writeValue(ColumnarBatch batch, int column, int row) {
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        writeAscii(String.valueOf(((boolean[]) batch.getColumn(column))[row]));
+        break;
+      case INT32:
+        writeLong(((int[]) batch.getColumn(column))[row]);
+        writeByte((byte) 'i');
+        break;
+      case INT64:
+        writeLong(((long[]) batch.getColumn(column))[row]);
+        writeByte((byte) 'i');
+        break;
+      case FLOAT:
+        writeDecimal(Float.toString(((float[]) batch.getColumn(column))[row]));
+        break;
+      case DOUBLE:
+        writeDecimal(Double.toString(((double[]) batch.getColumn(column))[row]));
+        break;
+      default:
+        writeValue(batch.getValue(column, row));
+        break;
+    }
+  }
+
+  private void writeValue(Object value) {
+    if (value instanceof Double || value instanceof Float) {
+      // Float.toString keeps the digits of float, the same as the former Double.valueOf(toString)
+      writeDecimal(value.toString());
+    } else if (value instanceof Long || value instanceof Integer) {
+      writeLong(((Number) value).longValue());
+      writeByte((byte) 'i');
+    } else if (value instanceof Number) {
+      writeAscii(value.toString());
+      writeByte((byte) 'i');
+    } else if (value instanceof Boolean) {
+      writeAscii(value.toString());
+    } else {
+      // strings, dates and any other type are written as string fields
+      writeByte((byte) '"');
+      writeString(escapeFieldValue(value.toString()));
+      writeByte((byte) '"');
+    }
+  }
+
+  private void writeTimestamp(long timestamp) {
+    writeByte((byte) ' ');
+    writeLong(timestamp * toNanoConst);
+    writeByte((byte) '\n');
+  }
+
+  /** Write a decimal without exponent, as NumberFormat does for Point */
+  private void writeDecimal(String decimal) {
+    if (decimal.indexOf('E') >= 0) {
+      decimal = new BigDecimal(decimal).stripTrailingZeros().toPlainString();
+      if (decimal.indexOf('.') < 0) {
+        decimal = decimal + ".0";
+      }
+    }
+    writeAscii(decimal);
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii(Long.toString(value));
+      return;
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      buffer[size++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long remain = value / 10; remain > 0; remain /= 10) {
+      digits++;
+    }
+    for (int i = size + digits - 1; i >= size; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    size += digits;
+  }
+
+  private void writeAscii(String value) {
+    int length = value.length();
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      buffer[size++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void writeString(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+    }
+    writeAscii(value);
+  }
+
+  private void writeBytes(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, size, bytes.length);
+    size += bytes.length;
+  }
+
+  private void writeByte(byte value) {
+    ensureCapacity(1);
+    buffer[size++] = value;
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + length));
+    }
+  }
+
+  private byte[][] getFieldKeys(List<Sensor> sensors) {
+    byte[][] keys = fieldKeys.get(sensors);
+    if (keys == null) {
+      keys = new byte[sensors.size()][];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = (escapeKey(sensors.get(i).getName()) + "=").getBytes(StandardCharsets.UTF_8);
+      }
+      fieldKeys.put(sensors, keys);
+    }
+    return keys;
+  }
+
+  private static byte[] getPrefix(DeviceSchema deviceSchema) {
+    return PREFIXES.computeIfAbsent(
+        deviceSchema.getDevicePath(),
+        k ->
+            (escapeKey(deviceSchema.getGroup())
+                    + ",device="
+                    + escapeKey(deviceSchema.getDevice())
+                    + " ")
+                .getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Escape measurement, tag keys, tag values and field keys */
+  static String escapeKey(String key) {
+    return key.replace(" ", "\\ ").replace(",", "\\,").replace("=", "\\=");
+  }
+
+  static String escapeFieldValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.influxdb;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineProtocolEncoderTest {
+
+  /** Timestamps of the tests are in milliseconds */
+  private static final long MS_TO_NANO = 1000_000L;
+
+  @Test
+  public void testEscaping() {
+    List<Sensor> sensors =
+        Arrays.asList(new Sensor("s 0", SensorType.TEXT), new Sensor("s,1=", SensorType.TEXT));
+    DeviceSchema deviceSchema = newDeviceSchema("g 0,a=b", "d 0,=", sensors);
+    List<Record> records =
+        Collections.singletonList(new Record(1L, Arrays.asList("a\"b\\c", "温度 ,=")));
+
+    assertEquals(
+        "g\\ 0\\,a\\=b,device=d\\ 0\\,\\= s\\ 0=\"a\\\"b\\\\c\",s\\,1\\==\"温度 ,=\" 1000000\n",
+        encode(new Batch(deviceSchema, records)));
+  }
+
+  @Test
+  public void testValues() {
+    List<Sensor> sensors =
+        Arrays.asList(
+            new Sensor("int", SensorType.INT32),
+            new Sensor("long", SensorType.INT64),
+            new Sensor("float", SensorType.FLOAT),
+            new Sensor("double", SensorType.DOUBLE),
+            new Sensor("bool", SensorType.BOOLEAN),
+            new Sensor("date", SensorType.DATE));
+    DeviceSchema deviceSchema = newDeviceSchema("g_values", "d_values", sensors);
+    List<Record> records = new ArrayList<>();
+    records.add(
+        new Record(1L, Arrays.asList(7, -120L, 0.1f, 1.0E-5, true, LocalDate.of(2024, 1, 2))));
+    records.add(
+        new Record(
+            2L, Arrays.asList(Integer.MIN_VALUE, Long.MIN_VALUE, 2.5f, 1.0E20, false, null)));
+
+    // integers get the i suffix, floats keep their own digits and are never in exponent form
+    String expected =
+        "g_values,device=d_values int=7i,long=-120i,float=0.1,double=0.00001,bool=true,"
+            + "date=\"2024-01-02\" 1000000\n"
+            + "g_values,device=d_values int=-2147483648i,long=-9223372036854775808i,float=2.5,"
+            + "double=100000000000000000000.0,bool=false 2000000\n";
+    assertEquals(expected, encode(new Batch(deviceSchema, records)));
+    assertEquals(expected, encode(toColumnarBatch(deviceSchema, records)));
+  }
+
+  @Test
+  public void testNullSkipping() {
+    List<Sensor> sensors =
+        Arrays.asList(
+            new Sensor("s_0", SensorType.TEXT),
+            new Sensor("s_1", SensorType.INT64),
+            new Sensor("s_2", SensorType.STRING));
+    DeviceSchema deviceSchema = newDeviceSchema("g_null", "d_null", sensors);
+    List<Record> records = new ArrayList<>();
+    records.add(new Record(1L, Arrays.asList(null, 1L, "x")));
+    records.add(new Record(2L, Arrays.asList("y", 2L, null)));
+
+    String expected =
+        "g_null,device=d_null s_1=1i,s_2=\"x\" 1000000\n"
+            + "g_null,device=d_null s_0=\"y\",s_1=2i 2000000\n";
+    assertEquals(expected, encode(new Batch(deviceSchema, records)));
+    assertEquals(expected, encode(toColumnarBatch(deviceSchema, records)));
+  }
+
+  @Test
+  public void testColIndex() {
+    List<Sensor> sensors =
+        Arrays.asList(new Sensor("s_0", SensorType.INT64), new Sensor("s_1", SensorType.DOUBLE));
+    DeviceSchema deviceSchema = newDeviceSchema("g_col", "d_col", sensors);
+    // only s_1 is written, its value is the first of the record
+    IBatch batch =
+        new Batch(
+            deviceSchema, Collections.singletonList(new Record(1L, Arrays.asList((Object) 1.5))));
+    batch.setColIndex(1);
+
+    assertEquals("g_col,device=d_col s_1=1.5 1000000\n", encode(batch));
+  }
+
+  private static String encode(IBatch batch) {
+    LineProtocolEncoder encoder = new LineProtocolEncoder(MS_TO_NANO);
+    int size = encoder.encode(batch);
+    return new String(encoder.getBuffer(), 0, size, StandardCharsets.UTF_8);
+  }
+
+  private static DeviceSchema newDeviceSchema(String group, String device, List<Sensor> sensors) {
+    DeviceSchema deviceSchema = new DeviceSchema("0", "0", device, sensors, new HashMap<>());
+    // the measurement is the group, which is set without the prefix of group names
+    deviceSchema.setGroup(group);
+    return deviceSchema;
+  }
+
+  private static ColumnarBatch toColumnarBatch(DeviceSchema deviceSchema, List<Record> records) {
+    ColumnarBatch batch = new ColumnarBatch(deviceSchema, records.size());
+    for (int row = 0; row < records.size(); row++) {
+      batch.getTimestamps()[row] = records.get(row).getTimestamp();
+      List<Object> values = records.get(row).getRecordDataValue();
+      for (int column = 0; column < values.size(); column++) {
+        if (values.get(column) != null) {
+          batch.setValue(column, row, values.get(column));
+        }
+      }
+    }
+    return batch;
+  }
+}
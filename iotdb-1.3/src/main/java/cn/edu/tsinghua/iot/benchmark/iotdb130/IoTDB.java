@@ -36,12 +36,14 @@ import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
 import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
-import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeValueQuery;
@@ -75,7 +77,6 @@ import java.util.Set;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -107,6 +108,7 @@ public class IoTDB implements IDatabase {
   protected Future<?> task;
   protected DBConfig dbConfig;
   protected Random random = new Random(config.getDATA_SEED());
+  protected OperationTracer tracer = OperationTracer.DISABLED;
 
   public IoTDB(DBConfig dbConfig) {
     this.dbConfig = dbConfig;
@@ -120,9 +122,7 @@ public class IoTDB implements IDatabase {
       try {
         ioTDBConnection = new SingleNodeJDBCConnection(dbConfig);
         ioTDBConnection.init();
-        this.service =
-            Executors.newSingleThreadExecutor(
-                new NamedThreadFactory(ThreadName.EXECUTE_JOB.getName()));
+        this.service = ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB);
       } catch (Exception e) {
         throw new TsdbException(e);
       }
@@ -139,6 +139,11 @@ public class IoTDB implements IDatabase {
     }
   }
 
+  @Override
+  public void setOperationTracer(OperationTracer tracer) {
+    this.tracer = tracer;
+  }
+
   @Override
   public void close() throws TsdbException {
     if (ioTDBConnection != null) {
@@ -376,7 +381,9 @@ public class IoTDB implements IDatabase {
                 batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue());
         statement.addBatch(sql);
       }
+      tracer.lap(LatencySpan.PREPARE);
       statement.executeBatch();
+      tracer.lap(LatencySpan.SERVER_WAIT);
       return new Status(true);
     } catch (Exception e) {
       return new Status(false, 0, e, e.toString());
@@ -696,13 +703,17 @@ public class IoTDB implements IDatabase {
     AtomicInteger line = new AtomicInteger();
     AtomicLong queryResultPointNum = new AtomicLong();
     AtomicBoolean isOk = new AtomicBoolean(true);
+    tracer.lap(LatencySpan.PREPARE);
+    long traceId = tracer.getTraceId();
     try (Statement statement = ioTDBConnection.getConnection().createStatement()) {
       List<List<Object>> records = new ArrayList<>();
       task =
           service.submit(
               () -> {
+                tracer.lap(LatencySpan.HAND_OFF, traceId);
                 try {
                   try (ResultSet resultSet = statement.executeQuery(executeSQL)) {
+                    tracer.lap(LatencySpan.SERVER_WAIT, traceId);
                     while (resultSet.next()) {
                       line.getAndIncrement();
                       if (config.isIS_COMPARISON()) {
@@ -722,6 +733,7 @@ public class IoTDB implements IDatabase {
                         records.add(record);
                       }
                     }
+                    tracer.lap(LatencySpan.DECODE, traceId);
                   }
                 } catch (SQLException e) {
                   LOGGER.error("exception occurred when execute query={}", executeSQL, e);
@@ -737,6 +749,7 @@ public class IoTDB implements IDatabase {
       try {
         task.get(config.getREAD_OPERATION_TIMEOUT_MS(), TimeUnit.MILLISECONDS);
       } catch (InterruptedException | ExecutionException | TimeoutException e) {
+        tracer.stop();
         task.cancel(true);
         return new Status(false, queryResultPointNum.get(), e, executeSQL);
       }
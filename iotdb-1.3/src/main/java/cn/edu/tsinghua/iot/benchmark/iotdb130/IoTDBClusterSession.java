@@ -25,8 +25,10 @@ import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.session.pool.SessionPool;
 
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
 import org.apache.tsfile.enums.TSDataType;
 import org.apache.tsfile.read.common.RowRecord;
 import org.apache.tsfile.write.record.Tablet;
@@ -34,7 +36,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
 
 public class IoTDBClusterSession extends IoTDBSessionBase {
   private class BenchmarkSessionPool implements IBenchmarkSession {
@@ -193,7 +194,7 @@ public class IoTDBClusterSession extends IoTDBSessionBase {
   @Override
   public void init() throws TsdbException {
     // do nothing
-    this.service = Executors.newSingleThreadExecutor();
+    this.service = ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB);
   }
 
   @Override
@@ -26,6 +26,7 @@ import org.apache.iotdb.rpc.StatementExecutionException;
 import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.DeviceSummary;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
@@ -33,6 +34,7 @@ import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
 import cn.edu.tsinghua.iot.benchmark.exception.OperationFailException;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
@@ -79,20 +81,15 @@ public class IoTDBSessionBase extends IoTDB {
 
   public Status insertOneBatchByTablet(IBatch batch) {
     Tablet tablet = genTablet(batch);
-    task =
-        service.submit(
-            () -> {
-              try {
-                if (config.isVECTOR()) {
-                  sessionWrapper.insertAlignedTablet(tablet);
-                } else {
-                  sessionWrapper.insertTablet(tablet);
-                }
-              } catch (IoTDBConnectionException | StatementExecutionException e) {
-                throw new OperationFailException(e);
-              }
-            });
-    return waitWriteTaskToFinishAndGetStatus();
+    tracer.lap(LatencySpan.PREPARE);
+    return write(
+        () -> {
+          if (config.isVECTOR()) {
+            sessionWrapper.insertAlignedTablet(tablet);
+          } else {
+            sessionWrapper.insertTablet(tablet);
+          }
+        });
   }
 
   public Status insertOneBatchByRecord(IBatch batch) {
@@ -154,22 +151,16 @@ public class IoTDBSessionBase extends IoTDB {
       }
       batch.next();
     }
-    task =
-        service.submit(
-            () -> {
-              try {
-                if (config.isVECTOR()) {
-                  sessionWrapper.insertAlignedRecords(
-                      deviceIds, times, measurementsList, typesList, valuesList);
-                } else {
-                  sessionWrapper.insertRecords(
-                      deviceIds, times, measurementsList, typesList, valuesList);
-                }
-              } catch (IoTDBConnectionException | StatementExecutionException e) {
-                throw new OperationFailException(e);
-              }
-            });
-    return waitWriteTaskToFinishAndGetStatus();
+    tracer.lap(LatencySpan.PREPARE);
+    return write(
+        () -> {
+          if (config.isVECTOR()) {
+            sessionWrapper.insertAlignedRecords(
+                deviceIds, times, measurementsList, typesList, valuesList);
+          } else {
+            sessionWrapper.insertRecords(deviceIds, times, measurementsList, typesList, valuesList);
+          }
+        });
   }
 
   @Override
@@ -186,13 +177,17 @@ public class IoTDBSessionBase extends IoTDB {
     AtomicInteger line = new AtomicInteger();
     AtomicLong queryResultPointNum = new AtomicLong();
     AtomicBoolean isOk = new AtomicBoolean(true);
+    tracer.lap(LatencySpan.PREPARE);
+    long traceId = tracer.getTraceId();
     try {
       List<List<Object>> records = new ArrayList<>();
       task =
           service.submit(
               () -> {
+                tracer.lap(LatencySpan.HAND_OFF, traceId);
                 try {
                   ISessionDataSet sessionDataSet = sessionWrapper.executeQueryStatement(executeSQL);
+                  tracer.lap(LatencySpan.SERVER_WAIT, traceId);
                   if (config.isIS_COMPARISON()) {
                     while (sessionDataSet.hasNext()) {
                       RowRecord rowRecord = sessionDataSet.next();
@@ -229,6 +224,7 @@ public class IoTDBSessionBase extends IoTDB {
                   }
 
                   sessionDataSet.close();
+                  tracer.lap(LatencySpan.DECODE, traceId);
                 } catch (StatementExecutionException | IoTDBConnectionException e) {
                   LOGGER.error("exception occurred when execute query={}", executeSQL, e);
                   isOk.set(false);
@@ -243,6 +239,7 @@ public class IoTDBSessionBase extends IoTDB {
       try {
         task.get(config.getREAD_OPERATION_TIMEOUT_MS(), TimeUnit.MILLISECONDS);
       } catch (InterruptedException | ExecutionException | TimeoutException e) {
+        tracer.stop();
         task.cancel(true);
         return new Status(false, queryResultPointNum.get(), e, executeSQL);
       }
@@ -397,6 +394,9 @@ public class IoTDBSessionBase extends IoTDB {
       sensorIndex++;
     }
     String deviceId = getDevicePath(batch.getDeviceSchema());
+    if (batch instanceof ColumnarBatch) {
+      return genTablet((ColumnarBatch) batch, deviceId, schemaList);
+    }
     Tablet tablet = new Tablet(deviceId, schemaList, batch.getRecords().size());
     long[] timestamps = tablet.timestamps;
     Object[] values = tablet.values;
@@ -462,6 +462,41 @@ public class IoTDBSessionBase extends IoTDB {
     return tablet;
   }
 
+  /** Copy the primitive columns of batch into tablet without going through records */
+  private Tablet genTablet(
+      ColumnarBatch batch, String deviceId, List<MeasurementSchema> schemaList) {
+    int rowCount = batch.getRowCount();
+    Tablet tablet = new Tablet(deviceId, schemaList, rowCount);
+    System.arraycopy(batch.getTimestamps(), 0, tablet.timestamps, 0, rowCount);
+    Object[] values = tablet.values;
+    for (int column = 0; column < batch.getColumnCount(); column++) {
+      switch (batch.getSensorType(column)) {
+        case TEXT:
+        case STRING:
+        case BLOB:
+          String[] texts = (String[]) batch.getColumn(column);
+          Binary[] sensorsText = (Binary[]) values[column];
+          for (int row = 0; row < rowCount; row++) {
+            sensorsText[row] = binaryCache.computeIfAbsent(texts[row], BytesUtils::valueOf);
+          }
+          break;
+        case BOOLEAN:
+        case INT32:
+        case INT64:
+        case FLOAT:
+        case DOUBLE:
+        case TIMESTAMP:
+        case DATE:
+          System.arraycopy(batch.getColumn(column), 0, values[column], 0, rowCount);
+          break;
+        default:
+          LOGGER.error("Unsupported Type: {}", batch.getSensorType(column));
+      }
+    }
+    tablet.rowSize = rowCount;
+    return tablet;
+  }
+
   public List<TSDataType> constructDataTypes(List<Sensor> sensors, int recordValueSize) {
     List<TSDataType> dataTypes = new ArrayList<>();
     for (int sensorIndex = 0; sensorIndex < recordValueSize; sensorIndex++) {
@@ -532,10 +567,47 @@ public class IoTDBSessionBase extends IoTDB {
     }
   }
 
+  /**
+   * Send one write. With MAX_IN_FLIGHT_PER_CLIENT > 1 it already runs on a thread of the ingestion
+   * pipeline, whose connection is not shared, so it is sent right there. Otherwise it is handed to
+   * the job thread, so that the client stops waiting after WRITE_OPERATION_TIMEOUT_MS.
+   */
+  private Status write(SessionWrite sessionWrite) {
+    if (config.getMAX_IN_FLIGHT_PER_CLIENT() > 1) {
+      try {
+        sessionWrite.write();
+        tracer.lap(LatencySpan.SERVER_WAIT);
+      } catch (IoTDBConnectionException | StatementExecutionException e) {
+        LOGGER.error("insertion failed", e);
+        return new Status(false, 0, e, e.toString());
+      }
+      return new Status(true);
+    }
+    long traceId = tracer.getTraceId();
+    task =
+        service.submit(
+            () -> {
+              tracer.lap(LatencySpan.HAND_OFF, traceId);
+              try {
+                sessionWrite.write();
+                tracer.lap(LatencySpan.SERVER_WAIT, traceId);
+              } catch (IoTDBConnectionException | StatementExecutionException e) {
+                throw new OperationFailException(e);
+              }
+            });
+    return waitWriteTaskToFinishAndGetStatus();
+  }
+
+  @FunctionalInterface
+  private interface SessionWrite {
+    void write() throws IoTDBConnectionException, StatementExecutionException;
+  }
+
   Status waitWriteTaskToFinishAndGetStatus() {
     try {
       task.get(config.getWRITE_OPERATION_TIMEOUT_MS(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException | ExecutionException | TimeoutException e) {
+      tracer.stop();
       task.cancel(true);
       LOGGER.error("insertion failed", e);
       return new Status(false, 0, e, e.toString());
@@ -32,7 +32,7 @@ import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
-import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,7 +44,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -204,9 +203,7 @@ public class JDBCStrategy extends DMLStrategy {
       try {
         ioTDBConnection = new SingleNodeJDBCConnection(dbConfig);
         ioTDBConnection.init();
-        this.service =
-            Executors.newSingleThreadExecutor(
-                new NamedThreadFactory(ThreadName.EXECUTE_JOB.getName()));
+        this.service = ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB);
       } catch (Exception e) {
         throw new TsdbException(e);
       }
@@ -27,6 +27,7 @@ import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.DeviceSummary;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
@@ -40,7 +41,7 @@ import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
 import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBInsertMode;
-import cn.edu.tsinghua.iot.benchmark.utils.NamedThreadFactory;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
 import org.apache.tsfile.enums.ColumnCategory;
 import org.apache.tsfile.enums.TSDataType;
 import org.apache.tsfile.file.metadata.enums.TSEncoding;
@@ -62,7 +63,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -120,7 +120,14 @@ public class SessionStrategy extends DMLStrategy {
   private Tablet genTablet(IBatch batch) {
     List<IMeasurementSchema> schemaList = new ArrayList<>();
     List<ColumnCategory> columnTypes = new ArrayList<>();
-    List<Sensor> sensors = batch.getDeviceSchema().getSensors();
+    // identity columns may be appended, so copy the read only sensors of schema
+    List<Sensor> sensors = new ArrayList<>(batch.getDeviceSchema().getSensors());
+    // identity columns are appended to the records, so only tree model reads the columns directly
+    if (batch instanceof ColumnarBatch
+        && config.getIoTDB_DIALECT_MODE() == SQLDialect.TREE
+        && !config.isIS_DOUBLE_WRITE()) {
+      return genTablet((ColumnarBatch) batch, schemaList, columnTypes, sensors);
+    }
     if (config.isIS_DOUBLE_WRITE()) {
       iotdb.deleteIDColumnIfNecessary(columnTypes, sensors, batch);
     }
@@ -222,6 +229,86 @@ public class SessionStrategy extends DMLStrategy {
     return tablet;
   }
 
+  /** Fill tablet from the primitive columns of batch without going through records */
+  private Tablet genTablet(
+      ColumnarBatch batch,
+      List<IMeasurementSchema> schemaList,
+      List<ColumnCategory> columnTypes,
+      List<Sensor> sensors) {
+    for (Sensor sensor : sensors) {
+      SensorType dataSensorType = sensor.getSensorType();
+      schemaList.add(
+          new MeasurementSchema(
+              sensor.getName(),
+              Enum.valueOf(TSDataType.class, dataSensorType.name),
+              Enum.valueOf(
+                  TSEncoding.class,
+                  Objects.requireNonNull(IoTDB.getEncodingType(dataSensorType)))));
+    }
+    String deviceId = iotdb.getInsertTargetName(batch.getDeviceSchema());
+    int rowCount = batch.getRowCount();
+    Tablet tablet = iotdb.createTablet(deviceId, schemaList, columnTypes, rowCount);
+    long[] timestamps = batch.getTimestamps();
+    for (int row = 0; row < rowCount; row++) {
+      tablet.addTimestamp(row, timestamps[row]);
+    }
+    for (int column = 0; column < batch.getColumnCount(); column++) {
+      switch (batch.getSensorType(column)) {
+        case BOOLEAN:
+          boolean[] booleans = (boolean[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, booleans[row]);
+          }
+          break;
+        case INT32:
+          int[] ints = (int[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, ints[row]);
+          }
+          break;
+        case INT64:
+        case TIMESTAMP:
+          long[] longs = (long[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, longs[row]);
+          }
+          break;
+        case FLOAT:
+          float[] floats = (float[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, floats[row]);
+          }
+          break;
+        case DOUBLE:
+          double[] doubles = (double[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, doubles[row]);
+          }
+          break;
+        case TEXT:
+        case STRING:
+        case BLOB:
+          String[] texts = (String[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(
+                row,
+                column,
+                binaryCache.computeIfAbsent(texts[row], BytesUtils::valueOf).getValues());
+          }
+          break;
+        case DATE:
+          LocalDate[] dates = (LocalDate[]) batch.getColumn(column);
+          for (int row = 0; row < rowCount; row++) {
+            tablet.addValue(row, column, dates[row]);
+          }
+          break;
+        default:
+          LOGGER.error("Unsupported Type: {}", batch.getSensorType(column));
+      }
+    }
+    return tablet;
+  }
+
   private Status insertOneBatchByRecord(IBatch batch, String deviceId) {
     int failRecord = 0;
     List<String> sensors =
@@ -463,8 +550,7 @@ public class SessionStrategy extends DMLStrategy {
   @Override
   public void init() {
     sessionManager.open();
-    this.service =
-        Executors.newSingleThreadExecutor(new NamedThreadFactory(ThreadName.EXECUTE_JOB.getName()));
+    this.service = ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB);
   }
 
   @Override
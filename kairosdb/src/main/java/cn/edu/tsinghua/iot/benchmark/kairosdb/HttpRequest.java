@@ -1,178 +0,0 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one
- * or more contributor license agreements.  See the NOTICE file
- * distributed with this work for additional information
- * regarding copyright ownership.  The ASF licenses this file
- * to you under the Apache License, Version 2.0 (the
- * "License"); you may not use this file except in compliance
- * with the License.  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an
- * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- * KIND, either express or implied.  See the License for the
- * specific language governing permissions and limitations
- * under the License.
- */
-
-package cn.edu.tsinghua.iot.benchmark.kairosdb;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-
-/** From https://www.cnblogs.com/zhuawang/archive/2012/12/08/2809380.html */
-public class HttpRequest {
-  /**
-   * 向指定URL发送GET方法的请求
-   *
-   * @param url 发送请求的URL
-   * @param param 请求参数，请求参数应该是 name1=value1&name2=value2 的形式。
-   * @return JDBC_URL 所代表远程资源的响应结果
-   */
-  public static String sendGet(String url, String param) throws IOException {
-    String result = "";
-    BufferedReader in = null;
-    try {
-      String urlNameString = url;
-      if (param != null) urlNameString = urlNameString + "?" + param;
-      URL realUrl = new URL(urlNameString);
-      // 打开和URL之间的连接
-      URLConnection connection = realUrl.openConnection();
-      // 设置通用的请求属性
-      connection.setRequestProperty("accept", "*/*");
-      connection.setRequestProperty("connection", "Keep-Alive");
-      connection.setRequestProperty(
-          "user-agent", "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1;SV1)");
-      // 建立实际的连接
-      connection.connect();
-      /* // 获取所有响应头字段
-      Map<String, List<String>> map = connection.getHeaderFields();
-      // 遍历所有的响应头字段
-      for (String key : map.keySet()) {
-          System.out.println(key + "--->" + map.get(key));
-      }*/
-      // 定义 BufferedReader输入流来读取URL的响应
-      in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-      String line;
-      while ((line = in.readLine()) != null) {
-        result += line;
-      }
-    } catch (Exception e) {
-      throw e;
-    }
-    // 使用finally块来关闭输入流
-    finally {
-      try {
-        if (in != null) {
-          in.close();
-        }
-      } catch (Exception e2) {
-        throw e2;
-      }
-    }
-    return result;
-  }
-
-  /**
-   * 向指定 JDBC_URL 发送POST方法的请求
-   *
-   * @param url 发送请求的 JDBC_URL
-   * @param param 请求参数，请求参数应该是 name1=value1&name2=value2 的形式。
-   * @return 所代表远程资源的响应结果
-   */
-  public static String sendPost(String url, String param) throws IOException {
-    PrintWriter out = null;
-    BufferedReader in = null;
-    String result = "";
-    try {
-      URL realUrl = new URL(url);
-      // 打开和URL之间的连接
-      URLConnection conn = realUrl.openConnection();
-      // 设置通用的请求属性
-      conn.setRequestProperty("accept", "*/*");
-      conn.setRequestProperty("connection", "Keep-Alive");
-      conn.setRequestProperty(
-          "user-agent", "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1;SV1)");
-      // 发送POST请求必须设置如下两行
-      conn.setDoOutput(true);
-      conn.setDoInput(true);
-      // 获取URLConnection对象对应的输出流
-      out = new PrintWriter(conn.getOutputStream());
-      // 发送请求参数
-      if (param != null) out.print(param);
-      // flush输出流的缓冲
-      out.flush();
-      // 定义BufferedReader输入流来读取URL的响应
-      in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-      String line;
-      while ((line = in.readLine()) != null) {
-        result += line;
-      }
-    } catch (Exception e) {
-      throw e;
-    }
-    // 使用finally块来关闭输出流、输入流
-    finally {
-      close(out, in);
-    }
-    return result;
-  }
-
-  public static String sendDelete(String url, String param) throws IOException {
-    PrintWriter out = null;
-    BufferedReader in = null;
-    String result = "";
-    try {
-      URL realUrl = new URL(url);
-      // 打开和URL之间的连接
-      HttpURLConnection conn = (HttpURLConnection) realUrl.openConnection();
-      // 设置通用的请求属性
-      conn.setRequestProperty("accept", "*/*");
-      conn.setRequestProperty("connection", "Keep-Alive");
-      conn.setRequestProperty(
-          "user-agent", "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1;SV1)");
-      conn.setDoOutput(true);
-      conn.setDoInput(true);
-      conn.setRequestMethod("DELETE");
-      // 获取URLConnection对象对应的输出流
-      out = new PrintWriter(conn.getOutputStream());
-      // 发送请求参数
-      if (param != null) out.print(param);
-      // flush输出流的缓冲
-      out.flush();
-      // 定义BufferedReader输入流来读取URL的响应
-      in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-      String line;
-      while ((line = in.readLine()) != null) {
-        result += line;
-      }
-    } catch (Exception e) {
-      throw e;
-    }
-    // 使用finally块来关闭输出流、输入流
-    finally {
-      close(out, in);
-    }
-    return result;
-  }
-
-  private static void close(PrintWriter out, BufferedReader in) throws IOException {
-    try {
-      if (out != null) {
-        out.close();
-      }
-      if (in != null) {
-        in.close();
-      }
-    } catch (IOException e) {
-      throw e;
-    }
-  }
-}
@@ -22,13 +22,13 @@ package cn.edu.tsinghua.iot.benchmark.kairosdb;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
-import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeValueQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggValueQuery;
@@ -37,7 +37,6 @@ import cn.edu.tsinghua.iot.benchmark.workload.query.impl.LatestPointQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.PreciseQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.RangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.ValueRangeQuery;
-import com.alibaba.fastjson.JSON;
 import org.kairosdb.client.HttpClient;
 import org.kairosdb.client.builder.*;
 import org.kairosdb.client.builder.AggregatorFactory.FilterOperation;
@@ -59,7 +58,9 @@ public class KairosDB implements IDatabase {
 
   private String writeUrl;
   private HttpClient client;
+  private HttpTransport transport;
   private DBConfig dbConfig;
+  private final KairosJsonEncoder encoder = new KairosJsonEncoder();
 
   private static final String GROUP_STR = "group";
   private static final String DEVICE_STR = "device";
@@ -79,6 +80,7 @@ public class KairosDB implements IDatabase {
     try {
       client =
           new HttpClient("http://" + dbConfig.getHOST().get(0) + ":" + dbConfig.getPORT().get(0));
+      transport = HttpTransport.open();
     } catch (MalformedURLException e) {
       e.printStackTrace();
       throw new TsdbException(
@@ -108,6 +110,10 @@ public class KairosDB implements IDatabase {
 
   @Override
   public void close() throws TsdbException {
+    if (transport != null) {
+      transport.release();
+      transport = null;
+    }
     try {
       client.close();
     } catch (IOException | NullPointerException e) {
@@ -121,57 +127,14 @@ public class KairosDB implements IDatabase {
     return 0.0;
   }
 
-  private LinkedList<KairosDataModel> createDataModel(
-      DeviceSchema deviceSchema, long timestamp, List<Object> recordValues) {
-    LinkedList<KairosDataModel> models = new LinkedList<>();
-    String groupId = deviceSchema.getGroup();
-    int i = 0;
-    for (Sensor sensor : deviceSchema.getSensors()) {
-      KairosDataModel model = new KairosDataModel();
-      model.setName(sensor.getName());
-      // TODO: KairosDB do not support float as data sensorType, use double instead.
-      model.setTimestamp(timestamp);
-      model.setValue(recordValues.get(i));
-      Map<String, String> tags = new HashMap<>();
-      tags.put(GROUP_STR, groupId);
-      tags.put(DEVICE_STR, deviceSchema.getDevice());
-      model.setTags(tags);
-      models.addLast(model);
-      i++;
-    }
-    return models;
-  }
-
-  private LinkedList<KairosDataModel> createDataModel(
-      DeviceSchema deviceSchema, long timestamp, List<Object> recordValues, int colIndex) {
-    LinkedList<KairosDataModel> models = new LinkedList<>();
-    String groupId = deviceSchema.getGroup();
-    KairosDataModel model = new KairosDataModel();
-    model.setName(deviceSchema.getSensors().get(colIndex).getName());
-    // TODO: KairosDB do not support float as data sensorType, use double instead.
-    model.setTimestamp(timestamp);
-    model.setValue(recordValues.get(0));
-    Map<String, String> tags = new HashMap<>();
-    tags.put(GROUP_STR, groupId);
-    tags.put(DEVICE_STR, deviceSchema.getDevice());
-    model.setTags(tags);
-    models.addLast(model);
-    return models;
-  }
-
   @Override
   public Status insertOneBatch(IBatch batch) {
-    LinkedList<KairosDataModel> models = new LinkedList<>();
-    for (Record record : batch.getRecords()) {
-      models.addAll(
-          createDataModel(
-              batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue()));
-    }
-    String body = JSON.toJSONString(models);
-    LOGGER.debug("body: {}", body);
     try {
-
-      String response = HttpRequest.sendPost(writeUrl, body);
+      encoder.encode(batch);
+      // KairosDB takes gzipped data points by content type rather than Content-Encoding
+      String contentType =
+          config.isHTTP_ENABLE_GZIP() ? HttpTransport.GZIP_CONTENT_TYPE : "application/json";
+      String response = transport.write(writeUrl, encoder.getBuffer(), encoder.size(), contentType);
 
       LOGGER.debug("response: {}", response);
       return new Status(true);
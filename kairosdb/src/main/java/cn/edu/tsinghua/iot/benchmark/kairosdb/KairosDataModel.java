@@ -1,69 +0,0 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one
- * or more contributor license agreements.  See the NOTICE file
- * distributed with this work for additional information
- * regarding copyright ownership.  The ASF licenses this file
- * to you under the Apache License, Version 2.0 (the
- * "License"); you may not use this file except in compliance
- * with the License.  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an
- * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- * KIND, either express or implied.  See the License for the
- * specific language governing permissions and limitations
- * under the License.
- */
-
-package cn.edu.tsinghua.iot.benchmark.kairosdb;
-
-import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
-
-/**
- * example: [{ "name": "archive.file.tracked", "timestamp": 1349109376, "type": "long", "value":
- * 123, "tags":{"HOST":"test"} }, { "name": "archive.file.search", "timestamp": 999, "type":
- * "double", "value": 32.1, "tags":{"HOST":"test"} }]
- */
-public class KairosDataModel implements Serializable {
-  private static final long serialVersionUID = 1L;
-  private String name; // full path like root.perform.group_0.d_0.s_0
-  private long timestamp;
-  private Object value;
-  private Map<String, String> tags = new HashMap<String, String>();
-
-  public String getName() {
-    return name;
-  }
-
-  public void setName(String metric) {
-    this.name = metric;
-  }
-
-  public long getTimestamp() {
-    return timestamp;
-  }
-
-  public void setTimestamp(long timestamp) {
-    this.timestamp = timestamp;
-  }
-
-  public Object getValue() {
-    return value;
-  }
-
-  public void setValue(Object value) {
-    this.value = value;
-  }
-
-  public Map<String, String> getTags() {
-    return tags;
-  }
-
-  public void setTags(Map<String, String> tags) {
-    this.tags = tags;
-  }
-}
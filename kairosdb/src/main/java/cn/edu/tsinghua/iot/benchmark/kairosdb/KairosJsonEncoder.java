@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.kairosdb;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.JsonWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encode batches into the body of /api/v1/datapoints with one metric object per sensor of each
+ * device, whose points are listed in "datapoints", e.g. [{"name":"s_0","tags":{"device":"d_0",
+ * "group":"group_0"},"datapoints":[[1535558400000,1.5],[1535558401000,2.5]]}]. Name and tags are
+ * written once per sensor instead of once per point, and the JSON is written into a reused buffer.
+ */
+class KairosJsonEncoder {
+
+  private static final byte[] DATA_POINTS_END = "]}".getBytes(StandardCharsets.UTF_8);
+
+  /** Escaped ,"tags":{...},"datapoints":[ of each device */
+  private static final Map<String, byte[]> TAGS = new ConcurrentHashMap<>();
+
+  private final JsonWriter writer = new JsonWriter();
+
+  /** Escaped {"name":... of each sensor, built once per sensor list */
+  private final Map<List<Sensor>, byte[][]> sensorNames = new HashMap<>();
+
+  /**
+   * Encode all devices of batch into the buffer, sensors without any non null value are skipped.
+   *
+   * @return the number of bytes encoded
+   */
+  int encode(IBatch batch) {
+    writer.reset();
+    writer.writeByte('[');
+    boolean isFirstMetric = true;
+    while (true) {
+      DeviceSchema deviceSchema = batch.getDeviceSchema();
+      byte[][] names = getNames(deviceSchema.getSensors());
+      byte[] tags = getTags(deviceSchema);
+      if (batch.getColIndex() != -1) {
+        // only one sensor is written, its values are the first of each record
+        isFirstMetric &= !encodeMetric(batch, names[batch.getColIndex()], tags, 0, isFirstMetric);
+      } else {
+        for (int column = 0; column < names.length; column++) {
+          isFirstMetric &= !encodeMetric(batch, names[column], tags, column, isFirstMetric);
+        }
+      }
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    writer.writeByte(']');
+    return writer.size();
+  }
+
+  byte[] getBuffer() {
+    return writer.getBuffer();
+  }
+
+  int size() {
+    return writer.size();
+  }
+
+  /**
+   * @return whether any data point of this metric is written
+   */
+  private boolean encodeMetric(
+      IBatch batch, byte[] name, byte[] tags, int column, boolean isFirstMetric) {
+    int mark = writer.size();
+    if (!isFirstMetric) {
+      writer.writeByte(',');
+    }
+    writer.writeRaw(name);
+    writer.writeRaw(tags);
+    boolean isFirstPoint = true;
+    if (batch instanceof ColumnarBatch) {
+      ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+      long[] timestamps = columnarBatch.getTimestamps();
+      Object values = columnarBatch.getColumn(column);
+      for (int row = 0; row < columnarBatch.getRowCount(); row++) {
+        if (values instanceof Object[] && ((Object[]) values)[row] == null) {
+          continue;
+        }
+        writePointStart(timestamps[row], isFirstPoint);
+        writer.writeValue(columnarBatch, column, row);
+        writer.writeByte(']');
+        isFirstPoint = false;
+      }
+    } else {
+      for (Record record : batch.getRecords()) {
+        Object value = record.getRecordDataValue().get(column);
+        if (value == null) {
+          continue;
+        }
+        writePointStart(record.getTimestamp(), isFirstPoint);
+        writer.writeValue(value);
+        writer.writeByte(']');
+        isFirstPoint = false;
+      }
+    }
+    if (isFirstPoint) {
+      // KairosDB rejects a metric without data points
+      writer.setSize(mark);
+      return false;
+    }
+    writer.writeRaw(DATA_POINTS_END);
+    return true;
+  }
+
+  private void writePointStart(long timestamp, boolean isFirstPoint) {
+    if (!isFirstPoint) {
+      writer.writeByte(',');
+    }
+    writer.writeByte('[');
+    writer.writeLong(timestamp);
+    writer.writeByte(',');
+  }
+
+  private byte[][] getNames(List<Sensor> sensors) {
+    byte[][] names = sensorNames.get(sensors);
+    if (names == null) {
+      names = new byte[sensors.size()][];
+      for (int i = 0; i < names.length; i++) {
+        names[i] =
+            ("{\"name\":" + toJson(sensors.get(i).getName())).getBytes(StandardCharsets.UTF_8);
+      }
+      sensorNames.put(sensors, names);
+    }
+    return names;
+  }
+
+  private static byte[] getTags(DeviceSchema deviceSchema) {
+    return TAGS.computeIfAbsent(
+        deviceSchema.getDevicePath(),
+        k ->
+            (",\"tags\":{\"device\":"
+                    + toJson(deviceSchema.getDevice())
+                    + ",\"group\":"
+                    + toJson(deviceSchema.getGroup())
+                    + "},\"datapoints\":[")
+                .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toJson(String value) {
+    return new String(JsonWriter.toBytes(value), StandardCharsets.UTF_8);
+  }
+}
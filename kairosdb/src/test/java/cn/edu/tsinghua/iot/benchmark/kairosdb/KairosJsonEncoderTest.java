@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.kairosdb;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.MultiDeviceBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class KairosJsonEncoderTest {
+
+  /** Reused by all tests, so that a previous larger body must not leak into the next one */
+  private static final KairosJsonEncoder encoder = new KairosJsonEncoder();
+
+  @Test
+  public void testEscaping() {
+    List<Sensor> sensors =
+        Arrays.asList(
+            new Sensor("s\"0\\", SensorType.TEXT), new Sensor("温度\n\u0001😀", SensorType.TEXT));
+    DeviceSchema deviceSchema = newDeviceSchema("g\"escape\\", "d \"escape\"\t", sensors);
+    List<Record> records =
+        Collections.singletonList(new Record(1L, Arrays.asList("a\"b\\c\r\n", "温度\u001f😀")));
+
+    String json = encode(new Batch(deviceSchema, records));
+    assertSameAsModels(toModels(deviceSchema, records, -1), json);
+    assertEquals(
+        "[{\"name\":\"s\\\"0\\\\\",\"tags\":{\"device\":\"d \\\"escape\\\"\\t\","
+            + "\"group\":\"g\\\"escape\\\\\"},\"datapoints\":[[1,\"a\\\"b\\\\c\\r\\n\"]]},",
+        json.substring(0, json.indexOf("]]},") + 4));
+  }
+
+  @Test
+  public void testValues() {
+    List<Sensor> sensors =
+        Arrays.asList(
+            new Sensor("int", SensorType.INT32),
+            new Sensor("long", SensorType.INT64),
+            new Sensor("float", SensorType.FLOAT),
+            new Sensor("double", SensorType.DOUBLE),
+            new Sensor("bool", SensorType.BOOLEAN),
+            new Sensor("date", SensorType.DATE));
+    DeviceSchema deviceSchema = newDeviceSchema("g_values", "d_values", sensors);
+    List<Record> records = new ArrayList<>();
+    records.add(
+        new Record(1L, Arrays.asList(7, -120L, 0.1f, 1.0E-5, true, LocalDate.of(2024, 1, 2))));
+    records.add(
+        new Record(
+            2L,
+            Arrays.asList(
+                Integer.MIN_VALUE, Long.MIN_VALUE, 2.5f, 1.0E20, false, LocalDate.of(1970, 1, 1))));
+
+    List<KairosDataModel> models = toModels(deviceSchema, records, -1);
+    assertSameAsModels(models, encode(new Batch(deviceSchema, records)));
+    assertSameAsModels(models, encode(toColumnarBatch(deviceSchema, records)));
+    // floats keep their own digits, the previous serialization wrote the same
+    String json = encode(toColumnarBatch(deviceSchema, records));
+    assertEquals("[[1,0.1],[2,2.5]]", getDataPoints(json, "float"));
+    assertEquals("[[1,1.0E-5],[2,1.0E20]]", getDataPoints(json, "double"));
+    assertEquals("[[1,true],[2,false]]", getDataPoints(json, "bool"));
+    assertEquals("[[1,\"2024-01-02\"],[2,\"1970-01-01\"]]", getDataPoints(json, "date"));
+  }
+
+  @Test
+  public void testBatchFraming() {
+    List<Sensor> sensors =
+        Arrays.asList(new Sensor("s_0", SensorType.INT64), new Sensor("s_1", SensorType.TEXT));
+    DeviceSchema first = newDeviceSchema("g_frame", "d_frame_0", sensors);
+    DeviceSchema second = newDeviceSchema("g_frame", "d_frame_1", sensors);
+    List<Record> firstRecords = new ArrayList<>();
+    firstRecords.add(new Record(1L, Arrays.asList(1L, "x")));
+    firstRecords.add(new Record(2L, Arrays.asList(2L, null)));
+    List<Record> secondRecords = Collections.singletonList(new Record(3L, Arrays.asList(3L, "z")));
+    MultiDeviceBatch batch = new MultiDeviceBatch(2);
+    batch.addSchemaAndContent(first, firstRecords);
+    batch.addSchemaAndContent(second, secondRecords);
+
+    // one metric per sensor of each device, null values are skipped
+    List<KairosDataModel> models = new ArrayList<>(toModels(first, firstRecords, -1));
+    models.addAll(toModels(second, secondRecords, -1));
+    String json = encode(batch);
+    assertSameAsModels(models, json);
+    assertEquals(4, JSON.parseArray(json).size());
+
+    // a sensor without any value is not written, and no comma is left
+    DeviceSchema nulls = newDeviceSchema("g_frame", "d_frame_2", sensors);
+    assertEquals(
+        "[{\"name\":\"s_0\",\"tags\":{\"device\":\"d_frame_2\",\"group\":\"g_frame\"},"
+            + "\"datapoints\":[[4,4]]}]",
+        encode(
+            new Batch(nulls, Collections.singletonList(new Record(4L, Arrays.asList(4L, null))))));
+    assertEquals(
+        "[]",
+        encode(
+            new Batch(
+                nulls, Collections.singletonList(new Record(5L, Arrays.asList(null, null))))));
+  }
+
+  @Test
+  public void testColIndex() {
+    List<Sensor> sensors =
+        Arrays.asList(new Sensor("s_0", SensorType.INT64), new Sensor("s_1", SensorType.DOUBLE));
+    DeviceSchema deviceSchema = newDeviceSchema("g_col", "d_col", sensors);
+    // only s_1 is written, its value is the first of the record
+    List<Record> records =
+        Arrays.asList(
+            new Record(1L, Collections.singletonList((Object) 1.5)),
+            new Record(2L, Collections.singletonList((Object) 2.5)));
+    IBatch batch = new Batch(deviceSchema, records);
+    batch.setColIndex(1);
+
+    assertSameAsModels(toModels(deviceSchema, records, 1), encode(batch));
+  }
+
+  private static String encode(IBatch batch) {
+    int size = encoder.encode(batch);
+    return new String(encoder.getBuffer(), 0, size, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The body has the same points as serialized by fastjson before, one object per point. The points
+   * of a sensor are listed in the "datapoints" of one metric now, which KairosDB stores the same
+   * way
+   */
+  private static void assertSameAsModels(List<KairosDataModel> models, String json) {
+    List<String> expected = new ArrayList<>();
+    for (Object point : JSON.parseArray(JSON.toJSONString(models))) {
+      expected.add(JSON.toJSONString(point, SerializerFeature.MapSortField));
+    }
+    List<String> actual = new ArrayList<>();
+    for (Object metric : JSON.parseArray(json)) {
+      JSONObject metricObject = (JSONObject) metric;
+      for (Object dataPoint : metricObject.getJSONArray("datapoints")) {
+        JSONObject point = new JSONObject();
+        point.put("name", metricObject.get("name"));
+        point.put("tags", metricObject.get("tags"));
+        point.put("timestamp", ((JSONArray) dataPoint).get(0));
+        point.put("value", ((JSONArray) dataPoint).get(1));
+        actual.add(JSON.toJSONString(point, SerializerFeature.MapSortField));
+      }
+    }
+    Collections.sort(expected);
+    Collections.sort(actual);
+    assertEquals(expected, actual);
+  }
+
+  /** The text of the data points of sensor in json */
+  private static String getDataPoints(String json, String sensor) {
+    String key = "{\"name\":\"" + sensor + "\",";
+    int start = json.indexOf("\"datapoints\":", json.indexOf(key)) + "\"datapoints\":".length();
+    return json.substring(start, json.indexOf("]]", start) + 2);
+  }
+
+  /** Points as they were built by the adapter before the JSON was written directly */
+  private static List<KairosDataModel> toModels(
+      DeviceSchema deviceSchema, List<Record> records, int colIndex) {
+    List<KairosDataModel> models = new ArrayList<>();
+    for (Record record : records) {
+      List<Object> values = record.getRecordDataValue();
+      for (int i = 0; i < values.size(); i++) {
+        if (values.get(i) == null) {
+          continue;
+        }
+        Sensor sensor = deviceSchema.getSensors().get(colIndex == -1 ? i : colIndex);
+        KairosDataModel model = new KairosDataModel();
+        model.setName(sensor.getName());
+        model.setTimestamp(record.getTimestamp());
+        model.setValue(values.get(i));
+        Map<String, String> tags = new HashMap<>();
+        tags.put("group", deviceSchema.getGroup());
+        tags.put("device", deviceSchema.getDevice());
+        model.setTags(tags);
+        models.add(model);
+      }
+    }
+    return models;
+  }
+
+  private static DeviceSchema newDeviceSchema(String group, String device, List<Sensor> sensors) {
+    DeviceSchema deviceSchema = new DeviceSchema("0", "0", device, sensors, new HashMap<>());
+    deviceSchema.setGroup(group);
+    return deviceSchema;
+  }
+
+  private static ColumnarBatch toColumnarBatch(DeviceSchema deviceSchema, List<Record> records) {
+    ColumnarBatch batch = new ColumnarBatch(deviceSchema, records.size());
+    for (int row = 0; row < records.size(); row++) {
+      batch.getTimestamps()[row] = records.get(row).getTimestamp();
+      List<Object> values = records.get(row).getRecordDataValue();
+      for (int column = 0; column < values.size(); column++) {
+        if (values.get(column) != null) {
+          batch.setValue(column, row, values.get(column));
+        }
+      }
+    }
+    return batch;
+  }
+
+  /** The point of /api/v1/datapoints which was serialized by fastjson */
+  public static class KairosDataModel {
+    private String name;
+    private long timestamp;
+    private Object value;
+    private Map<String, String> tags = new HashMap<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+      this.timestamp = timestamp;
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public void setValue(Object value) {
+      this.value = value;
+    }
+
+    public Map<String, String> getTags() {
+      return tags;
+    }
+
+    public void setTags(Map<String, String> tags) {
+      this.tags = tags;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.constant.ThreadName;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.DBConnectException;
+import cn.edu.tsinghua.iot.benchmark.iotdb130.IBenchmarkSession;
+import cn.edu.tsinghua.iot.benchmark.iotdb130.SingleNodeJDBCConnection;
+import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBFactory;
+import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.DBSwitch;
+import cn.edu.tsinghua.iot.benchmark.utils.ExecutorUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert batches through an adapter whose transport is replaced by {@link StubTransport}, so the
+ * time is spent on turning batches into requests (line protocol, JSON, SQL, tablets) rather than on
+ * the database. HTTP adapters talk to the in-process server, the others get stub connections.
+ *
+ * <p>MSSQLServer and SQLite are left out as they need the ids registered by registerSchema.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AdapterInsertBenchmark {
+
+  /** Distinct batches sent in turn, power of 2 */
+  private static final int BATCH_NUM = 64;
+
+  @Param({
+    "DB_INFLUX",
+    "DB_INFLUX_2",
+    "DB_CNOS",
+    "DB_KAIROS",
+    "DB_OPENTS",
+    "DB_VICTORIAMETRICS",
+    "DB_TIMESCALE",
+    "DB_TIMESCALE_CLUSTER",
+    "DB_TDENGINE",
+    "DB_TDENGINE_3",
+    "DB_QUESTDB",
+    "DB_IOT_130_JDBC",
+    "DB_IOT_130_SESSION_BY_TABLET",
+    "DB_IOT_130_SESSION_BY_RECORDS"
+  })
+  public String dbSwitch;
+
+  @Param({"100", "1000"})
+  public int batchSize;
+
+  private StubTransport transport;
+  private IDatabase database;
+  private IBatch[] batches;
+  private int batchIndex = 0;
+
+  @Setup
+  public void setUp() throws Exception {
+    transport = new StubTransport();
+    database = newDatabase(DBSwitch.valueOf(dbSwitch));
+    batches = BenchmarkData.newBatches(BATCH_NUM, batchSize);
+    // make sure the write path, rather than the error handling, is measured
+    Status status = insertOneBatch();
+    if (!status.isOk()) {
+      throw new IllegalStateException(
+          dbSwitch + " failed to write to stub transport: " + status.getErrorMessage(),
+          status.getException());
+    }
+  }
+
+  private IDatabase newDatabase(DBSwitch dbSwitch) throws Exception {
+    DBConfig dbConfig = new DBConfig();
+    dbConfig.setDB_SWITCH(dbSwitch);
+    dbConfig.setDB_NAME(BenchmarkData.config.getDbConfig().getDB_NAME());
+    // OpenTSDB expects the scheme in HOST
+    String host = transport.getHost();
+    dbConfig.setHOST(
+        Collections.singletonList(dbSwitch == DBSwitch.DB_OPENTS ? "http://" + host : host));
+    dbConfig.setPORT(Collections.singletonList(String.valueOf(transport.getPort())));
+    IDatabase database = new DBFactory().getDatabase(dbConfig);
+    switch (dbSwitch) {
+      case DB_INFLUX:
+      case DB_INFLUX_2:
+      case DB_CNOS:
+      case DB_KAIROS:
+      case DB_OPENTS:
+      case DB_VICTORIAMETRICS:
+        database.init();
+        break;
+      case DB_TIMESCALE:
+      case DB_TIMESCALE_CLUSTER:
+      case DB_TDENGINE:
+      case DB_TDENGINE_3:
+      case DB_QUESTDB:
+        StubTransport.setField(database, "connection", transport.newConnection());
+        break;
+      case DB_IOT_130_JDBC:
+        SingleNodeJDBCConnection connection = new SingleNodeJDBCConnection(dbConfig);
+        StubTransport.setField(
+            connection, "connections", new Connection[] {transport.newConnection()});
+        StubTransport.setField(database, "ioTDBConnection", connection);
+        StubTransport.setField(
+            database, "service", ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB));
+        break;
+      case DB_IOT_130_SESSION_BY_TABLET:
+      case DB_IOT_130_SESSION_BY_RECORDS:
+        StubTransport.setField(
+            database, "sessionWrapper", transport.newProxy(IBenchmarkSession.class));
+        StubTransport.setField(
+            database, "service", ExecutorUtils.newJobExecutor(ThreadName.EXECUTE_JOB));
+        break;
+      default:
+        throw new IllegalArgumentException("No stub transport for " + dbSwitch);
+    }
+    return database;
+  }
+
+  @Benchmark
+  public Status insertOneBatch() throws DBConnectException {
+    IBatch batch = batches[batchIndex++ & (BATCH_NUM - 1)];
+    batch.reset();
+    return database.insertOneBatch(batch);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    try {
+      database.close();
+    } finally {
+      transport.close();
+    }
+  }
+}
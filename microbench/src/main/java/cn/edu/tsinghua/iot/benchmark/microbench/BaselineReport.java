@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compare the JSON result of a JMH run with a baseline result. A benchmark regresses when its score
+ * gets worse by more than the threshold and more than the score errors of both runs, or when it
+ * allocates more than the threshold and more than {@link #MIN_ALLOC_INCREASE} bytes per operation,
+ * as measured by the GC profiler.
+ */
+public class BaselineReport {
+
+  static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+  /** Allocation increase below this is ignored, unit: B/op */
+  private static final double MIN_ALLOC_INCREASE = 16;
+
+  private static final String RESULT_ITEM = "%-48s";
+  private static final String PARAMS_ITEM = "%-40s";
+  private static final String SCORE_ITEM = "%-14s";
+
+  private final Map<String, Score> baseline;
+  private final Map<String, Score> current;
+  private final double threshold;
+  private int regressionNum = 0;
+
+  /**
+   * @param threshold allowed change in percent, e.g. 10
+   */
+  public BaselineReport(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+    this.baseline = baseline;
+    this.current = current;
+    this.threshold = threshold;
+  }
+
+  /** Load the scores of a JMH result file written with -rf json, keyed by benchmark and params */
+  public static Map<String, Score> load(Path file) throws IOException {
+    String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    JSONArray results = JSON.parseArray(content);
+    Map<String, Score> scores = new LinkedHashMap<>();
+    for (int i = 0; i < results.size(); i++) {
+      Score score = new Score(results.getJSONObject(i));
+      scores.put(score.getKey(), score);
+    }
+    return scores;
+  }
+
+  public int getRegressionNum() {
+    return regressionNum;
+  }
+
+  /** Compare every benchmark of the current run, benchmarks only in the baseline are skipped */
+  public String getReportString() {
+    regressionNum = 0;
+    StringBuilder stringBuilder = new StringBuilder("\n");
+    stringBuilder
+        .append(
+            "---------------------------------------------------------------------Baseline Comparison---------------------------------------------------------------------")
+        .append('\n');
+    stringBuilder.append(String.format(RESULT_ITEM, "Benchmark"));
+    stringBuilder.append(String.format(PARAMS_ITEM, "Params"));
+    stringBuilder.append(String.format(SCORE_ITEM, "Unit"));
+    stringBuilder.append(String.format(SCORE_ITEM, "BASELINE"));
+    stringBuilder.append(String.format(SCORE_ITEM, "CURRENT"));
+    stringBuilder.append(String.format(SCORE_ITEM, "CHANGE"));
+    stringBuilder.append(String.format(SCORE_ITEM, "ALLOC(B/op)"));
+    stringBuilder.append(String.format(SCORE_ITEM, "ALLOC CHANGE"));
+    stringBuilder.append("RESULT").append('\n');
+    for (Score score : current.values()) {
+      Score base = baseline.get(score.getKey());
+      stringBuilder.append(String.format(RESULT_ITEM, score.getShortName()));
+      stringBuilder.append(String.format(PARAMS_ITEM, score.params));
+      stringBuilder.append(String.format(SCORE_ITEM, score.unit));
+      stringBuilder.append(String.format(SCORE_ITEM, base == null ? "-" : format(base.score)));
+      stringBuilder.append(String.format(SCORE_ITEM, format(score.score)));
+      stringBuilder.append(
+          String.format(SCORE_ITEM, base == null ? "-" : formatChange(base.score, score.score)));
+      stringBuilder.append(String.format(SCORE_ITEM, format(score.alloc)));
+      stringBuilder.append(
+          String.format(SCORE_ITEM, base == null ? "-" : formatChange(base.alloc, score.alloc)));
+      stringBuilder.append(compare(base, score)).append('\n');
+    }
+    stringBuilder
+        .append(
+            "-------------------------------------------------------------------------------------------------------------------------------------------------------------")
+        .append('\n');
+    stringBuilder
+        .append(regressionNum)
+        .append(" regression(s) against baseline, threshold ")
+        .append(threshold)
+        .append("%")
+        .append('\n');
+    return stringBuilder.toString();
+  }
+
+  private String compare(Score base, Score score) {
+    if (base == null) {
+      return "NEW";
+    }
+    double diff = score.score - base.score;
+    if (score.isHigherBetter()) {
+      diff = -diff;
+    }
+    // positive diff means worse
+    double noise = errorOf(base) + errorOf(score);
+    String result = "OK";
+    if (Math.abs(diff) > base.score * threshold / 100 && Math.abs(diff) > noise) {
+      result = diff > 0 ? "REGRESSION" : "IMPROVED";
+    }
+    double allocDiff = score.alloc - base.alloc;
+    if (allocDiff > base.alloc * threshold / 100 && allocDiff > MIN_ALLOC_INCREASE) {
+      result = "REGRESSION".equals(result) ? "REGRESSION, MORE ALLOC" : "MORE ALLOC";
+    }
+    if (result.contains("REGRESSION") || result.contains("MORE ALLOC")) {
+      regressionNum++;
+    }
+    return result;
+  }
+
+  private static double errorOf(Score score) {
+    return Double.isNaN(score.error) ? 0 : score.error;
+  }
+
+  private static String format(double value) {
+    return Double.isNaN(value) ? "-" : String.format("%.3f", value);
+  }
+
+  private static String formatChange(double base, double value) {
+    if (Double.isNaN(base) || Double.isNaN(value) || base == 0) {
+      return "-";
+    }
+    return String.format("%+.2f%%", (value - base) / base * 100);
+  }
+
+  /** Score of one benchmark with one set of params */
+  public static class Score {
+    private final String benchmark;
+    private final String params;
+    private final String mode;
+    private final String unit;
+    private final double score;
+    private final double error;
+
+    /** Normalized allocation rate, NaN if the GC profiler was not enabled, unit: B/op */
+    private final double alloc;
+
+    Score(JSONObject result) {
+      benchmark = result.getString("benchmark");
+      mode = result.getString("mode");
+      JSONObject paramsObject = result.getJSONObject("params");
+      Map<String, Object> sortedParams =
+          paramsObject == null ? new TreeMap<>() : new TreeMap<>(paramsObject);
+      params = sortedParams.isEmpty() ? "-" : sortedParams.toString();
+      JSONObject primaryMetric = result.getJSONObject("primaryMetric");
+      unit = primaryMetric.getString("scoreUnit");
+      score = getDouble(primaryMetric, "score");
+      error = getDouble(primaryMetric, "scoreError");
+      JSONObject secondaryMetrics = result.getJSONObject("secondaryMetrics");
+      JSONObject allocMetric =
+          secondaryMetrics == null ? null : secondaryMetrics.getJSONObject(ALLOC_METRIC);
+      alloc = allocMetric == null ? Double.NaN : getDouble(allocMetric, "score");
+    }
+
+    private static double getDouble(JSONObject object, String key) {
+      // JMH writes "NaN" as a string
+      Object value = object.get(key);
+      return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    String getKey() {
+      return benchmark + " " + mode + " " + params;
+    }
+
+    /** Class and method of the benchmark without package */
+    String getShortName() {
+      int methodIndex = benchmark.lastIndexOf('.');
+      int classIndex = benchmark.lastIndexOf('.', methodIndex - 1);
+      return benchmark.substring(classIndex + 1);
+    }
+
+    /** Throughput is better when higher, times are better when lower */
+    boolean isHigherBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+}
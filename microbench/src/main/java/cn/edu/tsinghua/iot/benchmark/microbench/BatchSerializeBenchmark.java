@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Serialize and deserialize a batch with ReadWriteIOUtils, see Batch#serialize */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchSerializeBenchmark {
+
+  @Param({"100", "1000"})
+  public int batchSize;
+
+  private Batch batch;
+  private byte[] bytes;
+  private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+  @Setup
+  public void setUp() throws WorkloadException, IOException {
+    BenchmarkData.config.setENABLE_COLUMNAR_BATCH(false);
+    IBatch generated = BenchmarkData.newBatches(1, batchSize)[0];
+    batch = new Batch(generated.getDeviceSchema(), generated.getRecords());
+    batch.serialize(outputStream);
+    bytes = outputStream.toByteArray();
+  }
+
+  @Benchmark
+  public int serialize() throws IOException {
+    outputStream.reset();
+    batch.serialize(outputStream);
+    return outputStream.size();
+  }
+
+  @Benchmark
+  public IBatch deserialize() throws IOException {
+    return Batch.deserialize(new ByteArrayInputStream(bytes));
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
+import cn.edu.tsinghua.iot.benchmark.workload.SyntheticDataWorkLoad;
+
+/** Data shared by the microbenchmarks, generated as microbench/conf/config.properties says */
+public class BenchmarkData {
+
+  static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private BenchmarkData() {}
+
+  /** A workload over the devices of the first data client */
+  public static SyntheticDataWorkLoad newWorkLoad() {
+    return new SyntheticDataWorkLoad(MetaDataSchema.getInstance().getDeviceSchemaByDataClientId(0));
+  }
+
+  /**
+   * Generate distinct batches of batchSize rows, so that benchmarks do not keep sending one batch.
+   * Batches are not reused by the workload, whatever WORKLOAD_RING_SIZE is
+   */
+  public static IBatch[] newBatches(int batchNum, int batchSize) throws WorkloadException {
+    int ringSize = config.getWORKLOAD_RING_SIZE();
+    int oldBatchSize = config.getBATCH_SIZE_PER_WRITE();
+    config.setWORKLOAD_RING_SIZE(0);
+    config.setBATCH_SIZE_PER_WRITE(batchSize);
+    try {
+      SyntheticDataWorkLoad workLoad = newWorkLoad();
+      IBatch[] batches = new IBatch[batchNum];
+      for (int i = 0; i < batchNum; i++) {
+        batches[i] = workLoad.getOneBatch();
+      }
+      return batches;
+    } finally {
+      config.setWORKLOAD_RING_SIZE(ringSize);
+      config.setBATCH_SIZE_PER_WRITE(oldBatchSize);
+    }
+  }
+}
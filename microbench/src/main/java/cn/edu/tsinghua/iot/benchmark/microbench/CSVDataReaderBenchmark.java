@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.extern.CSVDataWriter;
+import cn.edu.tsinghua.iot.benchmark.source.CSVDataReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Parse batches from CSV data files written by CSVDataWriter, see CSVDataReader#nextBatch */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVDataReaderBenchmark {
+
+  /** Rows written into the data files in total */
+  private static final int ROW_NUM = 100000;
+
+  @Param({"100", "1000"})
+  public int batchSize;
+
+  private Path dataDir;
+  private List<String> files;
+  private CSVDataReader reader;
+
+  @Setup
+  public void setUp() throws Exception {
+    dataDir = Files.createTempDirectory("microbench-csv");
+    BenchmarkData.config.setFILE_PATH(dataDir.toString());
+    BenchmarkData.config.setENABLE_COLUMNAR_BATCH(false);
+    CSVDataWriter writer = new CSVDataWriter();
+    for (IBatch batch : BenchmarkData.newBatches(Math.max(1, ROW_NUM / batchSize), batchSize)) {
+      writer.writeBatch(batch, 0);
+    }
+    writer.close();
+    try (Stream<Path> paths = Files.walk(dataDir)) {
+      files =
+          paths
+              .filter(Files::isRegularFile)
+              .map(Path::toString)
+              .sorted()
+              .collect(Collectors.toList());
+    }
+    // the reader reads the rows of one written batch each time
+    BenchmarkData.config.setBATCH_SIZE_PER_WRITE(batchSize);
+    reader = new CSVDataReader(files);
+  }
+
+  @Benchmark
+  public IBatch nextBatch() {
+    if (!reader.hasNextBatch()) {
+      reader = new CSVDataReader(files);
+      reader.hasNextBatch();
+    }
+    return reader.nextBatch();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(dataDir)) {
+      paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.Measurement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record latency into the Measurement of a client, alone and while the interval results are merged
+ * by another thread as BaseMode does
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementBenchmark {
+
+  private static final int POINT_NUM = 1000;
+
+  private Measurement client;
+  private Measurement total;
+
+  @Setup
+  public void setUp() {
+    client = new Measurement();
+    total = new Measurement();
+  }
+
+  private static double nextLatency() {
+    // 0.1 ms ~ 100 ms, unit: ms
+    return ThreadLocalRandom.current().nextDouble(0.1, 100);
+  }
+
+  @Benchmark
+  public void addOperationLatency() {
+    client.addOperationLatency(Operation.INGESTION, nextLatency());
+  }
+
+  @Benchmark
+  public void addOkOperation() {
+    client.addOkOperation(Operation.INGESTION, nextLatency(), POINT_NUM);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public void addOkOperationWhileMerging() {
+    client.addOkOperation(Operation.INGESTION, nextLatency(), POINT_NUM);
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public void mergeMeasurement() {
+    total.mergeMeasurement(client);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Constants;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Run the microbenchmarks with the GC profiler, save the result as JSON and compare it with a
+ * baseline result, e.g. one saved on the master branch:
+ *
+ * <pre>
+ * java -jar microbench/target/benchmarks.jar -o master.json
+ * java -jar microbench/target/benchmarks.jar -b master.json Adapter
+ * </pre>
+ *
+ * The remaining arguments are regexps of the benchmarks to run, all benchmarks by default. The exit
+ * code is 1 if any benchmark regresses against the baseline. Use org.openjdk.jmh.Main directly for
+ * the other JMH options.
+ */
+public class MicrobenchRunner {
+
+  private static final String HELP_ARGS = "help";
+  private static final String CONFIG_ARGS = "cf";
+  private static final String BASELINE_ARGS = "b";
+  private static final String OUTPUT_ARGS = "o";
+  private static final String THRESHOLD_ARGS = "t";
+  private static final String COMPARE_ONLY_ARGS = "c";
+
+  private static final String DEFAULT_CONFIG = "microbench/target/conf";
+  private static final String DEFAULT_OUTPUT = "microbench-result.json";
+  private static final String DEFAULT_THRESHOLD = "10";
+
+  private static Options createOptions() {
+    Options options = new Options();
+    options.addOption(new Option(HELP_ARGS, false, "Display help information"));
+    options.addOption(
+        Option.builder(CONFIG_ARGS)
+            .argName("config dir")
+            .hasArg()
+            .desc("Config dir of the generated data (default: " + DEFAULT_CONFIG + ")")
+            .build());
+    options.addOption(
+        Option.builder(BASELINE_ARGS)
+            .argName("baseline file")
+            .hasArg()
+            .desc("JSON result to compare with (optional)")
+            .build());
+    options.addOption(
+        Option.builder(OUTPUT_ARGS)
+            .argName("result file")
+            .hasArg()
+            .desc("JSON result of this run (default: " + DEFAULT_OUTPUT + ")")
+            .build());
+    options.addOption(
+        Option.builder(THRESHOLD_ARGS)
+            .argName("percent")
+            .hasArg()
+            .desc("Allowed change of score and allocation (default: " + DEFAULT_THRESHOLD + ")")
+            .build());
+    options.addOption(
+        new Option(COMPARE_ONLY_ARGS, false, "Compare the existing result file without running"));
+    return options;
+  }
+
+  public static void main(String[] args) throws RunnerException, IOException {
+    Options options = createOptions();
+    CommandLine commandLine;
+    try {
+      commandLine = new DefaultParser().parse(options, args);
+    } catch (ParseException e) {
+      System.out.println("Error params input, because " + e.getMessage());
+      new HelpFormatter().printHelp("microbench [options] [regexp...]", options);
+      System.exit(2);
+      return;
+    }
+    if (commandLine.hasOption(HELP_ARGS)) {
+      new HelpFormatter().printHelp("microbench [options] [regexp...]", options);
+      return;
+    }
+    String output = commandLine.getOptionValue(OUTPUT_ARGS, DEFAULT_OUTPUT);
+    double threshold =
+        Double.parseDouble(commandLine.getOptionValue(THRESHOLD_ARGS, DEFAULT_THRESHOLD));
+
+    if (!commandLine.hasOption(COMPARE_ONLY_ARGS)) {
+      String configDir = commandLine.getOptionValue(CONFIG_ARGS, DEFAULT_CONFIG);
+      ChainedOptionsBuilder builder =
+          new OptionsBuilder()
+              .addProfiler(GCProfiler.class)
+              .jvmArgsAppend("-D" + Constants.BENCHMARK_CONF + "=" + configDir)
+              .resultFormat(ResultFormatType.JSON)
+              .result(output);
+      for (String include : commandLine.getArgs()) {
+        builder.include(include);
+      }
+      new Runner(builder.build()).run();
+    }
+
+    if (commandLine.hasOption(BASELINE_ARGS)) {
+      Path baselineFile = Paths.get(commandLine.getOptionValue(BASELINE_ARGS));
+      BaselineReport report =
+          new BaselineReport(
+              BaselineReport.load(baselineFile), BaselineReport.load(Paths.get(output)), threshold);
+      System.out.println(report.getReportString());
+      if (report.getRegressionNum() > 0) {
+        System.exit(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
+import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.schema.MetaDataSchema;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.tsdb.DBWrapper;
+import cn.edu.tsinghua.iot.benchmark.workload.query.impl.Query;
+import cn.edu.tsinghua.iot.benchmark.workload.query.impl.RangeQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the query results of two databases record by record, see DBWrapper#doComparisonByRecord.
+ * The second result is shuffled, so both sorting and comparing are measured
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordComparisonBenchmark {
+
+  @Param({"100", "10000"})
+  public int recordNum;
+
+  private DBWrapper dbWrapper;
+  private Method doComparisonByRecord;
+  private RangeQuery query;
+  private List<List<Object>> records1;
+  private List<List<Object>> records2;
+
+  @Setup
+  public void setUp() throws Exception {
+    BenchmarkData.config.setIS_COMPARISON(true);
+    dbWrapper = new DBWrapper(Collections.emptyList());
+    doComparisonByRecord =
+        DBWrapper.class.getDeclaredMethod(
+            "doComparisonByRecord", Query.class, Operation.class, List.class);
+    doComparisonByRecord.setAccessible(true);
+
+    DeviceSchema deviceSchema = MetaDataSchema.getInstance().getAllDeviceSchemas().get(0);
+    query = new RangeQuery(Collections.singletonList(deviceSchema), 0, recordNum);
+    Random random = new Random(recordNum);
+    records1 = new ArrayList<>(recordNum);
+    for (long time = 0; time < recordNum; time++) {
+      List<Object> record = new ArrayList<>();
+      record.add(time);
+      for (int i = 0; i < deviceSchema.getSensors().size(); i++) {
+        record.add(random.nextDouble());
+      }
+      records1.add(record);
+    }
+    records2 = new ArrayList<>(records1);
+    Collections.shuffle(records2, random);
+  }
+
+  @Benchmark
+  public Object doComparisonByRecord() throws Exception {
+    // records are sorted in place, so compare copies
+    List<Status> statuses =
+        Arrays.asList(
+            new Status(true, recordNum, null, new ArrayList<>(records1)),
+            new Status(true, recordNum, null, new ArrayList<>(records2)));
+    return doComparisonByRecord.invoke(dbWrapper, query, Operation.RANGE_QUERY, statuses);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transports which accept everything an adapter sends and reply at once, so that only the encoding
+ * on the client side is measured: an in-process HTTP server for the HTTP based adapters, and
+ * dynamic proxies for JDBC and other client interfaces.
+ */
+public class StubTransport implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  /** Bytes of HTTP bodies and characters of SQL received */
+  private final LongAdder receivedNum = new LongAdder();
+
+  /** Start the HTTP server on a random local port, every request is answered by 204 No Content */
+  public StubTransport() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/",
+        exchange -> {
+          try (InputStream body = exchange.getRequestBody()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+              receivedNum.add(read);
+            }
+          }
+          exchange.sendResponseHeaders(204, -1);
+          exchange.close();
+        });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public String getHost() {
+    return server.getAddress().getHostString();
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public long getReceivedNum() {
+    return receivedNum.sum();
+  }
+
+  /** A connection whose statements count the SQL they get and return empty results */
+  public Connection newConnection() {
+    return newProxy(Connection.class, new ConnectionHandler());
+  }
+
+  /** An implementation of iface which ignores all calls and returns default values */
+  public <T> T newProxy(Class<T> iface) {
+    return newProxy(iface, (proxy, method, args) -> defaultValue(method.getReturnType()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T newProxy(Class<T> iface, InvocationHandler handler) {
+    return (T)
+        Proxy.newProxyInstance(StubTransport.class.getClassLoader(), new Class[] {iface}, handler);
+  }
+
+  /** Set a field declared by the class of target or its super classes, e.g. a private connection */
+  public static void setField(Object target, String name, Object value) {
+    for (Class<?> clazz = target.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+      try {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      } catch (NoSuchFieldException e) {
+        // declared by a super class
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    throw new IllegalArgumentException(target.getClass() + " has no field " + name);
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == int[].class) {
+      return new int[0];
+    } else if (type == long[].class) {
+      return new long[0];
+    } else if (type.isPrimitive() && type != void.class) {
+      throw new UnsupportedOperationException("No default value of " + type);
+    }
+    return null;
+  }
+
+  private class ConnectionHandler implements InvocationHandler {
+    private Connection connection;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+      connection = (Connection) proxy;
+      switch (method.getName()) {
+        case "createStatement":
+          return newProxy(Statement.class, this::invokeStatement);
+        case "prepareStatement":
+          countSql(args);
+          return newProxy(PreparedStatement.class, this::invokeStatement);
+        case "getAutoCommit":
+          return true;
+        case "unwrap":
+          throw new SQLException("Stub connection does not wrap " + args[0]);
+        case "isWrapperFor":
+          return false;
+        default:
+          return defaultValue(method.getReturnType());
+      }
+    }
+
+    private Object invokeStatement(Object proxy, Method method, Object[] args) {
+      countSql(args);
+      if ("getConnection".equals(method.getName())) {
+        return connection;
+      }
+      return defaultValue(method.getReturnType());
+    }
+
+    private void countSql(Object[] args) {
+      if (args != null) {
+        for (Object arg : args) {
+          if (arg instanceof String) {
+            receivedNum.add(((String) arg).length());
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
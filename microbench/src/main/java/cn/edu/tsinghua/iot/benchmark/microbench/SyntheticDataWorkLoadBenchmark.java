@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.microbench;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.exception.WorkloadException;
+import cn.edu.tsinghua.iot.benchmark.workload.SyntheticDataWorkLoad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** Generate batches of synthetic data, see SyntheticDataWorkLoad#getOneBatch */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SyntheticDataWorkLoadBenchmark {
+
+  @Param({"100", "1000"})
+  public int batchSize;
+
+  @Param({"false", "true"})
+  public boolean columnar;
+
+  /** Columnar batches handed out in turn, 0 means a new batch every time */
+  @Param({"0", "8"})
+  public int ringSize;
+
+  private SyntheticDataWorkLoad workLoad;
+
+  @Setup
+  public void setUp() {
+    BenchmarkData.config.setBATCH_SIZE_PER_WRITE(batchSize);
+    BenchmarkData.config.setENABLE_COLUMNAR_BATCH(columnar);
+    BenchmarkData.config.setWORKLOAD_RING_SIZE(ringSize);
+    workLoad = BenchmarkData.newWorkLoad();
+  }
+
+  @Benchmark
+  public IBatch getOneBatch() throws WorkloadException {
+    return workLoad.getOneBatch();
+  }
+}
@@ -23,13 +23,13 @@ import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
 import cn.edu.tsinghua.iot.benchmark.conf.Constants;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
-import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.*;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
@@ -46,8 +46,9 @@ public class OpenTSDB implements IDatabase {
   private static final Config config = ConfigDescriptor.getInstance().getConfig();
   private final String queryUrl;
   private final String writeUrl;
+  private HttpTransport transport;
   private final Random sensorRandom;
-  private final Map<String, LinkedList<OpenTSDBDataModel>> dataMap = new HashMap<>();
+  private final OpenTSDBJsonEncoder encoder = new OpenTSDBJsonEncoder();
   private final int backScanTime = 24;
 
   /** constructor. */
@@ -61,12 +62,14 @@ public class OpenTSDB implements IDatabase {
     }
     sensorRandom = new Random(1 + config.getQUERY_SEED());
     String openUrl = dbConfig.getHOST().get(0) + ":" + dbConfig.getPORT().get(0);
-    writeUrl = openUrl + "/api/put?summary ";
+    writeUrl = openUrl + "/api/put?summary";
     queryUrl = openUrl + "/api/query";
   }
 
   @Override
-  public void init() throws TsdbException {}
+  public void init() throws TsdbException {
+    transport = HttpTransport.open();
+  }
 
   @Override
   public void cleanup() throws TsdbException {
@@ -80,7 +83,7 @@ public class OpenTSDB implements IDatabase {
           String.format(DELETE_METRIC_URL, queryUrl, Constants.START_TIMESTAMP, metricName);
       String response;
       try {
-        response = HttpRequest.sendDelete(deleteMetricURL, "");
+        response = transport.delete(deleteMetricURL);
         LOGGER.info("Delete old data of {} ...", metricName);
         LOGGER.debug("Delete request response: {}", response);
       } catch (IOException e) {
@@ -99,10 +102,8 @@ public class OpenTSDB implements IDatabase {
   @Override
   public Status insertOneBatch(IBatch batch) {
     try {
-      // create dataModel
-      LinkedList<OpenTSDBDataModel> models = createDataModelByBatch(batch);
-      String sql = JSON.toJSONString(models);
-      HttpRequest.sendPost(writeUrl, sql);
+      encoder.encode(batch);
+      transport.write(writeUrl, encoder.getBuffer(), encoder.size(), "application/json");
       return new Status(true);
     } catch (Exception e) {
       e.printStackTrace();
@@ -211,54 +212,18 @@ public class OpenTSDB implements IDatabase {
   }
 
   @Override
-  public void close() {}
-
-  private LinkedList<OpenTSDBDataModel> createDataModelByBatch(IBatch batch) throws TsdbException {
-    DeviceSchema deviceSchema = batch.getDeviceSchema();
-    String device = deviceSchema.getDevice();
-    List<Record> records = batch.getRecords();
-    List<Sensor> sensors = deviceSchema.getSensors();
-    int sensorNum = sensors.size();
-    int recordNum = records.size();
-    LinkedList<OpenTSDBDataModel> models = new LinkedList<>();
-
-    for (int i = 0; i < recordNum; i++) {
-      Record record = records.get(i);
-      if (batch.getColIndex() != -1) {
-        // 只插入一列
-        OpenTSDBDataModel model = new OpenTSDBDataModel();
-        model.setMetric(deviceSchema.getGroup());
-        model.setTimestamp(record.getTimestamp());
-        model.setValue(record.getRecordDataValue().get(0));
-        Map<String, String> tags = new HashMap<>();
-        tags.put("device", device);
-        tags.put("sensor", deviceSchema.getSensors().get(batch.getColIndex()).getName());
-        model.setTags(tags);
-        models.addLast(model);
-      } else {
-        // 插入对齐数据
-        for (int j = 0; j < sensorNum; j++) {
-          OpenTSDBDataModel model = new OpenTSDBDataModel();
-          model.setMetric(deviceSchema.getGroup());
-          model.setTimestamp(record.getTimestamp());
-          model.setValue(record.getRecordDataValue().get(j));
-          Map<String, String> tags = new HashMap<>();
-          tags.put("device", device);
-          tags.put("sensor", deviceSchema.getSensors().get(j).getName());
-          model.setTags(tags);
-          models.addLast(model);
-        }
-      }
+  public void close() {
+    if (transport != null) {
+      transport.release();
+      transport = null;
     }
-
-    return models;
   }
 
   private Status executeQueryAndGetStatus(String sql, boolean isLatestPoint) {
     LOGGER.debug("{} query SQL: {}", Thread.currentThread().getName(), sql);
     try {
       String response;
-      response = HttpRequest.sendPost(queryUrl, sql);
+      response = transport.query(queryUrl, sql, "application/json");
       long pointNum = getOneQueryPointNum(response, isLatestPoint);
       LOGGER.debug("{} 查到数据点数: {}", Thread.currentThread().getName(), pointNum);
       return new Status(true, pointNum);
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.opentsdb;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.JsonWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encode batches into the body of /api/put, e.g. [{"metric":"group_0","tags":{"device":"d_0",
+ * "sensor":"s_0"},"timestamp":1535558400000,"value":1.5}]. /api/put has no way to share metric and
+ * tags among points, so the escaped JSON before the timestamp is built once per sensor and copied
+ * for every point, and the JSON is written into a reused buffer.
+ */
+class OpenTSDBJsonEncoder {
+
+  private static final byte[] VALUE_KEY = ",\"value\":".getBytes(StandardCharsets.UTF_8);
+
+  /** Escaped {"metric":...,"tags":{"device":...,"sensor": of each device */
+  private static final Map<String, byte[]> PREFIXES = new ConcurrentHashMap<>();
+
+  private final JsonWriter writer = new JsonWriter();
+
+  /** Escaped "s_0"},"timestamp": of each sensor, built once per sensor list */
+  private final Map<List<Sensor>, byte[][]> sensorSuffixes = new HashMap<>();
+
+  /**
+   * Encode all devices of batch into the buffer, null values are skipped.
+   *
+   * @return the number of bytes encoded
+   */
+  int encode(IBatch batch) {
+    writer.reset();
+    writer.writeByte('[');
+    while (true) {
+      DeviceSchema deviceSchema = batch.getDeviceSchema();
+      byte[] prefix = getPrefix(deviceSchema);
+      byte[][] suffixes = getSuffixes(deviceSchema.getSensors());
+      if (batch.getColIndex() != -1) {
+        // only one sensor is written, its values are the first of each record
+        encodePoints(batch, prefix, suffixes[batch.getColIndex()], 0);
+      } else {
+        for (int column = 0; column < suffixes.length; column++) {
+          encodePoints(batch, prefix, suffixes[column], column);
+        }
+      }
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    if (writer.size() > 1) {
+      // drop the comma after the last point
+      writer.setSize(writer.size() - 1);
+    }
+    writer.writeByte(']');
+    return writer.size();
+  }
+
+  byte[] getBuffer() {
+    return writer.getBuffer();
+  }
+
+  int size() {
+    return writer.size();
+  }
+
+  private void encodePoints(IBatch batch, byte[] prefix, byte[] suffix, int column) {
+    if (batch instanceof ColumnarBatch) {
+      ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+      long[] timestamps = columnarBatch.getTimestamps();
+      Object values = columnarBatch.getColumn(column);
+      for (int row = 0; row < columnarBatch.getRowCount(); row++) {
+        if (values instanceof Object[] && ((Object[]) values)[row] == null) {
+          continue;
+        }
+        writePointStart(prefix, suffix, timestamps[row]);
+        writer.writeValue(columnarBatch, column, row);
+        writer.writeByte('}');
+        writer.writeByte(',');
+      }
+    } else {
+      for (Record record : batch.getRecords()) {
+        Object value = record.getRecordDataValue().get(column);
+        if (value == null) {
+          continue;
+        }
+        writePointStart(prefix, suffix, record.getTimestamp());
+        writer.writeValue(value);
+        writer.writeByte('}');
+        writer.writeByte(',');
+      }
+    }
+  }
+
+  private void writePointStart(byte[] prefix, byte[] suffix, long timestamp) {
+    writer.writeRaw(prefix);
+    writer.writeRaw(suffix);
+    writer.writeLong(timestamp);
+    writer.writeRaw(VALUE_KEY);
+  }
+
+  private byte[][] getSuffixes(List<Sensor> sensors) {
+    byte[][] suffixes = sensorSuffixes.get(sensors);
+    if (suffixes == null) {
+      suffixes = new byte[sensors.size()][];
+      for (int i = 0; i < suffixes.length; i++) {
+        suffixes[i] =
+            (toJson(sensors.get(i).getName()) + "},\"timestamp\":")
+                .getBytes(StandardCharsets.UTF_8);
+      }
+      sensorSuffixes.put(sensors, suffixes);
+    }
+    return suffixes;
+  }
+
+  private static byte[] getPrefix(DeviceSchema deviceSchema) {
+    return PREFIXES.computeIfAbsent(
+        deviceSchema.getDevicePath(),
+        k ->
+            ("{\"metric\":"
+                    + toJson(deviceSchema.getGroup())
+                    + ",\"tags\":{\"device\":"
+                    + toJson(deviceSchema.getDevice())
+                    + ",\"sensor\":")
+                .getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toJson(String value) {
+    return new String(JsonWriter.toBytes(value), StandardCharsets.UTF_8);
+  }
+}
@@ -21,16 +21,20 @@ package cn.edu.tsinghua.iot.benchmark.tdengine3;
 
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.schema.MetaUtil;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TDengineInsertMode;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.ValueRangeFilter;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
@@ -67,6 +71,7 @@ public class TDengine implements IDatabase {
   private static final String USE_DB = "use %s";
 
   private static final String SUPER_TABLE_NAME = "device";
+  private static final int BINARY_LENGTH = 100;
   private static final String FROM = " FROM ";
   private static final String WHERE = " WHERE ";
   private static final String ORDER_BY_TIME_DESC = " order by time desc ";
@@ -81,6 +86,11 @@ public class TDengine implements IDatabase {
   private Connection connection;
   private final DBConfig dbConfig;
   private final String testDatabaseName;
+  private OperationTracer tracer = OperationTracer.DISABLED;
+  private TDengineStmtWriter stmtWriter;
+
+  /** Whether USE has been issued on the connection, it holds until the database is dropped */
+  private boolean isDatabaseInUse = false;
 
   public TDengine(DBConfig dbConfig) {
     this.dbConfig = dbConfig;
@@ -128,6 +138,7 @@ public class TDengine implements IDatabase {
     try (Statement statement = connection.createStatement()) {
       LOGGER.info("Clean up: {}", DROP_DATABASE);
       statement.execute(DROP_DATABASE);
+      isDatabaseInUse = false;
     } catch (SQLException e) {
       LOGGER.info("Failed to clean up", e);
       throw new TsdbException(e);
@@ -138,6 +149,10 @@ public class TDengine implements IDatabase {
   public void close() throws TsdbException {
     if (connection != null) {
       try {
+        if (stmtWriter != null) {
+          stmtWriter.close();
+          stmtWriter = null;
+        }
         connection.close();
       } catch (SQLException e) {
         LOGGER.error("Failed to close TDengine connection because ", e);
@@ -162,7 +177,7 @@ public class TDengine implements IDatabase {
         initOnlyOnce();
         superTableBarrier.await();
         // create tables
-        statement.execute(String.format(USE_DB, testDatabaseName));
+        useDatabase();
         for (DeviceSchema deviceSchema : schemaList) {
           synchronized (TDengine.class) {
             List<String> params = new ArrayList<>();
@@ -198,7 +213,14 @@ public class TDengine implements IDatabase {
         for (Sensor sensor : config.getSENSORS()) {
           String dataType = typeMap(sensor.getSensorType());
           if (dataType.equals("BINARY")) {
-            superSql.append(sensor).append(" ").append(dataType).append("(100)").append(",");
+            superSql
+                .append(sensor)
+                .append(" ")
+                .append(dataType)
+                .append("(")
+                .append(BINARY_LENGTH)
+                .append(")")
+                .append(",");
           } else {
             superSql.append(sensor).append(" ").append(dataType).append(",");
           }
@@ -213,35 +235,91 @@ public class TDengine implements IDatabase {
     }
   }
 
+  @Override
+  public void setOperationTracer(OperationTracer tracer) {
+    this.tracer = tracer;
+  }
+
   @Override
   public Status insertOneBatch(IBatch batch) {
-    try (Statement statement = connection.createStatement()) {
-      statement.execute(String.format(USE_DB, testDatabaseName));
-      StringBuilder builder = new StringBuilder();
-      DeviceSchema deviceSchema = batch.getDeviceSchema();
-      builder.append("insert into ").append(deviceSchema.getDevice()).append(" values ");
-      for (Record record : batch.getRecords()) {
-        builder.append(
-            getInsertOneRecordSql(
-                batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue()));
+    try {
+      useDatabase();
+      if (config.getTDENGINE_INSERT_MODE() == TDengineInsertMode.STMT) {
+        if (stmtWriter == null) {
+          stmtWriter = new TDengineStmtWriter(connection, BINARY_LENGTH, this::insertBySql);
+        }
+        stmtWriter.insert(batch, tracer);
+        return new Status(true);
       }
-      LOGGER.debug("getInsertOneBatchSql: {}", builder);
-      statement.addBatch(builder.toString());
-      statement.executeBatch();
+      insertBySql(batch);
       return new Status(true);
     } catch (Exception e) {
       return new Status(false, 0, e, e.toString());
     }
   }
 
-  private String getInsertOneRecordSql(
-      DeviceSchema deviceSchema, long timestamp, List<Object> values) {
-    StringBuilder builder = new StringBuilder();
+  /**
+   * Write all devices of batch by one multi-table INSERT, eg. insert into d_0 values
+   * (1535558400000,1,2.5) (1535558401000,2,3.5) d_1 values (1535558400000,3,4.5).
+   */
+  private void insertBySql(IBatch batch) throws SQLException {
+    StringBuilder builder = new StringBuilder("insert into");
+    while (true) {
+      DeviceSchema deviceSchema = batch.getDeviceSchema();
+      List<Sensor> sensors = deviceSchema.getSensors();
+      builder.append(" ").append(deviceSchema.getDevice());
+      if (batch.getColIndex() != -1) {
+        // only one sensor is written, its values are the first of each record
+        sensors = sensors.subList(batch.getColIndex(), batch.getColIndex() + 1);
+        builder.append(" (time, ").append(sensors.get(0).getName()).append(")");
+      }
+      builder.append(" values");
+      if (batch instanceof ColumnarBatch) {
+        appendInsertColumnarSql(builder, (ColumnarBatch) batch);
+      } else {
+        for (Record record : batch.getRecords()) {
+          appendInsertOneRecordSql(builder, sensors, record);
+        }
+      }
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    LOGGER.debug("getInsertOneBatchSql: {}", builder);
+    try (Statement statement = connection.createStatement()) {
+      statement.addBatch(builder.toString());
+      tracer.lap(LatencySpan.PREPARE);
+
+      statement.executeBatch();
+      tracer.lap(LatencySpan.SERVER_WAIT);
+    }
+  }
+
+  /** Append all rows of batch to builder, values are read from the columns without boxing */
+  private void appendInsertColumnarSql(StringBuilder builder, ColumnarBatch batch) {
+    long[] timestamps = batch.getTimestamps();
+    int columnCount = batch.getColIndex() == -1 ? batch.getColumnCount() : 1;
+    for (int row = 0; row < batch.getRowCount(); row++) {
+      builder.append(" (").append(timestamps[row]);
+      for (int column = 0; column < columnCount; column++) {
+        builder.append(",");
+        if ("BINARY".equals(typeMap(batch.getSensorType(column)))) {
+          builder.append("'").append(batch.getValue(column, row)).append("'");
+        } else {
+          batch.appendValue(builder, column, row);
+        }
+      }
+      builder.append(")");
+    }
+  }
+
+  private void appendInsertOneRecordSql(
+      StringBuilder builder, List<Sensor> sensors, Record record) {
     builder.append(" (");
-    builder.append(timestamp);
-    List<Sensor> sensors = deviceSchema.getSensors();
+    builder.append(record.getTimestamp());
     int sensorIndex = 0;
-    for (Object value : values) {
+    for (Object value : record.getRecordDataValue()) {
       switch (typeMap(sensors.get(sensorIndex).getSensorType())) {
         case "BOOL":
           builder.append(",").append((boolean) value);
@@ -266,7 +344,16 @@ public class TDengine implements IDatabase {
       sensorIndex++;
     }
     builder.append(")");
-    return builder.toString();
+  }
+
+  /** Issue USE once per connection, all statements after it refer to the tables by name only */
+  private void useDatabase() throws SQLException {
+    if (!isDatabaseInUse) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(String.format(USE_DB, testDatabaseName));
+      }
+      isDatabaseInUse = true;
+    }
   }
 
   @Override
@@ -473,7 +560,7 @@ public class TDengine implements IDatabase {
     int line = 0;
     int queryResultPointNum = 0;
     try (Statement statement = connection.createStatement()) {
-      statement.execute(String.format(USE_DB, testDatabaseName));
+      useDatabase();
       try (ResultSet resultSet = statement.executeQuery(sql)) {
         while (resultSet.next()) {
           line++;
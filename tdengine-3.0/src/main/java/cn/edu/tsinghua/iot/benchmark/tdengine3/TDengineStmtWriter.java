@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tdengine3;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import com.taosdata.jdbc.TSDBPreparedStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write batches by the parameter binding (STMT) of the native driver, see TDENGINE_INSERT_MODE. The
+ * columns of each sub-table are bound as arrays and added as one batch of the statement, then the
+ * sub-tables of all devices in the batch are written by one execution. Statements are prepared once
+ * per column layout, the arrays of the columns are reused by every batch.
+ *
+ * <p>If a STMT call fails, the batch is written again by the SQL fallback. TDengine keeps one row
+ * per timestamp of a sub-table, so the rows already written by STMT are not duplicated. If the
+ * fallback succeeds, STMT is given up for this connection, e.g. a REST or WebSocket connection can
+ * not bind column arrays, and all later batches are written by SQL. Otherwise the error is about
+ * the data or the server, it is thrown and STMT is tried again by the next batch.
+ */
+class TDengineStmtWriter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TDengineStmtWriter.class);
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+
+  private final StmtFactory stmtFactory;
+  private final int binaryLength;
+  private final SqlWriter fallback;
+
+  /** Whether STMT has been given up and batches are written by the fallback */
+  private boolean isFallback = false;
+
+  /** Statements by the sensors which are bound, the sub-table is bound by the name of device */
+  private final Map<List<Sensor>, Stmt> statements = new HashMap<>();
+
+  private final ArrayList<Long> timestamps = new ArrayList<>();
+  private final List<ArrayList<Object>> columns = new ArrayList<>();
+
+  TDengineStmtWriter(Connection connection, int binaryLength, SqlWriter fallback) {
+    this(sql -> prepareNative(connection, sql), binaryLength, fallback);
+  }
+
+  TDengineStmtWriter(StmtFactory stmtFactory, int binaryLength, SqlWriter fallback) {
+    this.stmtFactory = stmtFactory;
+    this.binaryLength = binaryLength;
+    this.fallback = fallback;
+  }
+
+  void insert(IBatch batch, OperationTracer tracer) throws SQLException {
+    if (isFallback) {
+      fallback.insert(batch);
+      return;
+    }
+    try {
+      insertByStmt(batch, tracer);
+    } catch (SQLException e) {
+      // the state of the bound statements is unknown, they are prepared again if STMT is kept
+      closeStatements();
+      batch.reset();
+      try {
+        fallback.insert(batch);
+      } catch (SQLException fallbackException) {
+        fallbackException.addSuppressed(e);
+        throw fallbackException;
+      }
+      isFallback = true;
+      LOGGER.warn("Failed to write by STMT, write by SQL instead from now on", e);
+    }
+  }
+
+  boolean isFallback() {
+    return isFallback;
+  }
+
+  private void insertByStmt(IBatch batch, OperationTracer tracer) throws SQLException {
+    Stmt statement = null;
+    while (true) {
+      DeviceSchema deviceSchema = batch.getDeviceSchema();
+      List<Sensor> sensors = deviceSchema.getSensors();
+      if (batch.getColIndex() != -1) {
+        // only one sensor is written, its values are the first of each record
+        sensors = sensors.subList(batch.getColIndex(), batch.getColIndex() + 1);
+      }
+      Stmt next = getStatement(sensors);
+      if (statement != null && statement != next) {
+        // devices of one batch have the same sensors, unless the schema is changed by users
+        statement.columnDataExecuteBatch();
+      }
+      statement = next;
+      statement.setTableName(deviceSchema.getDevice());
+      bindColumns(statement, batch, sensors);
+      statement.columnDataAddBatch();
+      if (!batch.hasNext()) {
+        break;
+      }
+      batch.next();
+    }
+    tracer.lap(LatencySpan.PREPARE);
+
+    statement.columnDataExecuteBatch();
+    tracer.lap(LatencySpan.SERVER_WAIT);
+  }
+
+  void close() throws SQLException {
+    try {
+      for (Stmt statement : statements.values()) {
+        statement.close();
+      }
+    } finally {
+      statements.clear();
+    }
+  }
+
+  private void closeStatements() {
+    try {
+      close();
+    } catch (SQLException e) {
+      LOGGER.warn("Failed to close STMT", e);
+    }
+  }
+
+  private Stmt getStatement(List<Sensor> sensors) throws SQLException {
+    Stmt statement = statements.get(sensors);
+    if (statement == null) {
+      statement = stmtFactory.prepare(getInsertSql(sensors));
+      statements.put(new ArrayList<>(sensors), statement);
+    }
+    return statement;
+  }
+
+  /** The sub-table of the insert SQL is a parameter, which is bound by setTableName */
+  static String getInsertSql(List<Sensor> sensors) {
+    StringBuilder sql = new StringBuilder("insert into ?");
+    StringBuilder values = new StringBuilder(" values (?");
+    if (sensors.size() < config.getSENSORS().size()) {
+      // a part of the columns of the super table, which have to be named
+      sql.append(" (time");
+      for (Sensor sensor : sensors) {
+        sql.append(", ").append(sensor.getName());
+      }
+      sql.append(")");
+    }
+    for (int i = 0; i < sensors.size(); i++) {
+      values.append(", ?");
+    }
+    return sql.append(values).append(")").toString();
+  }
+
+  private static Stmt prepareNative(Connection connection, String sql) throws SQLException {
+    PreparedStatement statement = connection.prepareStatement(sql);
+    if (!(statement instanceof TSDBPreparedStatement)) {
+      statement.close();
+      throw new SQLFeatureNotSupportedException(
+          "Only the native connection supports binding column arrays");
+    }
+    return new NativeStmt((TSDBPreparedStatement) statement);
+  }
+
+  /** Bind the timestamps and the values of the current device of batch as column arrays */
+  private void bindColumns(Stmt statement, IBatch batch, List<Sensor> sensors) throws SQLException {
+    while (columns.size() < sensors.size()) {
+      columns.add(new ArrayList<>());
+    }
+    timestamps.clear();
+    for (int column = 0; column < sensors.size(); column++) {
+      columns.get(column).clear();
+    }
+    if (batch instanceof ColumnarBatch) {
+      ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+      long[] times = columnarBatch.getTimestamps();
+      for (int row = 0; row < columnarBatch.getRowCount(); row++) {
+        timestamps.add(times[row]);
+        for (int column = 0; column < sensors.size(); column++) {
+          columns.get(column).add(columnarBatch.getValue(column, row));
+        }
+      }
+    } else {
+      for (Record record : batch.getRecords()) {
+        timestamps.add(record.getTimestamp());
+        List<Object> values = record.getRecordDataValue();
+        for (int column = 0; column < sensors.size(); column++) {
+          columns.get(column).add(values.get(column));
+        }
+      }
+    }
+    statement.setTimestamp(0, timestamps);
+    for (int column = 0; column < sensors.size(); column++) {
+      bindColumn(statement, column + 1, sensors.get(column).getSensorType(), columns.get(column));
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void bindColumn(
+      Stmt statement, int index, SensorType sensorType, ArrayList<Object> values)
+      throws SQLException {
+    ArrayList list = values;
+    switch (sensorType) {
+      case BOOLEAN:
+        statement.setBoolean(index, list);
+        break;
+      case INT32:
+        statement.setInt(index, list);
+        break;
+      case INT64:
+        statement.setLong(index, list);
+        break;
+      case FLOAT:
+        statement.setFloat(index, list);
+        break;
+      case DOUBLE:
+        statement.setDouble(index, list);
+        break;
+      default:
+        // other types are created as BINARY, see typeMap of TDengine
+        for (int i = 0; i < values.size(); i++) {
+          Object value = values.get(i);
+          if (value != null && !(value instanceof String)) {
+            values.set(i, value.toString());
+          }
+        }
+        statement.setString(index, list, binaryLength);
+        break;
+    }
+  }
+
+  /** The STMT calls of the native driver used by this writer */
+  interface Stmt {
+    void setTableName(String name) throws SQLException;
+
+    void setTimestamp(int index, ArrayList<Long> values) throws SQLException;
+
+    void setBoolean(int index, ArrayList<Boolean> values) throws SQLException;
+
+    void setInt(int index, ArrayList<Integer> values) throws SQLException;
+
+    void setLong(int index, ArrayList<Long> values) throws SQLException;
+
+    void setFloat(int index, ArrayList<Float> values) throws SQLException;
+
+    void setDouble(int index, ArrayList<Double> values) throws SQLException;
+
+    void setString(int index, ArrayList<String> values, int size) throws SQLException;
+
+    void columnDataAddBatch() throws SQLException;
+
+    void columnDataExecuteBatch() throws SQLException;
+
+    void close() throws SQLException;
+  }
+
+  @FunctionalInterface
+  interface StmtFactory {
+    Stmt prepare(String sql) throws SQLException;
+  }
+
+  /** Write a whole batch by SQL, from the first device of it */
+  @FunctionalInterface
+  interface SqlWriter {
+    void insert(IBatch batch) throws SQLException;
+  }
+
+  private static class NativeStmt implements Stmt {
+    private final TSDBPreparedStatement statement;
+
+    private NativeStmt(TSDBPreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    @Override
+    public void setTableName(String name) throws SQLException {
+      statement.setTableName(name);
+    }
+
+    @Override
+    public void setTimestamp(int index, ArrayList<Long> values) throws SQLException {
+      statement.setTimestamp(index, values);
+    }
+
+    @Override
+    public void setBoolean(int index, ArrayList<Boolean> values) throws SQLException {
+      statement.setBoolean(index, values);
+    }
+
+    @Override
+    public void setInt(int index, ArrayList<Integer> values) throws SQLException {
+      statement.setInt(index, values);
+    }
+
+    @Override
+    public void setLong(int index, ArrayList<Long> values) throws SQLException {
+      statement.setLong(index, values);
+    }
+
+    @Override
+    public void setFloat(int index, ArrayList<Float> values) throws SQLException {
+      statement.setFloat(index, values);
+    }
+
+    @Override
+    public void setDouble(int index, ArrayList<Double> values) throws SQLException {
+      statement.setDouble(index, values);
+    }
+
+    @Override
+    public void setString(int index, ArrayList<String> values, int size) throws SQLException {
+      statement.setString(index, values, size);
+    }
+
+    @Override
+    public void columnDataAddBatch() throws SQLException {
+      statement.columnDataAddBatch();
+    }
+
+    @Override
+    public void columnDataExecuteBatch() throws SQLException {
+      statement.columnDataExecuteBatch();
+    }
+
+    @Override
+    public void close() throws SQLException {
+      statement.close();
+    }
+  }
+}
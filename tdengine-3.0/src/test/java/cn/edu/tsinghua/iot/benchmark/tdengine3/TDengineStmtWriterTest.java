@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.tdengine3;
+
+import cn.edu.tsinghua.iot.benchmark.conf.Config;
+import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.Batch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.MultiDeviceBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TDengineStmtWriterTest {
+  private static final Config config = ConfigDescriptor.getInstance().getConfig();
+  private static final int BINARY_LENGTH = 100;
+
+  private static final List<Sensor> SENSORS =
+      Arrays.asList(
+          new Sensor("s_0", SensorType.BOOLEAN),
+          new Sensor("s_1", SensorType.INT32),
+          new Sensor("s_2", SensorType.INT64),
+          new Sensor("s_3", SensorType.FLOAT),
+          new Sensor("s_4", SensorType.DOUBLE),
+          new Sensor("s_5", SensorType.TEXT),
+          new Sensor("s_6", SensorType.DATE));
+
+  /** All calls of the statements prepared by the writer */
+  private final List<String> calls = new ArrayList<>();
+
+  /** SQL of each statement prepared by the writer */
+  private final List<String> sqls = new ArrayList<>();
+
+  /** Devices of the batches written by the fallback, from the device the batch is at */
+  private final List<String> fallbackDevices = new ArrayList<>();
+
+  private String failingCall;
+  private SQLException fallbackException;
+
+  @Test
+  public void testInsertSql() {
+    List<Sensor> allSensors = config.getSENSORS();
+    StringBuilder expected = new StringBuilder("insert into ? values (?");
+    for (int i = 0; i < allSensors.size(); i++) {
+      expected.append(", ?");
+    }
+    assertEquals(expected.append(")").toString(), TDengineStmtWriter.getInsertSql(allSensors));
+    // a part of the sensors names its columns
+    assertEquals(
+        "insert into ? (time, s_1) values (?, ?)",
+        TDengineStmtWriter.getInsertSql(SENSORS.subList(1, 2)));
+  }
+
+  @Test
+  public void testBindColumns() throws SQLException {
+    List<Record> records = new ArrayList<>();
+    records.add(
+        new Record(1L, Arrays.asList(true, 1, 10L, 1.5f, 2.5, "a", LocalDate.of(2024, 1, 2))));
+    records.add(new Record(2L, Arrays.asList(false, 2, 20L, 3.5f, 4.5, null, null)));
+    DeviceSchema deviceSchema = newDeviceSchema("d_0", SENSORS);
+    List<String> expected =
+        Arrays.asList(
+            "setTableName d_0",
+            "setTimestamp 0 [1, 2]",
+            "setBoolean 1 [true, false]",
+            "setInt 2 [1, 2]",
+            "setLong 3 [10, 20]",
+            "setFloat 4 [1.5, 3.5]",
+            "setDouble 5 [2.5, 4.5]",
+            // other types are bound as BINARY, null values are kept
+            "setString 6 [a, null] 100",
+            "setString 7 [2024-01-02, null] 100",
+            "columnDataAddBatch",
+            "columnDataExecuteBatch");
+
+    TDengineStmtWriter writer = newWriter();
+    writer.insert(new Batch(deviceSchema, records), OperationTracer.DISABLED);
+    assertEquals(expected, calls);
+    assertEquals(1, sqls.size());
+
+    // the same statement is used by the columnar batch, whose values are of the same types
+    calls.clear();
+    ColumnarBatch columnarBatch = new ColumnarBatch(deviceSchema, records.size());
+    for (int row = 0; row < records.size(); row++) {
+      columnarBatch.setTimestamp(row, records.get(row).getTimestamp());
+      List<Object> values = records.get(row).getRecordDataValue();
+      for (int column = 0; column < values.size(); column++) {
+        if (values.get(column) != null) {
+          columnarBatch.setValue(column, row, values.get(column));
+        }
+      }
+    }
+    writer.insert(columnarBatch, OperationTracer.DISABLED);
+    assertEquals(expected, calls);
+    assertEquals(1, sqls.size());
+    assertTrue(fallbackDevices.isEmpty());
+  }
+
+  @Test
+  public void testColIndex() throws SQLException {
+    // only s_4 is written, its value is the first of each record
+    IBatch batch =
+        new Batch(
+            newDeviceSchema("d_0", SENSORS),
+            Arrays.asList(
+                new Record(1L, Collections.singletonList((Object) 1.5)),
+                new Record(2L, Collections.singletonList((Object) 2.5))));
+    batch.setColIndex(4);
+
+    newWriter().insert(batch, OperationTracer.DISABLED);
+    assertEquals(Collections.singletonList("insert into ? (time, s_4) values (?, ?)"), sqls);
+    assertEquals(
+        Arrays.asList(
+            "setTableName d_0",
+            "setTimestamp 0 [1, 2]",
+            "setDouble 1 [1.5, 2.5]",
+            "columnDataAddBatch",
+            "columnDataExecuteBatch"),
+        calls);
+  }
+
+  @Test
+  public void testMultiDevice() throws SQLException {
+    List<Sensor> sensors = SENSORS.subList(1, 3);
+    MultiDeviceBatch batch = newMultiDeviceBatch(sensors);
+
+    // sub-tables are added to one statement and written by one execution
+    newWriter().insert(batch, OperationTracer.DISABLED);
+    assertEquals(1, sqls.size());
+    assertEquals(
+        Arrays.asList(
+            "setTableName d_0",
+            "setTimestamp 0 [1, 2]",
+            "setInt 1 [1, 2]",
+            "setLong 2 [10, 20]",
+            "columnDataAddBatch",
+            "setTableName d_1",
+            "setTimestamp 0 [3]",
+            "setInt 1 [3]",
+            "setLong 2 [30]",
+            "columnDataAddBatch",
+            "columnDataExecuteBatch"),
+        calls);
+  }
+
+  @Test
+  public void testFallback() throws SQLException {
+    TDengineStmtWriter writer = newWriter();
+    failingCall = "columnDataExecuteBatch";
+    MultiDeviceBatch batch = newMultiDeviceBatch(SENSORS.subList(1, 3));
+
+    // the whole batch is written again by SQL, from its first device
+    writer.insert(batch, OperationTracer.DISABLED);
+    assertTrue(writer.isFallback());
+    assertEquals(Collections.singletonList("d_0"), fallbackDevices);
+    assertEquals("close", calls.get(calls.size() - 1));
+
+    // STMT is not tried any more
+    calls.clear();
+    writer.insert(newMultiDeviceBatch(SENSORS.subList(1, 3)), OperationTracer.DISABLED);
+    assertTrue(calls.isEmpty());
+    assertEquals(Arrays.asList("d_0", "d_0"), fallbackDevices);
+  }
+
+  @Test
+  public void testFallbackFailed() throws SQLException {
+    TDengineStmtWriter writer = newWriter();
+    failingCall = "columnDataAddBatch";
+    fallbackException = new SQLException("fallback");
+    IBatch batch = newMultiDeviceBatch(SENSORS.subList(1, 3));
+
+    // the error is not of STMT, it is thrown and STMT is kept
+    try {
+      writer.insert(batch, OperationTracer.DISABLED);
+      fail();
+    } catch (SQLException e) {
+      assertSame(fallbackException, e);
+      assertEquals("columnDataAddBatch", e.getSuppressed()[0].getMessage());
+    }
+    assertFalse(writer.isFallback());
+    assertEquals(1, sqls.size());
+
+    // the closed statement is prepared again by the next batch
+    failingCall = null;
+    calls.clear();
+    writer.insert(newMultiDeviceBatch(SENSORS.subList(1, 3)), OperationTracer.DISABLED);
+    assertEquals(2, sqls.size());
+    assertEquals("columnDataExecuteBatch", calls.get(calls.size() - 1));
+    assertEquals(Collections.singletonList("d_0"), fallbackDevices);
+  }
+
+  @Test
+  public void testPrepareFailed() throws SQLException {
+    // e.g. a REST connection, whose statements can not bind column arrays
+    TDengineStmtWriter writer =
+        new TDengineStmtWriter(
+            sql -> {
+              throw new SQLException("prepare");
+            },
+            BINARY_LENGTH,
+            batch -> fallbackDevices.add(batch.getDeviceSchema().getDevice()));
+    writer.insert(newMultiDeviceBatch(SENSORS.subList(1, 3)), OperationTracer.DISABLED);
+    assertTrue(writer.isFallback());
+    assertEquals(Collections.singletonList("d_0"), fallbackDevices);
+  }
+
+  private TDengineStmtWriter newWriter() {
+    return new TDengineStmtWriter(
+        sql -> {
+          sqls.add(sql);
+          return new FakeStmt();
+        },
+        BINARY_LENGTH,
+        batch -> {
+          fallbackDevices.add(batch.getDeviceSchema().getDevice());
+          if (fallbackException != null) {
+            throw fallbackException;
+          }
+        });
+  }
+
+  private static MultiDeviceBatch newMultiDeviceBatch(List<Sensor> sensors) {
+    MultiDeviceBatch batch = new MultiDeviceBatch(2);
+    batch.addSchemaAndContent(
+        newDeviceSchema("d_0", sensors),
+        Arrays.asList(
+            new Record(1L, Arrays.asList(1, 10L)), new Record(2L, Arrays.asList(2, 20L))));
+    batch.addSchemaAndContent(
+        newDeviceSchema("d_1", sensors),
+        Collections.singletonList(new Record(3L, Arrays.asList(3, 30L))));
+    return batch;
+  }
+
+  private static DeviceSchema newDeviceSchema(String device, List<Sensor> sensors) {
+    return new DeviceSchema("0", "0", device, sensors, new HashMap<>());
+  }
+
+  /** Record the calls with a copy of the bound values, the arrays are reused by the writer */
+  private class FakeStmt implements TDengineStmtWriter.Stmt {
+
+    private void record(String call) throws SQLException {
+      calls.add(call);
+      if (call.startsWith(String.valueOf(failingCall))) {
+        throw new SQLException(failingCall);
+      }
+    }
+
+    @Override
+    public void setTableName(String name) throws SQLException {
+      record("setTableName " + name);
+    }
+
+    @Override
+    public void setTimestamp(int index, ArrayList<Long> values) throws SQLException {
+      record("setTimestamp " + index + " " + values);
+    }
+
+    @Override
+    public void setBoolean(int index, ArrayList<Boolean> values) throws SQLException {
+      assertElementType(Boolean.class, values);
+      record("setBoolean " + index + " " + values);
+    }
+
+    @Override
+    public void setInt(int index, ArrayList<Integer> values) throws SQLException {
+      assertElementType(Integer.class, values);
+      record("setInt " + index + " " + values);
+    }
+
+    @Override
+    public void setLong(int index, ArrayList<Long> values) throws SQLException {
+      assertElementType(Long.class, values);
+      record("setLong " + index + " " + values);
+    }
+
+    @Override
+    public void setFloat(int index, ArrayList<Float> values) throws SQLException {
+      assertElementType(Float.class, values);
+      record("setFloat " + index + " " + values);
+    }
+
+    @Override
+    public void setDouble(int index, ArrayList<Double> values) throws SQLException {
+      assertElementType(Double.class, values);
+      record("setDouble " + index + " " + values);
+    }
+
+    @Override
+    public void setString(int index, ArrayList<String> values, int size) throws SQLException {
+      assertElementType(String.class, values);
+      record("setString " + index + " " + values + " " + size);
+    }
+
+    @Override
+    public void columnDataAddBatch() throws SQLException {
+      record("columnDataAddBatch");
+    }
+
+    @Override
+    public void columnDataExecuteBatch() throws SQLException {
+      record("columnDataExecuteBatch");
+    }
+
+    @Override
+    public void close() {
+      calls.add("close");
+    }
+  }
+
+  /** The driver casts the elements to the type of the column, which must not fail */
+  private static void assertElementType(Class<?> type, List<?> values) {
+    for (Object value : values) {
+      if (value != null) {
+        assertSame(type, value.getClass());
+      }
+    }
+  }
+}
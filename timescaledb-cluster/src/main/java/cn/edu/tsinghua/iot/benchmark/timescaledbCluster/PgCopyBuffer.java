@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.timescaledbCluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable buffer of the binary COPY format of PostgreSQL: a header, tuples of length prefixed
+ * fields in network byte order, and a trailer. It is reset and reused for every batch.
+ */
+class PgCopyBuffer {
+
+  private static final byte[] HEADER = {
+    'P',
+    'G',
+    'C',
+    'O',
+    'P',
+    'Y',
+    '\n',
+    (byte) 0xff,
+    '\r',
+    '\n',
+    0, // signature
+    0,
+    0,
+    0,
+    0, // flags
+    0,
+    0,
+    0,
+    0 // length of header extension
+  };
+
+  private byte[] buffer = new byte[64 * 1024];
+  private int size = 0;
+
+  /** Clear the buffer and write the header */
+  void start() {
+    size = 0;
+    ensureCapacity(HEADER.length);
+    System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+    size = HEADER.length;
+  }
+
+  void startTuple(int fieldCount) {
+    writeShort(fieldCount);
+  }
+
+  void finish() {
+    writeShort(-1);
+  }
+
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void writeBoolean(boolean value) {
+    writeInt(1);
+    ensureCapacity(1);
+    buffer[size++] = (byte) (value ? 1 : 0);
+  }
+
+  /** NULL field of any type, which is only a length of -1 */
+  void writeNull() {
+    writeInt(-1);
+  }
+
+  /** int4 field */
+  void writeInt4(int value) {
+    writeInt(4);
+    writeInt(value);
+  }
+
+  /** int8 field */
+  void writeInt8(long value) {
+    writeInt(8);
+    writeLong(value);
+  }
+
+  /** float8 field */
+  void writeFloat8(double value) {
+    writeInt(8);
+    writeLong(Double.doubleToLongBits(value));
+  }
+
+  /** text field, ASCII is encoded without allocation */
+  void writeText(String value) {
+    int length = value.length();
+    int lengthIndex = size;
+    writeInt(0);
+    ensureCapacity(length);
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        size = lengthIndex;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+        return;
+      }
+      buffer[size++] = (byte) c;
+    }
+    putInt(lengthIndex, length);
+  }
+
+  private void writeShort(int value) {
+    ensureCapacity(2);
+    buffer[size++] = (byte) (value >>> 8);
+    buffer[size++] = (byte) value;
+  }
+
+  private void writeInt(int value) {
+    ensureCapacity(4);
+    putInt(size, value);
+    size += 4;
+  }
+
+  private void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void putInt(int index, int value) {
+    buffer[index] = (byte) (value >>> 24);
+    buffer[index + 1] = (byte) (value >>> 16);
+    buffer[index + 2] = (byte) (value >>> 8);
+    buffer[index + 3] = (byte) value;
+  }
+
+  private void ensureCapacity(int length) {
+    if (size + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+    }
+  }
+}
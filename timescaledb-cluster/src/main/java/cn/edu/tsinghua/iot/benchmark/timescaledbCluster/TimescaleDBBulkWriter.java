@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.timescaledbCluster;
+
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
+import cn.edu.tsinghua.iot.benchmark.entity.Record;
+import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
+import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
+import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write batches by a multi-row INSERT PreparedStatement with typed binds, or by COPY FROM STDIN in
+ * the binary format, see TIMESCALEDB_INSERT_MODE. Like the INSERT of STATEMENT mode, rows are not
+ * upserted on conflict. The statements and SQL are built once per column layout of devices and
+ * reused, so no SQL text is built per row and no value is parsed from text by the server.
+ */
+class TimescaleDBBulkWriter {
+
+  /** The max number of bind parameters of one statement in the protocol of PostgreSQL */
+  private static final int MAX_PARAMETER_NUMBER = 32767;
+
+  private final Connection connection;
+  private final String tableName;
+
+  /** Column layouts by the sensors of devices, the tags of all devices have the same keys */
+  private final Map<List<Sensor>, Layout> layouts = new HashMap<>();
+
+  private Layout lastLayout = null;
+  private PgCopyBuffer copyBuffer = null;
+  private CopyManager copyManager = null;
+
+  TimescaleDBBulkWriter(Connection connection, String tableName) {
+    this.connection = connection;
+    this.tableName = tableName;
+  }
+
+  void insertByPreparedStatement(IBatch batch, OperationTracer tracer) throws SQLException {
+    DeviceSchema deviceSchema = batch.getDeviceSchema();
+    Layout layout = getLayout(deviceSchema);
+    int rowCount = getRowCount(batch);
+    int fullRows = rowCount - rowCount % layout.maxRows;
+    PreparedStatement fullStatement = null;
+    PreparedStatement tailStatement = null;
+    try {
+      if (fullRows > 0) {
+        fullStatement = layout.getStatement(layout.maxRows);
+        for (int start = 0; start < fullRows; start += layout.maxRows) {
+          bindRows(fullStatement, batch, start, layout.maxRows);
+          fullStatement.addBatch();
+        }
+      }
+      if (fullRows < rowCount) {
+        tailStatement = layout.getStatement(rowCount - fullRows);
+        bindRows(tailStatement, batch, fullRows, rowCount - fullRows);
+      }
+      tracer.lap(LatencySpan.PREPARE);
+
+      if (fullStatement != null) {
+        fullStatement.executeBatch();
+      }
+      if (tailStatement != null) {
+        tailStatement.executeUpdate();
+      }
+      tracer.lap(LatencySpan.SERVER_WAIT);
+    } finally {
+      if (fullStatement != null) {
+        fullStatement.clearBatch();
+      }
+    }
+  }
+
+  void insertByCopy(IBatch batch, OperationTracer tracer) throws SQLException {
+    DeviceSchema deviceSchema = batch.getDeviceSchema();
+    Layout layout = getLayout(deviceSchema);
+    if (copyBuffer == null) {
+      copyBuffer = new PgCopyBuffer();
+      copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+    copyBuffer.start();
+    int rowCount = getRowCount(batch);
+    for (int row = 0; row < rowCount; row++) {
+      copyBuffer.startTuple(layout.columnNumber);
+      copyBuffer.writeInt8(getTimestamp(batch, row));
+      // location is the group of device
+      copyBuffer.writeText(deviceSchema.getGroup());
+      copyBuffer.writeText(deviceSchema.getGroup());
+      copyBuffer.writeText(deviceSchema.getDevice());
+      for (String tagValue : deviceSchema.getTags().values()) {
+        copyBuffer.writeText(tagValue);
+      }
+      if (batch instanceof ColumnarBatch) {
+        ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+        for (int column = 0; column < columnarBatch.getColumnCount(); column++) {
+          writeValue(columnarBatch, column, row);
+        }
+      } else {
+        List<Sensor> sensors = deviceSchema.getSensors();
+        List<Object> values = batch.getRecords().get(row).getRecordDataValue();
+        for (int column = 0; column < values.size(); column++) {
+          writeValue(sensors.get(column).getSensorType(), values.get(column));
+        }
+      }
+    }
+    copyBuffer.finish();
+    tracer.lap(LatencySpan.PREPARE);
+
+    CopyIn copyIn = copyManager.copyIn(layout.copySql);
+    try {
+      copyIn.writeToCopy(copyBuffer.getBuffer(), 0, copyBuffer.size());
+      copyIn.endCopy();
+    } finally {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+    tracer.lap(LatencySpan.SERVER_WAIT);
+  }
+
+  void close() throws SQLException {
+    for (Layout layout : layouts.values()) {
+      for (PreparedStatement statement : layout.statements.values()) {
+        statement.close();
+      }
+    }
+    layouts.clear();
+    lastLayout = null;
+  }
+
+  private Layout getLayout(DeviceSchema deviceSchema) {
+    List<Sensor> sensors = deviceSchema.getSensors();
+    if (lastLayout == null || lastLayout.sensors != sensors) {
+      lastLayout = layouts.computeIfAbsent(sensors, k -> new Layout(deviceSchema));
+    }
+    return lastLayout;
+  }
+
+  private static int getRowCount(IBatch batch) {
+    if (batch instanceof ColumnarBatch) {
+      return ((ColumnarBatch) batch).getRowCount();
+    }
+    return batch.getRecords().size();
+  }
+
+  private static long getTimestamp(IBatch batch, int row) {
+    if (batch instanceof ColumnarBatch) {
+      return ((ColumnarBatch) batch).getTimestamps()[row];
+    }
+    return batch.getRecords().get(row).getTimestamp();
+  }
+
+  /** Bind rows [start, start + rowNumber) of batch to all parameters of statement */
+  private static void bindRows(PreparedStatement statement, IBatch batch, int start, int rowNumber)
+      throws SQLException {
+    DeviceSchema deviceSchema = batch.getDeviceSchema();
+    int index = 1;
+    for (int row = start; row < start + rowNumber; row++) {
+      statement.setLong(index++, getTimestamp(batch, row));
+      // location is the group of device
+      statement.setString(index++, deviceSchema.getGroup());
+      statement.setString(index++, deviceSchema.getGroup());
+      statement.setString(index++, deviceSchema.getDevice());
+      for (String tagValue : deviceSchema.getTags().values()) {
+        statement.setString(index++, tagValue);
+      }
+      if (batch instanceof ColumnarBatch) {
+        ColumnarBatch columnarBatch = (ColumnarBatch) batch;
+        for (int column = 0; column < columnarBatch.getColumnCount(); column++) {
+          bindValue(statement, index++, columnarBatch, column, row);
+        }
+      } else {
+        List<Sensor> sensors = deviceSchema.getSensors();
+        Record record = batch.getRecords().get(row);
+        List<Object> values = record.getRecordDataValue();
+        for (int column = 0; column < values.size(); column++) {
+          bindValue(statement, index++, sensors.get(column).getSensorType(), values.get(column));
+        }
+      }
+    }
+  }
+
+  private static void bindValue(
+      PreparedStatement statement, int index, ColumnarBatch batch, int column, int row)
+      throws SQLException {
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        statement.setBoolean(index, ((boolean[]) batch.getColumn(column))[row]);
+        break;
+      case INT32:
+        statement.setInt(index, ((int[]) batch.getColumn(column))[row]);
+        break;
+      case INT64:
+        statement.setLong(index, ((long[]) batch.getColumn(column))[row]);
+        break;
+      case FLOAT:
+        statement.setDouble(index, toDouble(((float[]) batch.getColumn(column))[row]));
+        break;
+      case DOUBLE:
+        statement.setDouble(index, ((double[]) batch.getColumn(column))[row]);
+        break;
+      default:
+        statement.setString(index, String.valueOf(batch.getValue(column, row)));
+        break;
+    }
+  }
+
+  private static void bindValue(
+      PreparedStatement statement, int index, SensorType sensorType, Object value)
+      throws SQLException {
+    switch (sensorType) {
+      case BOOLEAN:
+        statement.setBoolean(index, (Boolean) value);
+        break;
+      case INT32:
+        statement.setInt(index, (Integer) value);
+        break;
+      case INT64:
+        statement.setLong(index, (Long) value);
+        break;
+      case FLOAT:
+        statement.setDouble(index, toDouble((Float) value));
+        break;
+      case DOUBLE:
+        statement.setDouble(index, (Double) value);
+        break;
+      default:
+        statement.setString(index, String.valueOf(value));
+        break;
+    }
+  }
+
+  private void writeValue(ColumnarBatch batch, int column, int row) {
+    Object values = batch.getColumn(column);
+    if (values instanceof Object[] && ((Object[]) values)[row] == null) {
+      copyBuffer.writeNull();
+      return;
+    }
+    switch (batch.getSensorType(column)) {
+      case BOOLEAN:
+        copyBuffer.writeBoolean(((boolean[]) batch.getColumn(column))[row]);
+        break;
+      case INT32:
+        copyBuffer.writeInt4(((int[]) batch.getColumn(column))[row]);
+        break;
+      case INT64:
+        copyBuffer.writeInt8(((long[]) batch.getColumn(column))[row]);
+        break;
+      case FLOAT:
+        copyBuffer.writeFloat8(toDouble(((float[]) batch.getColumn(column))[row]));
+        break;
+      case DOUBLE:
+        copyBuffer.writeFloat8(((double[]) batch.getColumn(column))[row]);
+        break;
+      default:
+        copyBuffer.writeText(String.valueOf(batch.getValue(column, row)));
+        break;
+    }
+  }
+
+  private void writeValue(SensorType sensorType, Object value) {
+    if (value == null) {
+      copyBuffer.writeNull();
+      return;
+    }
+    switch (sensorType) {
+      case BOOLEAN:
+        copyBuffer.writeBoolean((Boolean) value);
+        break;
+      case INT32:
+        copyBuffer.writeInt4((Integer) value);
+        break;
+      case INT64:
+        copyBuffer.writeInt8((Long) value);
+        break;
+      case FLOAT:
+        copyBuffer.writeFloat8(toDouble((Float) value));
+        break;
+      case DOUBLE:
+        copyBuffer.writeFloat8((Double) value);
+        break;
+      default:
+        copyBuffer.writeText(String.valueOf(value));
+        break;
+    }
+  }
+
+  /**
+   * FLOAT sensors are stored in FLOAT (double precision) columns, keep the same value as the text
+   * of the float written in STATEMENT mode instead of widening its binary value
+   */
+  private static double toDouble(float value) {
+    return Double.parseDouble(Float.toString(value));
+  }
+
+  /** SQL and statements of the devices with the same sensors */
+  private class Layout {
+    private final List<Sensor> sensors;
+    private final int columnNumber;
+    private final int maxRows;
+    private final String insertSqlHead;
+    private final String rowPlaceholders;
+    private final String copySql;
+
+    /** Statements by the number of rows */
+    private final Map<Integer, PreparedStatement> statements = new HashMap<>();
+
+    private Layout(DeviceSchema deviceSchema) {
+      this.sensors = deviceSchema.getSensors();
+      List<String> columns = new ArrayList<>();
+      columns.add("time");
+      columns.add("location");
+      columns.add("sGroup");
+      columns.add("device");
+      columns.addAll(deviceSchema.getTags().keySet());
+      for (Sensor sensor : sensors) {
+        columns.add(sensor.getName());
+      }
+      this.columnNumber = columns.size();
+      this.maxRows = Math.max(1, MAX_PARAMETER_NUMBER / columnNumber);
+      String columnList = "(" + String.join(",", columns) + ")";
+      this.insertSqlHead = "INSERT INTO " + tableName + columnList + " VALUES ";
+      StringBuilder placeholders = new StringBuilder("(?");
+      for (int i = 1; i < columnNumber; i++) {
+        placeholders.append(",?");
+      }
+      this.rowPlaceholders = placeholders.append(')').toString();
+      this.copySql = "COPY " + tableName + columnList + " FROM STDIN (FORMAT binary)";
+    }
+
+    private PreparedStatement getStatement(int rows) throws SQLException {
+      PreparedStatement statement = statements.get(rows);
+      if (statement == null) {
+        StringBuilder sql = new StringBuilder(insertSqlHead).append(rowPlaceholders);
+        for (int i = 1; i < rows; i++) {
+          sql.append(',').append(rowPlaceholders);
+        }
+        statement = connection.prepareStatement(sql.toString());
+        statements.put(rows, statement);
+      }
+      return statement;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cn.edu.tsinghua.iot.benchmark.timescaledbCluster;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PgCopyBufferTest {
+
+  /** Signature, flags and header extension length of the binary COPY format */
+  private static final byte[] HEADER = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0
+  };
+
+  @Test
+  public void testHeaderAndTrailer() {
+    PgCopyBuffer buffer = new PgCopyBuffer();
+    buffer.start();
+    buffer.finish();
+
+    ByteBuffer copy = wrap(buffer);
+    assertHeader(copy);
+    // the trailer is a field count of -1
+    assertEquals(-1, copy.getShort());
+    assertFalse(copy.hasRemaining());
+  }
+
+  @Test
+  public void testFields() {
+    PgCopyBuffer buffer = new PgCopyBuffer();
+    buffer.start();
+    buffer.startTuple(9);
+    buffer.writeBoolean(true);
+    buffer.writeBoolean(false);
+    buffer.writeInt4(Integer.MIN_VALUE);
+    buffer.writeInt8(-2L);
+    buffer.writeFloat8(1.5);
+    buffer.writeFloat8(Double.NaN);
+    buffer.writeText("d_0");
+    // non ASCII after ASCII characters, the length is rewritten
+    buffer.writeText("s温度😀");
+    buffer.writeNull();
+    buffer.startTuple(1);
+    buffer.writeText("");
+    buffer.finish();
+
+    ByteBuffer copy = wrap(buffer);
+    assertHeader(copy);
+    assertEquals(9, copy.getShort());
+    assertEquals(1, copy.getInt());
+    assertEquals(1, copy.get());
+    assertEquals(1, copy.getInt());
+    assertEquals(0, copy.get());
+    assertEquals(4, copy.getInt());
+    assertEquals(Integer.MIN_VALUE, copy.getInt());
+    assertEquals(8, copy.getInt());
+    assertEquals(-2L, copy.getLong());
+    assertEquals(8, copy.getInt());
+    assertEquals(1.5, copy.getDouble(), 0);
+    assertEquals(8, copy.getInt());
+    assertTrue(Double.isNaN(copy.getDouble()));
+    assertEquals("d_0", readText(copy));
+    assertEquals("s温度😀", readText(copy));
+    // NULL has no value bytes
+    assertEquals(-1, copy.getInt());
+    assertEquals(1, copy.getShort());
+    assertEquals("", readText(copy));
+    assertEquals(-1, copy.getShort());
+    assertFalse(copy.hasRemaining());
+  }
+
+  @Test
+  public void testGrowth() {
+    PgCopyBuffer buffer = new PgCopyBuffer();
+    int initialCapacity = buffer.getBuffer().length;
+    char[] chars = new char[initialCapacity];
+    Arrays.fill(chars, 'a');
+    String ascii = new String(chars);
+    // the fallback of non ASCII text grows the buffer by the encoded length
+    String text = ascii + "温度";
+    int rowCount = 3;
+    buffer.start();
+    for (int row = 0; row < rowCount; row++) {
+      buffer.startTuple(2);
+      buffer.writeInt8(row);
+      buffer.writeText(row == 1 ? text : ascii);
+    }
+    buffer.finish();
+    assertTrue(buffer.getBuffer().length > initialCapacity);
+
+    ByteBuffer copy = wrap(buffer);
+    assertHeader(copy);
+    for (int row = 0; row < rowCount; row++) {
+      assertEquals(2, copy.getShort());
+      assertEquals(8, copy.getInt());
+      assertEquals(row, copy.getLong());
+      assertEquals(row == 1 ? text : ascii, readText(copy));
+    }
+    assertEquals(-1, copy.getShort());
+    assertFalse(copy.hasRemaining());
+
+    // the grown buffer is reused from the header for the next batch
+    byte[] grown = buffer.getBuffer();
+    buffer.start();
+    buffer.startTuple(1);
+    buffer.writeInt4(7);
+    buffer.finish();
+    assertSame(grown, buffer.getBuffer());
+    copy = wrap(buffer);
+    assertHeader(copy);
+    assertEquals(1, copy.getShort());
+    assertEquals(4, copy.getInt());
+    assertEquals(7, copy.getInt());
+    assertEquals(-1, copy.getShort());
+    assertFalse(copy.hasRemaining());
+  }
+
+  private static ByteBuffer wrap(PgCopyBuffer buffer) {
+    // network byte order is the default of ByteBuffer
+    return ByteBuffer.wrap(buffer.getBuffer(), 0, buffer.size());
+  }
+
+  private static void assertHeader(ByteBuffer copy) {
+    byte[] header = new byte[HEADER.length];
+    copy.get(header);
+    assertArrayEquals(HEADER, header);
+  }
+
+  private static String readText(ByteBuffer copy) {
+    byte[] bytes = new byte[copy.getInt()];
+    copy.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -22,16 +22,20 @@ package cn.edu.tsinghua.iot.benchmark.timescaledb;
 import cn.edu.tsinghua.iot.benchmark.client.operation.Operation;
 import cn.edu.tsinghua.iot.benchmark.conf.Config;
 import cn.edu.tsinghua.iot.benchmark.conf.ConfigDescriptor;
+import cn.edu.tsinghua.iot.benchmark.entity.Batch.ColumnarBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.Batch.IBatch;
 import cn.edu.tsinghua.iot.benchmark.entity.DeviceSummary;
 import cn.edu.tsinghua.iot.benchmark.entity.Record;
 import cn.edu.tsinghua.iot.benchmark.entity.Sensor;
 import cn.edu.tsinghua.iot.benchmark.entity.enums.SensorType;
+import cn.edu.tsinghua.iot.benchmark.measurement.OperationTracer;
 import cn.edu.tsinghua.iot.benchmark.measurement.Status;
+import cn.edu.tsinghua.iot.benchmark.measurement.enums.LatencySpan;
 import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.enums.TimescaleDBInsertMode;
 import cn.edu.tsinghua.iot.benchmark.utils.TimeUtils;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeValueQuery;
@@ -78,6 +82,10 @@ public class TimescaleDB implements IDatabase {
   private static String tableName;
   private Connection connection;
   private DBConfig dbConfig;
+  private OperationTracer tracer = OperationTracer.DISABLED;
+
+  /** Writer of PREPARED_STATEMENT and COPY insert mode, null in STATEMENT insert mode */
+  private TimescaleDBBulkWriter bulkWriter = null;
 
   public TimescaleDB(DBConfig dbConfig) {
     this.dbConfig = dbConfig;
@@ -98,6 +106,9 @@ public class TimescaleDB implements IDatabase {
                   dbConfig.getDB_NAME()),
               dbConfig.getUSERNAME(),
               dbConfig.getPASSWORD());
+      if (config.getTIMESCALEDB_INSERT_MODE() != TimescaleDBInsertMode.STATEMENT) {
+        bulkWriter = new TimescaleDBBulkWriter(connection, tableName);
+      }
     } catch (Exception e) {
       LOGGER.error("Initialize TimescaleDB failed because ", e);
       throw new TsdbException(e);
@@ -117,12 +128,20 @@ public class TimescaleDB implements IDatabase {
     }
   }
 
+  @Override
+  public void setOperationTracer(OperationTracer tracer) {
+    this.tracer = tracer;
+  }
+
   @Override
   public void close() throws TsdbException {
     if (connection == null) {
       return;
     }
     try {
+      if (bulkWriter != null) {
+        bulkWriter.close();
+      }
       connection.close();
     } catch (Exception e) {
       LOGGER.error("Failed to close TimeScaleDB connection because: {}", e.getMessage());
@@ -166,15 +185,35 @@ public class TimescaleDB implements IDatabase {
 
   @Override
   public Status insertOneBatch(IBatch batch) {
+    try {
+      switch (config.getTIMESCALEDB_INSERT_MODE()) {
+        case PREPARED_STATEMENT:
+          bulkWriter.insertByPreparedStatement(batch, tracer);
+          return new Status(true);
+        case COPY:
+          bulkWriter.insertByCopy(batch, tracer);
+          return new Status(true);
+        default:
+          return insertByStatement(batch);
+      }
+    } catch (Exception e) {
+      return new Status(false, 0, e, e.toString());
+    }
+  }
+
+  private Status insertByStatement(IBatch batch) {
     try (Statement statement = connection.createStatement()) {
-      for (Record record : batch.getRecords()) {
-        String sql =
-            getInsertOneBatchSql(
-                batch.getDeviceSchema(), record.getTimestamp(), record.getRecordDataValue());
-        statement.addBatch(sql);
+      int rowCount =
+          batch instanceof ColumnarBatch
+              ? ((ColumnarBatch) batch).getRowCount()
+              : batch.getRecords().size();
+      for (int row = 0; row < rowCount; row++) {
+        statement.addBatch(getInsertOneBatchSql(batch, row));
       }
+      tracer.lap(LatencySpan.PREPARE);
 
       statement.executeBatch();
+      tracer.lap(LatencySpan.SERVER_WAIT);
 
       return new Status(true);
     } catch (Exception e) {
@@ -453,8 +492,10 @@ public class TimescaleDB implements IDatabase {
     List<List<Object>> records = new ArrayList<>();
     int line = 0;
     long queryResultPointNum = 0;
+    tracer.lap(LatencySpan.PREPARE);
     try (Statement statement = connection.createStatement()) {
       try (ResultSet resultSet = statement.executeQuery(sql)) {
+        tracer.lap(LatencySpan.SERVER_WAIT);
         while (resultSet.next()) {
           line++;
           if (config.isIS_COMPARISON()) {
@@ -476,6 +517,7 @@ public class TimescaleDB implements IDatabase {
             records.add(record);
           }
         }
+        tracer.lap(LatencySpan.DECODE);
       }
       queryResultPointNum = line * sensorNum * config.getQUERY_DEVICE_NUM();
       if (config.isIS_COMPARISON()) {
@@ -629,8 +671,12 @@ public class TimescaleDB implements IDatabase {
    * <p>INSERT INTO conditions(time, group, device, s_0, s_1) VALUES (1535558400000, 'group_0',
    * 'd_0', 70.0, 50.0);
    */
-  private String getInsertOneBatchSql(
-      DeviceSchema deviceSchema, long timestamp, List<Object> values) {
+  private String getInsertOneBatchSql(IBatch batch, int row) {
+    DeviceSchema deviceSchema = batch.getDeviceSchema();
+    ColumnarBatch columnarBatch = batch instanceof ColumnarBatch ? (ColumnarBatch) batch : null;
+    Record record = columnarBatch == null ? batch.getRecords().get(row) : null;
+    long timestamp =
+        columnarBatch != null ? columnarBatch.getTimestamps()[row] : record.getTimestamp();
     StringBuilder builder = new StringBuilder();
     List<Sensor> sensors = deviceSchema.getSensors();
     builder.append("insert into ").append(tableName).append("(time,sGroup,device");
@@ -647,8 +693,15 @@ public class TimescaleDB implements IDatabase {
     for (Map.Entry<String, String> pair : deviceSchema.getTags().entrySet()) {
       builder.append(",'").append(pair.getValue()).append(",'");
     }
-    for (Object value : values) {
-      builder.append(",'").append(value).append("'");
+    if (columnarBatch != null) {
+      for (int column = 0; column < columnarBatch.getColumnCount(); column++) {
+        builder.append(",'");
+        columnarBatch.appendValue(builder, column, row).append("'");
+      }
+    } else {
+      for (Object value : record.getRecordDataValue()) {
+        builder.append(",'").append(value).append("'");
+      }
     }
     builder.append(") ON CONFLICT(time,sGroup,device");
     for (Map.Entry<String, String> pair : deviceSchema.getTags().entrySet()) {
@@ -29,6 +29,7 @@ import cn.edu.tsinghua.iot.benchmark.schema.schemaImpl.DeviceSchema;
 import cn.edu.tsinghua.iot.benchmark.tsdb.DBConfig;
 import cn.edu.tsinghua.iot.benchmark.tsdb.IDatabase;
 import cn.edu.tsinghua.iot.benchmark.tsdb.TsdbException;
+import cn.edu.tsinghua.iot.benchmark.tsdb.http.HttpTransport;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggRangeValueQuery;
 import cn.edu.tsinghua.iot.benchmark.workload.query.impl.AggValueQuery;
@@ -57,6 +58,7 @@ public class VictoriaMetrics implements IDatabase {
   private final String QUERY_URL;
   private final String QUERY_RANGE_URL;
   private DBConfig dbConfig;
+  private HttpTransport transport;
 
   public VictoriaMetrics(DBConfig dbConfig) {
     this.dbConfig = dbConfig;
@@ -77,7 +79,7 @@ public class VictoriaMetrics implements IDatabase {
    */
   @Override
   public void init() throws TsdbException {
-    // no need to init
+    transport = HttpTransport.open();
   }
 
   /**
@@ -87,7 +89,7 @@ public class VictoriaMetrics implements IDatabase {
   @Override
   public void cleanup() throws TsdbException {
     try {
-      HttpRequestUtil.sendPost(DELETE_URL, null, "application/x-www-form-urlencoded");
+      transport.write(DELETE_URL, "", "application/x-www-form-urlencoded");
       LOGGER.info("Clean Up finish!");
     } catch (Exception e) {
       LOGGER.warn("Failed to cleanup!");
@@ -98,7 +100,10 @@ public class VictoriaMetrics implements IDatabase {
   /** Close the DB instance connections. Called once per DB instance. */
   @Override
   public void close() throws TsdbException {
-    // no need to close
+    if (transport != null) {
+      transport.release();
+      transport = null;
+    }
   }
 
   /**
@@ -129,8 +134,7 @@ public class VictoriaMetrics implements IDatabase {
       for (VictoriaMetricsModel victoriaMetricsModel : models) {
         body.append(victoriaMetricsModel.toString() + "\n");
       }
-      HttpRequestUtil.sendPost(
-          CREATE_URL, body.toString(), "text/plain; version=0.0.4; charset=utf-8");
+      transport.write(CREATE_URL, body.toString(), "text/plain; version=0.0.4; charset=utf-8");
       return new Status(true);
     } catch (Exception e) {
       e.printStackTrace();
@@ -459,7 +463,7 @@ public class VictoriaMetrics implements IDatabase {
   private long queryAndGetPoint(String url) {
     long point = 0;
     try {
-      String result = HttpRequestUtil.sendGet(url);
+      String result = transport.get(url);
       JSONObject jsonObject = JSONObject.parseObject(result);
       point += ((JSONArray) ((JSONObject) jsonObject.get("data")).get("result")).size();
       return point;